@@ -36,6 +36,25 @@ import com.googlecode.lanterna.screen.TabBehaviour;
  * @author Martin
  */
 public class TerminalTextUtils {
+    /**
+     * One bit for every character in the Basic Multilingual Plane, set if the character is double-width. Looking up a
+     * character in the Unicode block table is rather slow and this is done at least once for every character drawn, so
+     * we do it once for all characters up front instead.
+     */
+    private static final long[] DOUBLE_WIDTH_CHARACTERS = new long[(Character.MAX_VALUE + 1) / 64];
+    private static final char FIRST_DOUBLE_WIDTH_CHARACTER;
+
+    static {
+        char firstDoubleWidthCharacter = Character.MAX_VALUE;
+        for(int c = Character.MAX_VALUE; c >= 0; c--) {
+            if(isCharCJKByUnicodeBlock((char)c)) {
+                DOUBLE_WIDTH_CHARACTERS[c >>> 6] |= 1L << c;
+                firstDoubleWidthCharacter = (char)c;
+            }
+        }
+        FIRST_DOUBLE_WIDTH_CHARACTER = firstDoubleWidthCharacter;
+    }
+
     private TerminalTextUtils() {
     }
 
@@ -97,6 +116,10 @@ public class TerminalTextUtils {
      *
      */
     public static boolean isCharCJK(final char c) {
+        return c >= FIRST_DOUBLE_WIDTH_CHARACTER && (DOUBLE_WIDTH_CHARACTERS[c >>> 6] & (1L << c)) != 0;
+    }
+
+    static boolean isCharCJKByUnicodeBlock(final char c) {
         Character.UnicodeBlock unicodeBlock = Character.UnicodeBlock.of(c);
         return (unicodeBlock == Character.UnicodeBlock.HIRAGANA)
                 || (unicodeBlock == Character.UnicodeBlock.KATAKANA)
@@ -165,6 +188,21 @@ public class TerminalTextUtils {
         return getColumnIndex(s, s.length());
     }
 
+    /**
+     * Returns {@code true} if none of the characters in the string are double-width, which means every character
+     * (except for tab, which this doesn't look at) takes up exactly one column. This is true for plain ASCII text and
+     * lets us skip the column counting entirely.
+     */
+    private static boolean isSingleWidthOnly(String s) {
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c >= FIRST_DOUBLE_WIDTH_CHARACTER && isCharCJK(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Given a string and a character index inside that string, find out what the column index of that character would
      * be if printed in a terminal. If the string only contains non-CJK characters then the returned value will be same
@@ -199,11 +237,17 @@ public class TerminalTextUtils {
     public static int getColumnIndex(String s, int stringCharacterIndex, TabBehaviour tabBehaviour, int firstCharacterColumnPosition) throws StringIndexOutOfBoundsException {
         int index = 0;
         for(int i = 0; i < stringCharacterIndex; i++) {
-            if(s.charAt(i) == '\t') {
-                index += tabBehaviour.getTabReplacement(firstCharacterColumnPosition).length();
+            char c = s.charAt(i);
+            if(c < FIRST_DOUBLE_WIDTH_CHARACTER) {
+                if(c == '\t') {
+                    index += tabBehaviour.getTabReplacement(firstCharacterColumnPosition).length();
+                }
+                else {
+                    index++;
+                }
             }
             else {
-                if (isCharCJK(s.charAt(i))) {
+                if (isCharCJK(c)) {
                     index++;
                 }
                 index++;
@@ -270,6 +314,10 @@ public class TerminalTextUtils {
         if(availableColumnSpace <= 0) {
             return "";
         }
+        if(fromColumn >= 0 && isSingleWidthOnly(string)) {
+            int beginIndex = Math.min(fromColumn, string.length());
+            return string.substring(beginIndex, (int)Math.min(string.length(), (long)beginIndex + availableColumnSpace));
+        }
 
         StringBuilder bob = new StringBuilder();
         int column = 0;
@@ -310,6 +358,18 @@ public class TerminalTextUtils {
             return Arrays.asList(lines);
         }
 
+        //Usually most lines already fit, in which case there is nothing to do
+        boolean allLinesFit = true;
+        for(String line: lines) {
+            if(line.length() > maxWidth || getColumnWidth(line) > maxWidth) {
+                allLinesFit = false;
+                break;
+            }
+        }
+        if(allLinesFit) {
+            return new ArrayList<String>(Arrays.asList(lines));
+        }
+
         List<String> result = new ArrayList<String>();
         LinkedList<String> linesToBeWrapped = new LinkedList<String>(Arrays.asList(lines));
         while(!linesToBeWrapped.isEmpty()) {
@@ -20,7 +20,10 @@ package com.googlecode.lanterna.gui2;
 
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.bundle.LanternaThemes;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.TextImage;
 import com.googlecode.lanterna.graphics.Theme;
 import com.googlecode.lanterna.graphics.ThemeDefinition;
 
@@ -71,6 +74,13 @@ public abstract class AbstractComponent<T extends Component> implements Componen
     private LayoutData layoutData;
     private boolean invalid;
 
+    /**
+     * If true, the output of the last draw operation is kept in {@code renderCache} and re-used while valid
+     */
+    private boolean renderCaching;
+    private TextImage renderCache;
+    private Theme renderCacheTheme;
+
     /**
      * Default constructor
      */
@@ -80,6 +90,9 @@ public abstract class AbstractComponent<T extends Component> implements Componen
         explicitPreferredSize = null;
         layoutData = null;
         invalid = true;
+        renderCaching = false;
+        renderCache = null;
+        renderCacheTheme = null;
         parent = null;
         overrideRenderer = null;
         themeRenderer = null;
@@ -97,12 +110,13 @@ public abstract class AbstractComponent<T extends Component> implements Componen
 
     /**
      * Takes a {@code Runnable} and immediately executes it if this is called on the designated GUI thread, otherwise
-     * schedules it for later invocation.
+     * schedules it for later invocation. Scheduled tasks are exempt from the GUI thread's task queue limit, see
+     * {@link AbstractTextGUIThread#invokeLaterExempt(Runnable)}.
      * @param runnable {@code Runnable} to execute on the GUI thread
      */
     protected void runOnGUIThreadIfExistsOtherwiseRunDirect(Runnable runnable) {
         if(getTextGUI() != null && getTextGUI().getGUIThread() != null) {
-            getTextGUI().getGUIThread().invokeLater(runnable);
+            AbstractTextGUIThread.invokeLaterExempt(getTextGUI().getGUIThread(), runnable);
         }
         else {
             runnable.run();
@@ -153,6 +167,34 @@ public abstract class AbstractComponent<T extends Component> implements Componen
         return defaultRenderer;
     }
 
+    /**
+     * Enables or disables render caching for this component. When enabled, the component will keep a copy of what was
+     * drawn the last time in an off-screen {@code TextImage} and as long as the component is not invalid and neither
+     * the size nor the theme has changed, subsequent draw operations will simply copy this image instead of invoking
+     * the renderer again. This is useful for complex components (like a {@code Panel} with many children) that rarely
+     * change, but be aware that the cache is only refreshed when the component (or, for containers, any of its
+     * children) is invalidated, so custom components with render caching must call {@code invalidate()} whenever their
+     * appearance changes.
+     * @param renderCaching {@code true} to enable render caching, {@code false} to disable it
+     * @return Itself
+     */
+    public synchronized T setRenderCaching(boolean renderCaching) {
+        this.renderCaching = renderCaching;
+        this.renderCache = null;
+        this.renderCacheTheme = null;
+        invalidate();
+        return self();
+    }
+
+    /**
+     * Returns {@code true} if render caching has been enabled for this component
+     * @return {@code true} if render caching has been enabled for this component
+     * @see #setRenderCaching(boolean)
+     */
+    public boolean isRenderCaching() {
+        return renderCaching;
+    }
+
     @Override
     public void invalidate() {
         invalid = true;
@@ -214,12 +256,45 @@ public abstract class AbstractComponent<T extends Component> implements Componen
     public final synchronized void draw(final TextGUIGraphics graphics) {
         //Delegate drawing the component to the renderer
         setSize(graphics.getSize());
-        onBeforeDrawing();
-        getRenderer().drawComponent(graphics, self());
-        onAfterDrawing(graphics);
+        if(renderCaching) {
+            drawWithRenderCache(graphics);
+        }
+        else {
+            onBeforeDrawing();
+            getRenderer().drawComponent(graphics, self());
+            onAfterDrawing(graphics);
+        }
         invalid = false;
     }
 
+    private void drawWithRenderCache(TextGUIGraphics graphics) {
+        TerminalSize size = graphics.getSize();
+        Theme theme = getTheme();
+        if(renderCache == null || isInvalid() || !renderCache.getSize().equals(size) || renderCacheTheme != theme) {
+            if(renderCache == null || !renderCache.getSize().equals(size)) {
+                renderCache = new BasicTextImage(size);
+            }
+
+            // Start from what is currently underneath the component, in case the renderer doesn't fill the whole area
+            for(int row = 0; row < size.getRows(); row++) {
+                for(int column = 0; column < size.getColumns(); column++) {
+                    TextCharacter character = graphics.getCharacter(column, row);
+                    if(character != null) {
+                        renderCache.setCharacterAt(column, row, character);
+                    }
+                }
+            }
+            TextGUIGraphics cacheGraphics = new DefaultTextGUIGraphics(graphics.getTextGUI(), renderCache.newTextGraphics());
+            cacheGraphics.setStyleFrom(graphics);
+            cacheGraphics.setTabBehaviour(graphics.getTabBehaviour());
+            onBeforeDrawing();
+            getRenderer().drawComponent(cacheGraphics, self());
+            onAfterDrawing(cacheGraphics);
+            renderCacheTheme = theme;
+        }
+        graphics.drawImage(TerminalPosition.TOP_LEFT_CORNER, renderCache);
+    }
+
     /**
      * This method is called just before the component's renderer is invoked for the drawing operation. You can use this
      * hook to do some last-minute adjustments to the component, as an alternative to coding it into the renderer
@@ -375,6 +450,8 @@ public abstract class AbstractComponent<T extends Component> implements Componen
         if (parent == container) {
             parent = null;
             themeRenderer = null;
+            renderCache = null;
+            renderCacheTheme = null;
         } else {
             throw new IllegalStateException(this + " is not " + container +"'s child.");
         }
@@ -63,6 +63,8 @@ public abstract class AbstractInteractableComponent<T extends AbstractInteractab
     @Override
     public final void onEnterFocus(FocusChangeDirection direction, Interactable previouslyInFocus) {
         inFocus = true;
+        // Most renderers draw focused components differently, this also makes render-cached containers redraw
+        invalidate();
         afterEnterFocus(direction, previouslyInFocus);
     }
 
@@ -86,6 +88,7 @@ public abstract class AbstractInteractableComponent<T extends AbstractInteractab
     @Override
     public final void onLeaveFocus(FocusChangeDirection direction, Interactable nextInFocus) {
         inFocus = false;
+        invalidate();
         afterLeaveFocus(direction, nextInFocus);
     }
 
@@ -34,9 +34,13 @@ import java.util.List;
  * @author Martin
  */
 public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extends AbstractInteractableComponent<T> {
-    private final List<V> items;
+    private final ListModel.Listener<V> listModelListener;
+    private ListModel<V> listModel;
     private int selectedIndex;
+    private int preferredItemWidth;
     private ListItemRenderer<V,T> listItemRenderer;
+    private ItemSearchIndex<V> searchIndex;
+    private final TypeaheadBuffer typeaheadBuffer;
 
     /**
      * This constructor sets up the component so it has no preferred size but will ask to be as big as the list is. If
@@ -56,8 +60,13 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      *             or if set to {@code null} will ask to be big enough to display all items.
      */
     protected AbstractListBox(TerminalSize size) {
-        this.items = new ArrayList<V>();
+        this.listModelListener = new ListModelListener();
+        this.listModel = new DefaultListModel<V>();
+        this.listModel.addListener(listModelListener);
         this.selectedIndex = -1;
+        this.preferredItemWidth = -1;
+        this.searchIndex = null;
+        this.typeaheadBuffer = new TypeaheadBuffer();
         setPreferredSize(size);
         setListItemRenderer(createDefaultListItemRenderer());
     }
@@ -98,6 +107,83 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
         return self();
     }
 
+    /**
+     * Returns the {@link ListModel} that holds the items of this list box. Unless you have assigned a model of your own
+     * through {@link #setListModel(ListModel)}, this will be a {@link DefaultListModel}.
+     * @return Model holding the items of this list box
+     */
+    public ListModel<V> getListModel() {
+        return listModel;
+    }
+
+    /**
+     * Assigns a new {@link ListModel} to this list box, replacing the previous model (and all items in it). The list
+     * box will only fetch the items it needs in order to draw itself, so with a custom model you can back the list box
+     * with a very large number of items that are loaded lazily. Please note that {@code addItem(..)},
+     * {@code removeItem(..)} and {@code clearItems()} only work with a {@link DefaultListModel}, if you are using a
+     * model of your own you should modify it directly instead.
+     * @param listModel New model to use for this list box
+     * @return Itself
+     */
+    public synchronized T setListModel(ListModel<V> listModel) {
+        if(listModel == null) {
+            throw new IllegalArgumentException("Cannot call setListModel(..) with null");
+        }
+        if(this.listModel == listModel) {
+            return self();
+        }
+        int oldSize = this.listModel.size();
+        this.listModel.removeListener(listModelListener);
+        if(searchIndex != null) {
+            searchIndex.detach();
+            searchIndex = null;
+        }
+        this.listModel = listModel;
+        this.listModel.addListener(listModelListener);
+        int newSize = this.listModel.size();
+        selectedIndex = newSize > 0 ? 0 : -1;
+        afterItemsRemoved(0, oldSize);
+        afterItemsInserted(0, newSize);
+        invalidate();
+        return self();
+    }
+
+    /**
+     * Returns the search index over the items in this list box, which is used to jump to the item matching what the
+     * user is typing. The index is created the first time this method is called and is replaced if a new list model is
+     * assigned.
+     * @return Search index over the items in this list box
+     */
+    protected synchronized ItemSearchIndex<V> getSearchIndex() {
+        if(searchIndex == null) {
+            searchIndex = new ItemSearchIndex<V>(listModel);
+        }
+        return searchIndex;
+    }
+
+    /**
+     * Returns the width hint (in columns) for the items in this list box, as set by
+     * {@link #setPreferredItemWidth(int)}, or -1 if not set
+     * @return Width hint for the items in this list box, or -1 if not set
+     */
+    public int getPreferredItemWidth() {
+        return preferredItemWidth;
+    }
+
+    /**
+     * Sets a width hint, in columns, for the items in this list box. When calculating the preferred size of the list
+     * box, the renderer will use this value instead of measuring the item labels. This is useful when the list box is
+     * backed by a large or lazily loaded {@link ListModel}, where measuring items would be expensive. Set to -1 (the
+     * default) to go back to measuring the items.
+     * @param preferredItemWidth Width hint for the items in this list box, or -1 to measure the items
+     * @return Itself
+     */
+    public synchronized T setPreferredItemWidth(int preferredItemWidth) {
+        this.preferredItemWidth = preferredItemWidth;
+        invalidate();
+        return self();
+    }
+
     @Override
     public synchronized Result handleKeyStroke(KeyStroke keyStroke) {
         try {
@@ -115,14 +201,14 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
                     return Result.MOVE_FOCUS_LEFT;
 
                 case ArrowDown:
-                    if(items.isEmpty() || selectedIndex == items.size() - 1) {
+                    if(listModel.size() == 0 || selectedIndex == listModel.size() - 1) {
                         return Result.MOVE_FOCUS_DOWN;
                     }
                     selectedIndex++;
                     return Result.HANDLED;
 
                 case ArrowUp:
-                    if(items.isEmpty() || selectedIndex == 0) {
+                    if(listModel.size() == 0 || selectedIndex == 0) {
                         return Result.MOVE_FOCUS_UP;
                     }
                     selectedIndex--;
@@ -133,7 +219,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
                     return Result.HANDLED;
 
                 case End:
-                    selectedIndex = items.size() - 1;
+                    selectedIndex = listModel.size() - 1;
                     return Result.HANDLED;
 
                 case PageUp:
@@ -148,6 +234,16 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
                     }
                     return Result.HANDLED;
 
+                case Character:
+                    if(TypeaheadBuffer.isTypeaheadKey(keyStroke)) {
+                        int match = typeaheadBuffer.findNext(getSearchIndex(), keyStroke.getCharacter(), selectedIndex);
+                        if(match != -1) {
+                            selectedIndex = match;
+                            return Result.HANDLED;
+                        }
+                    }
+                    break;
+
                 default:
             }
             return Result.UNHANDLED;
@@ -159,7 +255,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
 
     @Override
     protected synchronized void afterEnterFocus(FocusChangeDirection direction, Interactable previouslyInFocus) {
-        if(items.isEmpty()) {
+        if(listModel.size() == 0) {
             return;
         }
 
@@ -167,7 +263,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
             selectedIndex = 0;
         }
         else if(direction == FocusChangeDirection.UP) {
-            selectedIndex = items.size() - 1;
+            selectedIndex = listModel.size() - 1;
         }
     }
 
@@ -181,11 +277,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
             return self();
         }
 
-        items.add(item);
-        if(selectedIndex == -1) {
-            selectedIndex = 0;
-        }
-        invalidate();
+        getDefaultListModel().add(item);
         return self();
     }
 
@@ -197,15 +289,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      * @throws IndexOutOfBoundsException if the index is out of bounds in regards to the list of items
      */
     public synchronized V removeItem(int index) {
-        V existing = items.remove(index);
-        if(index < selectedIndex) {
-            selectedIndex--;
-        }
-        while(selectedIndex >= items.size()) {
-            selectedIndex--;
-        }
-        invalidate();
-        return existing;
+        return getDefaultListModel().remove(index);
     }
 
     /**
@@ -213,12 +297,38 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      * @return Itself
      */
     public synchronized T clearItems() {
-        items.clear();
-        selectedIndex = -1;
-        invalidate();
+        getDefaultListModel().clear();
         return self();
     }
 
+    private DefaultListModel<V> getDefaultListModel() {
+        if(!(listModel instanceof DefaultListModel)) {
+            throw new IllegalStateException("Cannot modify the items through the list box when using a custom " +
+                    "ListModel, please modify the model directly");
+        }
+        return (DefaultListModel<V>)listModel;
+    }
+
+    /**
+     * This method is called after items have been inserted into the list model and the selection has been adjusted.
+     * Subclasses that keep per-item state can override this to stay in sync with the model.
+     * @param index Index of the first new item
+     * @param count Number of items that were added
+     */
+    protected void afterItemsInserted(int index, int count) {
+        // By default, do nothing
+    }
+
+    /**
+     * This method is called after items have been removed from the list model and the selection has been adjusted.
+     * Subclasses that keep per-item state can override this to stay in sync with the model.
+     * @param index Index the first removed item had
+     * @param count Number of items that were removed
+     */
+    protected void afterItemsRemoved(int index, int count) {
+        // By default, do nothing
+    }
+
     @Override
     public boolean isFocusable() {
         if(isEmpty()) {
@@ -235,7 +345,16 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      * @return Index of the item in the list box or -1 if the list box does not contain the item
      */
     public synchronized int indexOf(V item) {
-        return items.indexOf(item);
+        if(listModel instanceof DefaultListModel) {
+            return ((DefaultListModel<V>)listModel).indexOf(item);
+        }
+        for(int i = 0; i < listModel.size(); i++) {
+            V candidate = listModel.get(i);
+            if(item == null ? candidate == null : item.equals(candidate)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -246,7 +365,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      * the list box
      */
     public synchronized V getItemAt(int index) {
-        return items.get(index);
+        return listModel.get(index);
     }
 
     /**
@@ -254,7 +373,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      * @return {@code true} if the list box has no items, {@code false} otherwise
      */
     public synchronized boolean isEmpty() {
-        return items.isEmpty();
+        return listModel.size() == 0;
     }
 
     /**
@@ -262,15 +381,21 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      * @return Number of items in the list box
      */
     public synchronized int getItemCount() {
-        return items.size();
+        return listModel.size();
     }
 
     /**
-     * Returns a copy of the items in the list box as a {@code List}
+     * Returns a copy of the items in the list box as a {@code List}. Please note that this will fetch every item from
+     * the list model, use {@link #getItemCount()} and {@link #getItemAt(int)} if you only need some of them.
      * @return Copy of all the items in this list box
      */
     public synchronized List<V> getItems() {
-        return new ArrayList<V>(items);
+        int itemCount = listModel.size();
+        List<V> copy = new ArrayList<V>(itemCount);
+        for(int i = 0; i < itemCount; i++) {
+            copy.add(listModel.get(i));
+        }
+        return copy;
     }
 
     /**
@@ -285,8 +410,8 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
         if(selectedIndex < 0) {
             selectedIndex = 0;
         }
-        if(selectedIndex > items.size() - 1) {
-            selectedIndex = items.size() - 1;
+        if(selectedIndex > listModel.size() - 1) {
+            selectedIndex = listModel.size() - 1;
         }
         invalidate();
         return self();
@@ -312,7 +437,51 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
         if (selectedIndex == -1) {
             return null;
         } else {
-            return items.get(selectedIndex);
+            return listModel.get(selectedIndex);
+        }
+    }
+
+    private class ListModelListener implements ListModel.Listener<V> {
+        @Override
+        public void onItemsInserted(ListModel<V> model, int index, int count) {
+            if(count <= 0) {
+                return;
+            }
+            synchronized(AbstractListBox.this) {
+                if(selectedIndex == -1) {
+                    selectedIndex = 0;
+                }
+                else if(index <= selectedIndex) {
+                    selectedIndex += count;
+                }
+                afterItemsInserted(index, count);
+                invalidate();
+            }
+        }
+
+        @Override
+        public void onItemsRemoved(ListModel<V> model, int index, int count) {
+            if(count <= 0) {
+                return;
+            }
+            synchronized(AbstractListBox.this) {
+                if(selectedIndex >= index + count) {
+                    selectedIndex -= count;
+                }
+                else if(selectedIndex > index) {
+                    selectedIndex = index;
+                }
+                if(selectedIndex >= model.size()) {
+                    selectedIndex = model.size() - 1;
+                }
+                afterItemsRemoved(index, count);
+                invalidate();
+            }
+        }
+
+        @Override
+        public void onItemsChanged(ListModel<V> model, int index, int count) {
+            invalidate();
         }
     }
 
@@ -322,6 +491,12 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
      * @param <T> Type of list box
      */
     public static class DefaultListBoxRenderer<V, T extends AbstractListBox<V, T>> implements InteractableRenderer<T> {
+        /**
+         * Lists with more items than this will only have this many items (spread evenly) measured when calculating the
+         * preferred width, unless a width hint has been set through {@code setPreferredItemWidth(..)}
+         */
+        private static final int PREFERRED_SIZE_SAMPLE_SIZE = 1000;
+
         private final ScrollBar verticalScrollBar;
         private int scrollTopIndex;
 
@@ -348,16 +523,22 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
 
         @Override
         public TerminalSize getPreferredSize(T listBox) {
+            int itemCount = listBox.getItemCount();
+            if(listBox.getPreferredItemWidth() >= 0) {
+                return new TerminalSize(listBox.getPreferredItemWidth() + 1, itemCount);
+            }
+
+            // Measure all items for normal sized lists, for very large lists only look at a sample spread evenly
             int maxWidth = 5;   //Set it to something...
-            int index = 0;
-            for (V item : listBox.getItems()) {
-                String itemString = listBox.getListItemRenderer().getLabel(listBox, index++, item);
+            int step = Math.max(1, itemCount / PREFERRED_SIZE_SAMPLE_SIZE);
+            for (int index = 0; index < itemCount; index += step) {
+                String itemString = listBox.getListItemRenderer().getLabel(listBox, index, listBox.getItemAt(index));
                 int stringLengthInColumns = TerminalTextUtils.getColumnWidth(itemString);
                 if (stringLengthInColumns > maxWidth) {
                     maxWidth = stringLengthInColumns;
                 }
             }
-            return new TerminalSize(maxWidth + 1, listBox.getItemCount());
+            return new TerminalSize(maxWidth + 1, itemCount);
         }
 
         @Override
@@ -367,7 +548,7 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
             int componentHeight = graphics.getSize().getRows();
             //int componentWidth = graphics.getSize().getColumns();
             int selectedIndex = listBox.getSelectedIndex();
-            List<V> items = listBox.getItems();
+            int itemCount = listBox.getItemCount();
             ListItemRenderer<V,T> listItemRenderer = listBox.getListItemRenderer();
 
             if(selectedIndex != -1) {
@@ -380,16 +561,16 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
             //Do we need to recalculate the scroll position?
             //This code would be triggered by resizing the window when the scroll
             //position is at the bottom
-            if(items.size() > componentHeight &&
-                    items.size() - scrollTopIndex < componentHeight) {
-                scrollTopIndex = items.size() - componentHeight;
+            if(itemCount > componentHeight &&
+                    itemCount - scrollTopIndex < componentHeight) {
+                scrollTopIndex = itemCount - componentHeight;
             }
 
             graphics.applyThemeStyle(themeDefinition.getNormal());
             graphics.fill(' ');
 
             TerminalSize itemSize = graphics.getSize().withRows(1);
-            for(int i = scrollTopIndex; i < items.size(); i++) {
+            for(int i = scrollTopIndex; i < itemCount; i++) {
                 if(i - scrollTopIndex >= componentHeight) {
                     break;
                 }
@@ -397,16 +578,16 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
                         graphics.newTextGraphics(new TerminalPosition(0, i - scrollTopIndex), itemSize),
                         listBox,
                         i,
-                        items.get(i),
+                        listBox.getItemAt(i),
                         selectedIndex == i,
                         listBox.isFocused());
             }
 
             graphics.applyThemeStyle(themeDefinition.getNormal());
-            if(items.size() > componentHeight) {
+            if(itemCount > componentHeight) {
                 verticalScrollBar.onAdded(listBox.getParent());
                 verticalScrollBar.setViewSize(componentHeight);
-                verticalScrollBar.setScrollMaximum(items.size());
+                verticalScrollBar.setScrollMaximum(itemCount);
                 verticalScrollBar.setScrollPosition(scrollTopIndex);
                 verticalScrollBar.draw(graphics.newTextGraphics(
                         new TerminalPosition(graphics.getSize().getColumns() - 1, 0),
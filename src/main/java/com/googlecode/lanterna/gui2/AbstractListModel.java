@@ -0,0 +1,94 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Abstract implementation of {@link ListModel} that takes care of keeping track of listeners. Extend from this class
+ * if you want to write your own model (for example, one that loads items lazily) and call the {@code fire*} methods
+ * whenever the content changes.
+ * @param <V> Type of the items in the model
+ * @author Martin
+ */
+public abstract class AbstractListModel<V> implements ListModel<V> {
+    private final List<Listener<V>> listeners;
+
+    /**
+     * Default constructor
+     */
+    protected AbstractListModel() {
+        this.listeners = new CopyOnWriteArrayList<Listener<V>>();
+    }
+
+    @Override
+    public void addListener(Listener<V> listener) {
+        if(listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(Listener<V> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies all listeners that items have been inserted into the model
+     * @param index Index of the first new item
+     * @param count Number of items that were added
+     */
+    protected void fireItemsInserted(int index, int count) {
+        if(count <= 0) {
+            return;
+        }
+        for(Listener<V> listener: listeners) {
+            listener.onItemsInserted(this, index, count);
+        }
+    }
+
+    /**
+     * Notifies all listeners that items have been removed from the model
+     * @param index Index the first removed item had
+     * @param count Number of items that were removed
+     */
+    protected void fireItemsRemoved(int index, int count) {
+        if(count <= 0) {
+            return;
+        }
+        for(Listener<V> listener: listeners) {
+            listener.onItemsRemoved(this, index, count);
+        }
+    }
+
+    /**
+     * Notifies all listeners that items in the model have changed
+     * @param index Index of the first changed item
+     * @param count Number of items that were changed
+     */
+    protected void fireItemsChanged(int index, int count) {
+        if(count <= 0) {
+            return;
+        }
+        for(Listener<V> listener: listeners) {
+            listener.onItemsChanged(this, index, count);
+        }
+    }
+}
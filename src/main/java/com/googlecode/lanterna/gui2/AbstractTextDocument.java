@@ -0,0 +1,92 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Abstract implementation of {@link TextDocument} that takes care of keeping track of listeners. Extend from this class
+ * if you want to write your own document and call the {@code fire*} methods whenever the content changes.
+ * @author Martin
+ */
+public abstract class AbstractTextDocument implements TextDocument {
+    private final List<Listener> listeners;
+
+    /**
+     * Default constructor
+     */
+    protected AbstractTextDocument() {
+        this.listeners = new CopyOnWriteArrayList<Listener>();
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        if(listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies all listeners that lines have been inserted into the document
+     * @param index Index of the first new line
+     * @param count Number of lines that were added
+     */
+    protected void fireLinesInserted(int index, int count) {
+        if(count <= 0) {
+            return;
+        }
+        for(Listener listener: listeners) {
+            listener.onLinesInserted(this, index, count);
+        }
+    }
+
+    /**
+     * Notifies all listeners that lines have been removed from the document
+     * @param index Index the first removed line had
+     * @param count Number of lines that were removed
+     */
+    protected void fireLinesRemoved(int index, int count) {
+        if(count <= 0) {
+            return;
+        }
+        for(Listener listener: listeners) {
+            listener.onLinesRemoved(this, index, count);
+        }
+    }
+
+    /**
+     * Notifies all listeners that the content of one or more lines has changed
+     * @param index Index of the first changed line
+     * @param count Number of lines that were changed
+     */
+    protected void fireLinesChanged(int index, int count) {
+        if(count <= 0) {
+            return;
+        }
+        for(Listener listener: listeners) {
+            listener.onLinesChanged(this, index, count);
+        }
+    }
+}
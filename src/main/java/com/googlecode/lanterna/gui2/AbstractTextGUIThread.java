@@ -20,19 +20,136 @@ package com.googlecode.lanterna.gui2;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Abstract implementation of {@link TextGUIThread} with common logic for both available concrete implementations.
+ * <p>
+ * Tasks scheduled through {@code invokeLater(..)} are kept in a queue which is unbounded by default. If tasks could be
+ * produced faster than the GUI thread is able to run them, you can put a limit on the queue with
+ * {@link #setTaskQueueLimit(int)} and decide what happens when it's full with {@link #setOverflowPolicy(OverflowPolicy)}.
+ * Using keyed tasks ({@link #invokeLater(Object, Runnable)}) for updates that supersede each other is often better
+ * still, since those never take up more than one place in the queue per key. The methods {@link #getPendingTaskCount()},
+ * {@link #getLastDrainDurationNanos()} and friends can be used to keep an eye on how the queue is doing.
+ * <p>
+ * Only tasks scheduled through {@code invokeLater(..)} are held back by the limit and can be dropped by the overflow
+ * policy. Tasks scheduled through {@code invokeAndWait(..)} and {@link #invokeLaterExempt(Runnable)} are always added
+ * and never dropped. Lanterna schedules its own tasks, such as animation frames, {@code TextBox} scroll updates,
+ * component updates made from other threads and the directory listings of the file dialog, the second way, since
+ * components could be left in a broken state if they were lost.
  */
 public abstract class AbstractTextGUIThread implements TextGUIThread {
 
+    /**
+     * Decides what to do when a task is scheduled while the task queue is full
+     */
+    public interface OverflowPolicy {
+        /**
+         * Throws {@code IllegalStateException} back to the code trying to schedule the task
+         */
+        OverflowPolicy FAIL = new OverflowPolicy() {
+            @Override
+            public boolean onQueueFull(PendingTasks pendingTasks, Runnable task) {
+                throw new IllegalStateException("Cannot schedule " + task + " for execution on the TextGUIThread " +
+                        "because the task queue is full (" + pendingTasks.size() + " tasks)");
+            }
+        };
+
+        /**
+         * Silently drops the new task
+         */
+        OverflowPolicy DISCARD_NEWEST = new OverflowPolicy() {
+            @Override
+            public boolean onQueueFull(PendingTasks pendingTasks, Runnable task) {
+                return false;
+            }
+        };
+
+        /**
+         * Drops the task that has been waiting the longest to make room for the new task. Tasks scheduled through
+         * {@code invokeAndWait(..)} are never dropped, since their callers are waiting for them, and neither are tasks
+         * scheduled through {@link AbstractTextGUIThread#invokeLaterExempt(Runnable)}; if the queue holds nothing
+         * else, the new task is dropped instead. This is the default policy.
+         */
+        OverflowPolicy DISCARD_OLDEST = new OverflowPolicy() {
+            @Override
+            public boolean onQueueFull(PendingTasks pendingTasks, Runnable task) {
+                return pendingTasks.removeOldest();
+            }
+        };
+
+        /**
+         * Makes the code trying to schedule the task wait until there is room in the queue. If this happens on the GUI
+         * thread itself, which would never be able to make room, the task is added anyway.
+         * <p>
+         * Only use this if no task is ever scheduled while holding a lock that the GUI thread may need. Components
+         * schedule tasks from their synchronized methods, for example {@code TextBox} when it is asked to scroll, so
+         * with this policy the GUI thread can end up waiting for a component lock held by a thread that is waiting for
+         * the GUI thread to make room in the queue.
+         */
+        OverflowPolicy BLOCK = new OverflowPolicy() {
+            @Override
+            public boolean onQueueFull(PendingTasks pendingTasks, Runnable task) {
+                pendingTasks.awaitSpace();
+                return true;
+            }
+        };
+
+        /**
+         * Called when a task is being scheduled but the queue is already at its limit. The policy can make room in
+         * the queue through the {@code pendingTasks} parameter, or wait for the GUI thread to do it. This is called
+         * while holding the lock of the queue, so the policy shouldn't do anything else that could take a long time.
+         * @param pendingTasks Handle to the tasks that are currently in the queue
+         * @param task Task that is being scheduled
+         * @return {@code true} if the task should be added to the queue, {@code false} if it should be dropped
+         * @throws IllegalStateException If the policy is to reject the task with an exception
+         */
+        boolean onQueueFull(PendingTasks pendingTasks, Runnable task) throws IllegalStateException;
+    }
+
+    /**
+     * Limited view of the task queue, given to an {@link OverflowPolicy} when the queue is full
+     */
+    public interface PendingTasks {
+        /**
+         * Returns the number of tasks in the queue
+         * @return Number of tasks in the queue
+         */
+        int size();
+
+        /**
+         * Removes the task that has been in the queue the longest, without running it. Tasks scheduled through
+         * {@code invokeAndWait(..)} are skipped, as the thread that scheduled them would otherwise wait forever, and so
+         * are tasks scheduled through {@link AbstractTextGUIThread#invokeLaterExempt(Runnable)}.
+         * @return {@code true} if a task was removed, {@code false} if there was no task that could be removed
+         */
+        boolean removeOldest();
+
+        /**
+         * Waits until the GUI thread has made room in the queue. If called on the GUI thread, or if the waiting
+         * thread is interrupted, this returns immediately (in the latter case with the interrupt flag set again).
+         * @return {@code true} if there is room in the queue now
+         */
+        boolean awaitSpace();
+    }
+
     protected final TextGUI textGUI;
     protected final Queue<Runnable> customTasks;
     protected ExceptionHandler exceptionHandler;
 
+    private final TaskQueue taskQueue;
+    private volatile int lastDrainTaskCount;
+    private volatile long lastDrainDurationNanos;
+    private volatile long maxDrainDurationNanos;
+
     /**
      * Sets up this {@link AbstractTextGUIThread} for operations on the supplies {@link TextGUI}
      * @param textGUI Text GUI this {@link TextGUIThread} implementations will be operating on
@@ -52,12 +169,167 @@ public abstract class AbstractTextGUIThread implements TextGUIThread {
             }
         };
         this.textGUI = textGUI;
-        this.customTasks = new LinkedBlockingQueue<Runnable>();
+        this.taskQueue = new TaskQueue();
+        this.customTasks = taskQueue;
+        this.lastDrainTaskCount = 0;
+        this.lastDrainDurationNanos = 0;
+        this.maxDrainDurationNanos = 0;
     }
 
     @Override
     public void invokeLater(Runnable runnable) throws IllegalStateException {
-        customTasks.add(runnable);
+        checkCanSchedule(runnable);
+        taskQueue.offer(null, runnable, false);
+    }
+
+    /**
+     * Invokes custom code on the GUI thread, replacing any task with the same key that has been scheduled but hasn't
+     * run yet. This is useful when something is updated faster than the GUI can keep up with, for example a value
+     * being displayed that changes many times per second; only the latest update for each key will be run, at the
+     * position in the queue of the first one that wasn't run yet. Keys are compared using {@code equals(..)}.
+     * <p>
+     * This method isn't part of the {@link TextGUIThread} interface, so that implementations of it outside of lanterna
+     * keep working. Code that only has a {@code TextGUIThread} can check if it's an {@code AbstractTextGUIThread} and
+     * fall back to {@link #invokeLater(Runnable)} otherwise.
+     *
+     * @param key Key identifying what the task is updating
+     * @param runnable Code to run asynchronously
+     * @throws java.lang.IllegalStateException If the GUI thread is not running
+     */
+    public void invokeLater(Object key, Runnable runnable) throws IllegalStateException {
+        if(key == null) {
+            throw new IllegalArgumentException("Cannot call invokeLater(..) with a null key");
+        }
+        checkCanSchedule(runnable);
+        taskQueue.offer(key, runnable, false);
+    }
+
+    /**
+     * Invokes custom code on the GUI thread, like {@link #invokeLater(Runnable)}, but exempt from the task queue limit
+     * the same way tasks scheduled through {@code invokeAndWait(..)} are: the task is always added to the queue and the
+     * {@link OverflowPolicy} never drops it. This is meant for tasks that must run for things to keep working, and that
+     * can't flood the queue since they are only scheduled once at a time, such as lanterna's own animation frames.
+     * @param runnable Code to run asynchronously
+     * @throws java.lang.IllegalStateException If the GUI thread is not running
+     */
+    public void invokeLaterExempt(Runnable runnable) throws IllegalStateException {
+        checkCanSchedule(runnable);
+        taskQueue.offer(null, runnable, true);
+    }
+
+    /**
+     * Schedules a task through {@link #invokeLaterExempt(Runnable)} if the GUI thread supports it, or through
+     * {@link TextGUIThread#invokeLater(Runnable)} otherwise
+     */
+    static void invokeLaterExempt(TextGUIThread guiThread, Runnable runnable) throws IllegalStateException {
+        if(guiThread instanceof AbstractTextGUIThread) {
+            ((AbstractTextGUIThread)guiThread).invokeLaterExempt(runnable);
+        }
+        else {
+            guiThread.invokeLater(runnable);
+        }
+    }
+
+    /**
+     * Called before a task is added to the queue, giving implementations a chance to reject it
+     * @param runnable Task that is about to be scheduled
+     * @throws IllegalStateException If tasks cannot be scheduled on this {@code TextGUIThread} right now
+     */
+    protected void checkCanSchedule(Runnable runnable) throws IllegalStateException {
+    }
+
+    /**
+     * Sets the maximum number of tasks that can be waiting in the queue to be run on the GUI thread. When the queue is
+     * full, the {@link OverflowPolicy} decides what happens to new tasks. Tasks replacing a pending task with the same
+     * key don't count as new tasks. Tasks scheduled through {@code invokeAndWait(..)} and
+     * {@link #invokeLaterExempt(Runnable)} are always added.
+     * @param taskQueueLimit Maximum number of tasks in the queue, or 0 for no limit (which is the default)
+     */
+    public void setTaskQueueLimit(int taskQueueLimit) {
+        if(taskQueueLimit < 0) {
+            throw new IllegalArgumentException("Task queue limit cannot be negative, was " + taskQueueLimit);
+        }
+        taskQueue.setLimit(taskQueueLimit);
+    }
+
+    /**
+     * Returns the maximum number of tasks that can be waiting in the queue to be run on the GUI thread
+     * @return Maximum number of tasks in the queue, 0 if there is no limit
+     */
+    public int getTaskQueueLimit() {
+        return taskQueue.getLimit();
+    }
+
+    /**
+     * Sets what should happen when a task is scheduled while the task queue is full. The default is
+     * {@link OverflowPolicy#DISCARD_OLDEST}.
+     * @param overflowPolicy Policy to apply when the task queue is full
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if(overflowPolicy == null) {
+            throw new IllegalArgumentException("Cannot call setOverflowPolicy(null)");
+        }
+        taskQueue.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * Returns what happens when a task is scheduled while the task queue is full
+     * @return Policy applied when the task queue is full
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return taskQueue.getOverflowPolicy();
+    }
+
+    /**
+     * Returns the number of tasks currently waiting to be run on the GUI thread
+     * @return Number of tasks in the queue
+     */
+    public int getPendingTaskCount() {
+        return taskQueue.size();
+    }
+
+    /**
+     * Returns how many tasks have replaced a pending task with the same key, instead of being added to the queue, since
+     * this {@code TextGUIThread} was created
+     * @return Number of tasks that were coalesced with an earlier task
+     */
+    public long getCoalescedTaskCount() {
+        return taskQueue.getCoalescedCount();
+    }
+
+    /**
+     * Returns how many tasks have been dropped by the {@link OverflowPolicy}, including tasks that were removed from the
+     * queue to make room for new ones, since this {@code TextGUIThread} was created
+     * @return Number of tasks that were dropped without running
+     */
+    public long getDroppedTaskCount() {
+        return taskQueue.getDroppedCount();
+    }
+
+    /**
+     * Returns how many tasks were run the last time the GUI thread went through the task queue
+     * @return Number of tasks run in the last round
+     */
+    public int getLastDrainTaskCount() {
+        return lastDrainTaskCount;
+    }
+
+    /**
+     * Returns how long, in nanoseconds, it took to run the tasks the last time the GUI thread went through the task
+     * queue
+     * @return Duration of the last round of running tasks, in nanoseconds
+     */
+    public long getLastDrainDurationNanos() {
+        return lastDrainDurationNanos;
+    }
+
+    /**
+     * Returns the longest time, in nanoseconds, it has taken to run the tasks in one round through the task queue
+     * since this {@code TextGUIThread} was created
+     * @return Longest duration of a round of running tasks, in nanoseconds
+     */
+    public long getMaxDrainDurationNanos() {
+        return maxDrainDurationNanos;
     }
 
     @Override
@@ -75,12 +347,7 @@ public abstract class AbstractTextGUIThread implements TextGUIThread {
         }
         try {
             textGUI.processInput();
-            while (!customTasks.isEmpty()) {
-                Runnable r = customTasks.poll();
-                if (r != null) {
-                    r.run();
-                }
-            }
+            runPendingTasks();
             if (textGUI.isPendingUpdate()) {
                 textGUI.updateScreen();
                 return true;
@@ -110,6 +377,36 @@ public abstract class AbstractTextGUIThread implements TextGUIThread {
         return true;
     }
 
+    /**
+     * Runs the tasks that are in the queue at this point. Tasks added while doing so are left for the next round, so
+     * that a steady stream of new tasks can't keep the GUI thread from handling input and updating the screen.
+     */
+    private void runPendingTasks() {
+        int taskCount = taskQueue.size();
+        if(taskCount == 0) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        int tasksRun = 0;
+        try {
+            for(; tasksRun < taskCount; tasksRun++) {
+                Runnable r = taskQueue.poll();
+                if (r == null) {
+                    break;
+                }
+                r.run();
+            }
+        }
+        finally {
+            long duration = System.nanoTime() - startTime;
+            lastDrainTaskCount = tasksRun;
+            lastDrainDurationNanos = duration;
+            if(duration > maxDrainDurationNanos) {
+                maxDrainDurationNanos = duration;
+            }
+        }
+    }
+
     @Override
     public void invokeAndWait(final Runnable runnable) throws IllegalStateException, InterruptedException {
         Thread guiThread = getThread();
@@ -118,7 +415,9 @@ public abstract class AbstractTextGUIThread implements TextGUIThread {
         }
         else {
             final CountDownLatch countDownLatch = new CountDownLatch(1);
-            invokeLater(new Runnable() {
+            checkCanSchedule(runnable);
+            // Bypass the queue limit, if this task was dropped by the overflow policy we would wait forever
+            taskQueue.offer(null, new Runnable() {
                 @Override
                 public void run() {
                     try {
@@ -128,8 +427,184 @@ public abstract class AbstractTextGUIThread implements TextGUIThread {
                         countDownLatch.countDown();
                     }
                 }
-            });
+            }, true);
             countDownLatch.await();
         }
     }
+
+    /**
+     * Queue of tasks to run on the GUI thread, where tasks with a key replace any pending task with the same key
+     */
+    private class TaskQueue extends AbstractQueue<Runnable> implements PendingTasks {
+        private final ArrayDeque<Task> tasks;
+        private final Map<Object, Task> tasksByKey;
+        private int limit;
+        private OverflowPolicy overflowPolicy;
+        private long coalescedCount;
+        private long droppedCount;
+
+        TaskQueue() {
+            this.tasks = new ArrayDeque<Task>();
+            this.tasksByKey = new HashMap<Object, Task>();
+            this.limit = 0;
+            this.overflowPolicy = OverflowPolicy.DISCARD_OLDEST;
+            this.coalescedCount = 0;
+            this.droppedCount = 0;
+        }
+
+        synchronized void setLimit(int limit) {
+            this.limit = limit;
+            notifyAll();
+        }
+
+        synchronized int getLimit() {
+            return limit;
+        }
+
+        synchronized void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        synchronized OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        synchronized long getCoalescedCount() {
+            return coalescedCount;
+        }
+
+        synchronized long getDroppedCount() {
+            return droppedCount;
+        }
+
+        synchronized boolean offer(Object key, Runnable runnable, boolean force) {
+            if(runnable == null) {
+                throw new IllegalArgumentException("Cannot schedule null task on the TextGUIThread");
+            }
+            if(replacePending(key, runnable)) {
+                return true;
+            }
+            if(!force && isFull()) {
+                if(!overflowPolicy.onQueueFull(this, runnable)) {
+                    droppedCount++;
+                    return false;
+                }
+                // The policy may have waited, in which case a task with the same key could have been added meanwhile
+                if(replacePending(key, runnable)) {
+                    return true;
+                }
+            }
+            Task task = new Task(key, runnable, force);
+            tasks.add(task);
+            if(key != null) {
+                tasksByKey.put(key, task);
+            }
+            return true;
+        }
+
+        private boolean replacePending(Object key, Runnable runnable) {
+            if(key == null) {
+                return false;
+            }
+            Task pending = tasksByKey.get(key);
+            if(pending == null) {
+                return false;
+            }
+            pending.runnable = runnable;
+            coalescedCount++;
+            return true;
+        }
+
+        private boolean isFull() {
+            return limit > 0 && tasks.size() >= limit;
+        }
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            return offer(null, runnable, false);
+        }
+
+        @Override
+        public synchronized Runnable poll() {
+            Task task = tasks.poll();
+            if(task == null) {
+                return null;
+            }
+            if(task.key != null) {
+                tasksByKey.remove(task.key);
+            }
+            notifyAll();
+            return task.runnable;
+        }
+
+        @Override
+        public synchronized Runnable peek() {
+            Task task = tasks.peek();
+            return task != null ? task.runnable : null;
+        }
+
+        @Override
+        public synchronized int size() {
+            return tasks.size();
+        }
+
+        @Override
+        public synchronized Iterator<Runnable> iterator() {
+            // Iterates over a snapshot, the queue itself can only be modified through offer and poll
+            List<Runnable> snapshot = new ArrayList<Runnable>(tasks.size());
+            for(Task task: tasks) {
+                snapshot.add(task.runnable);
+            }
+            return snapshot.iterator();
+        }
+
+        @Override
+        public synchronized boolean removeOldest() {
+            Iterator<Task> iterator = tasks.iterator();
+            while(iterator.hasNext()) {
+                Task task = iterator.next();
+                if(task.forced) {
+                    continue;
+                }
+                iterator.remove();
+                if(task.key != null) {
+                    tasksByKey.remove(task.key);
+                }
+                droppedCount++;
+                notifyAll();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized boolean awaitSpace() {
+            if(Thread.currentThread() == getThread()) {
+                return !isFull();
+            }
+            while(isFull()) {
+                try {
+                    wait();
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Task {
+        private final Object key;
+        // Forced tasks are added even if the queue is full and are never dropped
+        private final boolean forced;
+        private Runnable runnable;
+
+        private Task(Object key, Runnable runnable, boolean forced) {
+            this.key = key;
+            this.forced = forced;
+            this.runnable = runnable;
+        }
+    }
 }
@@ -20,17 +20,17 @@ package com.googlecode.lanterna.gui2;
 
 import com.googlecode.lanterna.TerminalSize;
 
-import java.lang.ref.WeakReference;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is a special label that contains not just a single text to display but a number of frames that are cycled
- * through. The class will manage a timer on its own and ensure the label is updated and redrawn. There is a static
- * helper method available to create the classic "spinning bar": {@code createClassicSpinningLine()}
+ * through. The label is driven by the {@link AnimationScheduler} of the text GUI it's in, which makes sure all the
+ * animated labels on the screen change frame together and are redrawn in one go. The animation is only running while
+ * the label is visible. There is a static helper method available to create the classic "spinning bar":
+ * {@code createClassicSpinningLine()}
  */
 public class AnimatedLabel extends Label {
-    private static Timer TIMER = null;
-    private static final WeakHashMap<AnimatedLabel, TimerTask> SCHEDULED_TASKS = new WeakHashMap<AnimatedLabel, TimerTask>();
 
     /**
      * Creates a classic spinning bar which can be used to signal to the user that an operation in is process.
@@ -55,8 +55,11 @@ public class AnimatedLabel extends Label {
     }
 
     private final List<String[]> frames;
+    private final AnimationScheduler.Animation animation;
     private TerminalSize combinedMaximumPreferredSize;
     private int currentFrame;
+    private volatile long millisecondsPerFrame;
+    private AnimationScheduler scheduler;
 
     /**
      * Creates a new animated label, initially set to one frame. You will need to add more frames and call
@@ -67,7 +70,10 @@ public class AnimatedLabel extends Label {
     public AnimatedLabel(String firstFrameText) {
         super(firstFrameText);
         frames = new ArrayList<String[]>();
+        animation = new LabelAnimation();
         currentFrame = 0;
+        millisecondsPerFrame = 0;
+        scheduler = null;
         combinedMaximumPreferredSize = TerminalSize.ZERO;
 
         String[] lines = splitIntoMultipleLines(firstFrameText);
@@ -98,7 +104,7 @@ public class AnimatedLabel extends Label {
 
     /**
      * Advances the animated label to the next frame. You normally don't need to call this manually as it will be done
-     * by the animation thread.
+     * by the {@link AnimationScheduler}.
      */
     public synchronized void nextFrame() {
         currentFrame++;
@@ -114,68 +120,66 @@ public class AnimatedLabel extends Label {
         stopAnimation();
     }
 
+    @Override
+    protected void onBeforeDrawing() {
+        super.onBeforeDrawing();
+        AnimationScheduler scheduler = null;
+        synchronized(this) {
+            if(millisecondsPerFrame > 0 && getTextGUI() != null) {
+                this.scheduler = AnimationScheduler.getInstance(getTextGUI());
+                scheduler = this.scheduler;
+            }
+        }
+        if(scheduler != null) {
+            scheduler.animationDrawn(animation);
+        }
+    }
+
     /**
-     * Starts the animation thread which will periodically call {@code nextFrame()} at the interval specified by the
+     * Starts the animation, which will make the label move on to the next frame at the interval specified by the
      * {@code millisecondsPerFrame} parameter. After all frames have been cycled through, it will start over from the
-     * first frame again.
+     * first frame again. Labels with the same interval will change frame at the same time.
      * @param millisecondsPerFrame The interval in between every frame
      * @return Itself
      */
     public synchronized AnimatedLabel startAnimation(long millisecondsPerFrame) {
-        if(TIMER == null) {
-            TIMER = new Timer("AnimatedLabel");
+        if(millisecondsPerFrame <= 0) {
+            throw new IllegalArgumentException("Cannot start animation with " + millisecondsPerFrame + " ms per frame");
         }
-        AnimationTimerTask animationTimerTask = new AnimationTimerTask(this);
-        SCHEDULED_TASKS.put(this, animationTimerTask);
-        TIMER.scheduleAtFixedRate(animationTimerTask, millisecondsPerFrame, millisecondsPerFrame);
+        this.millisecondsPerFrame = millisecondsPerFrame;
+        // Makes sure the label is drawn, which is what registers it with the scheduler
+        invalidate();
         return this;
     }
 
     /**
-     * Halts the animation thread and the label will stop at whatever was the current frame at the time when this was
+     * Halts the animation and the label will stop at whatever was the current frame at the time when this was
      * called
      * @return Itself
      */
-    public synchronized AnimatedLabel stopAnimation() {
-        removeTaskFromTimer(this);
-        return this;
-    }
-
-    private static synchronized void removeTaskFromTimer(AnimatedLabel animatedLabel) {
-        SCHEDULED_TASKS.get(animatedLabel).cancel();
-        SCHEDULED_TASKS.remove(animatedLabel);
-        canCloseTimer();
-    }
-
-    private static synchronized void canCloseTimer() {
-        if(SCHEDULED_TASKS.isEmpty()) {
-            TIMER.cancel();
-            TIMER = null;
+    public AnimatedLabel stopAnimation() {
+        AnimationScheduler scheduler;
+        synchronized(this) {
+            millisecondsPerFrame = 0;
+            scheduler = this.scheduler;
+            this.scheduler = null;
         }
+        if(scheduler != null) {
+            scheduler.removeAnimation(animation);
+        }
+        return this;
     }
 
-    private static class AnimationTimerTask extends TimerTask {
-        private final WeakReference<AnimatedLabel> labelRef;
-
-        private AnimationTimerTask(AnimatedLabel label) {
-            this.labelRef = new WeakReference<AnimatedLabel>(label);
+    private class LabelAnimation implements AnimationScheduler.Animation {
+        @Override
+        public long getFramePeriod() {
+            // Not synchronized, the scheduler calls this while holding its own lock
+            return millisecondsPerFrame;
         }
 
         @Override
-        public void run() {
-            AnimatedLabel animatedLabel = labelRef.get();
-            if(animatedLabel == null) {
-                cancel();
-                canCloseTimer();
-            }
-            else {
-                if(animatedLabel.getBasePane() == null) {
-                    animatedLabel.stopAnimation();
-                }
-                else {
-                    animatedLabel.nextFrame();
-                }
-            }
+        public void onNextFrame() {
+            nextFrame();
         }
     }
 }
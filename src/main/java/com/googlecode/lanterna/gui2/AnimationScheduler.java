@@ -0,0 +1,329 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.WeakHashMap;
+
+/**
+ * Frame clock shared by everything animated in a {@link TextGUI}. Instead of each animation running its own timer and
+ * invalidating whenever it wants to, the scheduler ticks at a fixed frame rate and, on every tick where something
+ * needs to change, runs one task on the {@link TextGUIThread} which advances all animations that are due and applies
+ * all invalidations that were requested since the previous frame. This way, any number of animations on the screen
+ * move together and cause only a single screen update per frame.
+ * <p>
+ * Animations are only advanced while they are being drawn; an animation registers itself by calling
+ * {@link #animationDrawn(Animation)} whenever it is drawn, so an animation in a window that is hidden or no longer
+ * part of the GUI is left alone. When there is nothing visible to animate and no pending invalidations, the clock
+ * stops completely and is started again on demand.
+ * <p>
+ * Use {@link #getInstance(TextGUI)} to get the scheduler of a particular text GUI.
+ * @author Martin
+ */
+public class AnimationScheduler {
+    /**
+     * Default frame period in milliseconds, which gives around 30 frames per second
+     */
+    public static final long DEFAULT_FRAME_PERIOD = 33;
+
+    // How long to wait for a frame task to run on a GUI thread that can't be checked for whether it still has the task
+    // queued, before assuming it was lost and scheduling another one
+    private static final long LOST_FRAME_TIMEOUT = 1000;
+
+    /**
+     * Something that changes its appearance at regular intervals, driven by the {@link AnimationScheduler}
+     */
+    public interface Animation {
+        /**
+         * Returns how many milliseconds each frame of this animation should be shown for. Animations with the same
+         * period change frame at the same time. The scheduler cannot go faster than its own frame period.
+         * @return Period of the animation in milliseconds
+         */
+        long getFramePeriod();
+
+        /**
+         * Called on the GUI thread when it's time for the animation to move on to its next frame. The animation should
+         * update itself and invalidate whatever needs to be redrawn.
+         */
+        void onNextFrame();
+    }
+
+    private static final Map<TextGUI, AnimationScheduler> INSTANCES = new WeakHashMap<TextGUI, AnimationScheduler>();
+
+    /**
+     * Returns the scheduler for a particular text GUI, creating it if there isn't one already
+     * @param textGUI Text GUI to get the scheduler for
+     * @return Animation scheduler of the text GUI
+     */
+    public static AnimationScheduler getInstance(TextGUI textGUI) {
+        if(textGUI == null) {
+            throw new IllegalArgumentException("Cannot get AnimationScheduler for null TextGUI");
+        }
+        synchronized(INSTANCES) {
+            AnimationScheduler scheduler = INSTANCES.get(textGUI);
+            if(scheduler == null) {
+                scheduler = new AnimationScheduler(textGUI);
+                INSTANCES.put(textGUI, scheduler);
+            }
+            return scheduler;
+        }
+    }
+
+    private final WeakReference<TextGUI> textGUIRef;
+    private final Map<Animation, AnimationState> animations;
+    private final Set<Component> pendingInvalidations;
+    private final Runnable frameTask;
+    private final long clockStart;
+    private long framePeriod;
+    private Timer timer;
+    private boolean framePending;
+    private long framePendingSince;
+
+    private AnimationScheduler(TextGUI textGUI) {
+        this.textGUIRef = new WeakReference<TextGUI>(textGUI);
+        this.animations = new WeakHashMap<Animation, AnimationState>();
+        this.pendingInvalidations = new LinkedHashSet<Component>();
+        this.frameTask = new Runnable() {
+            @Override
+            public void run() {
+                runFrame();
+            }
+        };
+        this.clockStart = System.currentTimeMillis();
+        this.framePeriod = DEFAULT_FRAME_PERIOD;
+        this.timer = null;
+        this.framePending = false;
+        this.framePendingSince = 0;
+    }
+
+    /**
+     * Returns the frame period of this scheduler, which is the interval at which it checks if anything needs to be
+     * updated
+     * @return Frame period in milliseconds
+     */
+    public synchronized long getFramePeriod() {
+        return framePeriod;
+    }
+
+    /**
+     * Changes the frame period of this scheduler. Animations with a shorter period than this will be slowed down to
+     * one frame per period of the scheduler.
+     * @param framePeriod New frame period, in milliseconds
+     */
+    public synchronized void setFramePeriod(long framePeriod) {
+        if(framePeriod <= 0) {
+            throw new IllegalArgumentException("Frame period must be greater than zero, was " + framePeriod);
+        }
+        this.framePeriod = framePeriod;
+        if(timer != null) {
+            stopClock();
+            startClock();
+        }
+    }
+
+    /**
+     * Tells the scheduler that an animation has been drawn, this both registers the animation with the scheduler if it
+     * wasn't already and lets the scheduler know it's visible. Animations should call this every time they are drawn.
+     * @param animation Animation that was drawn
+     */
+    public synchronized void animationDrawn(Animation animation) {
+        AnimationState state = animations.get(animation);
+        if(state == null) {
+            state = new AnimationState(getFrameNumber(animation));
+            animations.put(animation, state);
+        }
+        state.drawn = true;
+        startClock();
+    }
+
+    /**
+     * Removes an animation from the scheduler, it will not be advanced anymore until it is drawn again
+     * @param animation Animation to remove
+     */
+    public synchronized void removeAnimation(Animation animation) {
+        animations.remove(animation);
+    }
+
+    /**
+     * Requests a component to be invalidated at the next frame, rather than immediately. This is meant for components
+     * that are updated from other threads, possibly very frequently, where redrawing the screen at every update would
+     * be a waste; all requests made during one frame result in a single screen update.
+     * @param component Component to invalidate at the next frame
+     */
+    public synchronized void invalidateOnNextFrame(Component component) {
+        pendingInvalidations.add(component);
+        startClock();
+    }
+
+    private long getFrameNumber(Animation animation) {
+        return (System.currentTimeMillis() - clockStart) / Math.max(1, animation.getFramePeriod());
+    }
+
+    private void startClock() {
+        if(timer != null) {
+            return;
+        }
+        timer = new Timer("AnimationScheduler", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                onClockTick();
+            }
+        }, framePeriod, framePeriod);
+    }
+
+    private void stopClock() {
+        if(timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * Returns whether the frame clock is currently ticking
+     * @return {@code true} if the clock is running
+     */
+    synchronized boolean isClockRunning() {
+        return timer != null;
+    }
+
+    /**
+     * Runs on the timer thread, checks if there is anything to do and if so hands over to the GUI thread
+     */
+    private synchronized void onClockTick() {
+        TextGUI textGUI = textGUIRef.get();
+        if(framePending) {
+            TextGUIThread guiThread = textGUI != null ? textGUI.getGUIThread() : null;
+            if(!isRunning(guiThread)) {
+                // The frame will never run, start over once the clock is needed again
+                framePending = false;
+                stopClock();
+                return;
+            }
+            if(!isFrameLost(guiThread)) {
+                // The GUI thread hasn't gotten around to the previous frame yet
+                return;
+            }
+            framePending = false;
+        }
+        boolean frameNeeded = !pendingInvalidations.isEmpty();
+        boolean anythingVisible = false;
+        for(Map.Entry<Animation, AnimationState> entry: animations.entrySet()) {
+            AnimationState state = entry.getValue();
+            if(state.drawn) {
+                anythingVisible = true;
+                if(getFrameNumber(entry.getKey()) != state.frameNumber) {
+                    frameNeeded = true;
+                }
+            }
+        }
+        if(!frameNeeded || textGUI == null) {
+            if(!anythingVisible || textGUI == null) {
+                stopClock();
+            }
+            return;
+        }
+        try {
+            AbstractTextGUIThread.invokeLaterExempt(textGUI.getGUIThread(), frameTask);
+            framePending = true;
+            framePendingSince = System.currentTimeMillis();
+        }
+        catch(IllegalStateException e) {
+            // The GUI thread isn't running
+            stopClock();
+        }
+    }
+
+    private boolean isRunning(TextGUIThread guiThread) {
+        if(guiThread == null || guiThread.getThread() == null || !guiThread.getThread().isAlive()) {
+            return false;
+        }
+        if(guiThread instanceof AbstractTextGUIThread) {
+            try {
+                ((AbstractTextGUIThread)guiThread).checkCanSchedule(frameTask);
+            }
+            catch(IllegalStateException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the frame task has gone missing from the GUI thread without being run, which can happen with
+     * {@code TextGUIThread} implementations that drop tasks
+     */
+    private boolean isFrameLost(TextGUIThread guiThread) {
+        if(guiThread instanceof AbstractTextGUIThread) {
+            // If the GUI thread has just taken the task and is waiting for this lock to run it, the next frame will
+            // come early, which does no harm
+            return !((AbstractTextGUIThread)guiThread).customTasks.contains(frameTask);
+        }
+        return System.currentTimeMillis() - framePendingSince > LOST_FRAME_TIMEOUT;
+    }
+
+    /**
+     * Runs on the GUI thread, advances all animations that are due and does all pending invalidations
+     */
+    private void runFrame() {
+        List<Animation> dueAnimations = new ArrayList<Animation>();
+        List<Component> componentsToInvalidate;
+        synchronized(this) {
+            framePending = false;
+            for(Map.Entry<Animation, AnimationState> entry: animations.entrySet()) {
+                AnimationState state = entry.getValue();
+                if(!state.drawn) {
+                    continue;
+                }
+                long frameNumber = getFrameNumber(entry.getKey());
+                if(frameNumber != state.frameNumber) {
+                    state.frameNumber = frameNumber;
+                    // Cleared until the animation is drawn again, so that it's not advanced any further if it isn't
+                    state.drawn = false;
+                    dueAnimations.add(entry.getKey());
+                }
+            }
+            componentsToInvalidate = new ArrayList<Component>(pendingInvalidations);
+            pendingInvalidations.clear();
+        }
+        for(Animation animation: dueAnimations) {
+            animation.onNextFrame();
+        }
+        for(Component component: componentsToInvalidate) {
+            component.invalidate();
+        }
+    }
+
+    private static class AnimationState {
+        private long frameNumber;
+        private boolean drawn;
+
+        private AnimationState(long frameNumber) {
+            this.frameNumber = frameNumber;
+            this.drawn = false;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -73,21 +74,18 @@ public class CheckBoxList<V> extends AbstractListBox<V, CheckBoxList<V>> {
     }
 
     @Override
-    public synchronized CheckBoxList<V> clearItems() {
-        itemStatus.clear();
-        return super.clearItems();
+    public CheckBoxList<V> addItem(V object) {
+        return addItem(object, false);
     }
 
     @Override
-    public CheckBoxList<V> addItem(V object) {
-        return addItem(object, false);
+    protected void afterItemsInserted(int index, int count) {
+        itemStatus.addAll(index, Collections.nCopies(count, Boolean.FALSE));
     }
 
     @Override
-    public synchronized V removeItem(int index) {
-        V item = super.removeItem(index);
-        itemStatus.remove(index);
-        return item;
+    protected void afterItemsRemoved(int index, int count) {
+        itemStatus.subList(index, index + count).clear();
     }
 
     /**
@@ -97,8 +95,11 @@ public class CheckBoxList<V> extends AbstractListBox<V, CheckBoxList<V>> {
      * @return Itself
      */
     public synchronized CheckBoxList<V> addItem(V object, boolean checkedState) {
-        itemStatus.add(checkedState);
-        return super.addItem(object);
+        super.addItem(object);
+        if(object != null && checkedState) {
+            itemStatus.set(itemStatus.size() - 1, Boolean.TRUE);
+        }
+        return self();
     }
 
     /**
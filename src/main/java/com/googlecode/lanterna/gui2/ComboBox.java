@@ -18,7 +18,6 @@
  */
 package com.googlecode.lanterna.gui2;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -36,6 +35,11 @@ import com.googlecode.lanterna.input.KeyStroke;
  * This is a simple combo box implementation that allows the user to select one out of multiple items through a
  * drop-down menu. If the combo box is not in read-only mode, the user can also enter free text in the combo box, much
  * like a {@code TextBox}.
+ * <p>
+ * Typing while a read-only combo box is focused jumps to the first item starting with the typed text. In an editable
+ * combo box, pressing Enter while editing the text opens the drop-down showing only the items that contain the text
+ * entered so far, which is narrowed down further as the user keeps typing. Both of these use an
+ * {@link ItemSearchIndex}, so they stay fast even with a very large number of items.
  * @param <V> Type to use for the items in the combo box
  * @author Martin
  */
@@ -53,7 +57,9 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
         void onSelectionChanged(int selectedIndex, int previousSelection);
     }
 
-    private final List<V> items;
+    private final DefaultListModel<V> items;
+    private final ItemSearchIndex<V> searchIndex;
+    private final TypeaheadBuffer typeaheadBuffer;
     private final List<Listener> listeners;
 
     private PopupWindow popupWindow;
@@ -64,6 +70,7 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
     private boolean dropDownFocused;
     private int textInputPosition;
     private int dropDownNumberOfRows;
+    private int longestItemWidth;
 
     /**
      * Creates a new {@code ComboBox} initialized with N number of items supplied through the varargs parameter. If at
@@ -113,7 +120,9 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
                 throw new IllegalArgumentException("Cannot add null elements to a ComboBox");
             }
         }
-        this.items = new ArrayList<V>(items);
+        this.items = new DefaultListModel<V>(items);
+        this.searchIndex = new ItemSearchIndex<V>(this.items);
+        this.typeaheadBuffer = new TypeaheadBuffer();
         this.listeners = new CopyOnWriteArrayList<Listener>();
         this.popupWindow = null;
         this.selectedIndex = selectedIndex;
@@ -121,6 +130,7 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
         this.dropDownFocused = true;
         this.textInputPosition = 0;
         this.dropDownNumberOfRows = 10;
+        this.longestItemWidth = -1;
         if(selectedIndex != -1) {
             this.text = this.items.get(selectedIndex).toString();
         }
@@ -139,6 +149,7 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
             throw new IllegalArgumentException("Cannot add null elements to a ComboBox");
         }
         items.add(item);
+        updateLongestItemWidth(item);
         if(selectedIndex == -1 && items.size() == 1) {
             setSelectedIndex(0);
         }
@@ -157,6 +168,7 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
             throw new IllegalArgumentException("Cannot add null elements to a ComboBox");
         }
         items.add(index, item);
+        updateLongestItemWidth(item);
         if(index <= selectedIndex) {
             setSelectedIndex(selectedIndex + 1);
         }
@@ -170,6 +182,7 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
      */
     public synchronized ComboBox<V> clearItems() {
         items.clear();
+        longestItemWidth = -1;
         setSelectedIndex(-1);
         invalidate();
         return this;
@@ -196,6 +209,7 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
      */
     public synchronized ComboBox<V> remoteItem(int index) {
         items.remove(index);
+        longestItemWidth = -1;
         if(index < selectedIndex) {
             setSelectedIndex(selectedIndex - 1);
         }
@@ -218,10 +232,33 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
             throw new IllegalArgumentException("Cannot add null elements to a ComboBox");
         }
         items.set(index, item);
+        longestItemWidth = -1;
         invalidate();
         return this;
     }
 
+    private void updateLongestItemWidth(V item) {
+        if(longestItemWidth != -1) {
+            longestItemWidth = Math.max(longestItemWidth, TerminalTextUtils.getColumnWidth(item.toString()));
+        }
+    }
+
+    /**
+     * Returns the width, in columns, of the widest item label. This is remembered between calls and only recalculated
+     * after items have been removed or replaced, so that laying out a combo box with a lot of items doesn't need to
+     * look at all of them every time.
+     * @return Width of the widest item label, or 0 if there are no items
+     */
+    private synchronized int getLongestItemWidth() {
+        if(longestItemWidth == -1) {
+            longestItemWidth = 0;
+            for(int i = 0; i < items.size(); i++) {
+                longestItemWidth = Math.max(longestItemWidth, TerminalTextUtils.getColumnWidth(items.get(i).toString()));
+            }
+        }
+        return longestItemWidth;
+    }
+
     /**
      * Counts and returns the number of items in this combo box
      * @return Number of items in this combo box
@@ -428,10 +465,7 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
 
     @Override
     protected synchronized void afterLeaveFocus(FocusChangeDirection direction, Interactable nextInFocus) {
-        if(popupWindow != null) {
-            popupWindow.close();
-            popupWindow = null;
-        }
+        closePopup();
     }
 
     @Override
@@ -477,25 +511,36 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
 
             case Enter:
                 if(popupWindow != null) {
-                    popupWindow.listBox.handleKeyStroke(keyStroke);
-                    popupWindow.close();
-                    popupWindow = null;
+                    selectFromPopup();
                 }
                 else {
-                    popupWindow = new PopupWindow();
-                    popupWindow.setPosition(toGlobal(new TerminalPosition(0, 1)));
-                    ((WindowBasedTextGUI) getTextGUI()).addWindow(popupWindow);
+                    openPopup("");
                 }
                 break;
 
             case Escape:
                 if(popupWindow != null) {
-                    popupWindow.close();
-                    popupWindow = null;
+                    closePopup();
                     return Result.HANDLED;
                 }
                 break;
 
+            case Character:
+                if(TypeaheadBuffer.isTypeaheadKey(keyStroke)) {
+                    int currentIndex = popupWindow != null ? popupWindow.getSelectedItemIndex() : selectedIndex;
+                    int match = typeaheadBuffer.findNext(searchIndex, keyStroke.getCharacter(), currentIndex);
+                    if(match != -1) {
+                        if(popupWindow != null) {
+                            popupWindow.setSelectedItemIndex(match);
+                        }
+                        else {
+                            setSelectedIndex(match);
+                        }
+                        return Result.HANDLED;
+                    }
+                }
+                break;
+
             default:
         }
         return super.handleKeyStroke(keyStroke);
@@ -517,12 +562,42 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
             }
         }
 
+        //When the drop-down was opened from the text, it's showing the items matching the text and can be navigated
+        if(popupWindow != null) {
+            switch(keyStroke.getKeyType()) {
+                case ArrowDown:
+                case ArrowUp:
+                case PageUp:
+                case PageDown:
+                    popupWindow.listBox.handleKeyStroke(keyStroke);
+                    return Result.HANDLED;
+
+                case Enter:
+                    selectFromPopup();
+                    return Result.HANDLED;
+
+                case Escape:
+                    closePopup();
+                    return Result.HANDLED;
+
+                default:
+            }
+        }
+
         switch(keyStroke.getKeyType()) {
             case Character:
                 text = text.substring(0, textInputPosition) + keyStroke.getCharacter() + text.substring(textInputPosition);
                 textInputPosition++;
+                updatePopupFilter();
                 return Result.HANDLED;
 
+            case Enter:
+                if(getItemCount() > 0) {
+                    openPopup(text);
+                    return Result.HANDLED;
+                }
+                break;
+
             case Tab:
                 dropDownFocused = true;
                 return Result.HANDLED;
@@ -531,12 +606,14 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
                 if(textInputPosition > 0) {
                     text = text.substring(0, textInputPosition - 1) + text.substring(textInputPosition);
                     textInputPosition--;
+                    updatePopupFilter();
                 }
                 return Result.HANDLED;
 
             case Delete:
                 if(textInputPosition < text.length()) {
                     text = text.substring(0, textInputPosition) + text.substring(textInputPosition + 1);
+                    updatePopupFilter();
                 }
                 return Result.HANDLED;
 
@@ -576,26 +653,46 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
         return super.handleKeyStroke(keyStroke);
     }
 
+    private void openPopup(String filter) {
+        popupWindow = new PopupWindow(filter);
+        popupWindow.setPosition(toGlobal(new TerminalPosition(0, 1)));
+        ((WindowBasedTextGUI) getTextGUI()).addWindow(popupWindow);
+    }
+
+    private void closePopup() {
+        if(popupWindow != null) {
+            popupWindow.close();
+            popupWindow = null;
+        }
+    }
+
+    private void selectFromPopup() {
+        int index = popupWindow.getSelectedItemIndex();
+        closePopup();
+        if(index != -1) {
+            setSelectedIndex(index);
+        }
+    }
+
+    private void updatePopupFilter() {
+        if(popupWindow != null) {
+            popupWindow.setFilter(text);
+        }
+    }
+
     private class PopupWindow extends BasicWindow {
-        private final ActionListBox listBox;
+        private final FilteredListModel<V> filteredItems;
+        private final PopupListBox listBox;
 
-        public PopupWindow() {
+        public PopupWindow(String filter) {
             setHints(Arrays.asList(
                     Hint.NO_FOCUS,
                     Hint.FIXED_POSITION));
-            listBox = new ActionListBox(ComboBox.this.getSize().withRows(getItemCount()));
-            for(int i = 0; i < getItemCount(); i++) {
-                V item = items.get(i);
-                final int index = i;
-                listBox.addItem(item.toString(), new Runnable() {
-                    @Override
-                    public void run() {
-                        setSelectedIndex(index);
-                        close();
-                    }
-                });
-            }
-            listBox.setSelectedIndex(getSelectedIndex());
+            //The list box reads the items straight out of the combo box model, through the filter
+            filteredItems = new FilteredListModel<V>(searchIndex).setFilter(filter);
+            listBox = new PopupListBox(ComboBox.this.getSize().withRows(Math.max(1, filteredItems.size())));
+            listBox.setListModel(filteredItems);
+            listBox.setSelectedIndex(filteredItems.getFilteredIndex(getSelectedIndex()));
             TerminalSize dropDownListPreferedSize = listBox.getPreferredSize();
             if(dropDownNumberOfRows > 0) {
                 listBox.setPreferredSize(dropDownListPreferedSize.withRows(
@@ -604,12 +701,40 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
             setComponent(listBox);
         }
 
+        int getSelectedItemIndex() {
+            int index = listBox.getSelectedIndex();
+            return index == -1 ? -1 : filteredItems.getSourceIndex(index);
+        }
+
+        void setSelectedItemIndex(int itemIndex) {
+            int index = filteredItems.getFilteredIndex(itemIndex);
+            if(index != -1) {
+                listBox.setSelectedIndex(index);
+            }
+        }
+
+        void setFilter(String filter) {
+            filteredItems.setFilter(filter);
+        }
+
+        @Override
+        public void close() {
+            filteredItems.detach();
+            super.close();
+        }
+
         @Override
         public synchronized Theme getTheme() {
             return ComboBox.this.getTheme();
         }
     }
 
+    private class PopupListBox extends AbstractListBox<V, PopupListBox> {
+        PopupListBox(TerminalSize preferredSize) {
+            super(preferredSize);
+        }
+    }
+
     /**
      * Helper interface that doesn't add any new methods but makes coding new combo box renderers a little bit more clear
      */
@@ -653,12 +778,8 @@ public class ComboBox<V> extends AbstractInteractableComponent<ComboBox<V>> {
         public TerminalSize getPreferredSize(final ComboBox<V> comboBox) {
             TerminalSize size = TerminalSize.ONE.withColumns(
                     (comboBox.getItemCount() == 0 ? TerminalTextUtils.getColumnWidth(comboBox.getText()) : 0) + 2);
-            //noinspection SynchronizationOnLocalVariableOrMethodParameter
-            synchronized(comboBox) {
-                for(int i = 0; i < comboBox.getItemCount(); i++) {
-                    V item = comboBox.getItem(i);
-                    size = size.max(new TerminalSize(TerminalTextUtils.getColumnWidth(item.toString()) + 2 + 1, 1));   // +1 to add a single column of space
-                }
+            if(comboBox.getItemCount() > 0) {
+                size = size.max(new TerminalSize(comboBox.getLongestItemWidth() + 2 + 1, 1));   // +1 to add a single column of space
             }
             return size;
         }
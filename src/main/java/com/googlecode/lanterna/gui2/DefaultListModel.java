@@ -0,0 +1,155 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Default {@link ListModel} implementation, which keeps all items in an {@code ArrayList}. Listeners are notified
+ * outside of the model's lock, on the thread that made the modification.
+ * @param <V> Type of the items in the model
+ * @author Martin
+ */
+public class DefaultListModel<V> extends AbstractListModel<V> {
+    private final List<V> items;
+
+    /**
+     * Creates a new, empty, model
+     */
+    public DefaultListModel() {
+        this.items = new ArrayList<V>();
+    }
+
+    /**
+     * Creates a new model initially populated with the supplied items
+     * @param items Items to add to the model
+     */
+    public DefaultListModel(Collection<V> items) {
+        this.items = new ArrayList<V>(items);
+    }
+
+    @Override
+    public synchronized int size() {
+        return items.size();
+    }
+
+    @Override
+    public synchronized V get(int index) {
+        return items.get(index);
+    }
+
+    /**
+     * Looks for the item in the model and returns the index of it (starting from zero) if it is found, or -1 otherwise
+     * @param item Item to search for
+     * @return Index of the item or -1 if the model does not contain the item
+     */
+    public synchronized int indexOf(V item) {
+        return items.indexOf(item);
+    }
+
+    /**
+     * Adds an item to the end of the model
+     * @param item Item to add
+     * @return Itself
+     */
+    public DefaultListModel<V> add(V item) {
+        int index;
+        synchronized(this) {
+            index = items.size();
+            items.add(item);
+        }
+        fireItemsInserted(index, 1);
+        return this;
+    }
+
+    /**
+     * Inserts an item into the model at a specific index
+     * @param index Index the new item should have
+     * @param item Item to add
+     * @return Itself
+     */
+    public DefaultListModel<V> add(int index, V item) {
+        synchronized(this) {
+            items.add(index, item);
+        }
+        fireItemsInserted(index, 1);
+        return this;
+    }
+
+    /**
+     * Adds a number of items to the end of the model, triggering only a single notification to the listeners
+     * @param newItems Items to add
+     * @return Itself
+     */
+    public DefaultListModel<V> addAll(Collection<? extends V> newItems) {
+        int index;
+        synchronized(this) {
+            index = items.size();
+            items.addAll(newItems);
+        }
+        fireItemsInserted(index, newItems.size());
+        return this;
+    }
+
+    /**
+     * Replaces the item at a specific index in the model
+     * @param index Index of the item to replace
+     * @param item New item to put at this index
+     * @return The item that was previously at this index
+     */
+    public V set(int index, V item) {
+        V oldItem;
+        synchronized(this) {
+            oldItem = items.set(index, item);
+        }
+        fireItemsChanged(index, 1);
+        return oldItem;
+    }
+
+    /**
+     * Removes the item at a specific index from the model
+     * @param index Index of the item to remove
+     * @return The item that was removed
+     * @throws IndexOutOfBoundsException if the index is out of bounds in regards to the list of items
+     */
+    public V remove(int index) {
+        V oldItem;
+        synchronized(this) {
+            oldItem = items.remove(index);
+        }
+        fireItemsRemoved(index, 1);
+        return oldItem;
+    }
+
+    /**
+     * Removes all items from the model, triggering only a single notification to the listeners
+     * @return Itself
+     */
+    public DefaultListModel<V> clear() {
+        int count;
+        synchronized(this) {
+            count = items.size();
+            items.clear();
+        }
+        fireItemsRemoved(0, count);
+        return this;
+    }
+}
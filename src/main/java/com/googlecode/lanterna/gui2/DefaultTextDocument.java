@@ -0,0 +1,413 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalTextUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Default implementation of {@link TextDocument}, used by {@link TextBox} unless another document is assigned. The
+ * lines are kept in a gap buffer, meaning an array with a gap of unused slots at the position of the last edit, so
+ * that inserting and removing lines near where the user is editing doesn't have to shift all the lines that follow.
+ * Each line is itself a gap buffer of characters, for the same reason. The width of every line is tracked as it is
+ * being edited, so that the width of the widest line can always be looked up without going through the whole document.
+ * @author Martin
+ */
+public class DefaultTextDocument extends AbstractTextDocument {
+    private Line[] lines;
+    private int gapStart;
+    private int gapEnd;
+    private final TreeMap<Integer, Integer> lineWidths;  //Line width -> number of lines with that width
+    private long characterCount;
+    private String cachedText;
+
+    /**
+     * Creates a new document with a single empty line
+     */
+    public DefaultTextDocument() {
+        this(Collections.singletonList(""));
+    }
+
+    /**
+     * Creates a new document with initial content
+     * @param lines Lines to put in the document, if empty the document will have one empty line
+     */
+    public DefaultTextDocument(List<String> lines) {
+        this.lines = new Line[0];
+        this.gapStart = 0;
+        this.gapEnd = 0;
+        this.lineWidths = new TreeMap<Integer, Integer>();
+        this.characterCount = 0;
+        this.cachedText = null;
+        replaceLines(lines);
+    }
+
+    @Override
+    public synchronized int getLineCount() {
+        return size();
+    }
+
+    @Override
+    public synchronized String getLine(int index) {
+        return line(index).toString();
+    }
+
+    @Override
+    public synchronized int getLineLength(int index) {
+        return line(index).length();
+    }
+
+    @Override
+    public synchronized int getLongestLineWidth() {
+        return lineWidths.isEmpty() ? 0 : lineWidths.lastKey();
+    }
+
+    @Override
+    public synchronized String getText() {
+        if(cachedText == null) {
+            StringBuilder bob = new StringBuilder((int)Math.min(Integer.MAX_VALUE, characterCount + size()));
+            for(int i = 0; i < size(); i++) {
+                if(i > 0) {
+                    bob.append('\n');
+                }
+                line(i).appendTo(bob);
+            }
+            cachedText = bob.toString();
+        }
+        return cachedText;
+    }
+
+    @Override
+    public void setLines(List<String> lines) {
+        int oldLineCount;
+        int newLineCount;
+        synchronized(this) {
+            oldLineCount = size();
+            replaceLines(lines);
+            newLineCount = size();
+        }
+        fireLinesRemoved(0, oldLineCount);
+        fireLinesInserted(0, newLineCount);
+    }
+
+    @Override
+    public void addLine(String line) {
+        int index;
+        synchronized(this) {
+            index = size();
+            Line newLine = new Line(line);
+            insertLine(index, newLine);
+            addWidth(newLine.width);
+            characterCount += newLine.length();
+            cachedText = null;
+        }
+        fireLinesInserted(index, 1);
+    }
+
+    @Override
+    public void addLines(Collection<String> lines) {
+        int index;
+        synchronized(this) {
+            index = size();
+            for(String line: lines) {
+                Line newLine = new Line(line);
+                insertLine(size(), newLine);
+                addWidth(newLine.width);
+                characterCount += newLine.length();
+            }
+            cachedText = null;
+        }
+        fireLinesInserted(index, lines.size());
+    }
+
+    @Override
+    public void insertCharacter(int index, int column, char c) {
+        synchronized(this) {
+            Line line = line(index);
+            int oldWidth = line.width;
+            line.insert(column, c);
+            removeWidth(oldWidth);
+            addWidth(line.width);
+            characterCount++;
+            cachedText = null;
+        }
+        fireLinesChanged(index, 1);
+    }
+
+    @Override
+    public void deleteCharacter(int index, int column) {
+        synchronized(this) {
+            Line line = line(index);
+            int oldWidth = line.width;
+            line.delete(column);
+            removeWidth(oldWidth);
+            addWidth(line.width);
+            characterCount--;
+            cachedText = null;
+        }
+        fireLinesChanged(index, 1);
+    }
+
+    @Override
+    public void splitLine(int index, int column) {
+        synchronized(this) {
+            Line line = line(index);
+            int oldWidth = line.width;
+            Line newLine = line.split(column);
+            removeWidth(oldWidth);
+            addWidth(line.width);
+            addWidth(newLine.width);
+            insertLine(index + 1, newLine);
+            cachedText = null;
+        }
+        fireLinesChanged(index, 1);
+        fireLinesInserted(index + 1, 1);
+    }
+
+    @Override
+    public void joinLines(int index) {
+        synchronized(this) {
+            Line line = line(index);
+            Line nextLine = line(index + 1);
+            removeWidth(line.width);
+            removeWidth(nextLine.width);
+            removeLine(index + 1);
+            line.append(nextLine);
+            addWidth(line.width);
+            cachedText = null;
+        }
+        fireLinesChanged(index, 1);
+        fireLinesRemoved(index + 1, 1);
+    }
+
+    private void replaceLines(List<String> newLines) {
+        int lineCount = Math.max(1, newLines.size());
+        lines = new Line[lineCount + Math.max(16, lineCount / 8)];
+        gapStart = 0;
+        gapEnd = lines.length;
+        lineWidths.clear();
+        characterCount = 0;
+        cachedText = null;
+        for(String string: newLines) {
+            Line line = new Line(string);
+            lines[gapStart++] = line;
+            addWidth(line.width);
+            characterCount += line.length();
+        }
+        if(gapStart == 0) {
+            lines[gapStart++] = new Line("");
+            addWidth(0);
+        }
+    }
+
+    private int size() {
+        return lines.length - (gapEnd - gapStart);
+    }
+
+    private Line line(int index) {
+        if(index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Line index " + index + " is out of bounds, document has " + size() + " lines");
+        }
+        return lines[index < gapStart ? index : index + gapEnd - gapStart];
+    }
+
+    private void insertLine(int index, Line line) {
+        if(gapStart == gapEnd) {
+            Line[] newLines = new Line[Math.max(16, lines.length * 2)];
+            System.arraycopy(lines, 0, newLines, 0, gapStart);
+            int tail = lines.length - gapEnd;
+            System.arraycopy(lines, gapEnd, newLines, newLines.length - tail, tail);
+            gapEnd = newLines.length - tail;
+            lines = newLines;
+        }
+        moveGap(index);
+        lines[gapStart++] = line;
+    }
+
+    private void removeLine(int index) {
+        moveGap(index);
+        lines[gapEnd++] = null;
+    }
+
+    private void moveGap(int index) {
+        if(index < gapStart) {
+            int count = gapStart - index;
+            System.arraycopy(lines, index, lines, gapEnd - count, count);
+            Arrays.fill(lines, index, Math.min(gapStart, gapEnd - count), null);
+            gapStart = index;
+            gapEnd -= count;
+        }
+        else if(index > gapStart) {
+            int count = index - gapStart;
+            System.arraycopy(lines, gapEnd, lines, gapStart, count);
+            Arrays.fill(lines, Math.max(gapEnd, index), gapEnd + count, null);
+            gapStart = index;
+            gapEnd += count;
+        }
+    }
+
+    private void addWidth(int width) {
+        Integer count = lineWidths.get(width);
+        lineWidths.put(width, count == null ? 1 : count + 1);
+    }
+
+    private void removeWidth(int width) {
+        Integer count = lineWidths.get(width);
+        if(count == null) {
+            return;
+        }
+        if(count == 1) {
+            lineWidths.remove(width);
+        }
+        else {
+            lineWidths.put(width, count - 1);
+        }
+    }
+
+    // Same as what TerminalTextUtils.getColumnWidth(String) would count for the character
+    private static int getCharacterWidth(char c) {
+        if(c == '\t') {
+            return 4;
+        }
+        return TerminalTextUtils.isCharCJK(c) ? 2 : 1;
+    }
+
+    /**
+     * A single line of text, stored in a character gap buffer. The string representation is cached until the line
+     * is modified, since the renderer will ask for the same lines over and over.
+     */
+    private static class Line {
+        private char[] buffer;
+        private int gapStart;
+        private int gapEnd;
+        private int width;
+        private String cachedString;
+
+        Line(String string) {
+            this.buffer = string.toCharArray();
+            this.gapStart = buffer.length;
+            this.gapEnd = buffer.length;
+            this.width = TerminalTextUtils.getColumnWidth(string);
+            this.cachedString = string;
+        }
+
+        int length() {
+            return buffer.length - (gapEnd - gapStart);
+        }
+
+        void insert(int column, char c) {
+            checkColumn(column);
+            ensureGap(1);
+            moveGap(column);
+            buffer[gapStart++] = c;
+            width += getCharacterWidth(c);
+            cachedString = null;
+        }
+
+        void delete(int column) {
+            if(column < 0 || column >= length()) {
+                throw new IndexOutOfBoundsException("Column " + column + " is out of bounds, line has " + length() + " characters");
+            }
+            moveGap(column);
+            width -= getCharacterWidth(buffer[gapEnd++]);
+            cachedString = null;
+        }
+
+        Line split(int column) {
+            checkColumn(column);
+            String string = toString();
+            Line tail = new Line(string.substring(column));
+            moveGap(column);
+            gapEnd = buffer.length;
+            width -= tail.width;
+            cachedString = string.substring(0, column);
+            return tail;
+        }
+
+        void append(Line other) {
+            int otherLength = other.length();
+            ensureGap(otherLength);
+            moveGap(length());
+            System.arraycopy(other.buffer, 0, buffer, gapStart, other.gapStart);
+            System.arraycopy(other.buffer, other.gapEnd, buffer, gapStart + other.gapStart, other.buffer.length - other.gapEnd);
+            gapStart += otherLength;
+            width += other.width;
+            cachedString = null;
+        }
+
+        void appendTo(StringBuilder bob) {
+            if(cachedString != null) {
+                bob.append(cachedString);
+            }
+            else {
+                bob.append(buffer, 0, gapStart).append(buffer, gapEnd, buffer.length - gapEnd);
+            }
+        }
+
+        private void ensureGap(int size) {
+            if(gapEnd - gapStart >= size) {
+                return;
+            }
+            int length = length();
+            char[] newBuffer = new char[Math.max(length + size, length * 2) + 16];
+            System.arraycopy(buffer, 0, newBuffer, 0, gapStart);
+            int tail = buffer.length - gapEnd;
+            System.arraycopy(buffer, gapEnd, newBuffer, newBuffer.length - tail, tail);
+            gapEnd = newBuffer.length - tail;
+            buffer = newBuffer;
+        }
+
+        private void checkColumn(int column) {
+            if(column < 0 || column > length()) {
+                throw new IndexOutOfBoundsException("Column " + column + " is out of bounds, line has " + length() + " characters");
+            }
+        }
+
+        private void moveGap(int column) {
+            checkColumn(column);
+            if(column < gapStart) {
+                int count = gapStart - column;
+                System.arraycopy(buffer, column, buffer, gapEnd - count, count);
+                gapStart = column;
+                gapEnd -= count;
+            }
+            else if(column > gapStart) {
+                int count = column - gapStart;
+                System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+                gapStart = column;
+                gapEnd += count;
+            }
+        }
+
+        @Override
+        public String toString() {
+            if(cachedString == null) {
+                StringBuilder bob = new StringBuilder(length());
+                appendTo(bob);
+                cachedString = bob.toString();
+            }
+            return cachedString;
+        }
+    }
+}
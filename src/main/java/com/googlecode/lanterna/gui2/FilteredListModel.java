@@ -0,0 +1,185 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import java.util.Arrays;
+
+/**
+ * {@link ListModel} showing the items of another model that match a filter text, using an {@link ItemSearchIndex} to
+ * find them. The items are not copied; this model only keeps the indexes of the matching items and reads the items
+ * themselves from the underlying model when asked. An empty filter text matches every item, in which case this model
+ * just passes through to the underlying model.
+ * <p>
+ * This model listens to the underlying model and will update its matches whenever it changes. It relies on the search
+ * index having been attached to the underlying model before this model was created, so that the index is always up to
+ * date by the time this model is notified. Call {@link #detach()} when the model is no longer needed.
+ * @param <V> Type of the items in the model
+ * @author Martin
+ */
+public class FilteredListModel<V> extends AbstractListModel<V> {
+    private final ItemSearchIndex<V> searchIndex;
+    private final ListModel<V> source;
+    private final ListModel.Listener<V> sourceListener;
+    private String filter;
+    private int[] matches;
+
+    /**
+     * Creates a new filtered model over the model that the supplied search index is searching. Initially the filter
+     * is empty, so all items are included.
+     * @param searchIndex Search index to find matching items with
+     */
+    public FilteredListModel(ItemSearchIndex<V> searchIndex) {
+        this.searchIndex = searchIndex;
+        this.source = searchIndex.getListModel();
+        this.sourceListener = new SourceListener();
+        this.filter = "";
+        this.matches = null;
+        source.addListener(sourceListener);
+    }
+
+    @Override
+    public synchronized int size() {
+        return matches == null ? source.size() : matches.length;
+    }
+
+    @Override
+    public synchronized V get(int index) {
+        return source.get(getSourceIndex(index));
+    }
+
+    /**
+     * Translates an index in this model into the index of the same item in the underlying model
+     * @param index Index in this model
+     * @return Index of the same item in the underlying model
+     * @throws IndexOutOfBoundsException If the index is less than zero or equals/greater than the number of items in
+     * this model
+     */
+    public synchronized int getSourceIndex(int index) {
+        if(matches == null) {
+            return index;
+        }
+        if(index < 0 || index >= matches.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds, size is " + matches.length);
+        }
+        return matches[index];
+    }
+
+    /**
+     * Translates an index in the underlying model into the index of the same item in this model
+     * @param sourceIndex Index in the underlying model
+     * @return Index of the same item in this model, or -1 if the item doesn't match the filter
+     */
+    public synchronized int getFilteredIndex(int sourceIndex) {
+        if(matches == null) {
+            return sourceIndex;
+        }
+        int index = Arrays.binarySearch(matches, sourceIndex);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Returns the text this model is currently filtering on
+     * @return Current filter text, an empty string if all items are included
+     */
+    public synchronized String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Changes the filter text, after this the model will contain all items in the underlying model whose label
+     * contains the filter text, ignoring case.
+     * @param filter New filter text, {@code null} or an empty string includes all items
+     * @return Itself
+     */
+    public FilteredListModel<V> setFilter(String filter) {
+        if(filter == null) {
+            filter = "";
+        }
+        synchronized(this) {
+            if(this.filter.equals(filter)) {
+                return this;
+            }
+            this.filter = filter;
+        }
+        refresh();
+        return this;
+    }
+
+    /**
+     * Stops this model from listening to changes in the underlying model
+     */
+    public void detach() {
+        source.removeListener(sourceListener);
+    }
+
+    private void refresh() {
+        int oldSize;
+        int newSize;
+        synchronized(this) {
+            oldSize = size();
+            matches = filter.length() == 0 ? null : searchIndex.findMatches(filter);
+            newSize = size();
+        }
+        // Report this as the existing rows changing and the list growing or shrinking at the end, so that list boxes
+        // showing this model keep their selection where it was
+        fireItemsChanged(0, Math.min(oldSize, newSize));
+        if(newSize < oldSize) {
+            fireItemsRemoved(newSize, oldSize - newSize);
+        }
+        else {
+            fireItemsInserted(oldSize, newSize - oldSize);
+        }
+    }
+
+    private synchronized boolean isPassingThrough() {
+        return matches == null;
+    }
+
+    private class SourceListener implements ListModel.Listener<V> {
+        @Override
+        public void onItemsInserted(ListModel<V> model, int index, int count) {
+            if(isPassingThrough()) {
+                fireItemsInserted(index, count);
+            }
+            else {
+                refresh();
+            }
+        }
+
+        @Override
+        public void onItemsRemoved(ListModel<V> model, int index, int count) {
+            if(isPassingThrough()) {
+                fireItemsRemoved(index, count);
+            }
+            else {
+                refresh();
+            }
+        }
+
+        @Override
+        public void onItemsChanged(ListModel<V> model, int index, int count) {
+            if(isPassingThrough()) {
+                fireItemsChanged(index, count);
+            }
+            else {
+                refresh();
+            }
+        }
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search index over the items in a {@link ListModel}, used for typeahead and filtering in list boxes and combo boxes.
+ * Items are matched on the result of calling {@code toString()} on them, ignoring case. Prefix searches are done by
+ * binary search in the labels sorted alphabetically and substring searches use an index of all three-character
+ * sequences (trigrams) found in the labels, so neither needs to look at every item once the index is built.
+ * <p>
+ * Nothing is computed until the first search; the trigram index, which is the more expensive part, is only built
+ * when there is a substring search long enough to use it. After that, the index attaches itself to the model and is
+ * updated as items are inserted, removed or changed. Large bulk changes will simply cause the index to be rebuilt on
+ * the next search. Call {@link #detach()} when the index is no longer needed so it stops listening to the model.
+ * <p>
+ * All search results are returned as indexes into the model, in ascending order.
+ * @param <V> Type of the items in the model
+ * @author Martin
+ */
+public class ItemSearchIndex<V> {
+    /**
+     * Changes to more items than this at once will drop the index and rebuild it lazily, rather than updating it item
+     * by item
+     */
+    private static final int MAX_INCREMENTAL_UPDATE = 64;
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final ListModel<V> listModel;
+    private final ListModel.Listener<V> listModelListener;
+
+    // Lower-case label of every item in the model, by model index
+    private List<String> labels;
+    // Model indexes, sorted by label
+    private int[] sortedOrder;
+    // Model indexes of all items containing a particular trigram, the key is the three characters packed into a long
+    private TrigramMap trigrams;
+
+    /**
+     * Creates a new search index for the items in a {@link ListModel}
+     * @param listModel Model to index
+     */
+    public ItemSearchIndex(ListModel<V> listModel) {
+        if(listModel == null) {
+            throw new IllegalArgumentException("Cannot create ItemSearchIndex with null model");
+        }
+        this.listModel = listModel;
+        this.listModelListener = new ListModelListener();
+        this.labels = null;
+        this.sortedOrder = null;
+        this.trigrams = null;
+        listModel.addListener(listModelListener);
+    }
+
+    /**
+     * Returns the model this index is searching
+     * @return Model this index is searching
+     */
+    public ListModel<V> getListModel() {
+        return listModel;
+    }
+
+    /**
+     * Returns the indexes of all items whose label starts with the supplied text, ignoring case
+     * @param prefix Text to look for at the start of the labels
+     * @return Model indexes of all matching items, in ascending order
+     */
+    public synchronized int[] findPrefixMatches(String prefix) {
+        String normalizedPrefix = normalize(prefix);
+        ensureSorted();
+        if(normalizedPrefix.length() == 0) {
+            return allIndexes();
+        }
+        int first = findFirstInSortedOrder(normalizedPrefix);
+        int last = first;
+        while(last < sortedOrder.length && labels.get(sortedOrder[last]).startsWith(normalizedPrefix)) {
+            last++;
+        }
+        int[] matches = Arrays.copyOfRange(sortedOrder, first, last);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Returns the index of the first item at or after {@code fromIndex} whose label starts with the supplied text,
+     * ignoring case. If there is no such item, the search wraps around and continues from the start of the model.
+     * @param prefix Text to look for at the start of the labels
+     * @param fromIndex Model index to start searching from
+     * @return Model index of the next matching item, or -1 if no item matches
+     */
+    public synchronized int findNextPrefixMatch(String prefix, int fromIndex) {
+        String normalizedPrefix = normalize(prefix);
+        if(normalizedPrefix.length() == 0) {
+            return -1;
+        }
+        ensureSorted();
+        int firstMatch = -1;
+        int nextMatch = -1;
+        for(int i = findFirstInSortedOrder(normalizedPrefix); i < sortedOrder.length; i++) {
+            int index = sortedOrder[i];
+            if(!labels.get(index).startsWith(normalizedPrefix)) {
+                break;
+            }
+            if(firstMatch == -1 || index < firstMatch) {
+                firstMatch = index;
+            }
+            if(index >= fromIndex && (nextMatch == -1 || index < nextMatch)) {
+                nextMatch = index;
+            }
+        }
+        return nextMatch != -1 ? nextMatch : firstMatch;
+    }
+
+    /**
+     * Returns the indexes of all items whose label contains the supplied text anywhere, ignoring case
+     * @param text Text to look for in the labels
+     * @return Model indexes of all matching items, in ascending order
+     */
+    public synchronized int[] findMatches(String text) {
+        String normalizedText = normalize(text);
+        ensureLabels();
+        if(normalizedText.length() == 0) {
+            return allIndexes();
+        }
+        IndexList candidates = null;
+        if(normalizedText.length() >= 3) {
+            ensureTrigrams();
+            // Only the items with the rarest trigram of the search text need to be checked
+            for(int i = 0; i + 3 <= normalizedText.length(); i++) {
+                IndexList list = trigrams.get(trigramKey(normalizedText, i));
+                if(list == null || list.size == 0) {
+                    return NO_MATCHES;
+                }
+                if(candidates == null || list.size < candidates.size) {
+                    candidates = list;
+                }
+            }
+        }
+        IndexList matches = new IndexList();
+        if(candidates != null) {
+            for(int i = 0; i < candidates.size; i++) {
+                int index = candidates.values[i];
+                if(labels.get(index).contains(normalizedText)) {
+                    matches.add(index);
+                }
+            }
+        }
+        else {
+            for(int index = 0; index < labels.size(); index++) {
+                if(labels.get(index).contains(normalizedText)) {
+                    matches.add(index);
+                }
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Drops everything that has been computed, the index will be rebuilt on the next search
+     */
+    public synchronized void invalidate() {
+        labels = null;
+        sortedOrder = null;
+        trigrams = null;
+    }
+
+    /**
+     * Stops this index from listening to changes in the model. The index should not be used after calling this.
+     */
+    public synchronized void detach() {
+        listModel.removeListener(listModelListener);
+        invalidate();
+    }
+
+    private String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private String getNormalizedLabel(int index) {
+        V item = listModel.get(index);
+        return normalize(item != null ? item.toString() : "");
+    }
+
+    private int[] allIndexes() {
+        int[] indexes = new int[labels.size()];
+        for(int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    private void ensureLabels() {
+        if(labels != null) {
+            return;
+        }
+        int size = listModel.size();
+        labels = new ArrayList<String>(size);
+        for(int i = 0; i < size; i++) {
+            labels.add(getNormalizedLabel(i));
+        }
+    }
+
+    private void ensureSorted() {
+        ensureLabels();
+        if(sortedOrder != null) {
+            return;
+        }
+        Integer[] order = new Integer[labels.size()];
+        for(int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return compareInSortedOrder(o1, o2);
+            }
+        });
+        sortedOrder = new int[order.length];
+        for(int i = 0; i < order.length; i++) {
+            sortedOrder[i] = order[i];
+        }
+    }
+
+    private void ensureTrigrams() {
+        ensureLabels();
+        if(trigrams != null) {
+            return;
+        }
+        trigrams = new TrigramMap();
+        // Going through the items in order means every list is built already sorted
+        for(int index = 0; index < labels.size(); index++) {
+            String label = labels.get(index);
+            for(int i = 0; i + 3 <= label.length(); i++) {
+                IndexList list = trigrams.getOrCreate(trigramKey(label, i));
+                if(list.size == 0 || list.values[list.size - 1] != index) {
+                    list.add(index);
+                }
+            }
+        }
+    }
+
+    private static long trigramKey(String text, int index) {
+        return ((long)text.charAt(index) << 32) | ((long)text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    private int compareInSortedOrder(int index1, int index2) {
+        int result = labels.get(index1).compareTo(labels.get(index2));
+        if(result == 0) {
+            result = index1 < index2 ? -1 : (index1 == index2 ? 0 : 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the first label in sorted order which is equal to or greater than the supplied text
+     */
+    private int findFirstInSortedOrder(String text) {
+        int low = 0;
+        int high = sortedOrder.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(labels.get(sortedOrder[middle]).compareTo(text) < 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position in sorted order where the item with the supplied index, given its current label, is or
+     * should be inserted
+     */
+    private int findInSortedOrder(int index, int length) {
+        int low = 0;
+        int high = length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(compareInSortedOrder(sortedOrder[middle], index) < 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void addToSortedOrder(int index, int length) {
+        int position = findInSortedOrder(index, length);
+        System.arraycopy(sortedOrder, position, sortedOrder, position + 1, length - position);
+        sortedOrder[position] = index;
+    }
+
+    private void removeFromSortedOrder(int index) {
+        int position = findInSortedOrder(index, sortedOrder.length);
+        System.arraycopy(sortedOrder, position + 1, sortedOrder, position, sortedOrder.length - position - 1);
+    }
+
+    private void addToTrigrams(int index) {
+        String label = labels.get(index);
+        for(int i = 0; i + 3 <= label.length(); i++) {
+            trigrams.getOrCreate(trigramKey(label, i)).insert(index);
+        }
+    }
+
+    private void removeFromTrigrams(int index) {
+        String label = labels.get(index);
+        for(int i = 0; i + 3 <= label.length(); i++) {
+            IndexList list = trigrams.get(trigramKey(label, i));
+            if(list != null) {
+                list.remove(index);
+            }
+        }
+    }
+
+    private synchronized void onItemsInserted(int index, int count) {
+        if(labels == null) {
+            return;
+        }
+        if(count > MAX_INCREMENTAL_UPDATE) {
+            invalidate();
+            return;
+        }
+        int oldSize = labels.size();
+        if(sortedOrder != null) {
+            for(int i = 0; i < oldSize; i++) {
+                if(sortedOrder[i] >= index) {
+                    sortedOrder[i] += count;
+                }
+            }
+        }
+        if(trigrams != null && index < oldSize) {
+            for(IndexList list: trigrams.lists) {
+                if(list != null) {
+                    list.shift(index, count);
+                }
+            }
+        }
+        for(int i = 0; i < count; i++) {
+            labels.add(index + i, getNormalizedLabel(index + i));
+        }
+        if(sortedOrder != null) {
+            sortedOrder = Arrays.copyOf(sortedOrder, oldSize + count);
+            for(int i = 0; i < count; i++) {
+                addToSortedOrder(index + i, oldSize + i);
+            }
+        }
+        if(trigrams != null) {
+            for(int i = 0; i < count; i++) {
+                addToTrigrams(index + i);
+            }
+        }
+    }
+
+    private synchronized void onItemsRemoved(int index, int count) {
+        if(labels == null) {
+            return;
+        }
+        if(count > MAX_INCREMENTAL_UPDATE) {
+            invalidate();
+            return;
+        }
+        if(sortedOrder != null) {
+            int newLength = 0;
+            for(int i = 0; i < sortedOrder.length; i++) {
+                int value = sortedOrder[i];
+                if(value >= index + count) {
+                    sortedOrder[newLength++] = value - count;
+                }
+                else if(value < index) {
+                    sortedOrder[newLength++] = value;
+                }
+            }
+            sortedOrder = Arrays.copyOf(sortedOrder, newLength);
+        }
+        if(trigrams != null) {
+            for(IndexList list: trigrams.lists) {
+                if(list != null) {
+                    list.shift(index, -count);
+                }
+            }
+        }
+        labels.subList(index, index + count).clear();
+    }
+
+    private synchronized void onItemsChanged(int index, int count) {
+        if(labels == null) {
+            return;
+        }
+        if(count > MAX_INCREMENTAL_UPDATE) {
+            invalidate();
+            return;
+        }
+        for(int i = index; i < index + count; i++) {
+            String label = getNormalizedLabel(i);
+            if(label.equals(labels.get(i))) {
+                continue;
+            }
+            if(sortedOrder != null) {
+                removeFromSortedOrder(i);
+            }
+            if(trigrams != null) {
+                removeFromTrigrams(i);
+            }
+            labels.set(i, label);
+            if(sortedOrder != null) {
+                addToSortedOrder(i, sortedOrder.length - 1);
+            }
+            if(trigrams != null) {
+                addToTrigrams(i);
+            }
+        }
+    }
+
+    private class ListModelListener implements ListModel.Listener<V> {
+        @Override
+        public void onItemsInserted(ListModel<V> model, int index, int count) {
+            ItemSearchIndex.this.onItemsInserted(index, count);
+        }
+
+        @Override
+        public void onItemsRemoved(ListModel<V> model, int index, int count) {
+            ItemSearchIndex.this.onItemsRemoved(index, count);
+        }
+
+        @Override
+        public void onItemsChanged(ListModel<V> model, int index, int count) {
+            ItemSearchIndex.this.onItemsChanged(index, count);
+        }
+    }
+
+    /**
+     * Sorted list of model indexes, without the boxing overhead of a {@code List<Integer>}
+     */
+    private static class IndexList {
+        private int[] values;
+        private int size;
+
+        IndexList() {
+            this.values = new int[4];
+            this.size = 0;
+        }
+
+        void add(int value) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void insert(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if(position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            add(0);
+            System.arraycopy(values, position, values, position + 1, size - position - 1);
+            values[position] = value;
+        }
+
+        void remove(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if(position >= 0) {
+                System.arraycopy(values, position + 1, values, position, size - position - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Adjusts all values at or above {@code from} by {@code delta}. If {@code delta} is negative, the values in the
+         * range that is being shifted over are removed.
+         */
+        void shift(int from, int delta) {
+            if(size == 0 || values[size - 1] < from) {
+                return;
+            }
+            int start = findFirst(from);
+            if(delta < 0) {
+                int end = findFirst(from - delta);
+                System.arraycopy(values, end, values, start, size - end);
+                size -= end - start;
+            }
+            for(int i = start; i < size; i++) {
+                values[i] += delta;
+            }
+        }
+
+        private int findFirst(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Hash map from packed trigram to the list of items containing it, using open addressing so that there is no need
+     * to box the keys. Lists are never removed, an empty list simply means no item contains the trigram anymore.
+     */
+    private static class TrigramMap {
+        private long[] keys;
+        private IndexList[] lists;
+        private int size;
+
+        TrigramMap() {
+            this.keys = new long[1024];
+            this.lists = new IndexList[1024];
+            this.size = 0;
+        }
+
+        IndexList get(long key) {
+            int slot = findSlot(keys, lists, key);
+            return lists[slot];
+        }
+
+        IndexList getOrCreate(long key) {
+            int slot = findSlot(keys, lists, key);
+            IndexList list = lists[slot];
+            if(list == null) {
+                list = new IndexList();
+                keys[slot] = key;
+                lists[slot] = list;
+                if(++size * 2 > lists.length) {
+                    grow();
+                }
+            }
+            return list;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            IndexList[] oldLists = lists;
+            keys = new long[oldKeys.length * 2];
+            lists = new IndexList[oldLists.length * 2];
+            for(int i = 0; i < oldLists.length; i++) {
+                if(oldLists[i] != null) {
+                    int slot = findSlot(keys, lists, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    lists[slot] = oldLists[i];
+                }
+            }
+        }
+
+        private static int findSlot(long[] keys, IndexList[] lists, long key) {
+            int mask = lists.length - 1;
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while(lists[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -24,8 +24,11 @@ import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.graphics.ThemeDefinition;
 
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Label is a simple read-only text display component. It supports customized colors and multi-line text.
@@ -33,6 +36,10 @@ import java.util.List;
  */
 public class Label extends AbstractComponent<Label> {
     private String[] lines;
+    private int linesVersion;
+    private String[] wrappedLines;
+    private int wrappedLinesVersion;
+    private int wrappedLinesWidth;
     private Integer labelWidth;
     private TerminalSize labelSize;
     private TextColor foregroundColor;
@@ -45,6 +52,10 @@ public class Label extends AbstractComponent<Label> {
      */
     public Label(String text) {
         this.lines = null;
+        this.linesVersion = 0;
+        this.wrappedLines = null;
+        this.wrappedLinesVersion = -1;
+        this.wrappedLinesWidth = -1;
         this.labelSize = TerminalSize.ZERO;
         this.labelWidth = 0;
         this.foregroundColor = null;
@@ -61,18 +72,82 @@ public class Label extends AbstractComponent<Label> {
      */
     protected void setLines(String[] lines) {
         this.lines = lines;
+        this.linesVersion++;
     }
 
     /**
-     * Updates the text this label is displaying
+     * Updates the text this label is displaying. If the text is the same as when it was last set, nothing happens; the
+     * label isn't measured again or invalidated.
      * @param text New text to display
      */
     public synchronized void setText(String text) {
-        setLines(splitIntoMultipleLines(text));
+        String[] newLines = splitIntoMultipleLines(text);
+        if(Arrays.equals(lines, newLines)) {
+            return;
+        }
+        setLines(newLines);
         this.labelSize = getBounds(lines, labelSize);
         invalidate();
     }
 
+    /**
+     * Updates the text of many labels at once, for example all the values on a dashboard that is refreshed
+     * periodically. Labels that are part of a GUI with a running GUI thread are updated on that thread, all of them in
+     * a single task so that they change together in the same redraw; other labels are updated directly. Labels whose
+     * text didn't change are skipped, just like with {@link #setText(String)}.
+     * @param texts Map from the labels to update to the new text each of them should display
+     */
+    public static void setTexts(Map<? extends Label, String> texts) {
+        Map<TextGUIThread, Map<Label, String>> textsByGUIThread = new LinkedHashMap<TextGUIThread, Map<Label, String>>();
+        for(Map.Entry<? extends Label, String> entry: texts.entrySet()) {
+            TextGUI textGUI = entry.getKey().getTextGUI();
+            TextGUIThread guiThread = textGUI != null ? textGUI.getGUIThread() : null;
+            if(guiThread == null || guiThread.getThread() == Thread.currentThread()) {
+                entry.getKey().setText(entry.getValue());
+                continue;
+            }
+            Map<Label, String> guiThreadTexts = textsByGUIThread.get(guiThread);
+            if(guiThreadTexts == null) {
+                guiThreadTexts = new LinkedHashMap<Label, String>();
+                textsByGUIThread.put(guiThread, guiThreadTexts);
+            }
+            guiThreadTexts.put(entry.getKey(), entry.getValue());
+        }
+        for(Map.Entry<TextGUIThread, Map<Label, String>> entry: textsByGUIThread.entrySet()) {
+            final Map<Label, String> guiThreadTexts = entry.getValue();
+            Runnable update = new Runnable() {
+                @Override
+                public void run() {
+                    for(Map.Entry<Label, String> labelText: guiThreadTexts.entrySet()) {
+                        labelText.getKey().setText(labelText.getValue());
+                    }
+                }
+            };
+            try {
+                AbstractTextGUIThread.invokeLaterExempt(entry.getKey(), update);
+            }
+            catch(IllegalStateException e) {
+                // The GUI thread isn't running
+                update.run();
+            }
+        }
+    }
+
+    /**
+     * Returns the lines of this label word wrapped to fit a certain width. The result is cached, so calling this
+     * repeatedly with the same width won't wrap the text again until the text changes.
+     * @param width Width, in columns, to wrap the text to
+     * @return Lines of this label after word wrapping
+     */
+    protected synchronized String[] getWrappedLines(int width) {
+        if(wrappedLines == null || wrappedLinesVersion != linesVersion || wrappedLinesWidth != width) {
+            wrappedLines = TerminalTextUtils.getWordWrappedText(width, lines).toArray(new String[0]);
+            wrappedLinesVersion = linesVersion;
+            wrappedLinesWidth = width;
+        }
+        return wrappedLines;
+    }
+
     /**
      * Returns the text this label is displaying. Multi-line labels will have their text concatenated with \n, even if
      * they were originally set using multi-line text having \r\n as line terminators.
@@ -123,8 +198,14 @@ public class Label extends AbstractComponent<Label> {
             currentBounds = currentBounds.withColumns(preferredWidth);
         }
         else {
-            List<String> wordWrapped = TerminalTextUtils.getWordWrappedText(labelWidth, lines);
-            currentBounds = currentBounds.withColumns(labelWidth).withRows(wordWrapped.size());
+            int wrappedRows;
+            if(lines == this.lines) {
+                wrappedRows = getWrappedLines(labelWidth).length;
+            }
+            else {
+                wrappedRows = TerminalTextUtils.getWordWrappedText(labelWidth, lines).size();
+            }
+            currentBounds = currentBounds.withColumns(labelWidth).withRows(wrappedRows);
         }
         return currentBounds;
     }
@@ -201,7 +282,7 @@ public class Label extends AbstractComponent<Label> {
      * layout managers might assign more space to the label and because of this the wrapping might not be as you expect
      * it. If set to 0, the label will request the same space as if set to {@code null}, but when drawing it will apply
      * word wrapping instead of truncation in order to fit the label inside the designated area if it's smaller than
-     * what was requested. By default this is set to 0.
+     * what was requested. By default this is set to 0. Changing the label width measures the label again.
      *
      * @param labelWidth Either {@code null} or 0 for no limit on how wide the label can be, where 0 indicates word
      *                   wrapping should be used if the assigned area is smaller than the requested size, or a positive
@@ -209,7 +290,12 @@ public class Label extends AbstractComponent<Label> {
      * @return Itself
      */
     public synchronized Label setLabelWidth(Integer labelWidth) {
+        if(labelWidth == null ? this.labelWidth == null : labelWidth.equals(this.labelWidth)) {
+            return this;
+        }
         this.labelWidth = labelWidth;
+        this.labelSize = getBounds(lines, labelSize);
+        invalidate();
         return this;
     }
 
@@ -256,7 +342,7 @@ public class Label extends AbstractComponent<Label> {
                     linesToDraw = component.lines;
                 }
                 else {
-                    linesToDraw = TerminalTextUtils.getWordWrappedText(graphics.getSize().getColumns(), component.lines).toArray(new String[0]);
+                    linesToDraw = component.getWrappedLines(graphics.getSize().getColumns());
                 }
 
                 for(int row = 0; row < Math.min(graphics.getSize().getRows(), linesToDraw.length); row++) {
@@ -0,0 +1,93 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+/**
+ * Data model behind the list box components (subclasses of {@link AbstractListBox}). The list box will only ask the
+ * model for the number of items and for the specific items that are currently visible, so an implementation of this
+ * interface doesn't need to have all items in memory at once; they can be loaded or generated on demand when
+ * {@link #get(int)} is called. If you don't need this, {@link DefaultListModel} is a simple list-backed implementation
+ * and is what the list boxes are using by default.
+ * <p>
+ * Implementations must notify the registered listeners whenever the content changes, {@link AbstractListModel} has
+ * the necessary plumbing for this.
+ * @param <V> Type of the items in the model
+ * @author Martin
+ */
+public interface ListModel<V> {
+    /**
+     * Listener interface for the {@link ListModel} which can be attached to a model to be notified of changes to it.
+     * All index ranges are expressed as the first index and the number of items affected, so that bulk modifications
+     * only need to trigger one event.
+     * @param <V> Type of the items in the model
+     */
+    interface Listener<V> {
+        /**
+         * Called when one or more items have been inserted into the model
+         * @param model Model the items were added to
+         * @param index Index of the first new item
+         * @param count Number of items that were added
+         */
+        void onItemsInserted(ListModel<V> model, int index, int count);
+
+        /**
+         * Called when one or more items have been removed from the model
+         * @param model Model the items were removed from
+         * @param index Index the first removed item had
+         * @param count Number of items that were removed
+         */
+        void onItemsRemoved(ListModel<V> model, int index, int count);
+
+        /**
+         * Called when one or more existing items have been replaced or changed in a way that would change how they are
+         * displayed
+         * @param model Model that was modified
+         * @param index Index of the first changed item
+         * @param count Number of items that were changed
+         */
+        void onItemsChanged(ListModel<V> model, int index, int count);
+    }
+
+    /**
+     * Returns the number of items in the model
+     * @return Number of items in the model
+     */
+    int size();
+
+    /**
+     * Returns the item at a specific index in the model
+     * @param index Index of the item to return
+     * @return The item at the specified index
+     * @throws IndexOutOfBoundsException If the index is less than zero or equals/greater than the number of items in
+     * the model
+     */
+    V get(int index);
+
+    /**
+     * Adds a listener to this model that will be notified whenever the model changes
+     * @param listener {@link Listener} to register with this model
+     */
+    void addListener(Listener<V> listener);
+
+    /**
+     * Removes a listener from this model so that it will no longer receive any notifications when the model changes
+     * @param listener {@link Listener} to deregister from this model
+     */
+    void removeListener(Listener<V> listener);
+}
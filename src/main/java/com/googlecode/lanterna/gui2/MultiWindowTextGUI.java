@@ -31,6 +31,11 @@ import com.googlecode.lanterna.screen.VirtualScreen;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This is the main Text GUI implementation built into Lanterna, supporting multiple tiled windows and a dynamic
@@ -46,8 +51,15 @@ public class MultiWindowTextGUI extends AbstractTextGUI implements WindowBasedTe
     private final List<Window> windows;
     private final IdentityHashMap<Window, TextImage> windowRenderBufferCache;
     private final WindowPostRenderer postRenderer;
+    // Windows that were completely covered when last drawn, with their preferred size at the time
+    private final Map<Window, TerminalSize> occludedWindows;
+    private final List<Window> lastDrawnWindows;
+    private final List<TerminalPosition> lastDrawnWindowPositions;
+    private final List<TerminalSize> lastDrawnWindowSizes;
 
     private Window activeWindow;
+    private boolean backgroundOccluded;
+    private Executor windowRenderingExecutor;
     private boolean hadWindowAtSomePoint;
     private boolean eofWhenNoWindows;
 
@@ -186,18 +198,37 @@ public class MultiWindowTextGUI extends AbstractTextGUI implements WindowBasedTe
         this.windows = new LinkedList<Window>();
         this.windowRenderBufferCache = new IdentityHashMap<Window, TextImage>();
         this.postRenderer = postRenderer;
+        this.occludedWindows = new IdentityHashMap<Window, TerminalSize>();
+        this.lastDrawnWindows = new ArrayList<Window>();
+        this.lastDrawnWindowPositions = new ArrayList<TerminalPosition>();
+        this.lastDrawnWindowSizes = new ArrayList<TerminalSize>();
+        this.backgroundOccluded = false;
+        this.windowRenderingExecutor = null;
         this.eofWhenNoWindows = false;
         this.hadWindowAtSomePoint = false;
     }
 
     @Override
     public synchronized boolean isPendingUpdate() {
+        // Any window being shown, hidden, moved, resized or restacked can uncover something that needs to be drawn
+        if(hasWindowLayoutChanged()) {
+            return true;
+        }
         for(Window window: windows) {
             if(window.isVisible() && window.isInvalid()) {
-                return true;
+                if(!occludedWindows.containsKey(window)) {
+                    return true;
+                }
+                // Windows that were completely covered last time don't need to be redrawn, unless their content has
+                // changed size and they could be growing out from under the windows on top of them
+                if(!window.getPreferredSize().equals(occludedWindows.get(window))) {
+                    return true;
+                }
             }
         }
-        return super.isPendingUpdate() || backgroundPane.isInvalid() || windowManager.isInvalid();
+        return super.isPendingUpdate() ||
+                (!backgroundOccluded && backgroundPane.isInvalid()) ||
+                windowManager.isInvalid();
     }
 
     @Override
@@ -239,47 +270,287 @@ public class MultiWindowTextGUI extends AbstractTextGUI implements WindowBasedTe
 
     @Override
     protected synchronized void drawGUI(TextGUIGraphics graphics) {
-        drawBackgroundPane(graphics);
         getWindowManager().prepareWindows(this, Collections.unmodifiableList(windows), graphics.getSize());
-        for(Window window: windows) {
-            if (window.isVisible()) {
-                // First draw windows to a buffer, then copy it to the real destination. This is to make physical off-screen
-                // drawing work better. Store the buffers in a cache so we don't have to re-create them every time.
+        List<Window> visibleWindows = getVisibleWindows();
+        Map<Window, int[]> visibleRuns = computeVisibleRuns(visibleWindows, graphics.getSize());
+
+        if(!backgroundOccluded) {
+            drawBackgroundPane(graphics);
+        }
+        // First draw windows to a buffer, then copy it to the real destination. This is to make physical off-screen
+        // drawing work better. Store the buffers in a cache so we don't have to re-create them every time.
+        List<Window> windowsToDraw = new ArrayList<Window>(visibleWindows.size());
+        List<TextImage> renderBuffers = new ArrayList<TextImage>(visibleWindows.size());
+        for(Window window: visibleWindows) {
+            if(!occludedWindows.containsKey(window)) {
                 TextImage textImage = windowRenderBufferCache.get(window);
                 if (textImage == null || !textImage.getSize().equals(window.getDecoratedSize())) {
                     textImage = new BasicTextImage(window.getDecoratedSize());
                     windowRenderBufferCache.put(window, textImage);
                 }
-                TextGUIGraphics windowGraphics = new DefaultTextGUIGraphics(this, textImage.newTextGraphics());
-                TerminalPosition contentOffset = TerminalPosition.TOP_LEFT_CORNER;
-                if (!window.getHints().contains(Window.Hint.NO_DECORATIONS)) {
-                    WindowDecorationRenderer decorationRenderer = getWindowManager().getWindowDecorationRenderer(window);
-                    windowGraphics = decorationRenderer.draw(this, windowGraphics, window);
-                    contentOffset = decorationRenderer.getOffset(window);
+                windowsToDraw.add(window);
+                renderBuffers.add(textImage);
+            }
+        }
+        drawWindows(windowsToDraw, renderBuffers);
+
+        for(Window window: visibleWindows) {
+            if(!occludedWindows.containsKey(window)) {
+                TextImage textImage = windowRenderBufferCache.get(window);
+                int[] runs = visibleRuns.get(window);
+                if(runs == null) {
+                    graphics.drawImage(window.getPosition(), textImage);
+                }
+                else {
+                    drawVisibleRuns(graphics, window.getPosition(), textImage, runs);
+                }
+            }
+
+            // Post-renderers (like the shadow) may draw outside of the window, so always run them to keep the output
+            // the same as when drawing everything
+            if(!window.getHints().contains(Window.Hint.NO_POST_RENDERING)) {
+                if (window.getPostRenderer() != null) {
+                    window.getPostRenderer().postRender(graphics, this, window);
+                }
+                else if (postRenderer != null) {
+                    postRenderer.postRender(graphics, this, window);
+                }
+                else if (getTheme().getWindowPostRenderer() != null) {
+                    getTheme().getWindowPostRenderer().postRender(graphics, this, window);
+                }
+            }
+        }
+        lastDrawnWindows.clear();
+        lastDrawnWindowPositions.clear();
+        lastDrawnWindowSizes.clear();
+        for(Window window: visibleWindows) {
+            lastDrawnWindows.add(window);
+            lastDrawnWindowPositions.add(window.getPosition());
+            lastDrawnWindowSizes.add(window.getDecoratedSize());
+        }
+
+        // Purge the render buffer cache from windows that have been removed
+        windowRenderBufferCache.keySet().retainAll(windows);
+    }
+
+    /**
+     * Draws each window into its render buffer, either one by one on the calling thread or, if there is a window
+     * rendering executor and more than one window to draw, spread out over the executor's threads with the calling
+     * thread helping out. Either way, each window is drawn by exactly one thread.
+     * <p>
+     * The window decorations are drawn first, on the calling thread, since the decoration renderer needs to ask the GUI
+     * which window is active. The calling thread keeps holding the monitor of the GUI until all windows are drawn, so
+     * nothing else can change the GUI halfway through a frame.
+     */
+    private void drawWindows(final List<Window> windowsToDraw, List<TextImage> renderBuffers) {
+        final int windowCount = windowsToDraw.size();
+        final List<TextGUIGraphics> contentGraphics = new ArrayList<TextGUIGraphics>(windowCount);
+        List<TerminalPosition> contentOffsets = new ArrayList<TerminalPosition>(windowCount);
+        for(int i = 0; i < windowCount; i++) {
+            Window window = windowsToDraw.get(i);
+            TextGUIGraphics windowGraphics = new DefaultTextGUIGraphics(this, renderBuffers.get(i).newTextGraphics());
+            TerminalPosition contentOffset = TerminalPosition.TOP_LEFT_CORNER;
+            if (!window.getHints().contains(Window.Hint.NO_DECORATIONS)) {
+                WindowDecorationRenderer decorationRenderer = getWindowManager().getWindowDecorationRenderer(window);
+                windowGraphics = decorationRenderer.draw(this, windowGraphics, window);
+                contentOffset = decorationRenderer.getOffset(window);
+            }
+            contentGraphics.add(windowGraphics);
+            contentOffsets.add(contentOffset);
+        }
+
+        Executor executor = windowRenderingExecutor;
+        if(executor == null || windowCount < 2) {
+            for(int i = 0; i < windowCount; i++) {
+                drawWindowContent(windowsToDraw.get(i), contentGraphics.get(i));
+            }
+        }
+        else {
+            final AtomicInteger nextWindow = new AtomicInteger(0);
+            final AtomicReference<Throwable> workerFailure = new AtomicReference<Throwable>();
+            final CountDownLatch workersDone = new CountDownLatch(windowCount - 1);
+            final Runnable worker = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for(int i = nextWindow.getAndIncrement(); i < windowCount; i = nextWindow.getAndIncrement()) {
+                            drawWindowContent(windowsToDraw.get(i), contentGraphics.get(i));
+                        }
+                    }
+                    catch(Throwable e) {
+                        workerFailure.compareAndSet(null, e);
+                        // Make the other workers stop picking up windows
+                        nextWindow.set(windowCount);
+                    }
+                }
+            };
+            for(int i = 1; i < windowCount; i++) {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                worker.run();
+                            }
+                            finally {
+                                workersDone.countDown();
+                            }
+                        }
+                    });
+                }
+                catch(RejectedExecutionException e) {
+                    // The calling thread will pick up the windows this worker would have drawn
+                    workersDone.countDown();
+                }
+            }
+            worker.run();
+
+            // Wait for the other workers without letting go of the monitor; they only touch their own windows
+            boolean interrupted = false;
+            while(true) {
+                try {
+                    workersDone.await();
+                    break;
+                }
+                catch(InterruptedException e) {
+                    interrupted = true;
                 }
+            }
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable failure = workerFailure.get();
+            if(failure instanceof RuntimeException) {
+                throw (RuntimeException)failure;
+            }
+            else if(failure instanceof Error) {
+                throw (Error)failure;
+            }
+            else if(failure != null) {
+                throw new IllegalStateException("Drawing a window failed", failure);
+            }
+        }
+
+        for(int i = 0; i < windowCount; i++) {
+            windowsToDraw.get(i).setContentOffset(contentOffsets.get(i));
+        }
+    }
+
+    private void drawWindowContent(Window window, TextGUIGraphics contentGraphics) {
+        window.draw(contentGraphics);
+        Borders.joinLinesWithFrame(contentGraphics);
+    }
 
-                window.draw(windowGraphics);
-                window.setContentOffset(contentOffset);
-                Borders.joinLinesWithFrame(windowGraphics);
+    /**
+     * Checks if any window has been shown, hidden, moved, resized or had its place in the window stack changed since
+     * the last time the GUI was drawn
+     */
+    private boolean hasWindowLayoutChanged() {
+        List<Window> visibleWindows = getVisibleWindows();
+        if(!visibleWindows.equals(lastDrawnWindows)) {
+            return true;
+        }
+        for(int i = 0; i < visibleWindows.size(); i++) {
+            Window window = visibleWindows.get(i);
+            if(!window.getPosition().equals(lastDrawnWindowPositions.get(i)) ||
+                    !window.getDecoratedSize().equals(lastDrawnWindowSizes.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Window> getVisibleWindows() {
+        List<Window> visibleWindows = new ArrayList<Window>(windows.size());
+        for(Window window: windows) {
+            if(window.isVisible()) {
+                visibleWindows.add(window);
+            }
+        }
+        return visibleWindows;
+    }
 
-                graphics.drawImage(window.getPosition(), textImage);
+    /**
+     * Goes through the visible windows from the top down, keeping track of which cells are covered by the windows above,
+     * to figure out which parts of each window will actually be seen. Windows that are completely covered are added to
+     * {@code occludedWindows}, the background pane is flagged as occluded if every cell is covered by a window. For
+     * windows that are partly covered, the returned map holds the visible runs of cells, as (row, first column, last
+     * column) triplets relative to the draw area. Windows that are fully visible are not in the map.
+     */
+    private Map<Window, int[]> computeVisibleRuns(List<Window> visibleWindows, TerminalSize areaSize) {
+        Map<Window, int[]> visibleRuns = new IdentityHashMap<Window, int[]>();
+        occludedWindows.clear();
+        int areaColumns = areaSize.getColumns();
+        int areaRows = areaSize.getRows();
+        BitSet covered = new BitSet(areaColumns * areaRows);
+        int coveredCount = 0;
+        for(int i = visibleWindows.size() - 1; i >= 0; i--) {
+            Window window = visibleWindows.get(i);
+            TerminalPosition position = window.getPosition();
+            TerminalSize size = window.getDecoratedSize();
+            int left = Math.max(0, position.getColumn());
+            int top = Math.max(0, position.getRow());
+            int right = Math.min(areaColumns, position.getColumn() + size.getColumns());
+            int bottom = Math.min(areaRows, position.getRow() + size.getRows());
+            if(left >= right || top >= bottom) {
+                // Entirely outside the draw area, let it draw like before so it still gets laid out
+                continue;
+            }
 
-                if(!window.getHints().contains(Window.Hint.NO_POST_RENDERING)) {
-                    if (window.getPostRenderer() != null) {
-                        window.getPostRenderer().postRender(graphics, this, window);
+            int[] runs = new int[16];
+            int runCount = 0;
+            boolean partlyCovered = false;
+            for(int row = top; row < bottom; row++) {
+                int rowStart = row * areaColumns;
+                int column = left;
+                while(column < right) {
+                    int start = covered.nextClearBit(rowStart + column) - rowStart;
+                    if(start >= right) {
+                        break;
                     }
-                    else if (postRenderer != null) {
-                        postRenderer.postRender(graphics, this, window);
+                    int end = covered.nextSetBit(rowStart + start);
+                    end = end < 0 ? right : Math.min(right, end - rowStart);
+                    if(start != column || end != right) {
+                        partlyCovered = true;
                     }
-                    else if (getTheme().getWindowPostRenderer() != null) {
-                        getTheme().getWindowPostRenderer().postRender(graphics, this, window);
+                    if(runCount * 3 + 3 > runs.length) {
+                        runs = Arrays.copyOf(runs, runs.length * 2);
                     }
+                    runs[runCount * 3] = row;
+                    runs[runCount * 3 + 1] = start;
+                    runs[runCount * 3 + 2] = end - 1;
+                    runCount++;
+                    coveredCount += end - start;
+                    covered.set(rowStart + start, rowStart + end);
+                    column = end;
                 }
+                if(column == left) {
+                    partlyCovered = true;
+                }
+            }
+
+            if(runCount == 0) {
+                occludedWindows.put(window, window.getPreferredSize());
+            }
+            else if(partlyCovered) {
+                visibleRuns.put(window, Arrays.copyOf(runs, runCount * 3));
             }
         }
+        backgroundOccluded = coveredCount == areaColumns * areaRows && areaColumns * areaRows > 0;
+        return visibleRuns;
+    }
 
-        // Purge the render buffer cache from windows that have been removed
-        windowRenderBufferCache.keySet().retainAll(windows);
+    private void drawVisibleRuns(TextGUIGraphics graphics, TerminalPosition windowPosition, TextImage textImage, int[] runs) {
+        for(int i = 0; i < runs.length; i += 3) {
+            int row = runs[i];
+            int firstColumn = runs[i + 1];
+            int lastColumn = runs[i + 2];
+            graphics.drawImage(
+                    new TerminalPosition(firstColumn, row),
+                    textImage,
+                    new TerminalPosition(firstColumn - windowPosition.getColumn(), row - windowPosition.getRow()),
+                    new TerminalSize(lastColumn - firstColumn + 1, 1));
+        }
     }
 
     private void drawBackgroundPane(TextGUIGraphics graphics) {
@@ -297,6 +568,33 @@ public class MultiWindowTextGUI extends AbstractTextGUI implements WindowBasedTe
         }
     }
 
+    /**
+     * Sets an executor to draw windows on, so that several windows can be drawn at the same time. This is off by default
+     * and only worth turning on if you have multiple windows that take a long time to draw, such as big tables. The
+     * windows are still put on the screen in order by the GUI thread, which also helps out with the drawing. Each window
+     * is drawn by one thread only, but different windows will be drawn by different threads at the same time, so
+     * components drawn this way must not share state with components in other windows without synchronization.
+     * The GUI thread holds the lock of this {@code MultiWindowTextGUI} for the whole frame, so components must also
+     * not call its synchronized methods while drawing, or they will wait for the frame to finish forever. Window
+     * decorations are always drawn on the GUI thread.
+     * <p>
+     * Drawing a window never waits for other windows, so one thread per core is enough; for example
+     * {@code Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())} with daemon threads.
+     * @param windowRenderingExecutor Executor to draw windows on, or {@code null} to draw all windows on the GUI thread
+     */
+    public synchronized void setWindowRenderingExecutor(Executor windowRenderingExecutor) {
+        this.windowRenderingExecutor = windowRenderingExecutor;
+    }
+
+    /**
+     * Returns the executor windows are drawn on, if any
+     * @return Executor windows are drawn on, or {@code null} if all windows are drawn on the GUI thread
+     * @see #setWindowRenderingExecutor(Executor)
+     */
+    public synchronized Executor getWindowRenderingExecutor() {
+        return windowRenderingExecutor;
+    }
+
     /**
      * Sets whether the TextGUI should return EOF when you try to read input while there are no windows in the window
      * manager. Setting this to true (off by default) will make the GUI automatically exit when the last window has been
@@ -153,6 +153,10 @@ public class ProgressBar extends AbstractComponent<ProgressBar> {
     /**
      * Updates the <i>value</i> of this progress bar, which will update the visual state. If the value passed in is
      * outside the <i>minimum-maximum</i> range, it is automatically adjusted.
+     * <p>
+     * It's safe to call this from any thread, as often as you like. When called from a thread other than the GUI
+     * thread, the progress bar is redrawn at the next frame of the {@link AnimationScheduler} instead of right away,
+     * so that a background task reporting progress very frequently doesn't cause a screen update for every call.
      * @param value New value of the progress bar
      * @return Itself
      */
@@ -165,7 +169,13 @@ public class ProgressBar extends AbstractComponent<ProgressBar> {
         }
         if(this.value != value) {
             this.value = value;
-            invalidate();
+            TextGUI textGUI = getTextGUI();
+            if(textGUI == null || textGUI.getGUIThread().getThread() == Thread.currentThread()) {
+                invalidate();
+            }
+            else {
+                AnimationScheduler.getInstance(textGUI).invalidateOnNextFrame(this);
+            }
         }
         return this;
     }
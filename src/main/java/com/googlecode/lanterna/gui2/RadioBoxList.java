@@ -88,15 +88,31 @@ public class RadioBoxList<V> extends AbstractListBox<V, RadioBoxList<V>> {
     }
 
     @Override
-    public synchronized V removeItem(int index) {
-        V item = super.removeItem(index);
-        if(index < checkedIndex) {
-            checkedIndex--;
+    protected void afterItemsInserted(int index, int count) {
+        if(checkedIndex != -1 && index <= checkedIndex) {
+            checkedIndex += count;
         }
-        while(checkedIndex >= getItemCount()) {
-            checkedIndex--;
+    }
+
+    @Override
+    protected void afterItemsRemoved(int index, int count) {
+        if(checkedIndex >= index + count) {
+            checkedIndex -= count;
+        }
+        else if(checkedIndex > index) {
+            checkedIndex = index;
+        }
+        if(checkedIndex >= getItemCount()) {
+            checkedIndex = getItemCount() - 1;
+        }
+    }
+
+    @Override
+    public synchronized RadioBoxList<V> setListModel(ListModel<V> listModel) {
+        if(listModel != getListModel()) {
+            setCheckedIndex(-1);
         }
-        return item;
+        return super.setListModel(listModel);
     }
 
     @Override
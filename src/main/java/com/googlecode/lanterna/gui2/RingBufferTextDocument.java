@@ -0,0 +1,294 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalTextUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * {@link TextDocument} with a fixed maximum number of lines, stored in a ring buffer. When lines are added to a full
+ * document, the same number of lines are dropped from the beginning, so this is a good fit for log output and similar
+ * where new lines keep being appended and only the most recent ones are interesting. Appending a line and dropping the
+ * oldest one are both constant time operations; editing is supported but inserting or removing lines anywhere else
+ * than at the end will need to shift the lines that follow.
+ * @author Martin
+ */
+public class RingBufferTextDocument extends AbstractTextDocument {
+    private final String[] lines;
+    private final int[] lineWidths;
+    private final TreeMap<Integer, Integer> lineWidthCounts;  //Line width -> number of lines with that width
+    private int head;
+    private int size;
+    private String cachedText;
+
+    /**
+     * Creates a new document with a single empty line
+     * @param maxLineCount Maximum number of lines the document will keep
+     */
+    public RingBufferTextDocument(int maxLineCount) {
+        this(maxLineCount, Collections.singletonList(""));
+    }
+
+    /**
+     * Creates a new document with initial content. If there are more lines than {@code maxLineCount}, only the last
+     * ones are kept.
+     * @param maxLineCount Maximum number of lines the document will keep
+     * @param lines Lines to put in the document, if empty the document will have one empty line
+     */
+    public RingBufferTextDocument(int maxLineCount, List<String> lines) {
+        if(maxLineCount < 1) {
+            throw new IllegalArgumentException("RingBufferTextDocument needs to be able to hold at least one line");
+        }
+        this.lines = new String[maxLineCount];
+        this.lineWidths = new int[maxLineCount];
+        this.lineWidthCounts = new TreeMap<Integer, Integer>();
+        replaceLines(lines);
+    }
+
+    /**
+     * Returns the maximum number of lines this document will keep
+     * @return Maximum number of lines this document will keep
+     */
+    public int getMaxLineCount() {
+        return lines.length;
+    }
+
+    @Override
+    public synchronized int getLineCount() {
+        return size;
+    }
+
+    @Override
+    public synchronized String getLine(int index) {
+        return lines[slot(index)];
+    }
+
+    @Override
+    public synchronized int getLineLength(int index) {
+        return lines[slot(index)].length();
+    }
+
+    @Override
+    public synchronized int getLongestLineWidth() {
+        return lineWidthCounts.isEmpty() ? 0 : lineWidthCounts.lastKey();
+    }
+
+    @Override
+    public synchronized String getText() {
+        if(cachedText == null) {
+            StringBuilder bob = new StringBuilder();
+            for(int i = 0; i < size; i++) {
+                if(i > 0) {
+                    bob.append('\n');
+                }
+                bob.append(lines[slot(i)]);
+            }
+            cachedText = bob.toString();
+        }
+        return cachedText;
+    }
+
+    @Override
+    public void setLines(List<String> newLines) {
+        int oldLineCount;
+        int newLineCount;
+        synchronized(this) {
+            oldLineCount = size;
+            replaceLines(newLines);
+            newLineCount = size;
+        }
+        fireLinesRemoved(0, oldLineCount);
+        fireLinesInserted(0, newLineCount);
+    }
+
+    @Override
+    public void addLine(String line) {
+        addLines(Collections.singletonList(line));
+    }
+
+    @Override
+    public void addLines(Collection<String> newLines) {
+        int evicted = 0;
+        int added = 0;
+        synchronized(this) {
+            // Lines that would be dropped straight away don't need to be added at all
+            int skip = Math.max(0, newLines.size() - lines.length);
+            for(String line: newLines) {
+                if(skip > 0) {
+                    skip--;
+                    continue;
+                }
+                if(size == lines.length) {
+                    removeFirst();
+                    evicted++;
+                }
+                set(size++, line);
+                added++;
+            }
+            cachedText = null;
+        }
+        fireLinesRemoved(0, evicted);
+        fireLinesInserted(getLineCount() - added, added);
+    }
+
+    @Override
+    public void insertCharacter(int index, int column, char c) {
+        synchronized(this) {
+            String line = lines[slot(index)];
+            set(index, line.substring(0, column) + c + line.substring(column));
+            cachedText = null;
+        }
+        fireLinesChanged(index, 1);
+    }
+
+    @Override
+    public void deleteCharacter(int index, int column) {
+        synchronized(this) {
+            String line = lines[slot(index)];
+            set(index, line.substring(0, column) + line.substring(column + 1));
+            cachedText = null;
+        }
+        fireLinesChanged(index, 1);
+    }
+
+    @Override
+    public void splitLine(int index, int column) {
+        boolean evicted = false;
+        synchronized(this) {
+            String line = lines[slot(index)];
+            if(size == lines.length) {
+                removeFirst();
+                evicted = true;
+                index--;
+            }
+            // Shift the lines after the split one step down
+            size++;
+            for(int i = size - 1; i > index + 1; i--) {
+                move(i - 1, i);
+            }
+            if(index >= 0) {
+                set(index, line.substring(0, column));
+            }
+            set(index + 1, line.substring(column));
+            cachedText = null;
+        }
+        if(evicted) {
+            fireLinesRemoved(0, 1);
+        }
+        if(index >= 0) {
+            fireLinesChanged(index, 1);
+        }
+        fireLinesInserted(index + 1, 1);
+    }
+
+    @Override
+    public void joinLines(int index) {
+        synchronized(this) {
+            String line = lines[slot(index)];
+            String nextLine = lines[slot(index + 1)];
+            set(index, line + nextLine);
+            removeWidth(lineWidths[slot(index + 1)]);
+            for(int i = index + 1; i < size - 1; i++) {
+                move(i + 1, i);
+            }
+            lines[slot(size - 1)] = null;
+            size--;
+            cachedText = null;
+        }
+        fireLinesChanged(index, 1);
+        fireLinesRemoved(index + 1, 1);
+    }
+
+    private void replaceLines(List<String> newLines) {
+        for(int i = 0; i < size; i++) {
+            lines[slot(i)] = null;
+        }
+        lineWidthCounts.clear();
+        head = 0;
+        size = 0;
+        cachedText = null;
+        List<String> kept = newLines;
+        if(kept.isEmpty()) {
+            kept = Collections.singletonList("");
+        }
+        else if(kept.size() > lines.length) {
+            kept = new ArrayList<String>(kept.subList(kept.size() - lines.length, kept.size()));
+        }
+        for(String line: kept) {
+            set(size++, line);
+        }
+    }
+
+    private int slot(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Line index " + index + " is out of bounds, document has " + size + " lines");
+        }
+        return (head + index) % lines.length;
+    }
+
+    // Assigns a line, the index must already be within the size of the document
+    private void set(int index, String line) {
+        int slot = slot(index);
+        if(lines[slot] != null) {
+            removeWidth(lineWidths[slot]);
+        }
+        lines[slot] = line;
+        lineWidths[slot] = TerminalTextUtils.getColumnWidth(line);
+        addWidth(lineWidths[slot]);
+    }
+
+    // Moves a line to another index, overwriting what was there without updating the width counts
+    private void move(int fromIndex, int toIndex) {
+        int fromSlot = slot(fromIndex);
+        int toSlot = slot(toIndex);
+        lines[toSlot] = lines[fromSlot];
+        lineWidths[toSlot] = lineWidths[fromSlot];
+        lines[fromSlot] = null;
+    }
+
+    private void removeFirst() {
+        removeWidth(lineWidths[head]);
+        lines[head] = null;
+        head = (head + 1) % lines.length;
+        size--;
+    }
+
+    private void addWidth(int width) {
+        Integer count = lineWidthCounts.get(width);
+        lineWidthCounts.put(width, count == null ? 1 : count + 1);
+    }
+
+    private void removeWidth(int width) {
+        Integer count = lineWidthCounts.get(width);
+        if(count == null) {
+            return;
+        }
+        if(count == 1) {
+            lineWidthCounts.remove(width);
+        }
+        else {
+            lineWidthCounts.put(width, count - 1);
+        }
+    }
+}
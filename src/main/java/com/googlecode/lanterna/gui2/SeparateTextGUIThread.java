@@ -89,12 +89,11 @@ public class SeparateTextGUIThread extends AbstractTextGUIThread implements Asyn
     }
 
     @Override
-    public void invokeLater(Runnable runnable) throws IllegalStateException {
+    protected void checkCanSchedule(Runnable runnable) throws IllegalStateException {
         if(state != State.STARTED) {
             throw new IllegalStateException("Cannot schedule " + runnable + " for execution on the TextGUIThread " +
                     "because the thread is in " + state + " state");
         }
-        super.invokeLater(runnable);
     }
 
     private void mainGUILoop() {
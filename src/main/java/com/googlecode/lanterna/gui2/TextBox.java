@@ -24,7 +24,10 @@ import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.graphics.ThemeDefinition;
 import com.googlecode.lanterna.input.KeyStroke;
 
+import com.googlecode.lanterna.screen.Screen;
+
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -54,7 +57,8 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
         ;
     }
 
-    private final List<String> lines;
+    private final TextDocument.Listener documentListener;
+    private TextDocument document;
     private final Style style;
 
     private TerminalPosition caretPosition;
@@ -63,9 +67,11 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
     private boolean horizontalFocusSwitching;
     private boolean verticalFocusSwitching;
     private final int maxLineLength;
-    private int longestRow;
     private Character mask;
     private Pattern validationPattern;
+    private boolean followTail;
+    private long evictedLineCount;
+    private boolean scrollHintPending;
 
     /**
      * Default constructor, this creates a single-line {@code TextBox} of size 10 which is initially empty
@@ -127,7 +133,24 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
      * @param style Style to use for this {@code TextBox}, instead of auto-detecting
      */
     public TextBox(TerminalSize preferredSize, String initialContent, Style style) {
-        this.lines = new ArrayList<String>();
+        this.documentListener = new TextDocument.Listener() {
+            @Override
+            public void onLinesInserted(TextDocument document, int index, int count) {
+                invalidate();
+            }
+
+            @Override
+            public void onLinesRemoved(TextDocument document, int index, int count) {
+                invalidate();
+            }
+
+            @Override
+            public void onLinesChanged(TextDocument document, int index, int count) {
+                invalidate();
+            }
+        };
+        this.document = new DefaultTextDocument();
+        this.document.addListener(documentListener);
         this.style = style;
         this.readOnly = false;
         this.caretWarp = false;
@@ -135,16 +158,18 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
         this.horizontalFocusSwitching = (style == Style.SINGLE_LINE);
         this.caretPosition = TerminalPosition.TOP_LEFT_CORNER;
         this.maxLineLength = -1;
-        this.longestRow = 1;    //To fit the cursor
         this.mask = null;
         this.validationPattern = null;
+        this.followTail = false;
+        this.evictedLineCount = 0;
+        this.scrollHintPending = false;
         setText(initialContent);
 
         // Re-adjust caret position
         this.caretPosition = TerminalPosition.TOP_LEFT_CORNER.withColumn(getLine(0).length());
 
         if (preferredSize == null) {
-            preferredSize = new TerminalSize(Math.max(10, longestRow), lines.size());
+            preferredSize = new TerminalSize(Math.max(10, getLongestRow()), document.getLineCount());
         }
         setPreferredSize(preferredSize);
     }
@@ -160,8 +185,8 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
      */
     public synchronized TextBox setValidationPattern(Pattern validationPattern) {
         if(validationPattern != null) {
-            for(String line: lines) {
-                if(!validated(line)) {
+            for(int i = 0; i < document.getLineCount(); i++) {
+                if(!validated(document.getLine(i))) {
                     throw new IllegalStateException("TextBox validation pattern " + validationPattern + " does not match existing content");
                 }
             }
@@ -180,17 +205,44 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
         if (split.length == 0) {
             split = new String[] { "" };
         }
-        lines.clear();
-        longestRow = 1;
+        List<String> newLines = new ArrayList<String>(split.length);
         for(String line : split) {
-            addLine(line);
+            addCleanLines(line, newLines);
         }
-        if(caretPosition.getRow() > lines.size() - 1) {
-            caretPosition = caretPosition.withRow(lines.size() - 1);
+        document.setLines(newLines);
+        if(caretPosition.getRow() > document.getLineCount() - 1) {
+            caretPosition = caretPosition.withRow(document.getLineCount() - 1);
         }
-        if(caretPosition.getColumn() > lines.get(caretPosition.getRow()).length()) {
-            caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
+        if(caretPosition.getColumn() > document.getLineLength(caretPosition.getRow())) {
+            caretPosition = caretPosition.withColumn(document.getLineLength(caretPosition.getRow()));
+        }
+        invalidate();
+        return this;
+    }
+
+    /**
+     * Returns the document holding the text of this {@code TextBox}
+     * @return Document holding the text of this {@code TextBox}
+     */
+    public synchronized TextDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Replaces the document holding the text of this {@code TextBox}. This can be used to plug in your own document
+     * implementation, or to let several text boxes share the same document. The caret is moved back into range if the
+     * new document is smaller than the old one.
+     * @param document New document for this {@code TextBox}
+     * @return Itself
+     */
+    public synchronized TextBox setDocument(TextDocument document) {
+        if(document == null) {
+            throw new IllegalArgumentException("Cannot assign a null TextDocument to a TextBox");
         }
+        this.document.removeListener(documentListener);
+        this.document = document;
+        this.document.addListener(documentListener);
+        setCaretPosition(caretPosition.getRow(), caretPosition.getColumn());
         invalidate();
         return this;
     }
@@ -206,18 +258,140 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
      * @return Itself
      */
     public synchronized TextBox addLine(String line) {
+        List<String> newLines = new ArrayList<String>(1);
+        addCleanLines(line, newLines);
+        appendCleanLines(newLines);
+        return this;
+    }
+
+    /**
+     * Adds a number of lines to the {@code TextBox} at the end, in one operation. This is much more efficient than
+     * calling {@link #addLine(String)} for each line when a lot of lines are added at a time, for example when the
+     * {@code TextBox} is used to display a log that is continuously being appended to.
+     * @param lines Lines to add at the end of the content in this {@code TextBox}
+     * @return Itself
+     */
+    public synchronized TextBox appendLines(Collection<String> lines) {
+        List<String> newLines = new ArrayList<String>(lines.size());
+        for(String line: lines) {
+            addCleanLines(line, newLines);
+        }
+        appendCleanLines(newLines);
+        return this;
+    }
+
+    private void appendCleanLines(List<String> newLines) {
+        if(newLines.isEmpty()) {
+            return;
+        }
+        int oldLineCount = document.getLineCount();
+        document.addLines(newLines);
+        int evicted = oldLineCount + newLines.size() - document.getLineCount();
+        if(evicted > 0) {
+            // Lines were dropped from the top to make room, keep the caret on the same line
+            evictedLineCount += evicted;
+            setCaretPosition(Math.max(0, caretPosition.getRow() - evicted), caretPosition.getColumn());
+        }
+        scheduleScrollHint();
+        invalidate();
+    }
+
+    /**
+     * Limits how many lines this {@code TextBox} will keep. When lines are added to a {@code TextBox} that has reached
+     * the limit, the same number of lines are dropped from the beginning. Calling this will replace the document with
+     * a {@link RingBufferTextDocument} holding the current content (or {@link DefaultTextDocument} when removing the
+     * limit).
+     * @param maxLineCount Maximum number of lines to keep, or -1 for no limit
+     * @return Itself
+     */
+    public synchronized TextBox setMaxLineCount(int maxLineCount) {
+        List<String> currentLines = new ArrayList<String>(document.getLineCount());
+        for(int i = 0; i < document.getLineCount(); i++) {
+            currentLines.add(document.getLine(i));
+        }
+        if(maxLineCount > 0) {
+            setDocument(new RingBufferTextDocument(maxLineCount, currentLines));
+        }
+        else {
+            setDocument(new DefaultTextDocument(currentLines));
+        }
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of lines this {@code TextBox} will keep, see {@link #setMaxLineCount(int)}
+     * @return Maximum number of lines to keep, or -1 if there is no limit
+     */
+    public synchronized int getMaxLineCount() {
+        if(document instanceof RingBufferTextDocument) {
+            return ((RingBufferTextDocument)document).getMaxLineCount();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this {@code TextBox} will follow new lines as they are added, see
+     * {@link #setFollowTail(boolean)}
+     * @return {@code true} if the view will follow new lines as they are added
+     */
+    public boolean isFollowTail() {
+        return followTail;
+    }
+
+    /**
+     * When enabled on a read-only {@code TextBox}, the view will automatically scroll down to show new lines as they
+     * are added, as long as it was scrolled all the way down to begin with. If the user has scrolled up to look at
+     * something, the view stays where it is until the user scrolls back down to the end.
+     * @param followTail If {@code true}, the view will follow new lines as they are added
+     * @return Itself
+     */
+    public synchronized TextBox setFollowTail(boolean followTail) {
+        this.followTail = followTail;
+        invalidate();
+        return this;
+    }
+
+    /**
+     * When the view is following new lines, it will scroll by as many lines as were added. Let the screen know this
+     * before the GUI is redrawn, so it can scroll the terminal instead of sending every row of the text box again.
+     */
+    private void scheduleScrollHint() {
+        final TextGUI textGUI = getTextGUI();
+        if(!followTail || !readOnly || scrollHintPending || !(getRenderer() instanceof DefaultTextBoxRenderer) ||
+                !(textGUI instanceof WindowBasedTextGUI) || textGUI.getGUIThread() == null) {
+            return;
+        }
+        try {
+            AbstractTextGUIThread.invokeLaterExempt(textGUI.getGUIThread(), new Runnable() {
+                @Override
+                public void run() {
+                    synchronized(TextBox.this) {
+                        scrollHintPending = false;
+                        if(getRenderer() instanceof DefaultTextBoxRenderer) {
+                            ((DefaultTextBoxRenderer)getRenderer()).hintScrolledLines(TextBox.this, ((WindowBasedTextGUI)textGUI).getScreen());
+                        }
+                    }
+                }
+            });
+            scrollHintPending = true;
+        }
+        catch(IllegalStateException ignored) {
+            // The GUI thread isn't running, there is nothing to optimize
+        }
+    }
+
+    /**
+     * Strips control characters from the text and, for multi-line {@code TextBox}:es, splits it on \n, then adds the
+     * resulting lines to the list after checking them against the validation pattern
+     */
+    private void addCleanLines(String line, List<String> target) {
         StringBuilder bob = new StringBuilder();
         for(int i = 0; i < line.length(); i++) {
             char c = line.charAt(i);
             if(c == '\n' && style == Style.MULTI_LINE) {
-                String string = bob.toString();
-                int lineWidth = TerminalTextUtils.getColumnWidth(string);
-                lines.add(string);
-                if(longestRow < lineWidth + 1) {
-                    longestRow = lineWidth + 1;
-                }
-                addLine(line.substring(i + 1));
-                return this;
+                target.add(bob.toString());
+                addCleanLines(line.substring(i + 1), target);
+                return;
             }
             else if(Character.isISOControl(c)) {
                 continue;
@@ -229,13 +403,14 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
         if(!validated(string)) {
             throw new IllegalStateException("TextBox validation pattern " + validationPattern + " does not match the supplied text");
         }
-        int lineWidth = TerminalTextUtils.getColumnWidth(string);
-        lines.add(string);
-        if(longestRow < lineWidth + 1) {
-            longestRow = lineWidth + 1;
-        }
-        invalidate();
-        return this;
+        target.add(string);
+    }
+
+    /**
+     * The width of the longest line, plus one to fit the cursor at the end of it
+     */
+    private int getLongestRow() {
+        return document.getLongestLineWidth() + 1;
     }
 
     /**
@@ -292,14 +467,14 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
         if(line < 0) {
             line = 0;
         }
-        else if(line >= lines.size()) {
-            line = lines.size() - 1;
+        else if(line >= document.getLineCount()) {
+            line = document.getLineCount() - 1;
         }
         if(column < 0) {
             column = 0;
         }
-        else if(column > lines.get(line).length()) {
-            column = lines.get(line).length();
+        else if(column > document.getLineLength(line)) {
+            column = document.getLineLength(line);
         }
         caretPosition = caretPosition.withRow(line).withColumn(column);
         return this;
@@ -311,11 +486,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
      * @return The text inside this {@code TextBox}
      */
     public synchronized String getText() {
-        StringBuilder bob = new StringBuilder(lines.get(0));
-        for(int i = 1; i < lines.size(); i++) {
-            bob.append("\n").append(lines.get(i));
-        }
-        return bob.toString();
+        return document.getText();
     }
 
     /**
@@ -432,7 +603,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
      * @throws IndexOutOfBoundsException if the row index is less than zero or too large
      */
     public synchronized String getLine(int index) {
-        return lines.get(index);
+        return document.getLine(index);
     }
 
     /**
@@ -440,7 +611,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
      * @return Number of lines of text currently in this TextBox
      */
     public synchronized int getLineCount() {
-        return lines.size();
+        return document.getLineCount();
     }
 
     @Override
@@ -453,47 +624,42 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
         if(readOnly) {
             return handleKeyStrokeReadOnly(keyStroke);
         }
-        String line = lines.get(caretPosition.getRow());
+        int row = caretPosition.getRow();
+        int column = caretPosition.getColumn();
+        int lineLength = document.getLineLength(row);
         switch(keyStroke.getKeyType()) {
             case Character:
-                if(maxLineLength == -1 || maxLineLength > line.length() + 1) {
-                    line = line.substring(0, caretPosition.getColumn()) + keyStroke.getCharacter() + line.substring(caretPosition.getColumn());
-                    if(validated(line)) {
-                        lines.set(caretPosition.getRow(), line);
+                if(maxLineLength == -1 || maxLineLength > lineLength + 1) {
+                    if(validationPattern == null || validated(new StringBuilder(document.getLine(row)).insert(column, keyStroke.getCharacter()).toString())) {
+                        document.insertCharacter(row, column, keyStroke.getCharacter());
                         caretPosition = caretPosition.withRelativeColumn(1);
                     }
                 }
                 return Result.HANDLED;
             case Backspace:
-                if(caretPosition.getColumn() > 0) {
-                    line = line.substring(0, caretPosition.getColumn() - 1) + line.substring(caretPosition.getColumn());
-                    if(validated(line)) {
-                        lines.set(caretPosition.getRow(), line);
+                if(column > 0) {
+                    if(validationPattern == null || validated(new StringBuilder(document.getLine(row)).deleteCharAt(column - 1).toString())) {
+                        document.deleteCharacter(row, column - 1);
                         caretPosition = caretPosition.withRelativeColumn(-1);
                     }
                 }
-                else if(style == Style.MULTI_LINE && caretPosition.getRow() > 0) {
-                    String concatenatedLines = lines.get(caretPosition.getRow() - 1) + line;
-                    if(validated(concatenatedLines)) {
-                        lines.remove(caretPosition.getRow());
-                        caretPosition = caretPosition.withRelativeRow(-1);
-                        caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
-                        lines.set(caretPosition.getRow(), concatenatedLines);
+                else if(style == Style.MULTI_LINE && row > 0) {
+                    if(validationPattern == null || validated(document.getLine(row - 1) + document.getLine(row))) {
+                        int previousLineLength = document.getLineLength(row - 1);
+                        document.joinLines(row - 1);
+                        caretPosition = caretPosition.withRelativeRow(-1).withColumn(previousLineLength);
                     }
                 }
                 return Result.HANDLED;
             case Delete:
-                if(caretPosition.getColumn() < line.length()) {
-                    line = line.substring(0, caretPosition.getColumn()) + line.substring(caretPosition.getColumn() + 1);
-                    if(validated(line)) {
-                        lines.set(caretPosition.getRow(), line);
+                if(column < lineLength) {
+                    if(validationPattern == null || validated(new StringBuilder(document.getLine(row)).deleteCharAt(column).toString())) {
+                        document.deleteCharacter(row, column);
                     }
                 }
-                else if(style == Style.MULTI_LINE && caretPosition.getRow() < lines.size() - 1) {
-                    String concatenatedLines = line + lines.get(caretPosition.getRow() + 1);
-                    if(validated(concatenatedLines)) {
-                        lines.set(caretPosition.getRow(), concatenatedLines);
-                        lines.remove(caretPosition.getRow() + 1);
+                else if(style == Style.MULTI_LINE && row < document.getLineCount() - 1) {
+                    if(validationPattern == null || validated(document.getLine(row) + document.getLine(row + 1))) {
+                        document.joinLines(row);
                     }
                 }
                 return Result.HANDLED;
@@ -503,17 +669,17 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 }
                 else if(style == Style.MULTI_LINE && caretWarp && caretPosition.getRow() > 0) {
                     caretPosition = caretPosition.withRelativeRow(-1);
-                    caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
+                    caretPosition = caretPosition.withColumn(document.getLineLength(caretPosition.getRow()));
                 }
                 else if(horizontalFocusSwitching) {
                     return Result.MOVE_FOCUS_LEFT;
                 }
                 return Result.HANDLED;
             case ArrowRight:
-                if(caretPosition.getColumn() < lines.get(caretPosition.getRow()).length()) {
+                if(caretPosition.getColumn() < lineLength) {
                     caretPosition = caretPosition.withRelativeColumn(1);
                 }
-                else if(style == Style.MULTI_LINE && caretWarp && caretPosition.getRow() < lines.size() - 1) {
+                else if(style == Style.MULTI_LINE && caretWarp && caretPosition.getRow() < document.getLineCount() - 1) {
                     caretPosition = caretPosition.withRelativeRow(1);
                     caretPosition = caretPosition.withColumn(0);
                 }
@@ -523,9 +689,9 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 return Result.HANDLED;
             case ArrowUp:
                 if(caretPosition.getRow() > 0) {
-                    int trueColumnPosition = TerminalTextUtils.getColumnIndex(lines.get(caretPosition.getRow()), caretPosition.getColumn());
+                    int trueColumnPosition = TerminalTextUtils.getColumnIndex(document.getLine(caretPosition.getRow()), caretPosition.getColumn());
                     caretPosition = caretPosition.withRelativeRow(-1);
-                    line = lines.get(caretPosition.getRow());
+                    String line = document.getLine(caretPosition.getRow());
                     if(trueColumnPosition > TerminalTextUtils.getColumnWidth(line)) {
                         caretPosition = caretPosition.withColumn(line.length());
                     }
@@ -538,10 +704,10 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 }
                 return Result.HANDLED;
             case ArrowDown:
-                if(caretPosition.getRow() < lines.size() - 1) {
-                    int trueColumnPosition = TerminalTextUtils.getColumnIndex(lines.get(caretPosition.getRow()), caretPosition.getColumn());
+                if(caretPosition.getRow() < document.getLineCount() - 1) {
+                    int trueColumnPosition = TerminalTextUtils.getColumnIndex(document.getLine(caretPosition.getRow()), caretPosition.getColumn());
                     caretPosition = caretPosition.withRelativeRow(1);
-                    line = lines.get(caretPosition.getRow());
+                    String line = document.getLine(caretPosition.getRow());
                     if(trueColumnPosition > TerminalTextUtils.getColumnWidth(line)) {
                         caretPosition = caretPosition.withColumn(line.length());
                     }
@@ -554,30 +720,39 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 }
                 return Result.HANDLED;
             case End:
-                caretPosition = caretPosition.withColumn(line.length());
+                caretPosition = caretPosition.withColumn(lineLength);
                 return Result.HANDLED;
             case Enter:
                 if(style == Style.SINGLE_LINE) {
                     return Result.MOVE_FOCUS_NEXT;
                 }
-                String newLine = line.substring(caretPosition.getColumn());
-                String oldLine = line.substring(0, caretPosition.getColumn());
-                if(validated(newLine) && validated(oldLine)) {
-                    lines.set(caretPosition.getRow(), oldLine);
-                    lines.add(caretPosition.getRow() + 1, newLine);
+                if(validationPattern != null) {
+                    String line = document.getLine(row);
+                    if(!validated(line.substring(column)) || !validated(line.substring(0, column))) {
+                        return Result.HANDLED;
+                    }
+                }
+                int oldLineCount = document.getLineCount();
+                document.splitLine(row, column);
+                if(document.getLineCount() > oldLineCount) {
                     caretPosition = caretPosition.withColumn(0).withRelativeRow(1);
                 }
+                else {
+                    // The first line was dropped to make room, so the new line ended up on the caret's row
+                    evictedLineCount++;
+                    caretPosition = caretPosition.withColumn(0);
+                }
                 return Result.HANDLED;
             case Home:
                 caretPosition = caretPosition.withColumn(0);
                 return Result.HANDLED;
             case PageDown:
                 caretPosition = caretPosition.withRelativeRow(getSize().getRows());
-                if(caretPosition.getRow() > lines.size() - 1) {
-                    caretPosition = caretPosition.withRow(lines.size() - 1);
+                if(caretPosition.getRow() > document.getLineCount() - 1) {
+                    caretPosition = caretPosition.withRow(document.getLineCount() - 1);
                 }
-                if(lines.get(caretPosition.getRow()).length() < caretPosition.getColumn()) {
-                    caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
+                if(document.getLineLength(caretPosition.getRow()) < caretPosition.getColumn()) {
+                    caretPosition = caretPosition.withColumn(document.getLineLength(caretPosition.getRow()));
                 }
                 return Result.HANDLED;
             case PageUp:
@@ -585,8 +760,8 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 if(caretPosition.getRow() < 0) {
                     caretPosition = caretPosition.withRow(0);
                 }
-                if(lines.get(caretPosition.getRow()).length() < caretPosition.getColumn()) {
-                    caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
+                if(document.getLineLength(caretPosition.getRow()) < caretPosition.getColumn()) {
+                    caretPosition = caretPosition.withColumn(document.getLineLength(caretPosition.getRow()));
                 }
                 return Result.HANDLED;
             default:
@@ -607,7 +782,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeColumn(-1));
                 return Result.HANDLED;
             case ArrowRight:
-                if(getRenderer().getViewTopLeft().getColumn() + getSize().getColumns() == longestRow && horizontalFocusSwitching) {
+                if(getRenderer().getViewTopLeft().getColumn() + getSize().getColumns() == getLongestRow() && horizontalFocusSwitching) {
                     return Result.MOVE_FOCUS_RIGHT;
                 }
                 getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeColumn(1));
@@ -619,7 +794,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(-1));
                 return Result.HANDLED;
             case ArrowDown:
-                if(getRenderer().getViewTopLeft().getRow() + getSize().getRows() == lines.size() && verticalFocusSwitching) {
+                if(getRenderer().getViewTopLeft().getRow() + getSize().getRows() == document.getLineCount() && verticalFocusSwitching) {
                     return Result.MOVE_FOCUS_DOWN;
                 }
                 getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(1));
@@ -656,6 +831,11 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
      */
     public static class DefaultTextBoxRenderer implements TextBoxRenderer {
         private TerminalPosition viewTopLeft;
+        private TerminalPosition lastDrawnViewTopLeft;
+        private boolean lastDrawnAtBottom;
+        private long lastDrawnFirstLine;
+        private long lastDrawnEvictedLineCount;
+        private int lastDrawnRows;
         private final ScrollBar verticalScrollBar;
         private final ScrollBar horizontalScrollBar;
         private boolean hideScrollBars;
@@ -669,6 +849,11 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
             verticalScrollBar = new ScrollBar(Direction.VERTICAL);
             horizontalScrollBar = new ScrollBar(Direction.HORIZONTAL);
             hideScrollBars = false;
+            lastDrawnViewTopLeft = null;
+            lastDrawnAtBottom = true;
+            lastDrawnFirstLine = 0;
+            lastDrawnEvictedLineCount = 0;
+            lastDrawnRows = 0;
             unusedSpaceCharacter = null;
         }
 
@@ -720,7 +905,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
 
         @Override
         public TerminalSize getPreferredSize(TextBox component) {
-            return new TerminalSize(component.longestRow, component.lines.size());
+            return new TerminalSize(component.getLongestRow(), component.getLineCount());
         }
 
         /**
@@ -746,7 +931,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 realTextArea = realTextArea.withRelativeColumns(-1);
                 drawVerticalScrollBar = true;
             }
-            if(!hideScrollBars && component.longestRow > realTextArea.getColumns() && realTextArea.getRows() > 1) {
+            if(!hideScrollBars && component.getLongestRow() > realTextArea.getColumns() && realTextArea.getRows() > 1) {
                 realTextArea = realTextArea.withRelativeRows(-1);
                 drawHorizontalScrollBar = true;
                 if(textBoxLineCount > realTextArea.getRows() && !drawVerticalScrollBar) {
@@ -770,7 +955,7 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
             if(drawHorizontalScrollBar) {
                 horizontalScrollBar.onAdded(component.getParent());
                 horizontalScrollBar.setViewSize(realTextArea.getColumns());
-                horizontalScrollBar.setScrollMaximum(component.longestRow - 1);
+                horizontalScrollBar.setScrollMaximum(component.getLongestRow() - 1);
                 horizontalScrollBar.setScrollPosition(viewTopLeft.getColumn());
                 horizontalScrollBar.draw(graphics.newTextGraphics(
                         new TerminalPosition(0, graphics.getSize().getRows() - 1),
@@ -778,10 +963,37 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
             }
         }
 
+        /**
+         * Called before redrawing a {@code TextBox} that is following new lines, to tell the screen how far the lines
+         * will scroll. The screen can then scroll the terminal, so that only the new lines need to be sent.
+         */
+        void hintScrolledLines(TextBox component, Screen screen) {
+            if(!lastDrawnAtBottom || !viewTopLeft.equals(lastDrawnViewTopLeft) || lastDrawnRows <= 0) {
+                return;
+            }
+            long firstLine = component.evictedLineCount + Math.max(0, component.getLineCount() - lastDrawnRows);
+            long distance = firstLine - lastDrawnFirstLine;
+            TerminalPosition globalPosition = component.toGlobal(TerminalPosition.TOP_LEFT_CORNER);
+            if(distance <= 0 || distance >= lastDrawnRows || globalPosition == null || globalPosition.getRow() < 0) {
+                return;
+            }
+            screen.scrollLines(globalPosition.getRow(), globalPosition.getRow() + lastDrawnRows - 1, (int)distance);
+            lastDrawnFirstLine = firstLine;
+        }
+
         private void drawTextArea(TextGUIGraphics graphics, TextBox component) {
             TerminalSize textAreaSize = graphics.getSize();
-            if(viewTopLeft.getColumn() + textAreaSize.getColumns() > component.longestRow) {
-                viewTopLeft = viewTopLeft.withColumn(component.longestRow - textAreaSize.getColumns());
+            if(component.isReadOnly() && component.isFollowTail() && lastDrawnAtBottom && viewTopLeft.equals(lastDrawnViewTopLeft)) {
+                // Still at the end and the user hasn't scrolled away, follow the new lines
+                viewTopLeft = viewTopLeft.withRow(Math.max(0, component.getLineCount() - textAreaSize.getRows()));
+            }
+            else if(component.evictedLineCount != lastDrawnEvictedLineCount) {
+                // Lines were dropped from the top, adjust the view so it stays on the same lines
+                long evicted = component.evictedLineCount - lastDrawnEvictedLineCount;
+                viewTopLeft = viewTopLeft.withRow((int)Math.max(0, viewTopLeft.getRow() - evicted));
+            }
+            if(viewTopLeft.getColumn() + textAreaSize.getColumns() > component.getLongestRow()) {
+                viewTopLeft = viewTopLeft.withColumn(component.getLongestRow() - textAreaSize.getColumns());
                 if(viewTopLeft.getColumn() < 0) {
                     viewTopLeft = viewTopLeft.withColumn(0);
                 }
@@ -848,10 +1060,10 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
 
             for (int row = 0; row < textAreaSize.getRows(); row++) {
                 int rowIndex = row + viewTopLeft.getRow();
-                if(rowIndex >= component.lines.size()) {
+                if(rowIndex >= component.getLineCount()) {
                     continue;
                 }
-                String line = component.lines.get(rowIndex);
+                String line = component.getLine(rowIndex);
                 if(component.getMask() != null) {
                     StringBuilder builder = new StringBuilder();
                     for(int i = 0; i < line.length(); i++) {
@@ -861,6 +1073,12 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 }
                 graphics.putString(0, row, TerminalTextUtils.fitString(line, viewTopLeft.getColumn(), textAreaSize.getColumns()));
             }
+
+            lastDrawnViewTopLeft = viewTopLeft;
+            lastDrawnAtBottom = viewTopLeft.getRow() + textAreaSize.getRows() >= component.getLineCount();
+            lastDrawnFirstLine = component.evictedLineCount + viewTopLeft.getRow();
+            lastDrawnEvictedLineCount = component.evictedLineCount;
+            lastDrawnRows = textAreaSize.getRows();
         }
     }
 }
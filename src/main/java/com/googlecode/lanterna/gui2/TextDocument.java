@@ -0,0 +1,158 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Document model holding the text of a {@link TextBox}, as a list of lines. The text box is only asking the document
+ * for the lines that are currently visible and is editing it through small, local operations (inserting a character,
+ * splitting a line, and so on), so an implementation can store the text in whichever way makes those operations fast.
+ * {@link DefaultTextDocument} is the implementation used by default and is designed to handle large documents.
+ * <p>
+ * Implementations must notify the registered listeners whenever the content changes, {@link AbstractTextDocument} has
+ * the necessary plumbing for this. Lines in the document never contain the \n character.
+ * @author Martin
+ */
+public interface TextDocument {
+    /**
+     * Listener interface for the {@link TextDocument} which can be attached to a document to be notified of changes to
+     * it. All line ranges are expressed as the first line index and the number of lines affected.
+     */
+    interface Listener {
+        /**
+         * Called when one or more lines have been inserted into the document
+         * @param document Document the lines were added to
+         * @param index Index of the first new line
+         * @param count Number of lines that were added
+         */
+        void onLinesInserted(TextDocument document, int index, int count);
+
+        /**
+         * Called when one or more lines have been removed from the document
+         * @param document Document the lines were removed from
+         * @param index Index the first removed line had
+         * @param count Number of lines that were removed
+         */
+        void onLinesRemoved(TextDocument document, int index, int count);
+
+        /**
+         * Called when the content of one or more lines has changed
+         * @param document Document that was modified
+         * @param index Index of the first changed line
+         * @param count Number of lines that were changed
+         */
+        void onLinesChanged(TextDocument document, int index, int count);
+    }
+
+    /**
+     * Returns the number of lines in the document, this is always at least one
+     * @return Number of lines in the document
+     */
+    int getLineCount();
+
+    /**
+     * Returns the text of a line in the document
+     * @param index Index of the line to return
+     * @return Text of the line, without any line separator
+     * @throws IndexOutOfBoundsException If the index is less than zero or equals/greater than the number of lines
+     */
+    String getLine(int index);
+
+    /**
+     * Returns the number of characters on a line in the document
+     * @param index Index of the line
+     * @return Number of characters on the line
+     * @throws IndexOutOfBoundsException If the index is less than zero or equals/greater than the number of lines
+     */
+    int getLineLength(int index);
+
+    /**
+     * Returns the width, in terminal columns, of the widest line in the document
+     * @return Width of the widest line in the document
+     */
+    int getLongestLineWidth();
+
+    /**
+     * Returns the whole content of the document, with the lines separated by \n
+     * @return The content of the document
+     */
+    String getText();
+
+    /**
+     * Replaces the whole content of the document
+     * @param lines New lines of the document, if empty the document will have one empty line
+     */
+    void setLines(List<String> lines);
+
+    /**
+     * Adds a line to the end of the document
+     * @param line Line to add
+     */
+    void addLine(String line);
+
+    /**
+     * Adds several lines to the end of the document, as a single change. Implementations with a limit on the number of
+     * lines may drop lines from the beginning of the document to make room.
+     * @param lines Lines to add
+     */
+    void addLines(Collection<String> lines);
+
+    /**
+     * Inserts a character into a line
+     * @param index Index of the line
+     * @param column Position within the line to insert the character at
+     * @param c Character to insert
+     */
+    void insertCharacter(int index, int column, char c);
+
+    /**
+     * Removes a character from a line
+     * @param index Index of the line
+     * @param column Position within the line of the character to remove
+     */
+    void deleteCharacter(int index, int column);
+
+    /**
+     * Splits a line into two, everything from the column and onwards is moved to a new line inserted after it
+     * @param index Index of the line to split
+     * @param column Position within the line to split at
+     */
+    void splitLine(int index, int column);
+
+    /**
+     * Joins a line together with the line after it, the following line is removed from the document and its content is
+     * appended to the line
+     * @param index Index of the line that the next line will be appended to
+     */
+    void joinLines(int index);
+
+    /**
+     * Adds a listener to this document that will be notified whenever the document changes
+     * @param listener {@link Listener} to register with this document
+     */
+    void addListener(Listener listener);
+
+    /**
+     * Removes a listener from this document so that it will no longer receive any notifications when it changes
+     * @param listener {@link Listener} to deregister from this document
+     */
+    void removeListener(Listener listener);
+}
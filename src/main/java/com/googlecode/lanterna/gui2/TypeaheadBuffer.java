@@ -0,0 +1,98 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+
+/**
+ * Keeps track of what the user has been typing into a list-like component to jump to a matching item. Characters
+ * typed in quick succession are combined into one search text, after a short pause the next character starts a new
+ * search.
+ * @author Martin
+ */
+class TypeaheadBuffer {
+    private static final long RESET_DELAY_MILLIS = 1000;
+
+    private final StringBuilder buffer;
+    private long lastKeyTime;
+
+    TypeaheadBuffer() {
+        this.buffer = new StringBuilder();
+        this.lastKeyTime = 0;
+    }
+
+    /**
+     * Checks if a key stroke is something that should go into the typeahead buffer
+     * @param keyStroke Key stroke to check
+     * @return {@code true} if this is a printable character without any modifier keys
+     */
+    static boolean isTypeaheadKey(KeyStroke keyStroke) {
+        return keyStroke.getKeyType() == KeyType.Character &&
+                !keyStroke.isCtrlDown() &&
+                !keyStroke.isAltDown() &&
+                !Character.isISOControl(keyStroke.getCharacter());
+    }
+
+    /**
+     * Finds the item to select after the user typed a character
+     * @param searchIndex Index to search
+     * @param character Character the user typed
+     * @param selectedIndex Index of the currently selected item
+     * @return Index of the item to select, or -1 if nothing matches
+     */
+    int findNext(ItemSearchIndex<?> searchIndex, char character, int selectedIndex) {
+        return findNext(searchIndex, character, selectedIndex, System.currentTimeMillis());
+    }
+
+    /**
+     * Same as {@link #findNext(ItemSearchIndex, char, int)} but with the time the character was typed given explicitly
+     * @param searchIndex Index to search
+     * @param character Character the user typed
+     * @param selectedIndex Index of the currently selected item
+     * @param now Time the character was typed, in milliseconds
+     * @return Index of the item to select, or -1 if nothing matches
+     */
+    synchronized int findNext(ItemSearchIndex<?> searchIndex, char character, int selectedIndex, long now) {
+        if(now - lastKeyTime > RESET_DELAY_MILLIS) {
+            buffer.setLength(0);
+        }
+        lastKeyTime = now;
+        buffer.append(character);
+        String text = buffer.toString();
+
+        // A single character moves on to the next item starting with it, a longer text stays on the current item if
+        // it still matches
+        int match = searchIndex.findNextPrefixMatch(text, text.length() == 1 ? selectedIndex + 1 : selectedIndex);
+        if(match == -1 && isSameCharacterRepeated(text)) {
+            // Typing the same character over and over cycles through the items starting with it
+            match = searchIndex.findNextPrefixMatch(text.substring(0, 1), selectedIndex + 1);
+        }
+        return match;
+    }
+
+    private static boolean isSameCharacterRepeated(String text) {
+        for(int i = 1; i < text.length(); i++) {
+            if(text.charAt(i) != text.charAt(0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
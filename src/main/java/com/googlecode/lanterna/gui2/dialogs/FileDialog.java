@@ -23,24 +23,66 @@ import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.gui2.*;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Dialog that allows the user to iterate the file system and pick file to open/save
+ * <p>
+ * Directories are read on a background thread, so that a slow file system or a directory with a huge number of files
+ * doesn't freeze the GUI. The entries are added to the lists in sorted batches as they are being checked, so the
+ * first ones can be seen and selected before the whole directory has been read. The last few directories read are
+ * cached and shown immediately when visited again, while the background thread checks the modification time of the
+ * directory and reloads it if it has changed.
  *
  * @author Martin
  */
 public class FileDialog extends DialogWindow {
+    /**
+     * Number of entries to check on the background thread before handing them over to the GUI thread
+     */
+    private static final int LOAD_BATCH_SIZE = 256;
+    private static final int LISTING_CACHE_SIZE = 16;
+
+    static final Map<String, DirectoryListing> LISTING_CACHE =
+            new LinkedHashMap<String, DirectoryListing>(LISTING_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DirectoryListing> eldest) {
+            return size() > LISTING_CACHE_SIZE;
+        }
+    };
+
+    private static final Comparator<String> NAME_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String o1, String o2) {
+            return o1.toLowerCase().compareTo(o2.toLowerCase());
+        }
+    };
 
-    private final ActionListBox fileListBox;
-    private final ActionListBox directoryListBox;
+    private static ExecutorService loaderExecutor;
+
+    final ActionListBox fileListBox;
+    final ActionListBox directoryListBox;
+    private final DefaultListModel<Runnable> fileItems;
+    private final DefaultListModel<Runnable> directoryItems;
     private final TextBox fileBox;
     private final Button okButton;
     private final boolean showHiddenFilesAndDirs;
 
     private File directory;
     private File selectedFile;
+    volatile int loadGeneration;
+    private Runnable placeholder;
+    // Batches read before the dialog was added to a text GUI, they are handed to its GUI thread once it is
+    final List<Runnable> pendingBatches;
 
     /**
      * Default constructor for {@code FileDialog}
@@ -61,6 +103,7 @@ public class FileDialog extends DialogWindow {
         super(title);
         this.selectedFile = null;
         this.showHiddenFilesAndDirs = showHiddenFilesAndDirs;
+        this.pendingBatches = new ArrayList<Runnable>();
 
         if(selectedObject == null || !selectedObject.exists()) {
             selectedObject = new File("").getAbsoluteFile();
@@ -96,7 +139,10 @@ public class FileDialog extends DialogWindow {
                         1))
                 .addTo(contentPane);
 
+        fileItems = new DefaultListModel<Runnable>();
+        directoryItems = new DefaultListModel<Runnable>();
         fileListBox = new ActionListBox(new TerminalSize(unitWidth * 2, unitHeight));
+        fileListBox.setListModel(fileItems);
         fileListBox.withBorder(Borders.singleLine())
                 .setLayoutData(GridLayout.createLayoutData(
                         GridLayout.Alignment.BEGINNING,
@@ -105,6 +151,7 @@ public class FileDialog extends DialogWindow {
                         false))
                 .addTo(contentPane);
         directoryListBox = new ActionListBox(new TerminalSize(unitWidth, unitHeight));
+        directoryListBox.setListModel(directoryItems);
         directoryListBox.withBorder(Borders.singleLine())
                 .addTo(contentPane);
 
@@ -160,6 +207,19 @@ public class FileDialog extends DialogWindow {
         return selectedFile;
     }
 
+    @Override
+    public void setTextGUI(WindowBasedTextGUI textGUI) {
+        synchronized(pendingBatches) {
+            super.setTextGUI(textGUI);
+            if(textGUI != null) {
+                for(Runnable batch: pendingBatches) {
+                    invokeLater(textGUI, batch);
+                }
+                pendingBatches.clear();
+            }
+        }
+    }
+
     private class OkHandler implements Runnable {
         @Override
         public void run() {
@@ -183,71 +243,254 @@ public class FileDialog extends DialogWindow {
     }
 
     private class DoNothing implements Runnable {
+        private final String label;
+
+        DoNothing(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private class OpenDirectory implements Runnable {
+        private final File entry;
+        private final String label;
+
+        OpenDirectory(File entry, String label) {
+            this.entry = entry;
+            this.label = label;
+        }
+
         @Override
         public void run() {
+            FileDialog.this.directory = entry;
+            reloadViews(entry);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private class SelectFile implements Runnable {
+        private final File entry;
+
+        SelectFile(File entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void run() {
+            fileBox.setText(entry.getName());
+            setFocusedInteractable(okButton);
+        }
+
+        @Override
+        public String toString() {
+            return entry.getName();
         }
     }
 
     private void reloadViews(final File directory) {
-        directoryListBox.clearItems();
-        fileListBox.clearItems();
-        File []entries = directory.listFiles();
-        if(entries == null) {
-            return;
+        final int generation = ++loadGeneration;
+        final String cacheKey = getCacheKey(showHiddenFilesAndDirs, directory);
+        final DirectoryListing cachedListing;
+        synchronized(LISTING_CACHE) {
+            cachedListing = LISTING_CACHE.get(cacheKey);
         }
-        Arrays.sort(entries, new Comparator<File>() {
+        if(cachedListing != null) {
+            showEntries(directory, cachedListing.directories, cachedListing.files, true, true);
+        }
+        else {
+            clearViews(directory);
+            placeholder = new DoNothing("<loading...>");
+            fileItems.add(placeholder);
+        }
+
+        getLoaderExecutor().execute(new Runnable() {
             @Override
-            public int compare(File o1, File o2) {
-                return o1.getName().toLowerCase().compareTo(o2.getName().toLowerCase());
+            public void run() {
+                loadDirectory(generation, directory, cacheKey, cachedListing);
             }
         });
-        if (directory.getAbsoluteFile().getParentFile() !=null){
-            directoryListBox.addItem("..", new Runnable() {
-                @Override
-                public void run() {
-                    FileDialog.this.directory = directory.getAbsoluteFile().getParentFile();
-                    reloadViews(directory.getAbsoluteFile().getParentFile());
-                }
-            });
-        } else {
-            File[] roots = File.listRoots();
-            for (final File entry : roots) {
-                if (entry.canRead()) {
-                    directoryListBox.addItem('[' + entry.getPath() + ']', new Runnable() {
-                        @Override
-                        public void run() {
-                            FileDialog.this.directory = entry;
-                            reloadViews(entry);
-                        }
-                    });
-                }
-            }
+    }
+
+    /**
+     * Runs on the loader thread, reads the directory and passes the entries on to the GUI thread in batches
+     */
+    void loadDirectory(int generation, File directory, String cacheKey, DirectoryListing cachedListing) {
+        long lastModified = directory.lastModified();
+        if(cachedListing != null && lastModified != 0 && cachedListing.lastModified == lastModified) {
+            return;
         }
-        for(final File entry: entries) {
+        String[] names = directory.list();
+        if(names == null) {
+            names = new String[0];
+        }
+        Arrays.sort(names, NAME_ORDER);
+
+        List<File> allDirectories = new ArrayList<File>();
+        List<File> allFiles = new ArrayList<File>();
+        List<File> directories = new ArrayList<File>();
+        List<File> files = new ArrayList<File>();
+        boolean first = true;
+        for(int i = 0; i < names.length; i++) {
+            if(generation != loadGeneration) {
+                // The user has already moved on to another directory
+                return;
+            }
+            File entry = new File(directory, names[i]);
             if(entry.isHidden() && !showHiddenFilesAndDirs) {
                 continue;
             }
             if(entry.isDirectory()) {
-                directoryListBox.addItem(entry.getName(), new Runnable() {
-                    @Override
-                    public void run() {
-                        FileDialog.this.directory = entry;
-                        reloadViews(entry);
-                    }
-                });
+                directories.add(entry);
             }
             else {
-                fileListBox.addItem(entry.getName(), new Runnable() {
-                    @Override
-                    public void run() {
-                        fileBox.setText(entry.getName());
-                        setFocusedInteractable(okButton);
-                    }
-                });
+                files.add(entry);
+            }
+            if(directories.size() + files.size() >= LOAD_BATCH_SIZE) {
+                allDirectories.addAll(directories);
+                allFiles.addAll(files);
+                postEntries(generation, directory, directories, files, first, false);
+                directories = new ArrayList<File>();
+                files = new ArrayList<File>();
+                first = false;
             }
         }
-        if(fileListBox.isEmpty()) {
-            fileListBox.addItem("<empty>", new DoNothing());
+        allDirectories.addAll(directories);
+        allFiles.addAll(files);
+        postEntries(generation, directory, directories, files, first, true);
+        synchronized(LISTING_CACHE) {
+            LISTING_CACHE.put(cacheKey, new DirectoryListing(lastModified, allDirectories, allFiles));
+        }
+    }
+
+    void postEntries(
+            final int generation,
+            final File directory,
+            final List<File> directories,
+            final List<File> files,
+            final boolean first,
+            final boolean last) {
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if(generation == loadGeneration) {
+                    showEntries(directory, directories, files, first, last);
+                }
+            }
+        };
+        synchronized(pendingBatches) {
+            TextGUI textGUI = getTextGUI();
+            if(textGUI == null) {
+                // The dialog hasn't been shown yet, the list models must only be touched by the GUI thread
+                pendingBatches.add(task);
+            }
+            else {
+                invokeLater(textGUI, task);
+            }
+        }
+    }
+
+    private static void invokeLater(TextGUI textGUI, Runnable task) {
+        try {
+            // Losing a batch would leave the dialog with a partial listing
+            TextGUIThread guiThread = textGUI.getGUIThread();
+            if(guiThread instanceof AbstractTextGUIThread) {
+                ((AbstractTextGUIThread)guiThread).invokeLaterExempt(task);
+            }
+            else {
+                guiThread.invokeLater(task);
+            }
+        }
+        catch(IllegalStateException ignore) {
+            // The GUI has been shut down, there's nothing to show the entries in anymore
+        }
+    }
+
+    private void showEntries(File directory, List<File> directories, List<File> files, boolean first, boolean last) {
+        if(first) {
+            clearViews(directory);
+        }
+        if(placeholder != null) {
+            int placeholderIndex = fileItems.indexOf(placeholder);
+            if(placeholderIndex != -1) {
+                fileItems.remove(placeholderIndex);
+            }
+            placeholder = null;
+        }
+        List<Runnable> newDirectoryItems = new ArrayList<Runnable>(directories.size());
+        for(File entry: directories) {
+            newDirectoryItems.add(new OpenDirectory(entry, entry.getName()));
+        }
+        directoryItems.addAll(newDirectoryItems);
+        List<Runnable> newFileItems = new ArrayList<Runnable>(files.size());
+        for(File entry: files) {
+            newFileItems.add(new SelectFile(entry));
+        }
+        fileItems.addAll(newFileItems);
+        if(last && fileItems.size() == 0) {
+            fileItems.add(new DoNothing("<empty>"));
+        }
+    }
+
+    private void clearViews(File directory) {
+        directoryItems.clear();
+        fileItems.clear();
+        placeholder = null;
+        if (directory.getAbsoluteFile().getParentFile() !=null){
+            directoryItems.add(new OpenDirectory(directory.getAbsoluteFile().getParentFile(), ".."));
+        } else {
+            File[] roots = File.listRoots();
+            for (final File entry : roots) {
+                if (entry.canRead()) {
+                    directoryItems.add(new OpenDirectory(entry, '[' + entry.getPath() + ']'));
+                }
+            }
+        }
+    }
+
+    static String getCacheKey(boolean showHiddenFilesAndDirs, File directory) {
+        return showHiddenFilesAndDirs + ":" + directory.getAbsolutePath();
+    }
+
+    private static synchronized ExecutorService getLoaderExecutor() {
+        if(loaderExecutor == null) {
+            // Each directory gets its own thread if needed, so that one that is stuck doesn't hold up the others
+            loaderExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FileDialog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return loaderExecutor;
+    }
+
+    /**
+     * Complete, filtered and sorted content of a directory, as it was when it was last read
+     */
+    static class DirectoryListing {
+        private final long lastModified;
+        private final List<File> directories;
+        private final List<File> files;
+
+        DirectoryListing(long lastModified, List<File> directories, List<File> files) {
+            this.lastModified = lastModified;
+            this.directories = Collections.unmodifiableList(directories);
+            this.files = Collections.unmodifiableList(files);
         }
     }
 
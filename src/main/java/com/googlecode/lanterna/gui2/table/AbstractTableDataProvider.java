@@ -0,0 +1,77 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Abstract implementation of {@link TableDataProvider} that takes care of keeping track of listeners and provides a
+ * default implementation of {@link #getRows(int, int)} based on {@link #getCell(int, int)}. Extend from this class if
+ * you want to write your own data provider and call {@link #fireDataChanged()} whenever the data changes.
+ * @param <V> Type of data stored in the table cells
+ * @author Martin
+ */
+public abstract class AbstractTableDataProvider<V> implements TableDataProvider<V> {
+    private final List<ChangeListener<V>> changeListeners;
+
+    /**
+     * Default constructor
+     */
+    protected AbstractTableDataProvider() {
+        this.changeListeners = new CopyOnWriteArrayList<ChangeListener<V>>();
+    }
+
+    @Override
+    public synchronized List<List<V>> getRows(int firstRow, int count) {
+        int lastRow = Math.min(getRowCount(), firstRow + count);
+        int columnCount = getColumnCount();
+        List<List<V>> rows = new ArrayList<List<V>>(Math.max(0, lastRow - firstRow));
+        for(int rowIndex = firstRow; rowIndex < lastRow; rowIndex++) {
+            List<V> row = new ArrayList<V>(columnCount);
+            for(int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+                row.add(getCell(columnIndex, rowIndex));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    public void addChangeListener(ChangeListener<V> listener) {
+        if(listener != null && !changeListeners.contains(listener)) {
+            changeListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeChangeListener(ChangeListener<V> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Notifies all registered {@link ChangeListener}s that the data has changed
+     */
+    protected void fireDataChanged() {
+        for(ChangeListener<V> listener: changeListeners) {
+            listener.onDataChanged(this);
+        }
+    }
+}
@@ -37,6 +37,11 @@ import java.util.TreeSet;
  * @author Martin
  */
 public class DefaultTableRenderer<V> implements TableRenderer<V> {
+    /**
+     * Tables with more rows than this will only have the first rows (up to this number) measured when calculating the
+     * column sizes, so that the columns don't change width as the user scrolls through the table
+     */
+    private static final int MAX_MEASURED_ROWS = 1000;
 
     private final ScrollBar verticalScrollBar;
     private final ScrollBar horizontalScrollBar;
@@ -53,10 +58,28 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
     //So that we don't have to recalculate the size every time. This still isn't optimal but shouganai.
     private TerminalSize cachedSize;
     private final List<Integer> preferredColumnSizes;
-    private final List<Integer> preferredRowSizes;
+    private final List<Integer> declaredColumnSizes;
     private final Set<Integer> expandableColumns;
     private int headerSizeInRows;
 
+    //Column sizes are only re-measured when the data has changed, not when the table is invalidated by scrolling
+    private final TableDataProvider.ChangeListener<V> dataProviderListener;
+    private TableDataProvider<V> listenedDataProvider;
+    private TableCellRenderer<V> measuredCellRenderer;
+    private TableHeaderRenderer<V> measuredHeaderRenderer;
+    private volatile boolean dataChanged;
+    private int measuredRowsSize;
+    private int measuredRowCount;
+
+    //If the data comes from a TableModel, we can follow its changes and keep exact sizes for every row and column
+    private TableModelSizeTracker<V> sizeTracker;
+
+    //Only a window of the rows is fetched from the data provider at a time, along with the height of each row
+    private List<List<V>> rowWindow;
+    private final List<Integer> rowWindowSizes;
+    private int rowWindowStart;
+    private int rowWindowPageSize;
+
     /**
      * Default constructor
      */
@@ -76,9 +99,28 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         cachedSize = null;
 
         preferredColumnSizes = new ArrayList<Integer>();
-        preferredRowSizes = new ArrayList<Integer>();
+        declaredColumnSizes = new ArrayList<Integer>();
         expandableColumns = new TreeSet<Integer>();
         headerSizeInRows = 0;
+
+        dataProviderListener = new TableDataProvider.ChangeListener<V>() {
+            @Override
+            public void onDataChanged(TableDataProvider<V> dataProvider) {
+                dataChanged = true;
+            }
+        };
+        listenedDataProvider = null;
+        measuredCellRenderer = null;
+        measuredHeaderRenderer = null;
+        dataChanged = true;
+        measuredRowsSize = 0;
+        measuredRowCount = 0;
+        sizeTracker = null;
+
+        rowWindow = new ArrayList<List<V>>();
+        rowWindowSizes = new ArrayList<Integer>();
+        rowWindowStart = 0;
+        rowWindowPageSize = 1;
     }
 
     /**
@@ -131,6 +173,28 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         this.expandableColumns.addAll(expandableColumns);
     }
 
+    /**
+     * Explicitly declares the size (in columns) of the table columns, by index where the first element in the list is
+     * the size of the first column. Columns with a declared size will not be measured when calculating the preferred
+     * size of the table, which saves time when the table is backed by a large {@link TableDataProvider}. Use
+     * {@code null} (or a negative value) for columns that should still be measured. Calling this method with an empty
+     * list will go back to measuring all columns.
+     * @param declaredColumnSizes Sizes of the columns, where {@code null} elements means the column should be measured
+     */
+    public synchronized void setDeclaredColumnSizes(List<Integer> declaredColumnSizes) {
+        this.declaredColumnSizes.clear();
+        this.declaredColumnSizes.addAll(declaredColumnSizes);
+        this.cachedSize = null;
+        this.dataChanged = true;
+    }
+
+    private int getDeclaredColumnSize(int columnIndex) {
+        if(columnIndex < declaredColumnSizes.size() && declaredColumnSizes.get(columnIndex) != null) {
+            return declaredColumnSizes.get(columnIndex);
+        }
+        return -1;
+    }
+
     private boolean isHorizontallySpaced() {
         return headerHorizontalBorderStyle != TableCellBorderStyle.None ||
                 cellHorizontalBorderStyle != TableCellBorderStyle.None;
@@ -171,7 +235,9 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
             return cachedSize;
         }
 
-        TableModel<V> tableModel = table.getTableModel();
+        TableDataProvider<V> dataProvider = table.getTableDataProvider();
+        int rowCount = dataProvider.getRowCount();
+        int columnCount = dataProvider.getColumnCount();
 
         // Copy these so we don't modify the renderers state
         int viewLeftColumn = this.viewLeftColumn;
@@ -180,22 +246,44 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         int visibleRows = table.getVisibleRows();
         int selectedRow = table.getSelectedRow();
         int selectedColumn = table.getSelectedColumn();
-        List<List<V>> rows = tableModel.getRows();
-        List<String> columnHeaders = tableModel.getColumnLabels();
         TableHeaderRenderer<V> tableHeaderRenderer = table.getTableHeaderRenderer();
-        TableCellRenderer<V> tableCellRenderer = table.getTableCellRenderer();
 
         if(visibleColumns == 0) {
-            visibleColumns = tableModel.getColumnCount();
+            visibleColumns = columnCount;
         }
         if(visibleRows == 0) {
-            visibleRows = tableModel.getRowCount();
+            visibleRows = rowCount;
         }
 
-        preferredColumnSizes.clear();
-        preferredRowSizes.clear();
+        // Make sure we are told when the data changes, so we know when the column sizes need to be measured again
+        if(listenedDataProvider != dataProvider) {
+            if(listenedDataProvider != null) {
+                listenedDataProvider.removeChangeListener(dataProviderListener);
+            }
+            listenedDataProvider = dataProvider;
+            listenedDataProvider.addChangeListener(dataProviderListener);
+            dataChanged = true;
+
+            if(sizeTracker != null) {
+                sizeTracker.detach();
+                sizeTracker = null;
+            }
+            if(dataProvider instanceof TableModel) {
+                sizeTracker = new TableModelSizeTracker<V>((TableModel<V>)dataProvider);
+            }
+        }
+        if(measuredCellRenderer != table.getTableCellRenderer() || measuredHeaderRenderer != tableHeaderRenderer) {
+            if(sizeTracker != null && measuredCellRenderer != table.getTableCellRenderer()) {
+                sizeTracker.invalidate();
+            }
+            measuredCellRenderer = table.getTableCellRenderer();
+            measuredHeaderRenderer = tableHeaderRenderer;
+            dataChanged = true;
+        }
 
-        if(tableModel.getColumnCount() == 0) {
+        if(columnCount == 0) {
+            preferredColumnSizes.clear();
+            clearRowWindow();
             return TerminalSize.ZERO;
         }
 
@@ -214,65 +302,9 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
             viewTopRow = Math.max(0, selectedRow - visibleRows + 1);
         }
 
-        // If there are no rows, base the column sizes off of the column labels
-        if(rows.size() == 0) {
-            for(int columnIndex = 0; columnIndex < columnHeaders.size(); columnIndex++) {
-                int columnSize = tableHeaderRenderer.getPreferredSize(table, columnHeaders.get(columnIndex), columnIndex).getColumns();
-                if(preferredColumnSizes.size() == columnIndex) {
-                    preferredColumnSizes.add(columnSize);
-                }
-                else {
-                    if(preferredColumnSizes.get(columnIndex) < columnSize) {
-                        preferredColumnSizes.set(columnIndex, columnSize);
-                    }
-                }
-            }
-        }
-
-        for(int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
-            List<V> row = rows.get(rowIndex);
-            for(int columnIndex = 0; columnIndex < row.size(); columnIndex++) {
-                V cell = row.get(columnIndex);
-                int columnSize = tableCellRenderer.getPreferredSize(table, cell, columnIndex, rowIndex).getColumns();
-                if(preferredColumnSizes.size() == columnIndex) {
-                    preferredColumnSizes.add(columnSize);
-                }
-                else {
-                    if(preferredColumnSizes.get(columnIndex) < columnSize) {
-                        preferredColumnSizes.set(columnIndex, columnSize);
-                    }
-                }
-            }
-
-            //Do the headers too, on the first iteration
-            if(rowIndex == 0) {
-                for(int columnIndex = 0; columnIndex < row.size(); columnIndex++) {
-                    int columnSize = tableHeaderRenderer.getPreferredSize(table, columnHeaders.get(columnIndex), columnIndex).getColumns();
-                    if(preferredColumnSizes.size() == columnIndex) {
-                        preferredColumnSizes.add(columnSize);
-                    }
-                    else {
-                        if(preferredColumnSizes.get(columnIndex) < columnSize) {
-                            preferredColumnSizes.set(columnIndex, columnSize);
-                        }
-                    }
-                }
-            }
-        }
-
-        for(int columnIndex = 0; columnIndex < columnHeaders.size(); columnIndex++) {
-            for(int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
-                V cell = rows.get(rowIndex).get(columnIndex);
-                int rowSize = tableCellRenderer.getPreferredSize(table, cell, columnIndex, rowIndex).getRows();
-                if(preferredRowSizes.size() == rowIndex) {
-                    preferredRowSizes.add(rowSize);
-                }
-                else {
-                    if(preferredRowSizes.get(rowIndex) < rowSize) {
-                        preferredRowSizes.set(rowIndex, rowSize);
-                    }
-                }
-            }
+        if(dataChanged || preferredColumnSizes.size() != columnCount) {
+            dataChanged = false;
+            measureColumns(table, dataProvider);
         }
 
         int preferredRowSize = 0;
@@ -289,37 +321,31 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         }
 
         if (table.getVisibleRows() == 0) {
-            for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
-                preferredRowSize += preferredRowSizes.get(rowIndex);
-            }
+            // Rows we didn't measure are assumed to take up one line each
+            preferredRowSize += measuredRowsSize + Math.max(0, rowCount - measuredRowCount);
         }
         else {
-            for (int rowIndex = viewTopRow; rowIndex < Math.min(rows.size(), viewTopRow + visibleRows); rowIndex++) {
-                preferredRowSize += preferredRowSizes.get(rowIndex);
+            int lastRow = Math.min(rowCount, viewTopRow + visibleRows);
+            if(lastRow > viewTopRow && (!isInRowWindow(viewTopRow) || !isInRowWindow(lastRow - 1))) {
+                loadRowWindow(table, viewTopRow, lastRow - viewTopRow, false);
             }
-        }
-
-        headerSizeInRows = 0;
-        for(int columnIndex = 0; columnIndex < columnHeaders.size(); columnIndex++) {
-            int headerRows = tableHeaderRenderer.getPreferredSize(table, columnHeaders.get(columnIndex), columnIndex).getRows();
-            if(headerSizeInRows < headerRows) {
-                headerSizeInRows = headerRows;
+            for (int rowIndex = viewTopRow; rowIndex < lastRow; rowIndex++) {
+                preferredRowSize += getRowSize(table, rowIndex);
             }
         }
+
         preferredRowSize += headerSizeInRows;
 
         if(headerVerticalBorderStyle != TableCellBorderStyle.None) {
             preferredRowSize++;    //Spacing between header and body
         }
         if(cellVerticalBorderStyle != TableCellBorderStyle.None) {
-            if(!rows.isEmpty()) {
-                preferredRowSize += Math.min(rows.size(), visibleRows) - 1; //Vertical space between cells
+            if(rowCount > 0) {
+                preferredRowSize += Math.min(rowCount, visibleRows) - 1; //Vertical space between cells
             }
         }
         if(isHorizontallySpaced()) {
-            if(!columnHeaders.isEmpty()) {
-                preferredColumnSize += Math.min(tableModel.getColumnCount(), visibleColumns) - 1;    //Spacing between the columns
-            }
+            preferredColumnSize += Math.min(columnCount, visibleColumns) - 1;    //Spacing between the columns
         }
 
         //Add one space taken by scrollbars (we always add one for the vertical scrollbar but for the horizontal only if
@@ -327,7 +353,7 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         // table will need to force scrollbars or not. We might think that we don't need a horizontal scrollbar here but
         // it might turn out that we need it.
         preferredColumnSize++;
-        if(visibleColumns < tableModel.getColumnCount()) {
+        if(visibleColumns < columnCount) {
             preferredRowSize++;
         }
 
@@ -335,6 +361,109 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         return cachedSize;
     }
 
+    /**
+     * Measures the column headers and a sample of the rows (or takes the declared column sizes) to figure out how wide
+     * each column should be. The sample is always the first rows of the data provider, so we don't have to look at
+     * every row in large tables and the widths stay the same while scrolling. If the data comes from a
+     * {@link TableModel}, the size tracker is used instead which gives the exact sizes while only having to measure the
+     * cells that changed since last time.
+     */
+    private void measureColumns(Table<V> table, TableDataProvider<V> dataProvider) {
+        TableHeaderRenderer<V> tableHeaderRenderer = table.getTableHeaderRenderer();
+        int columnCount = dataProvider.getColumnCount();
+        int rowCount = dataProvider.getRowCount();
+
+        preferredColumnSizes.clear();
+        headerSizeInRows = 0;
+        for(int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+            TerminalSize headerSize = tableHeaderRenderer.getPreferredSize(table, dataProvider.getColumnLabel(columnIndex), columnIndex);
+            int columnSize = getDeclaredColumnSize(columnIndex);
+            if(columnSize < 0) {
+                columnSize = headerSize.getColumns();
+            }
+            preferredColumnSizes.add(columnSize);
+            if(headerSizeInRows < headerSize.getRows()) {
+                headerSizeInRows = headerSize.getRows();
+            }
+        }
+
+        if(sizeTracker != null) {
+            sizeTracker.update(table);
+            for(int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+                if(getDeclaredColumnSize(columnIndex) < 0 &&
+                        preferredColumnSizes.get(columnIndex) < sizeTracker.getColumnSize(columnIndex)) {
+                    preferredColumnSizes.set(columnIndex, sizeTracker.getColumnSize(columnIndex));
+                }
+            }
+            measuredRowsSize = sizeTracker.getTotalRowsSize();
+            measuredRowCount = sizeTracker.getRowCount();
+            clearRowWindow();
+            return;
+        }
+
+        int measuredRows = Math.min(rowCount, MAX_MEASURED_ROWS);
+        measuredRowCount = measuredRows;
+        loadRowWindow(table, 0, measuredRows, true);
+        measuredRowsSize = 0;
+        for(int rowIndex = 0; rowIndex < measuredRows; rowIndex++) {
+            measuredRowsSize += getRowSize(table, rowIndex);
+        }
+    }
+
+    private void clearRowWindow() {
+        rowWindow = new ArrayList<List<V>>();
+        rowWindowSizes.clear();
+        rowWindowStart = 0;
+    }
+
+    /**
+     * Fetches a window of rows from the data provider and measures the height of each row. If
+     * {@code updateColumnSizes} is {@code true}, any column with a cell wider than what we've seen so far will also be
+     * widened; this is only done for the sample rows measured by {@link #measureColumns(Table, TableDataProvider)} so
+     * that scrolling doesn't make the columns change width.
+     */
+    private void loadRowWindow(Table<V> table, int firstRow, int count, boolean updateColumnSizes) {
+        TableCellRenderer<V> tableCellRenderer = table.getTableCellRenderer();
+        rowWindow = table.getTableDataProvider().getRows(firstRow, count);
+        rowWindowStart = firstRow;
+        rowWindowSizes.clear();
+        for(int i = 0; i < rowWindow.size(); i++) {
+            List<V> row = rowWindow.get(i);
+            int rowSize = 0;
+            for(int columnIndex = 0; columnIndex < row.size(); columnIndex++) {
+                TerminalSize cellSize = tableCellRenderer.getPreferredSize(table, row.get(columnIndex), columnIndex, firstRow + i);
+                if(rowSize < cellSize.getRows()) {
+                    rowSize = cellSize.getRows();
+                }
+                if(updateColumnSizes &&
+                        columnIndex < preferredColumnSizes.size() &&
+                        getDeclaredColumnSize(columnIndex) < 0 &&
+                        preferredColumnSizes.get(columnIndex) < cellSize.getColumns()) {
+                    preferredColumnSizes.set(columnIndex, cellSize.getColumns());
+                }
+            }
+            rowWindowSizes.add(rowSize);
+        }
+    }
+
+    private boolean isInRowWindow(int rowIndex) {
+        return rowIndex >= rowWindowStart && rowIndex < rowWindowStart + rowWindow.size();
+    }
+
+    private List<V> getRowData(Table<V> table, int rowIndex) {
+        if(!isInRowWindow(rowIndex)) {
+            loadRowWindow(table, rowIndex, rowWindowPageSize, false);
+        }
+        return rowWindow.get(rowIndex - rowWindowStart);
+    }
+
+    private int getRowSize(Table<V> table, int rowIndex) {
+        if(!isInRowWindow(rowIndex)) {
+            loadRowWindow(table, rowIndex, rowWindowPageSize, false);
+        }
+        return rowWindowSizes.get(rowIndex - rowWindowStart);
+    }
+
     @Override
     public TerminalPosition getCursorLocation(Table<V> component) {
         return null;
@@ -355,6 +484,12 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
             getPreferredSize(table);
         }
 
+        // We can't fit more rows than this, so there is no need to fetch more than this at a time
+        rowWindowPageSize = Math.max(1, area.getRows());
+        TableDataProvider<V> dataProvider = table.getTableDataProvider();
+        int rowCount = dataProvider.getRowCount();
+        int columnCount = dataProvider.getColumnCount();
+
         int headerSizeIncludingBorder = headerSizeInRows + headerVerticalBorderStyle.getSize();
         int selectedColumn = table.getSelectedColumn();
         int selectedRow = table.getSelectedRow();
@@ -370,26 +505,26 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         TerminalSize areaWithoutScrollBars = area.withRelativeRows(-headerSizeIncludingBorder);
         int preferredVisibleRows = table.getVisibleRows();
         if(preferredVisibleRows == 0) {
-            preferredVisibleRows = table.getTableModel().getRowCount();
+            preferredVisibleRows = rowCount;
         }
         int preferredVisibleColumns = table.getVisibleColumns();
         if(preferredVisibleColumns == 0) {
-            preferredVisibleColumns = table.getTableModel().getColumnCount();
+            preferredVisibleColumns = columnCount;
         }
 
-        int visibleRows = calculateVisibleRows(areaWithoutScrollBars, viewTopRow, preferredVisibleRows);
-        boolean needVerticalScrollBar = visibleRows < table.getTableModel().getRowCount();
+        int visibleRows = calculateVisibleRows(table, areaWithoutScrollBars, viewTopRow, preferredVisibleRows);
+        boolean needVerticalScrollBar = visibleRows < rowCount;
         if(needVerticalScrollBar) {
             areaWithoutScrollBars = areaWithoutScrollBars.withRelativeColumns(-verticalScrollBar.getPreferredSize().getColumns());
         }
         int visibleColumns = calculateVisibleColumns(areaWithoutScrollBars, viewLeftColumn, preferredVisibleColumns);
-        boolean needHorizontalScrollBar = visibleColumns < table.getTableModel().getColumnCount();
+        boolean needHorizontalScrollBar = visibleColumns < columnCount;
         if(needHorizontalScrollBar) {
             areaWithoutScrollBars = areaWithoutScrollBars.withRelativeRows(-horizontalScrollBar.getPreferredSize().getRows());
 
             // As we have now a horizontal scrollbar, we need to re-evaluate how many rows are visible
-            visibleRows = calculateVisibleRows(areaWithoutScrollBars, viewTopRow, preferredVisibleRows);
-            if(!needVerticalScrollBar && visibleRows < table.getTableModel().getRowCount()) {
+            visibleRows = calculateVisibleRows(table, areaWithoutScrollBars, viewTopRow, preferredVisibleRows);
+            if(!needVerticalScrollBar && visibleRows < rowCount) {
                 // Previously we didn't need a scrollbar but now we do because the horizontal scrollbar took one row
                 needVerticalScrollBar = true;
                 areaWithoutScrollBars = areaWithoutScrollBars.withRelativeColumns(-verticalScrollBar.getPreferredSize().getColumns());
@@ -406,7 +541,7 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         }
         while(viewTopRow <= selectedRow - visibleRows) {
             viewTopRow = Math.max(0, selectedRow - visibleRows + 1);
-            visibleRows = calculateVisibleRows(areaWithoutScrollBars, viewTopRow, preferredVisibleRows);
+            visibleRows = calculateVisibleRows(table, areaWithoutScrollBars, viewTopRow, preferredVisibleRows);
         }
 
         List<Integer> columnSizes = fitColumnsInAvailableSpace(table, areaWithoutScrollBars, visibleColumns);
@@ -425,15 +560,16 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         visibleRowsOnLastDraw = visibleRows;
     }
 
-    private int calculateVisibleRows(TerminalSize area, int viewTopRow, int preferredVisibleRows) {
+    private int calculateVisibleRows(Table<V> table, TerminalSize area, int viewTopRow, int preferredVisibleRows) {
         int remainingVerticalSpace = area.getRows();
         int visibleRows = 0;
         int borderAdjustment = cellVerticalBorderStyle.getSize();
-        for (int row = viewTopRow; row < preferredRowSizes.size(); row++) {
+        int rowCount = table.getTableDataProvider().getRowCount();
+        for (int row = viewTopRow; row < rowCount; row++) {
             if (preferredVisibleRows == visibleRows) {
                 break;
             }
-            int rowSize = preferredRowSizes.get(row) + borderAdjustment;
+            int rowSize = getRowSize(table, row) + borderAdjustment;
             if (remainingVerticalSpace < rowSize) {
                 break;
             }
@@ -465,8 +601,7 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         List<Integer> columnSizes = new ArrayList<Integer>(preferredColumnSizes);
         int horizontalSpaceRequirement = 0;
         int viewLeftColumn = table.getViewLeftColumn();
-        List<String> headers = table.getTableModel().getColumnLabels();
-        int endColumnIndex = Math.min(headers.size(), viewLeftColumn + visibleColumns);
+        int endColumnIndex = Math.min(table.getTableDataProvider().getColumnCount(), viewLeftColumn + visibleColumns);
         List<Integer> visibleExpandableColumns = new ArrayList<Integer>();
         for(int index = viewLeftColumn; index < endColumnIndex; index++) {
             horizontalSpaceRequirement += preferredColumnSizes.get(index);
@@ -493,16 +628,16 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
     private void drawHeader(TextGUIGraphics graphics, Table<V> table, List<Integer> columnSizes) {
         Theme theme = table.getTheme();
         TableHeaderRenderer<V> tableHeaderRenderer = table.getTableHeaderRenderer();
-        List<String> headers = table.getTableModel().getColumnLabels();
+        TableDataProvider<V> dataProvider = table.getTableDataProvider();
         int viewLeftColumn = table.getViewLeftColumn();
         int visibleColumns = table.getVisibleColumns();
         if(visibleColumns == 0) {
-            visibleColumns = table.getTableModel().getColumnCount();
+            visibleColumns = dataProvider.getColumnCount();
         }
         int leftPosition = 0;
-        int endColumnIndex = Math.min(headers.size(), viewLeftColumn + visibleColumns);
+        int endColumnIndex = Math.min(dataProvider.getColumnCount(), viewLeftColumn + visibleColumns);
         for(int index = viewLeftColumn; index < endColumnIndex; index++) {
-            String label = headers.get(index);
+            String label = dataProvider.getColumnLabel(index);
             TerminalSize size = new TerminalSize(columnSizes.get(index), headerSizeInRows);
             tableHeaderRenderer.drawHeader(table, label, index, graphics.newTextGraphics(new TerminalPosition(leftPosition, 0), size));
             leftPosition += size.getColumns();
@@ -551,8 +686,8 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         ThemeDefinition themeDefinition = theme.getDefinition(Table.class);
         TerminalSize area = graphics.getSize();
         TableCellRenderer<V> tableCellRenderer = table.getTableCellRenderer();
-        TableModel<V> tableModel = table.getTableModel();
-        List<List<V>> rows = tableModel.getRows();
+        TableDataProvider<V> dataProvider = table.getTableDataProvider();
+        int rowCount = dataProvider.getRowCount();
         int viewTopRow = table.getViewTopRow();
         int viewLeftColumn = table.getViewLeftColumn();
 
@@ -565,7 +700,7 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
             }
             verticalScrollBar.setPosition(new TerminalPosition(graphics.getSize().getColumns() - verticalScrollBarPreferredSize.getColumns(), 0));
             verticalScrollBar.setSize(verticalScrollBarPreferredSize.withRows(scrollBarHeight));
-            verticalScrollBar.setScrollMaximum(rows.size());
+            verticalScrollBar.setScrollMaximum(rowCount);
             verticalScrollBar.setViewSize(visibleRows);
             verticalScrollBar.setScrollPosition(viewTopRow);
 
@@ -590,7 +725,7 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
             int scrollBarWidth = graphics.getSize().getColumns();
             horizontalScrollBar.setPosition(new TerminalPosition(0, graphics.getSize().getRows() - horizontalScrollBarPreferredSize.getRows()));
             horizontalScrollBar.setSize(horizontalScrollBarPreferredSize.withColumns(scrollBarWidth));
-            horizontalScrollBar.setScrollMaximum(tableModel.getColumnCount());
+            horizontalScrollBar.setScrollMaximum(dataProvider.getColumnCount());
             horizontalScrollBar.setViewSize(visibleColumns);
             horizontalScrollBar.setScrollPosition(viewLeftColumn);
 
@@ -612,9 +747,10 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
         }
 
         int topPosition = 0;
-        for(int rowIndex = viewTopRow; rowIndex < Math.min(viewTopRow + visibleRows, rows.size()); rowIndex++) {
+        for(int rowIndex = viewTopRow; rowIndex < Math.min(viewTopRow + visibleRows, rowCount); rowIndex++) {
             int leftPosition = 0;
-            List<V> row = rows.get(rowIndex);
+            List<V> row = getRowData(table, rowIndex);
+            int rowSize = getRowSize(table, rowIndex);
             for(int columnIndex = viewLeftColumn; columnIndex < Math.min(viewLeftColumn + visibleColumns, row.size()); columnIndex++) {
                 if(columnIndex > viewLeftColumn) {
                     if(table.getSelectedRow() == rowIndex && !table.isCellSelection()) {
@@ -633,7 +769,7 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
                 }
                 V cell = row.get(columnIndex);
                 TerminalPosition cellPosition = new TerminalPosition(leftPosition, topPosition);
-                TerminalSize cellArea = new TerminalSize(columnSizes.get(columnIndex), preferredRowSizes.get(rowIndex));
+                TerminalSize cellArea = new TerminalSize(columnSizes.get(columnIndex), rowSize);
                 tableCellRenderer.drawCell(table, cell, columnIndex, rowIndex, graphics.newTextGraphics(cellPosition, cellArea));
                 leftPosition += cellArea.getColumns();
 
@@ -654,7 +790,7 @@ public class DefaultTableRenderer<V> implements TableRenderer<V> {
                     break;
                 }
             }
-            topPosition += preferredRowSizes.get(rowIndex);
+            topPosition += rowSize;
             if(cellVerticalBorderStyle != TableCellBorderStyle.None) {
                 leftPosition = 0;
                 graphics.applyThemeStyle(themeDefinition.getNormal());
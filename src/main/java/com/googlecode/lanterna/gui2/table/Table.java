@@ -18,11 +18,10 @@
  */
 package com.googlecode.lanterna.gui2.table;
 
+import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.gui2.*;
 import com.googlecode.lanterna.input.KeyStroke;
 
-import java.util.List;
-
 /**
  * The table class is an interactable component that displays a grid of cells containing data along with a header of
  * labels. It supports scrolling when the number of rows and/or columns gets too large to fit and also supports
@@ -32,8 +31,8 @@ import java.util.List;
  * @author Martin
  */
 public class Table<V> extends AbstractInteractableComponent<Table<V>> {
-    private TableModel<V> tableModel;
-    private TableModel.Listener<V> tableModelListener;  // Used to invalidate the table whenever the model changes
+    private TableDataProvider<V> dataProvider;
+    private TableDataProvider.ChangeListener<V> dataProviderListener;  // Used to invalidate the table whenever the data changes
     private TableHeaderRenderer<V> tableHeaderRenderer;
     private TableCellRenderer<V> tableCellRenderer;
     private Runnable selectAction;
@@ -44,6 +43,10 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
     private int selectedColumn;
     private boolean escapeByArrowKey;
 
+    // When showing a TableModelView, this is the row that was selected and which view version it was selected in
+    private Object selectedRowKey;
+    private int selectedRowViewVersion;
+
     /**
      * Creates a new {@code Table} with the number of columns as specified by the array of labels
      * @param columnLabels Creates one column per label in the array, must be more than one
@@ -54,7 +57,7 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
         }
         this.tableHeaderRenderer = new DefaultTableHeaderRenderer<V>();
         this.tableCellRenderer = new DefaultTableCellRenderer<V>();
-        this.tableModel = new TableModel<V>(columnLabels);
+        this.dataProvider = new TableModel<V>(columnLabels);
         this.selectAction = null;
         this.visibleColumns = 0;
         this.visibleRows = 0;
@@ -62,42 +65,37 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
         this.selectedRow = 0;
         this.selectedColumn = -1;
         this.escapeByArrowKey = true;
+        this.selectedRowKey = null;
+        this.selectedRowViewVersion = 0;
 
-        this.tableModelListener = new TableModel.Listener<V>() {
-            @Override
-            public void onRowAdded(TableModel<V> model, int index) {
-                invalidate();
-            }
-
-            @Override
-            public void onRowRemoved(TableModel<V> model, int index, List<V> oldRow) {
-                invalidate();
-            }
-
-            @Override
-            public void onColumnAdded(TableModel<V> model, int index) {
-                invalidate();
-            }
-
+        this.dataProviderListener = new TableDataProvider.ChangeListener<V>() {
             @Override
-            public void onColumnRemoved(TableModel<V> model, int index, String oldHeader, List<V> oldColumn) {
-                invalidate();
-            }
-
-            @Override
-            public void onCellChanged(TableModel<V> model, int row, int column, V oldValue, V newValue) {
+            public void onDataChanged(TableDataProvider<V> dataProvider) {
+                // The selection isn't updated from here since this may be called with the table model locked, it's
+                // done before the table is measured and drawn again instead
                 invalidate();
             }
         };
-        this.tableModel.addListener(tableModelListener);
+        this.dataProvider.addChangeListener(dataProviderListener);
     }
 
     /**
-     * Returns the underlying table model
+     * Returns the underlying table model. If the table is showing a {@link TableModelView}, this is the model behind the
+     * view.
      * @return Underlying table model
+     * @throws IllegalStateException If the table is displaying data from a custom {@link TableDataProvider} that isn't
+     * backed by a {@link TableModel}, use {@link #getTableDataProvider()} in that case
      */
     public TableModel<V> getTableModel() {
-        return tableModel;
+        TableDataProvider<V> dataProvider = this.dataProvider;
+        if(dataProvider instanceof TableModel) {
+            return (TableModel<V>)dataProvider;
+        }
+        else if(dataProvider instanceof TableModelView) {
+            return ((TableModelView<V>)dataProvider).getTableModel();
+        }
+        throw new IllegalStateException("Table is displaying data from " + dataProvider.getClass().getName() +
+                " which isn't a TableModel, use getTableDataProvider() instead");
     }
 
     /**
@@ -109,9 +107,33 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
         if(tableModel == null) {
             throw new IllegalArgumentException("Cannot assign a null TableModel");
         }
-        this.tableModel.removeListener(tableModelListener);
-        this.tableModel = tableModel;
-        this.tableModel.addListener(tableModelListener);
+        return setTableDataProvider(tableModel);
+    }
+
+    /**
+     * Returns the {@link TableDataProvider} the table is currently displaying data from. Unless you have assigned a
+     * custom data provider, this will be the {@link TableModel} of the table.
+     * @return Data provider the table is currently displaying data from
+     */
+    public TableDataProvider<V> getTableDataProvider() {
+        return dataProvider;
+    }
+
+    /**
+     * Updates the table with a new data provider, effectively replacing the content of the table completely. Use this
+     * instead of {@link #setTableModel(TableModel)} when the data is too large to be kept in memory; the table will only
+     * ask the data provider for the rows that are currently in view.
+     * @param dataProvider New data provider
+     * @return Itself
+     */
+    public synchronized Table<V> setTableDataProvider(TableDataProvider<V> dataProvider) {
+        if(dataProvider == null) {
+            throw new IllegalArgumentException("Cannot assign a null TableDataProvider");
+        }
+        this.dataProvider.removeChangeListener(dataProviderListener);
+        this.dataProvider = dataProvider;
+        this.dataProvider.addChangeListener(dataProviderListener);
+        rememberSelectedRow();
         invalidate();
         return this;
     }
@@ -265,7 +287,9 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
     }
 
     /**
-     * Returns the index of the currently selected row
+     * Returns the index of the currently selected row. If the table is showing a {@link TableModelView} that has been
+     * sorted or filtered since the table was last drawn, this is the index the row had at that time; the selection is
+     * moved to the row's new index when the table is drawn again.
      * @return Index of the currently selected row
      */
     public int getSelectedRow() {
@@ -279,6 +303,7 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
      */
     public synchronized Table<V> setSelectedRow(int selectedRow) {
         this.selectedRow = selectedRow;
+        rememberSelectedRow();
         return this;
     }
 
@@ -352,8 +377,61 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
         return (TableRenderer<V>)super.getRenderer();
     }
 
+    @Override
+    protected synchronized TerminalSize calculatePreferredSize() {
+        updateSelectedRowFromView();
+        return super.calculatePreferredSize();
+    }
+
+    @Override
+    protected void onBeforeDrawing() {
+        updateSelectedRowFromView();
+    }
+
+    /**
+     * If the table is showing a {@link TableModelView}, the view may have been sorted or filtered in the background
+     * since the selection was last changed. In that case, this will find where the selected row ended up and select
+     * it again at its new index. If the row is no longer part of the view, the selection stays at the same index.
+     */
+    private void updateSelectedRowFromView() {
+        TableDataProvider<V> dataProvider = this.dataProvider;
+        if(!(dataProvider instanceof TableModelView)) {
+            return;
+        }
+        TableModelView<V> view = (TableModelView<V>)dataProvider;
+        synchronized(this) {
+            synchronized(view) {
+                if(view != this.dataProvider || view.getVersion() == selectedRowViewVersion) {
+                    return;
+                }
+                int rowIndex = selectedRowKey != null ? view.getRowIndex(selectedRowKey) : -1;
+                if(rowIndex != -1) {
+                    selectedRow = rowIndex;
+                }
+                else {
+                    selectedRow = Math.max(0, Math.min(selectedRow, view.getRowCount() - 1));
+                }
+                selectedRowKey = view.getRowKey(selectedRow);
+                selectedRowViewVersion = view.getVersion();
+            }
+        }
+    }
+
+    private synchronized void rememberSelectedRow() {
+        if(!(dataProvider instanceof TableModelView)) {
+            selectedRowKey = null;
+            return;
+        }
+        TableModelView<V> view = (TableModelView<V>)dataProvider;
+        synchronized(view) {
+            selectedRowKey = view.getRowKey(selectedRow);
+            selectedRowViewVersion = view.getVersion();
+        }
+    }
+
     @Override
     public Result handleKeyStroke(KeyStroke keyStroke) {
+        updateSelectedRowFromView();
         switch(keyStroke.getKeyType()) {
             case ArrowUp:
                 if(selectedRow > 0) {
@@ -364,7 +442,7 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
                 }
                 break;
             case ArrowDown:
-                if(selectedRow < tableModel.getRowCount() - 1) {
+                if(selectedRow < dataProvider.getRowCount() - 1) {
                     selectedRow++;
                 }
                 else if(escapeByArrowKey) {
@@ -377,8 +455,8 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
                 }
                 break;
             case PageDown:
-                if(getRenderer().getVisibleRowsOnLastDraw() > 0 && selectedRow < tableModel.getRowCount() - 1) {
-                    int toEndDistance = tableModel.getRowCount() - 1 - selectedRow;
+                if(getRenderer().getVisibleRowsOnLastDraw() > 0 && selectedRow < dataProvider.getRowCount() - 1) {
+                    int toEndDistance = dataProvider.getRowCount() - 1 - selectedRow;
                     selectedRow += Math.min(getRenderer().getVisibleRowsOnLastDraw() - 1, toEndDistance);
                 }
                 break;
@@ -386,7 +464,7 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
                 selectedRow = 0;
                 break;
             case End:
-                selectedRow = tableModel.getRowCount() - 1;
+                selectedRow = dataProvider.getRowCount() - 1;
                 break;
             case ArrowLeft:
                 if(cellSelection && selectedColumn > 0) {
@@ -397,7 +475,7 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
                 }
                 break;
             case ArrowRight:
-                if(cellSelection && selectedColumn < tableModel.getColumnCount() - 1) {
+                if(cellSelection && selectedColumn < dataProvider.getColumnCount() - 1) {
                     selectedColumn++;
                 }
                 else if(escapeByArrowKey) {
@@ -416,6 +494,7 @@ public class Table<V> extends AbstractInteractableComponent<Table<V>> {
             default:
                 return super.handleKeyStroke(keyStroke);
         }
+        rememberSelectedRow();
         invalidate();
         return Result.HANDLED;
     }
@@ -0,0 +1,99 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.table;
+
+import java.util.List;
+
+/**
+ * Source of the data displayed by a {@link Table}. The table (and its renderer) will only ask the data provider for
+ * the rows that are currently visible, so an implementation of this interface doesn't need to have all the rows in
+ * memory at once; they can be fetched page by page from a database or a file as the user scrolls through the table.
+ * {@link TableModel} is the standard, in-memory, implementation.
+ * <p>
+ * Since the renderer can't look at every row of a large data provider, it will calculate the column widths based on a
+ * sample of the rows, unless the widths have been explicitly declared through
+ * {@link DefaultTableRenderer#setDeclaredColumnSizes(List)}.
+ * @param <V> Type of data stored in the table cells
+ * @author Martin
+ */
+public interface TableDataProvider<V> {
+    /**
+     * Listener interface for the {@link TableDataProvider} which can be attached to be notified whenever the data has
+     * changed in any way
+     * @param <V> Type of data stored in the table cells
+     */
+    interface ChangeListener<V> {
+        /**
+         * Called when the data in the provider has changed, this could be anything from a single cell being updated to
+         * a completely different set of rows and columns
+         * @param dataProvider Data provider that has changed
+         */
+        void onDataChanged(TableDataProvider<V> dataProvider);
+    }
+
+    /**
+     * Returns the number of rows available from this data provider
+     * @return Number of rows available from this data provider
+     */
+    int getRowCount();
+
+    /**
+     * Returns the number of columns available from this data provider
+     * @return Number of columns available from this data provider
+     */
+    int getColumnCount();
+
+    /**
+     * Returns the label of a column header
+     * @param index Index of the column to retrieve the header label for
+     * @return Label of the column selected
+     */
+    String getColumnLabel(int index);
+
+    /**
+     * Returns the cell value stored at a specific column/row coordinate.
+     * @param columnIndex Column index of the cell
+     * @param rowIndex Row index of the cell
+     * @return The data value stored in this cell
+     */
+    V getCell(int columnIndex, int rowIndex);
+
+    /**
+     * Returns a window of rows from the data provider, as a list of lists containing the data as elements. The table
+     * will call this once per draw operation with the rows that are currently in view, which makes it a natural place
+     * to fetch a whole page of data at once.
+     * @param firstRow Index of the first row to return
+     * @param count Maximum number of rows to return, if there are fewer rows after {@code firstRow} in the data provider
+     *              the returned list will be shorter
+     * @return The selected rows, as a list of lists containing the data as elements
+     */
+    List<List<V>> getRows(int firstRow, int count);
+
+    /**
+     * Adds a listener to this data provider that will be notified whenever the data changes
+     * @param listener {@link ChangeListener} to register with this data provider
+     */
+    void addChangeListener(ChangeListener<V> listener);
+
+    /**
+     * Removes a listener from this data provider so that it will no longer receive any notifications
+     * @param listener {@link ChangeListener} to deregister from this data provider
+     */
+    void removeChangeListener(ChangeListener<V> listener);
+}
@@ -22,11 +22,11 @@ import java.util.*;
 
 /**
  * A {@code TableModel} contains the data model behind a table, here is where all the action cell values and header
- * labels are stored.
+ * labels are stored. This is the standard, in-memory, implementation of {@link TableDataProvider}.
  *
  * @author Martin
  */
-public class TableModel<V> {
+public class TableModel<V> extends AbstractTableDataProvider<V> {
 
     /**
      * Listener interface for the {@link TableModel} class which can be attached to a {@link TableModel} to be notified
@@ -92,6 +92,7 @@ public class TableModel<V> {
      * Returns the number of columns in the model
      * @return Number of columns in the model
      */
+    @Override
     public synchronized int getColumnCount() {
         return columns.size();
     }
@@ -100,6 +101,7 @@ public class TableModel<V> {
      * Returns number of rows in the model
      * @return Number of rows in the model
      */
+    @Override
     public synchronized int getRowCount() {
         return rows.size();
     }
@@ -116,6 +118,26 @@ public class TableModel<V> {
         return copy;
     }
 
+    @Override
+    public synchronized List<List<V>> getRows(int firstRow, int count) {
+        int lastRow = Math.min(rows.size(), firstRow + count);
+        List<List<V>> copy = new ArrayList<List<V>>(Math.max(0, lastRow - firstRow));
+        for(int rowIndex = firstRow; rowIndex < lastRow; rowIndex++) {
+            copy.add(new ArrayList<V>(rows.get(rowIndex)));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a shallow copy of the list of rows, where each element is the actual list backing that row in the model.
+     * The row lists keep their identity when other rows are added or removed, which is what {@link TableModelView}
+     * uses to follow a row as the view is sorted. Callers must synchronize on the model when reading the row lists.
+     * @return List of the rows currently in the model, in order
+     */
+    synchronized List<List<V>> getRowReferences() {
+        return new ArrayList<List<V>>(rows);
+    }
+
     /**
      * Returns all column header label as a list of strings
      * @return All column header label as a list of strings
@@ -166,6 +188,7 @@ public class TableModel<V> {
         for(Listener<V> listener: listeners) {
             listener.onRowAdded(this, index);
         }
+        fireDataChanged();
         return this;
     }
 
@@ -179,6 +202,7 @@ public class TableModel<V> {
         for(Listener<V> listener: listeners) {
             listener.onRowRemoved(this, index, removedRow);
         }
+        fireDataChanged();
         return this;
     }
 
@@ -198,6 +222,7 @@ public class TableModel<V> {
      * @param index Index of the column to retrieve the header label for
      * @return Label of the column selected
      */
+    @Override
     public synchronized String getColumnLabel(int index) {
         return columns.get(index);
     }
@@ -210,6 +235,7 @@ public class TableModel<V> {
      */
     public synchronized TableModel<V> setColumnLabel(int index, String newLabel) {
         columns.set(index, newLabel);
+        fireDataChanged();
         return this;
     }
 
@@ -255,6 +281,7 @@ public class TableModel<V> {
         for(Listener<V> listener: listeners) {
             listener.onColumnAdded(this, index);
         }
+        fireDataChanged();
         return this;
     }
 
@@ -272,6 +299,7 @@ public class TableModel<V> {
         for(Listener<V> listener: listeners) {
             listener.onColumnRemoved(this, index, removedColumnHeader, removedColumn);
         }
+        fireDataChanged();
         return this;
     }
 
@@ -281,6 +309,7 @@ public class TableModel<V> {
      * @param rowIndex Row index of the cell
      * @return The data value stored in this cell
      */
+    @Override
     public synchronized V getCell(int columnIndex, int rowIndex) {
         if(rowIndex < 0 || columnIndex < 0) {
             throw new IndexOutOfBoundsException("Invalid row or column index: " + rowIndex + " " + columnIndex);
@@ -318,6 +347,7 @@ public class TableModel<V> {
         for(Listener<V> listener: listeners) {
             listener.onCellChanged(this, rowIndex, columnIndex, existingValue, value);
         }
+        fireDataChanged();
         return this;
     }
 
@@ -0,0 +1,289 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.table;
+
+import com.googlecode.lanterna.TerminalSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Keeps track of the preferred size of every column and row in a {@link TableModel} by listening to the changes made
+ * to the model, so that {@link DefaultTableRenderer} doesn't need to measure the whole table again when a single cell
+ * has been modified. For each column, the width of every cell is kept in a multiset (width to number of cells with
+ * that width) which makes it possible to find the new maximum width when the widest cell is removed or changed.
+ * <p>
+ * The model listener may be invoked from any thread, so changes are only recorded there (together with a copy of the
+ * affected data) and then applied later by the renderer, on the GUI thread, when it calls {@link #update(Table)}.
+ * @param <V> Type of data stored in the table cells
+ * @author Martin
+ */
+class TableModelSizeTracker<V> implements TableModel.Listener<V> {
+    private static final int ROW_ADDED = 0;
+    private static final int ROW_REMOVED = 1;
+    private static final int CELL_CHANGED = 2;
+
+    private static class Change<V> {
+        private final int type;
+        private final int rowIndex;
+        private final int columnIndex;
+        private final List<V> row;
+        private final V oldValue;
+        private final V newValue;
+
+        private Change(int type, int rowIndex, int columnIndex, List<V> row, V oldValue, V newValue) {
+            this.type = type;
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.row = row;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+    }
+
+    private final TableModel<V> tableModel;
+    private final List<Change<V>> pendingChanges;
+    private boolean fullMeasureRequired;
+
+    private final List<TreeMap<Integer, Integer>> columnWidths;
+    private final List<Integer> rowSizes;
+    private int totalRowsSize;
+
+    TableModelSizeTracker(TableModel<V> tableModel) {
+        this.tableModel = tableModel;
+        this.pendingChanges = new ArrayList<Change<V>>();
+        this.fullMeasureRequired = true;
+        this.columnWidths = new ArrayList<TreeMap<Integer, Integer>>();
+        this.rowSizes = new ArrayList<Integer>();
+        this.totalRowsSize = 0;
+        tableModel.addListener(this);
+    }
+
+    TableModel<V> getTableModel() {
+        return tableModel;
+    }
+
+    void detach() {
+        tableModel.removeListener(this);
+    }
+
+    /**
+     * Throws away everything that has been measured so far, the next call to {@link #update(Table)} will measure the
+     * whole table again. This is needed if the way cells are measured has changed, for example because the table is
+     * using a different cell renderer.
+     */
+    void invalidate() {
+        synchronized(pendingChanges) {
+            pendingChanges.clear();
+            fullMeasureRequired = true;
+        }
+    }
+
+    /**
+     * Returns the preferred width of a column, based on the cells alone (the header is not included)
+     * @param columnIndex Index of the column
+     * @return Width of the widest cell in the column
+     */
+    int getColumnSize(int columnIndex) {
+        if(columnIndex >= columnWidths.size() || columnWidths.get(columnIndex).isEmpty()) {
+            return 0;
+        }
+        return columnWidths.get(columnIndex).lastKey();
+    }
+
+    /**
+     * Returns the number of rows that has been measured
+     * @return Number of rows that has been measured
+     */
+    int getRowCount() {
+        return rowSizes.size();
+    }
+
+    /**
+     * Returns the sum of the preferred heights of all rows in the model
+     * @return The sum of the preferred heights of all rows in the model
+     */
+    int getTotalRowsSize() {
+        return totalRowsSize;
+    }
+
+    /**
+     * Brings the measurements up to date with the model, either by applying the changes that have been recorded since
+     * last time or, if required, by measuring the whole model again.
+     * @param table Table the model belongs to, used when calling the cell renderer
+     */
+    void update(Table<V> table) {
+        TableCellRenderer<V> cellRenderer = table.getTableCellRenderer();
+        List<Change<V>> changes;
+        synchronized(pendingChanges) {
+            if(fullMeasureRequired) {
+                changes = null;
+            }
+            else {
+                changes = new ArrayList<Change<V>>(pendingChanges);
+                pendingChanges.clear();
+            }
+        }
+        if(changes == null) {
+            measureAll(table, cellRenderer);
+            return;
+        }
+        for(Change<V> change: changes) {
+            switch(change.type) {
+                case ROW_ADDED:
+                    int rowSize = addRow(table, cellRenderer, change.rowIndex, change.row);
+                    rowSizes.add(change.rowIndex, rowSize);
+                    totalRowsSize += rowSize;
+                    break;
+                case ROW_REMOVED:
+                    removeRow(table, cellRenderer, change.rowIndex, change.row);
+                    totalRowsSize -= rowSizes.remove(change.rowIndex);
+                    break;
+                case CELL_CHANGED:
+                    updateCell(table, cellRenderer, change);
+                    break;
+            }
+        }
+    }
+
+    private void measureAll(Table<V> table, TableCellRenderer<V> cellRenderer) {
+        // Hold the model lock so that no changes can slip in between measuring and clearing the pending changes
+        synchronized(tableModel) {
+            synchronized(pendingChanges) {
+                pendingChanges.clear();
+                fullMeasureRequired = false;
+            }
+            columnWidths.clear();
+            for(int columnIndex = 0; columnIndex < tableModel.getColumnCount(); columnIndex++) {
+                columnWidths.add(new TreeMap<Integer, Integer>());
+            }
+            rowSizes.clear();
+            totalRowsSize = 0;
+            int rowCount = tableModel.getRowCount();
+            for(int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                int rowSize = addRow(table, cellRenderer, rowIndex, tableModel.getRow(rowIndex));
+                rowSizes.add(rowSize);
+                totalRowsSize += rowSize;
+            }
+        }
+    }
+
+    private int addRow(Table<V> table, TableCellRenderer<V> cellRenderer, int rowIndex, List<V> row) {
+        int rowSize = 0;
+        for(int columnIndex = 0; columnIndex < row.size() && columnIndex < columnWidths.size(); columnIndex++) {
+            TerminalSize cellSize = cellRenderer.getPreferredSize(table, row.get(columnIndex), columnIndex, rowIndex);
+            addWidth(columnIndex, cellSize.getColumns());
+            rowSize = Math.max(rowSize, cellSize.getRows());
+        }
+        return rowSize;
+    }
+
+    private void removeRow(Table<V> table, TableCellRenderer<V> cellRenderer, int rowIndex, List<V> row) {
+        for(int columnIndex = 0; columnIndex < row.size() && columnIndex < columnWidths.size(); columnIndex++) {
+            TerminalSize cellSize = cellRenderer.getPreferredSize(table, row.get(columnIndex), columnIndex, rowIndex);
+            removeWidth(columnIndex, cellSize.getColumns());
+        }
+    }
+
+    private void updateCell(Table<V> table, TableCellRenderer<V> cellRenderer, Change<V> change) {
+        if(change.columnIndex >= columnWidths.size()) {
+            return;
+        }
+        TerminalSize oldSize = cellRenderer.getPreferredSize(table, change.oldValue, change.columnIndex, change.rowIndex);
+        TerminalSize newSize = cellRenderer.getPreferredSize(table, change.newValue, change.columnIndex, change.rowIndex);
+        removeWidth(change.columnIndex, oldSize.getColumns());
+        addWidth(change.columnIndex, newSize.getColumns());
+
+        int currentRowSize = rowSizes.get(change.rowIndex);
+        int newRowSize = currentRowSize;
+        if(newSize.getRows() > currentRowSize) {
+            newRowSize = newSize.getRows();
+        }
+        else if(oldSize.getRows() == currentRowSize && newSize.getRows() < currentRowSize) {
+            // The cell that decided the height of the row got smaller, the other cells in the row need to be checked
+            newRowSize = 0;
+            for(int columnIndex = 0; columnIndex < change.row.size(); columnIndex++) {
+                TerminalSize cellSize = cellRenderer.getPreferredSize(table, change.row.get(columnIndex), columnIndex, change.rowIndex);
+                newRowSize = Math.max(newRowSize, cellSize.getRows());
+            }
+        }
+        rowSizes.set(change.rowIndex, newRowSize);
+        totalRowsSize += newRowSize - currentRowSize;
+    }
+
+    private void addWidth(int columnIndex, int width) {
+        TreeMap<Integer, Integer> widths = columnWidths.get(columnIndex);
+        Integer count = widths.get(width);
+        widths.put(width, count == null ? 1 : count + 1);
+    }
+
+    private void removeWidth(int columnIndex, int width) {
+        TreeMap<Integer, Integer> widths = columnWidths.get(columnIndex);
+        Integer count = widths.get(width);
+        if(count == null) {
+            return;
+        }
+        if(count == 1) {
+            widths.remove(width);
+        }
+        else {
+            widths.put(width, count - 1);
+        }
+    }
+
+    private void addChange(Change<V> change) {
+        synchronized(pendingChanges) {
+            if(fullMeasureRequired) {
+                return;
+            }
+            pendingChanges.add(change);
+            // At some point it's cheaper to just measure everything again
+            if(pendingChanges.size() > Math.max(1000, tableModel.getRowCount())) {
+                pendingChanges.clear();
+                fullMeasureRequired = true;
+            }
+        }
+    }
+
+    @Override
+    public void onRowAdded(TableModel<V> model, int index) {
+        addChange(new Change<V>(ROW_ADDED, index, -1, model.getRow(index), null, null));
+    }
+
+    @Override
+    public void onRowRemoved(TableModel<V> model, int index, List<V> oldRow) {
+        addChange(new Change<V>(ROW_REMOVED, index, -1, oldRow, null, null));
+    }
+
+    @Override
+    public void onColumnAdded(TableModel<V> model, int index) {
+        invalidate();
+    }
+
+    @Override
+    public void onColumnRemoved(TableModel<V> model, int index, String oldHeader, List<V> oldColumn) {
+        invalidate();
+    }
+
+    @Override
+    public void onCellChanged(TableModel<V> model, int row, int column, V oldValue, V newValue) {
+        addChange(new Change<V>(CELL_CHANGED, row, column, model.getRow(row), oldValue, newValue));
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A sorted and/or filtered view over a {@link TableModel}, which can be given to
+ * {@link Table#setTableDataProvider(TableDataProvider)} to display the model in a different order without touching
+ * the model itself. Whenever the model changes, or a new sort order or filter is set, the new order of the rows is
+ * computed on a background executor and then swapped in all at once, followed by a single change notification. Until
+ * then, the view keeps showing the rows in the previous order, so even very large tables can be sorted without
+ * blocking the GUI thread.
+ * <p>
+ * Cell values are always read from the model, so changes to cells show up straight away, but added and removed rows
+ * only become visible when the background computation has finished. Each row in the view keeps its identity through
+ * re-ordering (see {@link #getRowKey(int)}), which the {@link Table} uses to keep the same row selected.
+ * @param <V> Type of data stored in the table cells
+ * @author Martin
+ */
+public class TableModelView<V> extends AbstractTableDataProvider<V> {
+
+    /**
+     * Decides which rows in the model are included in a {@link TableModelView}
+     * @param <V> Type of data stored in the table cells
+     */
+    public interface RowFilter<V> {
+        /**
+         * Called for each row in the model when the view is computed. This will be called on the background
+         * executor, not the GUI thread.
+         * @param row Copy of the data in the row
+         * @return {@code true} if the row should be included in the view, {@code false} otherwise
+         */
+        boolean accept(List<V> row);
+    }
+
+    private static ExecutorService defaultExecutor;
+
+    private final TableModel<V> tableModel;
+    private final TableModel.Listener<V> tableModelListener;
+    private final Executor executor;
+    private final Runnable refreshTask;
+    private Comparator<? super List<V>> rowComparator;
+    private RowFilter<V> rowFilter;
+    private boolean refreshRequested;
+    private boolean refreshRunning;
+
+    // The current ordering, always replaced together
+    private List<List<V>> rows;
+    private int[] modelRowIndexes;
+    private Map<Object, Integer> rowIndexByKey;
+    private int version;
+
+    /**
+     * Creates a new view over a table model, which will do the sorting and filtering on a shared background thread
+     * @param tableModel Table model to create a view over
+     */
+    public TableModelView(TableModel<V> tableModel) {
+        this(tableModel, getDefaultExecutor());
+    }
+
+    /**
+     * Creates a new view over a table model, which will do the sorting and filtering on the executor supplied
+     * @param tableModel Table model to create a view over
+     * @param executor Executor to run the sorting and filtering on
+     */
+    public TableModelView(TableModel<V> tableModel, Executor executor) {
+        if(tableModel == null) {
+            throw new IllegalArgumentException("Cannot create a TableModelView over a null TableModel");
+        }
+        if(executor == null) {
+            throw new IllegalArgumentException("Cannot create a TableModelView with a null Executor");
+        }
+        this.tableModel = tableModel;
+        this.executor = executor;
+        this.rowComparator = null;
+        this.rowFilter = null;
+        this.refreshRequested = false;
+        this.refreshRunning = false;
+        this.refreshTask = new Runnable() {
+            @Override
+            public void run() {
+                runRefresh();
+            }
+        };
+        this.tableModelListener = new TableModel.Listener<V>() {
+            @Override
+            public void onRowAdded(TableModel<V> model, int index) {
+                refresh();
+            }
+
+            @Override
+            public void onRowRemoved(TableModel<V> model, int index, List<V> oldRow) {
+                refresh();
+            }
+
+            @Override
+            public void onColumnAdded(TableModel<V> model, int index) {
+                fireDataChanged();
+                refresh();
+            }
+
+            @Override
+            public void onColumnRemoved(TableModel<V> model, int index, String oldHeader, List<V> oldColumn) {
+                fireDataChanged();
+                refresh();
+            }
+
+            @Override
+            public void onCellChanged(TableModel<V> model, int row, int column, V oldValue, V newValue) {
+                fireDataChanged();
+                if(isSortedOrFiltered()) {
+                    refresh();
+                }
+            }
+        };
+
+        // Start out with the rows in model order, that's cheap enough to do here
+        List<List<V>> rowReferences = tableModel.getRowReferences();
+        int[] modelRowIndexes = new int[rowReferences.size()];
+        for(int i = 0; i < modelRowIndexes.length; i++) {
+            modelRowIndexes[i] = i;
+        }
+        setOrdering(rowReferences, modelRowIndexes);
+        tableModel.addListener(tableModelListener);
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if(defaultExecutor == null) {
+            defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "TableModelView");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Returns the table model this view is presenting
+     * @return Table model this view is presenting
+     */
+    public TableModel<V> getTableModel() {
+        return tableModel;
+    }
+
+    /**
+     * Sorts the view by comparing whole rows with a comparator. The sorting is stable, so rows that compare as equal
+     * will stay in model order. Pass in {@code null} to go back to model order.
+     * @param rowComparator Comparator to sort the rows with, or {@code null} for no sorting
+     * @return Itself
+     */
+    public TableModelView<V> setRowComparator(Comparator<? super List<V>> rowComparator) {
+        synchronized(this) {
+            this.rowComparator = rowComparator;
+        }
+        refresh();
+        return this;
+    }
+
+    /**
+     * Sorts the view on the values in one column. If the values are {@link Comparable}, they are compared as such,
+     * otherwise their {@code toString()} values are compared. {@code null} values are placed first.
+     * @param columnIndex Index of the column to sort on
+     * @param ascending {@code true} to sort in ascending order, {@code false} for descending
+     * @return Itself
+     */
+    public TableModelView<V> sortByColumn(final int columnIndex, boolean ascending) {
+        if(columnIndex < 0 || columnIndex >= getColumnCount()) {
+            throw new IllegalArgumentException("Cannot sort on column " + columnIndex + ", the model has " +
+                    getColumnCount() + " columns");
+        }
+        Comparator<List<V>> comparator = new Comparator<List<V>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public int compare(List<V> row1, List<V> row2) {
+                V value1 = columnIndex < row1.size() ? row1.get(columnIndex) : null;
+                V value2 = columnIndex < row2.size() ? row2.get(columnIndex) : null;
+                if(value1 == null || value2 == null) {
+                    return value1 == null ? (value2 == null ? 0 : -1) : 1;
+                }
+                if(value1 instanceof Comparable && value1.getClass().isInstance(value2)) {
+                    return ((Comparable<Object>)value1).compareTo(value2);
+                }
+                return value1.toString().compareTo(value2.toString());
+            }
+        };
+        return setRowComparator(ascending ? comparator : Collections.reverseOrder(comparator));
+    }
+
+    /**
+     * Returns the comparator currently used to sort the view
+     * @return Comparator currently used to sort the view, or {@code null} if the view is in model order
+     */
+    public synchronized Comparator<? super List<V>> getRowComparator() {
+        return rowComparator;
+    }
+
+    /**
+     * Sets the filter deciding which rows from the model to include in the view. Pass in {@code null} to include all
+     * rows.
+     * @param rowFilter Filter to apply, or {@code null} to show all rows
+     * @return Itself
+     */
+    public TableModelView<V> setRowFilter(RowFilter<V> rowFilter) {
+        synchronized(this) {
+            this.rowFilter = rowFilter;
+        }
+        refresh();
+        return this;
+    }
+
+    /**
+     * Returns the filter currently deciding which rows to include in the view
+     * @return Filter currently applied, or {@code null} if all rows are shown
+     */
+    public synchronized RowFilter<V> getRowFilter() {
+        return rowFilter;
+    }
+
+    /**
+     * Schedules the order of the rows to be computed again on the background executor. This is done automatically
+     * when the model, the comparator or the filter changes; if several requests come in while a computation is
+     * already running, they are merged into a single computation that runs once the current one is done.
+     */
+    public void refresh() {
+        synchronized(this) {
+            refreshRequested = true;
+            if(refreshRunning) {
+                return;
+            }
+            refreshRunning = true;
+        }
+        executor.execute(refreshTask);
+    }
+
+    /**
+     * Stops listening to the table model. After this has been called, the view won't pick up any more changes from
+     * the model.
+     */
+    public void close() {
+        tableModel.removeListener(tableModelListener);
+    }
+
+    /**
+     * Returns an object identifying the row at a particular index in the view. The same row will keep returning the
+     * same key even as the view is sorted and filtered and other rows are added or removed, so it can be used with
+     * {@link #getRowIndex(Object)} to find where the row went after the view has changed.
+     * @param rowIndex Index of the row in the view
+     * @return Key identifying the row, or {@code null} if the index is outside of the view
+     */
+    public synchronized Object getRowKey(int rowIndex) {
+        if(rowIndex < 0 || rowIndex >= rows.size()) {
+            return null;
+        }
+        return rows.get(rowIndex);
+    }
+
+    /**
+     * Returns the current index in the view of a row previously identified by {@link #getRowKey(int)}
+     * @param rowKey Key identifying the row
+     * @return Index of the row in the view, or -1 if it's no longer part of the view
+     */
+    public synchronized int getRowIndex(Object rowKey) {
+        Integer rowIndex = rowIndexByKey.get(rowKey);
+        return rowIndex == null ? -1 : rowIndex;
+    }
+
+    /**
+     * Returns the index in the model of a row in the view, as it was when the current order was computed. If rows
+     * have been added to or removed from the model since then, the index may be out of date until the next
+     * computation has finished.
+     * @param rowIndex Index of the row in the view
+     * @return Index of the same row in the model
+     */
+    public synchronized int getModelRowIndex(int rowIndex) {
+        return modelRowIndexes[rowIndex];
+    }
+
+    /**
+     * Returns a number that increases every time a new order of rows has been swapped in
+     * @return Number that increases every time a new order of rows has been swapped in
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    @Override
+    public synchronized int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return tableModel.getColumnCount();
+    }
+
+    @Override
+    public String getColumnLabel(int columnIndex) {
+        return tableModel.getColumnLabel(columnIndex);
+    }
+
+    @Override
+    public V getCell(int columnIndex, int rowIndex) {
+        List<V> row;
+        synchronized(this) {
+            row = rows.get(rowIndex);
+        }
+        synchronized(tableModel) {
+            return columnIndex < row.size() ? row.get(columnIndex) : null;
+        }
+    }
+
+    @Override
+    public List<List<V>> getRows(int firstRow, int count) {
+        List<List<V>> rowReferences;
+        synchronized(this) {
+            int lastRow = Math.min(rows.size(), firstRow + count);
+            rowReferences = new ArrayList<List<V>>(rows.subList(Math.min(firstRow, lastRow), lastRow));
+        }
+        List<List<V>> copy = new ArrayList<List<V>>(rowReferences.size());
+        synchronized(tableModel) {
+            for(List<V> row: rowReferences) {
+                copy.add(new ArrayList<V>(row));
+            }
+        }
+        return copy;
+    }
+
+    private synchronized boolean isSortedOrFiltered() {
+        return rowComparator != null || rowFilter != null;
+    }
+
+    private void runRefresh() {
+        while(true) {
+            final Comparator<? super List<V>> rowComparator;
+            final RowFilter<V> rowFilter;
+            synchronized(this) {
+                if(!refreshRequested) {
+                    refreshRunning = false;
+                    return;
+                }
+                refreshRequested = false;
+                rowComparator = this.rowComparator;
+                rowFilter = this.rowFilter;
+            }
+            try {
+                computeOrdering(rowComparator, rowFilter);
+            }
+            catch(RuntimeException e) {
+                synchronized(this) {
+                    refreshRunning = false;
+                }
+                throw e;
+            }
+            fireDataChanged();
+        }
+    }
+
+    private void computeOrdering(final Comparator<? super List<V>> rowComparator, RowFilter<V> rowFilter) {
+        // Take a copy of the data so that the model isn't locked while we are sorting
+        List<List<V>> rowReferences;
+        final List<List<V>> rowContents;
+        synchronized(tableModel) {
+            rowReferences = tableModel.getRowReferences();
+            rowContents = new ArrayList<List<V>>(rowReferences.size());
+            for(List<V> row: rowReferences) {
+                rowContents.add(new ArrayList<V>(row));
+            }
+        }
+
+        Integer[] order = new Integer[rowContents.size()];
+        int size = 0;
+        for(int i = 0; i < rowContents.size(); i++) {
+            if(rowFilter == null || rowFilter.accept(rowContents.get(i))) {
+                order[size++] = i;
+            }
+        }
+        if(rowComparator != null) {
+            Arrays.sort(order, 0, size, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer index1, Integer index2) {
+                    return rowComparator.compare(rowContents.get(index1), rowContents.get(index2));
+                }
+            });
+        }
+
+        List<List<V>> orderedRows = new ArrayList<List<V>>(size);
+        int[] modelRowIndexes = new int[size];
+        for(int i = 0; i < size; i++) {
+            orderedRows.add(rowReferences.get(order[i]));
+            modelRowIndexes[i] = order[i];
+        }
+        setOrdering(orderedRows, modelRowIndexes);
+    }
+
+    private void setOrdering(List<List<V>> orderedRows, int[] modelRowIndexes) {
+        Map<Object, Integer> rowIndexByKey = new IdentityHashMap<Object, Integer>(orderedRows.size());
+        for(int i = 0; i < orderedRows.size(); i++) {
+            rowIndexByKey.put(orderedRows.get(i), i);
+        }
+        synchronized(this) {
+            this.rows = orderedRows;
+            this.modelRowIndexes = modelRowIndexes;
+            this.rowIndexByKey = rowIndexByKey;
+            this.version++;
+        }
+    }
+}
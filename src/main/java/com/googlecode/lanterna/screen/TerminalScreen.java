@@ -22,6 +22,7 @@ import com.googlecode.lanterna.*;
 import com.googlecode.lanterna.graphics.Scrollable;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.Terminal;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
@@ -43,6 +44,7 @@ public class TerminalScreen extends AbstractScreen {
     private boolean isStarted;
     private boolean fullRedrawHint;
     private ScrollHint scrollHint;
+    private TextCharacter[] cellSpanBuffer;
 
     /**
      * Creates a new Screen on top of a supplied terminal, will query the terminal for its size. The screen is initially
@@ -129,7 +131,12 @@ public class TerminalScreen extends AbstractScreen {
         if(!isStarted) {
             return;
         }
-        if((refreshType == RefreshType.AUTOMATIC && fullRedrawHint) || refreshType == RefreshType.COMPLETE) {
+        if(getTerminal() instanceof CellSpanWritable) {
+            refreshByCellSpans((CellSpanWritable)getTerminal(),
+                    (refreshType == RefreshType.AUTOMATIC && fullRedrawHint) || refreshType == RefreshType.COMPLETE);
+            fullRedrawHint = false;
+        }
+        else if((refreshType == RefreshType.AUTOMATIC && fullRedrawHint) || refreshType == RefreshType.COMPLETE) {
             refreshFull();
             fullRedrawHint = false;
         }
@@ -250,6 +257,51 @@ public class TerminalScreen extends AbstractScreen {
         }
     }
 
+    /**
+     * Updates a terminal that can take cells directly, by writing each run of changed cells on a row as one span. This
+     * doesn't need to go through cursor movements, colors and SGR changes at all, so there is no reason to fall back to
+     * clearing and redrawing everything when there are many changes.
+     * @param cellSpanWritable Terminal to update
+     * @param complete If {@code true}, all cells are written and not only the ones that changed since the last refresh
+     * @throws IOException If there was an underlying I/O error
+     */
+    private void refreshByCellSpans(CellSpanWritable cellSpanWritable, boolean complete) throws IOException {
+        TerminalSize terminalSize = getTerminalSize();
+        if(complete) {
+            scrollHint = null;
+        }
+        else {
+            useScrollHint();
+        }
+        if(cellSpanBuffer == null || cellSpanBuffer.length < terminalSize.getColumns()) {
+            cellSpanBuffer = new TextCharacter[terminalSize.getColumns()];
+        }
+
+        for(int y = 0; y < terminalSize.getRows(); y++) {
+            int spanColumn = 0;
+            int spanLength = 0;
+            for(int x = 0; x < terminalSize.getColumns(); x++) {
+                TextCharacter backBufferCharacter = getBackBuffer().getCharacterAt(x, y);
+                if(complete || !backBufferCharacter.equals(getFrontBuffer().getCharacterAt(x, y))) {
+                    if(spanLength == 0) {
+                        spanColumn = x;
+                    }
+                    cellSpanBuffer[spanLength++] = backBufferCharacter;
+                }
+                else if(spanLength > 0) {
+                    cellSpanWritable.writeCellSpan(spanColumn, y, cellSpanBuffer, 0, spanLength);
+                    spanLength = 0;
+                }
+                if(TerminalTextUtils.isCharCJK(backBufferCharacter.getCharacter())) {
+                    x++;    //Skip the trailing padding, writing the CJK character covers it
+                }
+            }
+            if(spanLength > 0) {
+                cellSpanWritable.writeCellSpan(spanColumn, y, cellSpanBuffer, 0, spanLength);
+            }
+        }
+    }
+
     private void refreshFull() throws IOException {
         getTerminal().setForegroundColor(TextColor.ANSI.DEFAULT);
         getTerminal().setBackgroundColor(TextColor.ANSI.DEFAULT);
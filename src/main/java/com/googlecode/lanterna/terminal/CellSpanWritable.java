@@ -0,0 +1,45 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.TextCharacter;
+
+import java.io.IOException;
+
+/**
+ * Implemented by terminals that store their content as a grid of {@link TextCharacter} cells and can have those cells
+ * set directly. {@link com.googlecode.lanterna.screen.TerminalScreen} uses this, when available, to hand over the
+ * changed parts of its buffer as spans of cells instead of replaying them as cursor movements, color and SGR changes
+ * and single characters.
+ */
+public interface CellSpanWritable {
+    /**
+     * Writes a span of characters into the cells of a row, starting at a given column. Each character takes up one
+     * column, or two columns if it is a double-width character, just like when calling {@code putCharacter}. Unlike
+     * {@code putCharacter}, this doesn't use or change the cursor position or the active colors and modifiers, and
+     * the text never wraps to the next line or scrolls the terminal; characters that don't fit on the row are dropped.
+     * @param column Column of the first cell to write, counted from the left edge of the terminal
+     * @param row Row to write to, counted from the top of the visible area of the terminal
+     * @param characters Array holding the characters to write
+     * @param offset Index in {@code characters} of the first character to write
+     * @param length How many characters to write
+     * @throws IOException If there was an I/O error when writing the characters
+     */
+    void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) throws IOException;
+}
@@ -21,9 +21,11 @@ package com.googlecode.lanterna.terminal.swing;
 import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
@@ -40,7 +42,7 @@ import java.util.concurrent.TimeUnit;
  * @author martin
  */
 @SuppressWarnings("serial")
-public class AWTTerminal extends Panel implements IOSafeTerminal {
+public class AWTTerminal extends Panel implements IOSafeTerminal, CellSpanWritable {
 
     private final AWTTerminalImplementation terminalImplementation;
 
@@ -243,6 +245,11 @@ public class AWTTerminal extends Panel implements IOSafeTerminal {
         terminalImplementation.putCharacter(c);
     }
 
+    @Override
+    public void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        terminalImplementation.writeCellSpan(column, row, characters, offset, length);
+    }
+
     @Override
     public void enableSGR(SGR sgr) {
         terminalImplementation.enableSGR(sgr);
@@ -30,6 +30,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -184,7 +185,15 @@ public class AWTTerminalFontConfiguration {
         return new AWTTerminalFontConfiguration(true, BoldMode.EVERYTHING_BUT_SYMBOLS, fontsInOrderOfPriority);
     }
 
+    private static final int PLAIN_VARIANT = 0;
+    private static final int BOLD_VARIANT = 1;
+    private static final int ITALIC_VARIANT = 2;
+
     private final List<Font> fontPriority;
+    // For each character, index + 1 of the font in fontPriority to draw it with, or 0 if not looked up yet
+    private final short[] fontIndexByCharacter;
+    // Plain, bold and italic versions of each font in fontPriority, derived when first needed
+    private final Font[][] fontVariants;
     private final int fontWidth;
     private final int fontHeight;
     private final boolean useAntiAliasing;
@@ -220,6 +229,12 @@ public class AWTTerminalFontConfiguration {
                 fontPriority.set(i, font);
             }
         }
+
+        this.fontIndexByCharacter = new short[Character.MAX_VALUE + 1];
+        this.fontVariants = new Font[fontPriority.size()][3];
+        for(int i = 0; i < fontPriority.size(); i++) {
+            fontVariants[i][PLAIN_VARIANT] = fontPriority.get(i);
+        }
     }
 
     /**
@@ -231,26 +246,44 @@ public class AWTTerminalFontConfiguration {
      * @return Font which the {@code character} should be drawn using
      */
     Font getFontForCharacter(TextCharacter character) {
-        Font normalFont = getFontForCharacter(character.getCharacter());
+        int fontIndex = getFontIndexForCharacter(character.getCharacter());
+        int variant = PLAIN_VARIANT;
         if(boldMode == BoldMode.EVERYTHING || (boldMode == BoldMode.EVERYTHING_BUT_SYMBOLS && isNotASymbol(character.getCharacter()))) {
             if(character.isBold()) {
-                normalFont = normalFont.deriveFont(Font.BOLD);
+                variant = BOLD_VARIANT;
             }
         }
         if (character.isItalic() ) {
-            normalFont = normalFont.deriveFont(Font.ITALIC);
+            // Deriving an italic font replaces the style, so this is also what bold and italic text gets
+            variant = ITALIC_VARIANT;
+        }
+        Font font = fontVariants[fontIndex][variant];
+        if(font == null) {
+            font = fontPriority.get(fontIndex).deriveFont(variant == BOLD_VARIANT ? Font.BOLD : Font.ITALIC);
+            fontVariants[fontIndex][variant] = font;
         }
-        return normalFont;
+        return font;
     }
 
-    private Font getFontForCharacter(char c) {
-        for(Font font: fontPriority) {
-            if(font.canDisplay(c)) {
-                return font;
+    /**
+     * Finds the first font in the priority list that can display a character. Since {@code Font.canDisplay} is fairly
+     * expensive and this is called for every character drawn, the result is remembered for each character.
+     */
+    private int getFontIndexForCharacter(char c) {
+        int cachedIndex = fontIndexByCharacter[c];
+        if(cachedIndex != 0) {
+            return cachedIndex - 1;
+        }
+        //No available font here, what to do...? Use the first one
+        int fontIndex = 0;
+        for(int i = 0; i < fontPriority.size(); i++) {
+            if(fontPriority.get(i).canDisplay(c)) {
+                fontIndex = i;
+                break;
             }
         }
-        //No available font here, what to do...?
-        return fontPriority.get(0);
+        fontIndexByCharacter[c] = (short)(fontIndex + 1);
+        return fontIndex;
     }
 
     /**
@@ -307,14 +340,14 @@ public class AWTTerminalFontConfiguration {
     }
 
     
-    private static final Set<Character> SYMBOLS_CACHE = new HashSet<Character>();
+    private static final BitSet SYMBOLS_CACHE = new BitSet(Character.MAX_VALUE + 1);
     static {
         for(Field field: Symbols.class.getFields()) {
             if(field.getType() == char.class &&
                     (field.getModifiers() & Modifier.FINAL) != 0 &&
                     (field.getModifiers() & Modifier.STATIC) != 0) {
                 try {
-                    SYMBOLS_CACHE.add(field.getChar(null));
+                    SYMBOLS_CACHE.set(field.getChar(null));
                 }
                 catch(IllegalArgumentException ignore) {
                     //Should never happen!
@@ -327,6 +360,6 @@ public class AWTTerminalFontConfiguration {
     }
     
     private boolean isNotASymbol(char character) {
-        return !SYMBOLS_CACHE.contains(character);
+        return !SYMBOLS_CACHE.get(character);
     }
 }
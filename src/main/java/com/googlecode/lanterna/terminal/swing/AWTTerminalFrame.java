@@ -23,8 +23,10 @@ import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
@@ -47,7 +49,7 @@ import java.util.concurrent.TimeUnit;
  * @author martin
  */
 @SuppressWarnings("serial")
-public class AWTTerminalFrame extends Frame implements IOSafeTerminal {
+public class AWTTerminalFrame extends Frame implements IOSafeTerminal, CellSpanWritable {
     private final AWTTerminal awtTerminal;
     private final EnumSet<TerminalEmulatorAutoCloseTrigger> autoCloseTriggers;
 
@@ -220,6 +222,11 @@ public class AWTTerminalFrame extends Frame implements IOSafeTerminal {
         awtTerminal.putCharacter(c);
     }
 
+    @Override
+    public void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        awtTerminal.writeCellSpan(column, row, characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return awtTerminal.newTextGraphics();
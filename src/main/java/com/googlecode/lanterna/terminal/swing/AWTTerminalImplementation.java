@@ -132,6 +132,21 @@ class AWTTerminalImplementation extends GraphicalTerminalImplementation {
         }
     }
 
+    @Override
+    protected void repaint(final int x, final int y, final int width, final int height) {
+        if(EventQueue.isDispatchThread()) {
+            component.repaint(x, y, width, height);
+        }
+        else {
+            EventQueue.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    component.repaint(x, y, width, height);
+                }
+            });
+        }
+    }
+
     @Override
     public KeyStroke readInput() {
         if(EventQueue.isDispatchThread()) {
@@ -0,0 +1,231 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.swing;
+
+import com.googlecode.lanterna.TextCharacter;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of characters drawn by {@link GraphicalTerminalImplementation}. Every combination of character, font, colors
+ * and decorations is drawn once into a slot of a larger image, the atlas, and then copied from there to the back buffer
+ * every time it shows up again. Copying a block of pixels is much cheaper than having Java2D lay out and draw a string
+ * for every cell. The cell is drawn into the atlas by the same code and with the same rendering hints as when drawing
+ * straight into the back buffer, so the result is identical. When the atlas is full, the slot of the combination that
+ * was used the longest time ago is re-used.
+ */
+class GlyphCache {
+    private static final int SLOTS_PER_ROW = 32;
+
+    private final int capacity;
+    private final LinkedHashMap<GlyphKey, Integer> slots;
+    private final GlyphKey lookupKey;
+
+    private BufferedImage atlas;
+    private Graphics2D atlasGraphics;
+    private int fontWidth;
+    private int fontHeight;
+    private boolean antiAliased;
+
+    /**
+     * Creates a new, empty, glyph cache
+     * @param capacity How many characters can be kept in the cache at most
+     */
+    GlyphCache(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Glyph cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = new LinkedHashMap<GlyphKey, Integer>(capacity * 4 / 3 + 1, 0.75f, true);
+        this.lookupKey = new GlyphKey();
+        this.atlas = null;
+        this.atlasGraphics = null;
+    }
+
+    /**
+     * Draws a character cell, with background, text and decorations, into {@code g}. If the same combination has been
+     * drawn before, the cell is copied from the atlas, otherwise it's first drawn into the atlas.
+     * @param g Graphics to draw the cell with
+     * @param character Character to draw
+     * @param font Font to draw the character with
+     * @param foregroundColor Color of the text
+     * @param backgroundColor Color of the cell background
+     * @param x Left edge of the cell, in pixels
+     * @param y Top edge of the cell, in pixels
+     * @param characterWidth Width of the cell in pixels, which is twice the font width for CJK characters
+     * @param fontWidth Width of a regular cell, in pixels
+     * @param fontHeight Height of a cell, in pixels
+     * @param antiAliased Whether the text is drawn with anti-aliasing
+     */
+    void drawCharacter(
+            Graphics g,
+            TextCharacter character,
+            Font font,
+            Color foregroundColor,
+            Color backgroundColor,
+            int x,
+            int y,
+            int characterWidth,
+            int fontWidth,
+            int fontHeight,
+            boolean antiAliased) {
+
+        if(atlas == null || this.fontWidth != fontWidth || this.fontHeight != fontHeight || this.antiAliased != antiAliased) {
+            initializeAtlas(fontWidth, fontHeight, antiAliased);
+        }
+        lookupKey.set(character, font, foregroundColor, backgroundColor, characterWidth);
+        Integer slot = slots.get(lookupKey);
+        if(slot == null) {
+            if(slots.size() < capacity) {
+                slot = slots.size();
+            }
+            else {
+                Iterator<Map.Entry<GlyphKey, Integer>> iterator = slots.entrySet().iterator();
+                slot = iterator.next().getValue();
+                iterator.remove();
+            }
+            int slotX = getSlotX(slot);
+            int slotY = getSlotY(slot);
+            atlasGraphics.setClip(slotX, slotY, characterWidth, fontHeight);
+            GraphicalTerminalImplementation.drawCharacterCell(
+                    atlasGraphics,
+                    character,
+                    font,
+                    foregroundColor,
+                    backgroundColor,
+                    slotX,
+                    slotY,
+                    characterWidth,
+                    fontHeight);
+            slots.put(new GlyphKey(lookupKey), slot);
+        }
+        int slotX = getSlotX(slot);
+        int slotY = getSlotY(slot);
+        g.drawImage(atlas,
+                x, y, x + characterWidth, y + fontHeight,
+                slotX, slotY, slotX + characterWidth, slotY + fontHeight,
+                null);
+    }
+
+    /**
+     * Drops everything in the cache and releases the atlas
+     */
+    void clear() {
+        slots.clear();
+        if(atlasGraphics != null) {
+            atlasGraphics.dispose();
+        }
+        atlasGraphics = null;
+        atlas = null;
+    }
+
+    private void initializeAtlas(int fontWidth, int fontHeight, boolean antiAliased) {
+        clear();
+        this.fontWidth = fontWidth;
+        this.fontHeight = fontHeight;
+        this.antiAliased = antiAliased;
+
+        // Every slot is wide enough for a CJK character
+        int rows = (capacity + SLOTS_PER_ROW - 1) / SLOTS_PER_ROW;
+        atlas = new BufferedImage(
+                Math.min(capacity, SLOTS_PER_ROW) * fontWidth * 2,
+                rows * fontHeight,
+                BufferedImage.TYPE_INT_RGB);
+        atlasGraphics = atlas.createGraphics();
+        if(antiAliased) {
+            atlasGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            atlasGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        }
+    }
+
+    private int getSlotX(int slot) {
+        return (slot % SLOTS_PER_ROW) * fontWidth * 2;
+    }
+
+    private int getSlotY(int slot) {
+        return (slot / SLOTS_PER_ROW) * fontHeight;
+    }
+
+    private static class GlyphKey {
+        private char character;
+        private Font font;
+        private Color foregroundColor;
+        private Color backgroundColor;
+        private boolean underlined;
+        private boolean crossedOut;
+        private int characterWidth;
+
+        GlyphKey() {
+        }
+
+        GlyphKey(GlyphKey other) {
+            this.character = other.character;
+            this.font = other.font;
+            this.foregroundColor = other.foregroundColor;
+            this.backgroundColor = other.backgroundColor;
+            this.underlined = other.underlined;
+            this.crossedOut = other.crossedOut;
+            this.characterWidth = other.characterWidth;
+        }
+
+        void set(TextCharacter textCharacter, Font font, Color foregroundColor, Color backgroundColor, int characterWidth) {
+            this.character = textCharacter.getCharacter();
+            this.font = font;
+            this.foregroundColor = foregroundColor;
+            this.backgroundColor = backgroundColor;
+            this.underlined = textCharacter.isUnderlined();
+            this.crossedOut = textCharacter.isCrossedOut();
+            this.characterWidth = characterWidth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GlyphKey other = (GlyphKey)o;
+            return character == other.character &&
+                    underlined == other.underlined &&
+                    crossedOut == other.crossedOut &&
+                    characterWidth == other.characterWidth &&
+                    foregroundColor.equals(other.foregroundColor) &&
+                    backgroundColor.equals(other.backgroundColor) &&
+                    font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = character;
+            result = 31 * result + font.hashCode();
+            result = 31 * result + foregroundColor.hashCode();
+            result = 31 * result + backgroundColor.hashCode();
+            result = 31 * result + (underlined ? 1 : 0);
+            result = 31 * result + (crossedOut ? 1 : 0);
+            result = 31 * result + characterWidth;
+            return result;
+        }
+    }
+}
@@ -24,15 +24,19 @@ import com.googlecode.lanterna.input.DefaultKeyDecodingProfile;
 import com.googlecode.lanterna.input.InputDecoder;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import com.googlecode.lanterna.terminal.virtual.DirtyCells;
 import com.googlecode.lanterna.terminal.virtual.VirtualTerminal;
 
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.event.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.StringReader;
@@ -41,7 +45,6 @@ import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This is the class that does the heavy lifting for both {@link AWTTerminal} and {@link SwingTerminal}. It maintains
@@ -50,13 +53,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *
  * @author martin
  */
-abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
+abstract class GraphicalTerminalImplementation implements IOSafeTerminal, CellSpanWritable {
     private final TerminalEmulatorDeviceConfiguration deviceConfiguration;
     private final TerminalEmulatorColorConfiguration colorConfiguration;
     private final DefaultVirtualTerminal virtualTerminal;
     private final BlockingQueue<KeyStroke> keyQueue;
     private final TerminalScrollController scrollController;
     private final DirtyCellsLookupTable dirtyCellsLookupTable;
+    private final GlyphCache glyphCache;
+    private final TextRun textRun;
+    private final DirtyCells blinkingCells;
 
     private final String enquiryString;
 
@@ -64,6 +70,7 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
     private boolean enableInput;
     private Timer blinkTimer;
     private boolean hasBlinkingText;
+    private boolean blinkRepaintPending;
     private boolean blinkOn;
     private boolean bellOn;
     private boolean needFullRedraw;
@@ -113,6 +120,9 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         this.colorConfiguration = colorConfiguration;
         this.scrollController = scrollController;
         this.dirtyCellsLookupTable = new DirtyCellsLookupTable();
+        this.glyphCache = deviceConfiguration.getGlyphCacheSize() > 0 ? new GlyphCache(deviceConfiguration.getGlyphCacheSize()) : null;
+        this.textRun = deviceConfiguration.isTextRunBatching() ? new TextRun() : null;
+        this.blinkingCells = new DirtyCells();
 
         this.cursorIsVisible = true;        //Always start with an activate and visible cursor
         this.enableInput = false;           //Start with input disabled and activate it once the window is visible
@@ -125,6 +135,7 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         this.copybuffer = null;
         this.blinkTimer = null;
         this.hasBlinkingText = false;   // Assume initial content doesn't have any blinking text
+        this.blinkRepaintPending = false;
         this.blinkOn = true;
         this.needFullRedraw = false;
 
@@ -180,6 +191,16 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
      */
     abstract void repaint();
 
+    /**
+     * Called by the {@code GraphicalTerminalImplementation} when it would like the OS to schedule a repaint of a part of
+     * the window
+     * @param x Left edge of the area to repaint, in pixels
+     * @param y Top edge of the area to repaint, in pixels
+     * @param width Width of the area to repaint, in pixels
+     * @param height Height of the area to repaint, in pixels
+     */
+    abstract void repaint(int x, int y, int width, int height);
+
     synchronized void onCreated() {
         startBlinkTimer();
         enableInput = true;
@@ -208,14 +229,21 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         blinkTimer.schedule(new TimerTask() {
             @Override
             public void run() {
-                blinkOn = !blinkOn;
-                if(hasBlinkingText) {
-                    repaint();
-                }
+                blink();
             }
         }, deviceConfiguration.getBlinkLengthInMilliSeconds(), deviceConfiguration.getBlinkLengthInMilliSeconds());
     }
 
+    /**
+     * Called by the blink timer on every tick, switches the blinking text and cursor on or off
+     */
+    synchronized void blink() {
+        blinkOn = !blinkOn;
+        if(hasBlinkingText) {
+            repaintBlinkingCells();
+        }
+    }
+
     /**
      * Stops the timer the triggers blinking
      */
@@ -255,8 +283,6 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         boolean needToUpdateBackBuffer =
                 // User has used the scrollbar, we need to update the back buffer to reflect this
                 lastBufferUpdateScrollPosition != scrollController.getScrollingOffset() ||
-                        // There is blinking text to update
-                        hasBlinkingText ||
                         // We simply have a hint that we should update everything
                         needFullRedraw;
 
@@ -274,6 +300,10 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         if(needToUpdateBackBuffer) {
             updateBackBuffer(scrollController.getScrollingOffset());
         }
+        else if(blinkRepaintPending) {
+            // Nothing but the blinking text and cursor has changed
+            updateBlinkingCells(scrollController.getScrollingOffset());
+        }
 
         ensureGraphicBufferHasRightSize();
         Rectangle clipBounds = componentGraphics.getClipBounds();
@@ -322,16 +352,14 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         final int lastVisibleRowIndex = (scrollOffsetFromTopInPixels + getHeight()) / fontHeight;
 
         //Setup the graphics object
-        ensureGraphicBufferHasRightSize();
-        final Graphics2D backbufferGraphics = backbuffer.createGraphics();
-
-        if(isTextAntiAliased()) {
-            backbufferGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            backbufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        }
+        final Graphics2D backbufferGraphics = createBackbufferGraphics();
 
-        final AtomicBoolean foundBlinkingCharacters = new AtomicBoolean(deviceConfiguration.isCursorBlinking());
+        // The blinking cells are collected again as we go through all visible cells
+        blinkingCells.clear();
         buildDirtyCellsLookupTable(firstVisibleRowIndex, lastVisibleRowIndex);
+        if(textRun != null) {
+            textRun.begin(backbufferGraphics, fontWidth, fontHeight, scrollOffsetFromTopInPixels);
+        }
 
         // Detect scrolling
         if(lastBufferUpdateScrollPosition < scrollOffsetFromTopInPixels) {
@@ -401,57 +429,39 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
             public void onLine(int rowNumber, VirtualTerminal.BufferLine bufferLine) {
                 for(int column = 0; column < viewportSize.getColumns(); column++) {
                     TextCharacter textCharacter = bufferLine.getCharacterAt(column);
-                    boolean atCursorLocation = cursorPosition.equals(column, rowNumber);
-                    //If next position is the cursor location and this is a CJK character (i.e. cursor is on the padding),
-                    //consider this location the cursor position since otherwise the cursor will be skipped
-                    if(!atCursorLocation &&
-                            cursorPosition.getColumn() == column + 1 &&
-                            cursorPosition.getRow() == rowNumber &&
-                            TerminalTextUtils.isCharCJK(textCharacter.getCharacter())) {
-                        atCursorLocation = true;
-                    }
-                    boolean isBlinking = textCharacter.getModifiers().contains(SGR.BLINK);
+                    boolean isBlinking = textCharacter.isBlinking();
                     if(isBlinking) {
-                        foundBlinkingCharacters.set(true);
+                        blinkingCells.set(column, rowNumber);
                     }
                     if(dirtyCellsLookupTable.isAllDirty() || dirtyCellsLookupTable.isDirty(rowNumber, column) || isBlinking) {
-                        int characterWidth = fontWidth * (TerminalTextUtils.isCharCJK(textCharacter.getCharacter()) ? 2 : 1);
-                        Color foregroundColor = deriveTrueForegroundColor(textCharacter, atCursorLocation);
-                        Color backgroundColor = deriveTrueBackgroundColor(textCharacter, atCursorLocation);
-                        boolean drawCursor = atCursorLocation &&
-                                (!deviceConfiguration.isCursorBlinking() ||     //Always draw if the cursor isn't blinking
-                                        (deviceConfiguration.isCursorBlinking() && blinkOn));    //If the cursor is blinking, only draw when blinkOn is true
-
-                        // Visualize bell as all colors inverted
-                        if(bellOn) {
-                            Color temp = foregroundColor;
-                            foregroundColor = backgroundColor;
-                            backgroundColor = temp;
-                        }
-
-                        drawCharacter(backbufferGraphics,
+                        drawCell(backbufferGraphics,
                                 textCharacter,
                                 column,
                                 rowNumber,
-                                foregroundColor,
-                                backgroundColor,
+                                cursorPosition,
                                 fontWidth,
                                 fontHeight,
-                                characterWidth,
                                 scrollOffsetFromTopInPixels,
-                                drawCursor);
+                                textRun);
                     }
                     if(TerminalTextUtils.isCharCJK(textCharacter.getCharacter())) {
                         column++; //Skip the trailing space after a CJK character
                     }
                 }
+                if(textRun != null) {
+                    textRun.flush();
+                }
             }
         });
+        if(textRun != null) {
+            textRun.end();
+        }
 
         backbufferGraphics.dispose();
 
         // Update the blink status according to if there were any blinking characters or not
-        this.hasBlinkingText = foundBlinkingCharacters.get();
+        this.hasBlinkingText = deviceConfiguration.isCursorBlinking() || !blinkingCells.isEmpty();
+        this.blinkRepaintPending = false;
         this.lastDrawnCursorPosition = cursorPosition;
         this.lastBufferUpdateScrollPosition = scrollOffsetFromTopInPixels;
         this.needFullRedraw = false;
@@ -459,6 +469,180 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         //System.out.println("Updated backbuffer in " + (System.currentTimeMillis() - startTime) + " ms");
     }
 
+    /**
+     * Called by the blink timer to schedule a repaint of just the area covered by the blinking text and the cursor,
+     * which are then redrawn by {@link #updateBlinkingCells(int)} on the next paint.
+     */
+    private synchronized void repaintBlinkingCells() {
+        int fontWidth = getFontWidth();
+        int fontHeight = getFontHeight();
+        int scrollOffsetFromTopInPixels = scrollController.getScrollingOffset();
+        int firstVisibleRowIndex = scrollOffsetFromTopInPixels / fontHeight;
+        int lastVisibleRowIndex = (scrollOffsetFromTopInPixels + getHeight()) / fontHeight;
+
+        Rectangle region = null;
+        int firstRow = Math.max(firstVisibleRowIndex, blinkingCells.getFirstRow());
+        int lastRow = Math.min(lastVisibleRowIndex, blinkingCells.getEndRow() - 1);
+        for(int row = firstRow; row <= lastRow; row++) {
+            int firstColumn = blinkingCells.nextSetColumn(row, 0);
+            if(firstColumn == -1) {
+                continue;
+            }
+            int lastColumn = firstColumn;
+            for(int column = firstColumn; column != -1; column = blinkingCells.nextSetColumn(row, column + 1)) {
+                lastColumn = column;
+            }
+            // Leave room for the last character being a CJK character
+            Rectangle rowRegion = new Rectangle(
+                    firstColumn * fontWidth,
+                    row * fontHeight - scrollOffsetFromTopInPixels,
+                    (lastColumn - firstColumn + 2) * fontWidth,
+                    fontHeight);
+            region = region == null ? rowRegion : region.union(rowRegion);
+        }
+        if(deviceConfiguration.isCursorBlinking()) {
+            TerminalPosition cursorPosition = virtualTerminal.getCursorBufferPosition();
+            Rectangle cursorRegion = new Rectangle(
+                    Math.max(0, cursorPosition.getColumn() - 1) * fontWidth,
+                    cursorPosition.getRow() * fontHeight - scrollOffsetFromTopInPixels,
+                    fontWidth * 3,
+                    fontHeight);
+            region = region == null ? cursorRegion : region.union(cursorRegion);
+        }
+        if(region != null) {
+            blinkRepaintPending = true;
+            repaint(region.x, region.y, region.width, region.height);
+        }
+    }
+
+    /**
+     * Redraws only the blinking cells and the cursor into the back buffer. This is used instead of
+     * {@link #updateBackBuffer(int)} when the blink timer is the only reason for repainting, so that every other cell
+     * can be left as it is.
+     */
+    private void updateBlinkingCells(final int scrollOffsetFromTopInPixels) {
+        final int fontWidth = getFontWidth();
+        final int fontHeight = getFontHeight();
+        final TerminalPosition cursorPosition = virtualTerminal.getCursorBufferPosition();
+        final int columns = virtualTerminal.getTerminalSize().getColumns();
+        final boolean drawCursorCell = deviceConfiguration.isCursorBlinking();
+
+        int firstVisibleRowIndex = scrollOffsetFromTopInPixels / fontHeight;
+        int lastVisibleRowIndex = (scrollOffsetFromTopInPixels + getHeight()) / fontHeight;
+        int firstRow = Math.max(firstVisibleRowIndex, blinkingCells.getFirstRow());
+        int lastRow = Math.min(lastVisibleRowIndex, blinkingCells.getEndRow() - 1);
+        if(drawCursorCell &&
+                cursorPosition.getRow() >= firstVisibleRowIndex &&
+                cursorPosition.getRow() <= lastVisibleRowIndex) {
+            firstRow = Math.min(firstRow, cursorPosition.getRow());
+            lastRow = Math.max(lastRow, cursorPosition.getRow());
+        }
+
+        final Graphics2D backbufferGraphics = createBackbufferGraphics();
+        virtualTerminal.forEachLine(firstRow, lastRow, new VirtualTerminal.BufferWalker() {
+            @Override
+            public void onLine(int rowNumber, VirtualTerminal.BufferLine bufferLine) {
+                for(int column = blinkingCells.nextSetColumn(rowNumber, 0);
+                        column != -1 && column < columns;
+                        column = blinkingCells.nextSetColumn(rowNumber, column + 1)) {
+                    drawCell(backbufferGraphics,
+                            bufferLine.getCharacterAt(column),
+                            column,
+                            rowNumber,
+                            cursorPosition,
+                            fontWidth,
+                            fontHeight,
+                            scrollOffsetFromTopInPixels,
+                            null);
+                }
+                if(drawCursorCell && rowNumber == cursorPosition.getRow() && cursorPosition.getColumn() < columns) {
+                    int column = cursorPosition.getColumn();
+                    // If the cursor is on the padding of a CJK character, the cursor is drawn on the character itself
+                    if(column > 0 && TerminalTextUtils.isCharCJK(bufferLine.getCharacterAt(column - 1).getCharacter())) {
+                        column--;
+                    }
+                    drawCell(backbufferGraphics,
+                            bufferLine.getCharacterAt(column),
+                            column,
+                            rowNumber,
+                            cursorPosition,
+                            fontWidth,
+                            fontHeight,
+                            scrollOffsetFromTopInPixels,
+                            null);
+                }
+            }
+        });
+        backbufferGraphics.dispose();
+        blinkRepaintPending = false;
+    }
+
+    private Graphics2D createBackbufferGraphics() {
+        ensureGraphicBufferHasRightSize();
+        Graphics2D backbufferGraphics = backbuffer.createGraphics();
+        if(isTextAntiAliased()) {
+            backbufferGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            backbufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        }
+        return backbufferGraphics;
+    }
+
+    /**
+     * Works out the colors and the cursor for a cell and draws it, either right away or as part of {@code textRun} if
+     * that's not {@code null}
+     */
+    private void drawCell(
+            Graphics2D backbufferGraphics,
+            TextCharacter textCharacter,
+            int column,
+            int rowNumber,
+            TerminalPosition cursorPosition,
+            int fontWidth,
+            int fontHeight,
+            int scrollOffsetFromTopInPixels,
+            TextRun textRun) {
+
+        boolean atCursorLocation = cursorPosition.equals(column, rowNumber);
+        //If next position is the cursor location and this is a CJK character (i.e. cursor is on the padding),
+        //consider this location the cursor position since otherwise the cursor will be skipped
+        if(!atCursorLocation &&
+                cursorPosition.getColumn() == column + 1 &&
+                cursorPosition.getRow() == rowNumber &&
+                TerminalTextUtils.isCharCJK(textCharacter.getCharacter())) {
+            atCursorLocation = true;
+        }
+        int characterWidth = fontWidth * (TerminalTextUtils.isCharCJK(textCharacter.getCharacter()) ? 2 : 1);
+        Color foregroundColor = deriveTrueForegroundColor(textCharacter, atCursorLocation);
+        Color backgroundColor = deriveTrueBackgroundColor(textCharacter, atCursorLocation);
+        boolean drawCursor = atCursorLocation &&
+                (!deviceConfiguration.isCursorBlinking() ||     //Always draw if the cursor isn't blinking
+                        (deviceConfiguration.isCursorBlinking() && blinkOn));    //If the cursor is blinking, only draw when blinkOn is true
+
+        // Visualize bell as all colors inverted
+        if(bellOn) {
+            Color temp = foregroundColor;
+            foregroundColor = backgroundColor;
+            backgroundColor = temp;
+        }
+
+        if(textRun != null && !drawCursor && characterWidth == fontWidth) {
+            textRun.add(textCharacter, column, rowNumber, foregroundColor, backgroundColor);
+        }
+        else {
+            drawCharacter(backbufferGraphics,
+                    textCharacter,
+                    column,
+                    rowNumber,
+                    foregroundColor,
+                    backgroundColor,
+                    fontWidth,
+                    fontHeight,
+                    characterWidth,
+                    scrollOffsetFromTopInPixels,
+                    drawCursor);
+        }
+    }
+
     private void buildDirtyCellsLookupTable(int firstRowOffset, int lastRowOffset) {
         if(virtualTerminal.isWholeBufferDirtyThenReset() || needFullRedraw) {
             dirtyCellsLookupTable.setAllDirty();
@@ -480,10 +664,7 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
             dirtyCellsLookupTable.setDirty(lastDrawnCursorPosition);
         }
 
-        TreeSet<TerminalPosition> dirtyCells = virtualTerminal.getAndResetDirtyCells();
-        for(TerminalPosition position: dirtyCells) {
-            dirtyCellsLookupTable.setDirty(position);
-        }
+        dirtyCellsLookupTable.addDirtyCellsFrom(virtualTerminal);
     }
 
     private void ensureGraphicBufferHasRightSize() {
@@ -527,12 +708,52 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
 
         int x = columnIndex * fontWidth;
         int y = rowIndex * fontHeight - scrollingOffsetInPixels;
-        g.setColor(backgroundColor);
         g.setClip(x, y, characterWidth, fontHeight);
+        Font font = getFontForCharacter(character);
+        if(glyphCache != null) {
+            glyphCache.drawCharacter(g, character, font, foregroundColor, backgroundColor, x, y, characterWidth, fontWidth, fontHeight, isTextAntiAliased());
+        }
+        else {
+            drawCharacterCell(g, character, font, foregroundColor, backgroundColor, x, y, characterWidth, fontHeight);
+        }
+
+        if(drawCursor) {
+            if(deviceConfiguration.getCursorColor() == null) {
+                g.setColor(foregroundColor);
+            }
+            else {
+                g.setColor(colorConfiguration.toAWTColor(deviceConfiguration.getCursorColor(), false, false));
+            }
+            if(deviceConfiguration.getCursorStyle() == TerminalEmulatorDeviceConfiguration.CursorStyle.UNDER_BAR) {
+                g.fillRect(x, y + fontHeight - 3, characterWidth, 2);
+            }
+            else if(deviceConfiguration.getCursorStyle() == TerminalEmulatorDeviceConfiguration.CursorStyle.VERTICAL_BAR) {
+                g.fillRect(x, y + 1, 2, fontHeight - 2);
+            }
+        }
+    }
+
+
+    /**
+     * Draws the background, text and decorations of a single character cell. The caller is responsible for setting the
+     * clip to the cell area. This is also used by {@link GlyphCache} to fill its atlas, so that cached and non-cached
+     * cells look exactly the same.
+     */
+    static void drawCharacterCell(
+            Graphics g,
+            TextCharacter character,
+            Font font,
+            Color foregroundColor,
+            Color backgroundColor,
+            int x,
+            int y,
+            int characterWidth,
+            int fontHeight) {
+
+        g.setColor(backgroundColor);
         g.fillRect(x, y, characterWidth, fontHeight);
 
         g.setColor(foregroundColor);
-        Font font = getFontForCharacter(character);
         g.setFont(font);
         FontMetrics fontMetrics = g.getFontMetrics();
         g.drawString(Character.toString(character.getCharacter()), x, y + fontHeight - fontMetrics.getDescent() + 1);
@@ -551,24 +772,46 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
             int lineEndX = lineStartX + characterWidth;
             g.drawLine(lineStartX, lineStartY, lineEndX, lineStartY);
         }
+    }
 
-        if(drawCursor) {
-            if(deviceConfiguration.getCursorColor() == null) {
-                g.setColor(foregroundColor);
-            }
-            else {
-                g.setColor(colorConfiguration.toAWTColor(deviceConfiguration.getCursorColor(), false, false));
-            }
-            if(deviceConfiguration.getCursorStyle() == TerminalEmulatorDeviceConfiguration.CursorStyle.UNDER_BAR) {
-                g.fillRect(x, y + fontHeight - 3, characterWidth, 2);
-            }
-            else if(deviceConfiguration.getCursorStyle() == TerminalEmulatorDeviceConfiguration.CursorStyle.VERTICAL_BAR) {
-                g.fillRect(x, y + 1, 2, fontHeight - 2);
-            }
+    /**
+     * Draws a run of characters that all share the same font, colors and decorations, placed next to each other on the
+     * same row. Each character must have an advance of exactly one cell and must not draw anything outside its cell,
+     * in which case this gives the same result as drawing them one at a time with {@link #drawCharacterCell}.
+     */
+    private static void drawTextRun(
+            Graphics g,
+            char[] characters,
+            int length,
+            TextCharacter style,
+            Font font,
+            Color foregroundColor,
+            Color backgroundColor,
+            int x,
+            int y,
+            int fontWidth,
+            int fontHeight) {
+
+        int runWidth = fontWidth * length;
+        g.setClip(x, y, runWidth, fontHeight);
+        g.setColor(backgroundColor);
+        g.fillRect(x, y, runWidth, fontHeight);
+
+        g.setColor(foregroundColor);
+        g.setFont(font);
+        FontMetrics fontMetrics = g.getFontMetrics();
+        g.drawChars(characters, 0, length, x, y + fontHeight - fontMetrics.getDescent() + 1);
+
+        if(style.isCrossedOut()) {
+            int lineStartY = y + (fontHeight / 2);
+            g.drawLine(x, lineStartY, x + runWidth, lineStartY);
+        }
+        if(style.isUnderlined()) {
+            int lineStartY = y + fontHeight - fontMetrics.getDescent() + 1;
+            g.drawLine(x, lineStartY, x + runWidth, lineStartY);
         }
     }
 
-
     private Color deriveTrueForegroundColor(TextCharacter character, boolean atCursorLocation) {
         TextColor foregroundColor = character.getForegroundColor();
         TextColor backgroundColor = character.getBackgroundColor();
@@ -716,6 +959,11 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         virtualTerminal.putCharacter(c);
     }
 
+    @Override
+    public synchronized void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        virtualTerminal.writeCellSpan(column, row, characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return virtualTerminal.newTextGraphics();
@@ -999,35 +1247,169 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         }
     }
 
+    /**
+     * Collects consecutive dirty cells on a row that can be drawn together, see
+     * {@link TerminalEmulatorDeviceConfiguration#isTextRunBatching()}. Cells are added while going through the row and
+     * the run is drawn as soon as a cell that doesn't fit into it comes up, or when {@link #flush()} is called.
+     */
+    private class TextRun {
+        private final GlyphFitLookup glyphFitLookup;
+        private Graphics2D graphics;
+        private int fontWidth;
+        private int fontHeight;
+        private int scrollOffsetInPixels;
+
+        private char[] characters;
+        private int length;
+        private int startColumn;
+        private int row;
+        private TextCharacter firstCharacter;
+        private Font font;
+        private Color foregroundColor;
+        private Color backgroundColor;
+
+        TextRun() {
+            this.glyphFitLookup = new GlyphFitLookup();
+            this.characters = new char[256];
+            this.length = 0;
+        }
+
+        void begin(Graphics2D graphics, int fontWidth, int fontHeight, int scrollOffsetInPixels) {
+            this.graphics = graphics;
+            this.fontWidth = fontWidth;
+            this.fontHeight = fontHeight;
+            this.scrollOffsetInPixels = scrollOffsetInPixels;
+            this.length = 0;
+            glyphFitLookup.prepare(graphics.getFontRenderContext(), fontWidth);
+        }
+
+        void add(TextCharacter character, int column, int row, Color foregroundColor, Color backgroundColor) {
+            Font font = getFontForCharacter(character);
+            if(!glyphFitLookup.fitsInCell(font, character.getCharacter())) {
+                flush();
+                drawCharacter(graphics, character, column, row, foregroundColor, backgroundColor, fontWidth, fontHeight, fontWidth, scrollOffsetInPixels, false);
+                return;
+            }
+            if(length > 0 &&
+                    (column != startColumn + length ||
+                    row != this.row ||
+                    (font != this.font && !font.equals(this.font)) ||
+                    character.isUnderlined() != firstCharacter.isUnderlined() ||
+                    character.isCrossedOut() != firstCharacter.isCrossedOut() ||
+                    !foregroundColor.equals(this.foregroundColor) ||
+                    !backgroundColor.equals(this.backgroundColor))) {
+                flush();
+            }
+            if(length == 0) {
+                this.startColumn = column;
+                this.row = row;
+                this.firstCharacter = character;
+                this.font = font;
+                this.foregroundColor = foregroundColor;
+                this.backgroundColor = backgroundColor;
+            }
+            if(length == characters.length) {
+                characters = Arrays.copyOf(characters, length * 2);
+            }
+            characters[length++] = character.getCharacter();
+        }
+
+        void flush() {
+            if(length == 1) {
+                drawCharacter(graphics, firstCharacter, startColumn, row, foregroundColor, backgroundColor, fontWidth, fontHeight, fontWidth, scrollOffsetInPixels, false);
+            }
+            else if(length > 1) {
+                drawTextRun(graphics,
+                        characters,
+                        length,
+                        firstCharacter,
+                        font,
+                        foregroundColor,
+                        backgroundColor,
+                        startColumn * fontWidth,
+                        row * fontHeight - scrollOffsetInPixels,
+                        fontWidth,
+                        fontHeight);
+            }
+            length = 0;
+            firstCharacter = null;
+        }
+
+        void end() {
+            flush();
+            graphics = null;
+        }
+    }
+
+    /**
+     * Keeps track of which characters can safely be drawn as part of a run, for each font. A character qualifies if
+     * it advances by exactly one cell and all of its pixels are inside the cell, so that drawing it together with its
+     * neighbours doesn't change what ends up on screen. Characters that may need complex text layout are never drawn
+     * as part of a run.
+     */
+    private static class GlyphFitLookup {
+        private final Map<Font, BitSet[]> checkedAndFitting;
+        private FontRenderContext fontRenderContext;
+        private int fontWidth;
+
+        GlyphFitLookup() {
+            this.checkedAndFitting = new HashMap<Font, BitSet[]>();
+            this.fontRenderContext = null;
+            this.fontWidth = -1;
+        }
+
+        void prepare(FontRenderContext fontRenderContext, int fontWidth) {
+            if(!fontRenderContext.equals(this.fontRenderContext) || fontWidth != this.fontWidth) {
+                checkedAndFitting.clear();
+                this.fontRenderContext = fontRenderContext;
+                this.fontWidth = fontWidth;
+            }
+        }
+
+        boolean fitsInCell(Font font, char character) {
+            if(character >= 0x300 && (character < 0x2000 || character >= 0x2C00)) {
+                return false;
+            }
+            BitSet[] bitSets = checkedAndFitting.get(font);
+            if(bitSets == null) {
+                bitSets = new BitSet[] { new BitSet(), new BitSet() };
+                checkedAndFitting.put(font, bitSets);
+            }
+            if(!bitSets[0].get(character)) {
+                bitSets[0].set(character);
+                GlyphVector glyphVector = font.createGlyphVector(fontRenderContext, new char[] { character });
+                if(glyphVector.getNumGlyphs() == 1 && glyphVector.getGlyphMetrics(0).getAdvanceX() == fontWidth) {
+                    Rectangle bounds = glyphVector.getPixelBounds(fontRenderContext, 0, 0);
+                    if(bounds.isEmpty() || (bounds.x >= 0 && bounds.x + bounds.width <= fontWidth)) {
+                        bitSets[1].set(character);
+                    }
+                }
+            }
+            return bitSets[1].get(character);
+        }
+    }
+
     private static class DirtyCellsLookupTable {
-        private final List<BitSet> table;
+        private final DirtyCells table;
         private int firstRowIndex;
+        private int lastRowIndex;
+        private int columns;
         private boolean allDirty;
 
         DirtyCellsLookupTable() {
-            table = new ArrayList<BitSet>();
+            table = new DirtyCells();
             firstRowIndex = -1;
+            lastRowIndex = -1;
+            columns = 0;
             allDirty = false;
         }
 
         void resetAndInitialize(int firstRowIndex, int lastRowIndex, int columns) {
             this.firstRowIndex = firstRowIndex;
+            this.lastRowIndex = lastRowIndex;
+            this.columns = columns;
             this.allDirty = false;
-            int rows = lastRowIndex - firstRowIndex + 1;
-            while(table.size() < rows) {
-                table.add(new BitSet(columns));
-            }
-            while(table.size() > rows) {
-                table.remove(table.size() - 1);
-            }
-            for(int index = 0; index < table.size(); index++) {
-                if(table.get(index).size() != columns) {
-                    table.set(index, new BitSet(columns));
-                }
-                else {
-                    table.get(index).clear();
-                }
-            }
+            table.clear();
         }
 
         void setAllDirty() {
@@ -1039,40 +1421,37 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         }
 
         void setDirty(TerminalPosition position) {
-            if(position.getRow() < firstRowIndex ||
-                    position.getRow() >= firstRowIndex + table.size()) {
+            if(position.getRow() < firstRowIndex || position.getRow() > lastRowIndex) {
                 return;
             }
-            BitSet tableRow = table.get(position.getRow() - firstRowIndex);
-            if(position.getColumn() < tableRow.size()) {
-                tableRow.set(position.getColumn());
+            if(position.getColumn() < columns) {
+                table.set(position.getColumn(), position.getRow());
             }
         }
 
+        void addDirtyCellsFrom(DefaultVirtualTerminal virtualTerminal) {
+            // Cells outside of the visible area are picked up too, but they are never looked up by isDirty
+            virtualTerminal.getAndResetDirtyCells(table);
+        }
+
         void setRowDirty(int rowNumber) {
-            BitSet row = table.get(rowNumber - firstRowIndex);
-            row.set(0, row.size());
+            table.setRange(rowNumber, 0, columns);
         }
 
         void setColumnDirty(int column) {
-            for(BitSet row: table) {
-                if(column < row.size()) {
-                    row.set(column);
-                }
+            if(column >= columns) {
+                return;
+            }
+            for(int row = firstRowIndex; row <= lastRowIndex; row++) {
+                table.set(column, row);
             }
         }
 
         boolean isDirty(int row, int column) {
-            if(row < firstRowIndex || row >= firstRowIndex + table.size()) {
-                return false;
-            }
-            BitSet tableRow = table.get(row - firstRowIndex);
-            if(column < tableRow.size()) {
-                return tableRow.get(column);
-            }
-            else {
+            if(row < firstRowIndex || row > lastRowIndex || column >= columns) {
                 return false;
             }
+            return table.isSet(column, row);
         }
     }
 }
\ No newline at end of file
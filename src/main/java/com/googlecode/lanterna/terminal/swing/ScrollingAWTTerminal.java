@@ -22,8 +22,10 @@ import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
@@ -40,7 +42,7 @@ import java.util.concurrent.TimeUnit;
  * @author Martin
  */
 @SuppressWarnings("serial")
-public class ScrollingAWTTerminal extends Container implements IOSafeTerminal {
+public class ScrollingAWTTerminal extends Container implements IOSafeTerminal, CellSpanWritable {
 
     private final AWTTerminal awtTerminal;
     private final Scrollbar scrollBar;
@@ -227,6 +229,11 @@ public class ScrollingAWTTerminal extends Container implements IOSafeTerminal {
         awtTerminal.putCharacter(c);
     }
 
+    @Override
+    public void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        awtTerminal.writeCellSpan(column, row, characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return awtTerminal.newTextGraphics();
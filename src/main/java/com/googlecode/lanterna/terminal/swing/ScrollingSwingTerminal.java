@@ -22,8 +22,10 @@ import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
@@ -41,7 +43,7 @@ import javax.swing.*;
  * @author Martin
  */
 @SuppressWarnings("serial")
-public class ScrollingSwingTerminal extends JComponent implements IOSafeTerminal {
+public class ScrollingSwingTerminal extends JComponent implements IOSafeTerminal, CellSpanWritable {
 
     private final SwingTerminal swingTerminal;
     private final JScrollBar scrollBar;
@@ -228,6 +230,11 @@ public class ScrollingSwingTerminal extends JComponent implements IOSafeTerminal
         swingTerminal.putCharacter(c);
     }
 
+    @Override
+    public void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        swingTerminal.writeCellSpan(column, row, characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return swingTerminal.newTextGraphics();
@@ -21,9 +21,11 @@ package com.googlecode.lanterna.terminal.swing;
 import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
@@ -41,7 +43,7 @@ import java.util.concurrent.TimeUnit;
  * @author martin
  */
 @SuppressWarnings("serial")
-public class SwingTerminal extends JComponent implements IOSafeTerminal {
+public class SwingTerminal extends JComponent implements IOSafeTerminal, CellSpanWritable {
 
     private final SwingTerminalImplementation terminalImplementation;
 
@@ -235,6 +237,11 @@ public class SwingTerminal extends JComponent implements IOSafeTerminal {
         terminalImplementation.putCharacter(c);
     }
 
+    @Override
+    public void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        terminalImplementation.writeCellSpan(column, row, characters, offset, length);
+    }
+
     @Override
     public void enableSGR(SGR sgr) {
         terminalImplementation.enableSGR(sgr);
@@ -23,8 +23,10 @@ import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
@@ -43,7 +45,7 @@ import javax.swing.*;
  * @author martin
  */
 @SuppressWarnings("serial")
-public class SwingTerminalFrame extends JFrame implements IOSafeTerminal {
+public class SwingTerminalFrame extends JFrame implements IOSafeTerminal, CellSpanWritable {
     private final SwingTerminal swingTerminal;
     private final EnumSet<TerminalEmulatorAutoCloseTrigger> autoCloseTriggers;
     private boolean disposed;
@@ -238,6 +240,11 @@ public class SwingTerminalFrame extends JFrame implements IOSafeTerminal {
         swingTerminal.putCharacter(c);
     }
 
+    @Override
+    public void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        swingTerminal.writeCellSpan(column, row, characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return swingTerminal.newTextGraphics();
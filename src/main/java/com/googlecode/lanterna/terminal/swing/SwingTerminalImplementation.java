@@ -143,6 +143,21 @@ class SwingTerminalImplementation extends GraphicalTerminalImplementation {
         }
     }
 
+    @Override
+    protected void repaint(final int x, final int y, final int width, final int height) {
+        if(SwingUtilities.isEventDispatchThread()) {
+            component.repaint(x, y, width, height);
+        }
+        else {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    component.repaint(x, y, width, height);
+                }
+            });
+        }
+    }
+
     @Override
     public com.googlecode.lanterna.input.KeyStroke readInput() {
         if(SwingUtilities.isEventDispatchThread()) {
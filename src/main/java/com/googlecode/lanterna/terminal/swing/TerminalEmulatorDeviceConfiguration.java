@@ -42,13 +42,15 @@ public class TerminalEmulatorDeviceConfiguration {
     private final TextColor cursorColor;
     private final boolean cursorBlinking;
     private final boolean clipboardAvailable;
+    private final int glyphCacheSize;
+    private final boolean textRunBatching;
 
     /**
      * Creates a new terminal device configuration object with all the defaults set
      */
     @SuppressWarnings("WeakerAccess")
     public TerminalEmulatorDeviceConfiguration() {
-        this(2000, 500, CursorStyle.REVERSED, new TextColor.RGB(255, 255, 255), false, true);
+        this(2000, 500, CursorStyle.REVERSED, new TextColor.RGB(255, 255, 255), false, true, 1024, true);
     }
 
     /**
@@ -88,12 +90,65 @@ public class TerminalEmulatorDeviceConfiguration {
             boolean cursorBlinking,
             boolean clipboardAvailable) {
 
+        this(lineBufferScrollbackSize, blinkLengthInMilliSeconds, cursorStyle, cursorColor, cursorBlinking, clipboardAvailable, 1024);
+    }
+
+    /**
+     * Creates a new terminal device configuration object with all configurable values specified.
+     * @param lineBufferScrollbackSize How many lines of scrollback buffer should the terminal save?
+     * @param blinkLengthInMilliSeconds How many milliseconds does a 'blink' last
+     * @param cursorStyle Style of the terminal text cursor
+     * @param cursorColor Color of the terminal text cursor
+     * @param cursorBlinking Should the terminal text cursor blink?
+     * @param clipboardAvailable Should the terminal support pasting text from the clipboard?
+     * @param glyphCacheSize How many drawn characters should the terminal keep around for re-use, 0 disables the cache
+     */
+    @SuppressWarnings("WeakerAccess")
+    public TerminalEmulatorDeviceConfiguration(
+            int lineBufferScrollbackSize,
+            int blinkLengthInMilliSeconds,
+            CursorStyle cursorStyle,
+            TextColor cursorColor,
+            boolean cursorBlinking,
+            boolean clipboardAvailable,
+            int glyphCacheSize) {
+
+        this(lineBufferScrollbackSize, blinkLengthInMilliSeconds, cursorStyle, cursorColor, cursorBlinking, clipboardAvailable, glyphCacheSize, true);
+    }
+
+    /**
+     * Creates a new terminal device configuration object with all configurable values specified.
+     * @param lineBufferScrollbackSize How many lines of scrollback buffer should the terminal save?
+     * @param blinkLengthInMilliSeconds How many milliseconds does a 'blink' last
+     * @param cursorStyle Style of the terminal text cursor
+     * @param cursorColor Color of the terminal text cursor
+     * @param cursorBlinking Should the terminal text cursor blink?
+     * @param clipboardAvailable Should the terminal support pasting text from the clipboard?
+     * @param glyphCacheSize How many drawn characters should the terminal keep around for re-use, 0 disables the cache
+     * @param textRunBatching Should consecutive characters with the same style be drawn together?
+     */
+    @SuppressWarnings("WeakerAccess")
+    public TerminalEmulatorDeviceConfiguration(
+            int lineBufferScrollbackSize,
+            int blinkLengthInMilliSeconds,
+            CursorStyle cursorStyle,
+            TextColor cursorColor,
+            boolean cursorBlinking,
+            boolean clipboardAvailable,
+            int glyphCacheSize,
+            boolean textRunBatching) {
+
+        if(glyphCacheSize < 0) {
+            throw new IllegalArgumentException("Glyph cache size cannot be negative");
+        }
         this.lineBufferScrollbackSize = lineBufferScrollbackSize;
         this.blinkLengthInMilliSeconds = blinkLengthInMilliSeconds;
         this.cursorStyle = cursorStyle;
         this.cursorColor = cursorColor;
         this.cursorBlinking = cursorBlinking;
         this.clipboardAvailable = clipboardAvailable;
+        this.glyphCacheSize = glyphCacheSize;
+        this.textRunBatching = textRunBatching;
     }
 
     /**
@@ -143,6 +198,28 @@ public class TerminalEmulatorDeviceConfiguration {
         return clipboardAvailable;
     }
 
+    /**
+     * How many drawn characters should be kept in the glyph cache? The terminal emulator draws each combination of
+     * character, font, colors and decorations once into an image and then copies it from there whenever the same
+     * combination shows up again, which is much faster than laying out the text each time. When the cache is full, the
+     * combination that was used the longest time ago is dropped.
+     * @return Maximum number of characters in the glyph cache, 0 if the cache is disabled
+     */
+    public int getGlyphCacheSize() {
+        return glyphCacheSize;
+    }
+
+    /**
+     * Should consecutive characters on a row that share font, colors and decorations be drawn together? When enabled,
+     * such a run of characters gets a single background fill and a single text drawing call instead of one of each per
+     * character. Characters that could look different when drawn as part of a run, for example because they extend
+     * outside their cell, are still drawn one by one.
+     * @return {@code true} if runs of characters with the same style are drawn together
+     */
+    public boolean isTextRunBatching() {
+        return textRunBatching;
+    }
+
     /**
      * Copies the current configuration. The new object has the given value.
      * @param blinkLengthInMilliSeconds How many milliseconds does a 'blink' last
@@ -158,7 +235,9 @@ public class TerminalEmulatorDeviceConfiguration {
                     this.cursorStyle,
                     this.cursorColor,
                     this.cursorBlinking,
-                    this.clipboardAvailable);
+                    this.clipboardAvailable,
+                    this.glyphCacheSize,
+                    this.textRunBatching);
         }
     }
 
@@ -177,7 +256,9 @@ public class TerminalEmulatorDeviceConfiguration {
                     this.cursorStyle,
                     this.cursorColor,
                     this.cursorBlinking,
-                    this.clipboardAvailable);
+                    this.clipboardAvailable,
+                    this.glyphCacheSize,
+                    this.textRunBatching);
         }
     }
 
@@ -196,7 +277,9 @@ public class TerminalEmulatorDeviceConfiguration {
                     cursorStyle,
                     this.cursorColor,
                     this.cursorBlinking,
-                    this.clipboardAvailable);
+                    this.clipboardAvailable,
+                    this.glyphCacheSize,
+                    this.textRunBatching);
         }
     }
 
@@ -215,7 +298,9 @@ public class TerminalEmulatorDeviceConfiguration {
                     this.cursorStyle,
                     cursorColor,
                     this.cursorBlinking,
-                    this.clipboardAvailable);
+                    this.clipboardAvailable,
+                    this.glyphCacheSize,
+                    this.textRunBatching);
         }
     }
 
@@ -234,7 +319,9 @@ public class TerminalEmulatorDeviceConfiguration {
                     this.cursorStyle,
                     this.cursorColor,
                     cursorBlinking,
-                    this.clipboardAvailable);
+                    this.clipboardAvailable,
+                    this.glyphCacheSize,
+                    this.textRunBatching);
         }
     }
 
@@ -253,7 +340,51 @@ public class TerminalEmulatorDeviceConfiguration {
                     this.cursorStyle,
                     this.cursorColor,
                     this.cursorBlinking,
-                    clipboardAvailable);
+                    clipboardAvailable,
+                    this.glyphCacheSize,
+                    this.textRunBatching);
+        }
+    }
+
+    /**
+     * Copies the current configuration. The new object has the given value.
+     * @param glyphCacheSize How many drawn characters should the terminal keep around for re-use, 0 disables the cache
+     * @return A copy of the current configuration with the changed value.
+     */
+    public TerminalEmulatorDeviceConfiguration withGlyphCacheSize(int glyphCacheSize) {
+        if(this.glyphCacheSize == glyphCacheSize) {
+            return this;
+        } else {
+            return new TerminalEmulatorDeviceConfiguration(
+                    this.lineBufferScrollbackSize,
+                    this.blinkLengthInMilliSeconds,
+                    this.cursorStyle,
+                    this.cursorColor,
+                    this.cursorBlinking,
+                    this.clipboardAvailable,
+                    glyphCacheSize,
+                    this.textRunBatching);
+        }
+    }
+
+    /**
+     * Copies the current configuration. The new object has the given value.
+     * @param textRunBatching Should consecutive characters with the same style be drawn together?
+     * @return A copy of the current configuration with the changed value.
+     */
+    public TerminalEmulatorDeviceConfiguration withTextRunBatching(boolean textRunBatching) {
+        if(this.textRunBatching == textRunBatching) {
+            return this;
+        } else {
+            return new TerminalEmulatorDeviceConfiguration(
+                    this.lineBufferScrollbackSize,
+                    this.blinkLengthInMilliSeconds,
+                    this.cursorStyle,
+                    this.cursorColor,
+                    this.cursorBlinking,
+                    this.clipboardAvailable,
+                    this.glyphCacheSize,
+                    textRunBatching);
         }
     }
 
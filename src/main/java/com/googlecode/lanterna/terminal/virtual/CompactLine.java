@@ -0,0 +1,373 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.virtual;
+
+import com.googlecode.lanterna.TextCharacter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only, compact form of a line in a {@link TextBuffer}, used for lines that have scrolled out of view. Instead of
+ * one {@link TextCharacter} per column, it keeps the characters in a {@code char} array and the colors and modifiers as
+ * runs of columns sharing the same style, where the styles themselves are stored once in a {@link StyleTable}.
+ */
+final class CompactLine {
+    private static final int PADDING_STYLE = -1;
+
+    private final char[] characters;
+    // Pairs of (first column, style index), ordered by column
+    private final int[] styleRuns;
+
+    private CompactLine(char[] characters, int[] styleRuns) {
+        this.characters = characters;
+        this.styleRuns = styleRuns;
+    }
+
+    /**
+     * Creates a compact copy of a line. The new line holds a reference to each style it uses in the table, which has to
+     * be given back with {@link #releaseStyles(StyleTable)} when the line is no longer kept.
+     * @param line Line to copy
+     * @param styleTable Table to look up (or add) the styles of the line in
+     * @return Compact copy of the line
+     */
+    static CompactLine compact(List<TextCharacter> line, StyleTable styleTable) {
+        int length = line.size();
+        char[] characters = new char[length];
+        int[] styleRuns = new int[8];
+        int runCount = 0;
+        TextCharacter previous = null;
+        for(int column = 0; column < length; column++) {
+            TextCharacter textCharacter = line.get(column);
+            characters[column] = textCharacter.getCharacter();
+            boolean newRun;
+            if(previous == null || previous == TextBuffer.DOUBLE_WIDTH_CHAR_PADDING || textCharacter == TextBuffer.DOUBLE_WIDTH_CHAR_PADDING) {
+                newRun = previous != textCharacter;
+            }
+            else {
+                newRun = previous != textCharacter && !previous.withCharacter(textCharacter.getCharacter()).equals(textCharacter);
+            }
+            if(newRun) {
+                if(runCount * 2 + 2 > styleRuns.length) {
+                    int[] newStyleRuns = new int[styleRuns.length * 2];
+                    System.arraycopy(styleRuns, 0, newStyleRuns, 0, styleRuns.length);
+                    styleRuns = newStyleRuns;
+                }
+                styleRuns[runCount * 2] = column;
+                styleRuns[runCount * 2 + 1] = textCharacter == TextBuffer.DOUBLE_WIDTH_CHAR_PADDING ?
+                        PADDING_STYLE : styleTable.intern(textCharacter);
+                runCount++;
+            }
+            previous = textCharacter;
+        }
+        int[] trimmedStyleRuns = new int[runCount * 2];
+        System.arraycopy(styleRuns, 0, trimmedStyleRuns, 0, trimmedStyleRuns.length);
+        return new CompactLine(characters, trimmedStyleRuns);
+    }
+
+    int getLength() {
+        return characters.length;
+    }
+
+    /**
+     * Takes another reference to each style used by this line, for when the line is kept in a second place
+     * @param styleTable Table the styles of this line are stored in
+     */
+    void retainStyles(StyleTable styleTable) {
+        for(int run = 1; run < styleRuns.length; run += 2) {
+            if(styleRuns[run] != PADDING_STYLE) {
+                styleTable.retain(styleRuns[run]);
+            }
+        }
+    }
+
+    /**
+     * Gives back a reference to each style used by this line, once the line is no longer kept
+     * @param styleTable Table the styles of this line are stored in
+     */
+    void releaseStyles(StyleTable styleTable) {
+        for(int run = 1; run < styleRuns.length; run += 2) {
+            if(styleRuns[run] != PADDING_STYLE) {
+                styleTable.release(styleRuns[run]);
+            }
+        }
+    }
+
+    /**
+     * Adds the index of every style used by this line, once per run, to an array
+     * @param styles Array to add the style indexes to, must have room for them
+     * @param offset Position in the array to add the first style index at
+     * @return Position in the array after the last style index that was added
+     */
+    int copyStyles(int[] styles, int offset) {
+        for(int run = 1; run < styleRuns.length; run += 2) {
+            if(styleRuns[run] != PADDING_STYLE) {
+                styles[offset++] = styleRuns[run];
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the number of runs on this line, which is the most style indexes {@link #copyStyles(int[], int)} will add
+     * @return Number of runs on this line
+     */
+    int getRunCount() {
+        return styleRuns.length / 2;
+    }
+
+    /**
+     * Returns the characters of this line, one per column. The array is shared with the line and must not be modified.
+     * @return Characters of this line
+     */
+    char[] getCharacters() {
+        return characters;
+    }
+
+    /**
+     * Returns the column of each character on this line that isn't the padding after a double-width character, or
+     * {@code null} if there are no such padding columns on this line
+     * @return Columns holding characters, in order, or {@code null} if every column holds a character
+     */
+    int[] getCharacterColumns() {
+        if(!hasPadding()) {
+            return null;
+        }
+        int[] columns = new int[characters.length];
+        int count = 0;
+        for(int run = 0; run < styleRuns.length; run += 2) {
+            if(styleRuns[run + 1] == PADDING_STYLE) {
+                continue;
+            }
+            int end = run + 2 < styleRuns.length ? styleRuns[run + 2] : characters.length;
+            for(int column = styleRuns[run]; column < end; column++) {
+                columns[count++] = column;
+            }
+        }
+        int[] trimmedColumns = new int[count];
+        System.arraycopy(columns, 0, trimmedColumns, 0, count);
+        return trimmedColumns;
+    }
+
+    /**
+     * Checks if this line has any double-width characters, meaning not every column holds a character of its own
+     * @return {@code true} if the line has padding columns
+     */
+    boolean hasPadding() {
+        for(int run = 1; run < styleRuns.length; run += 2) {
+            if(styleRuns[run] == PADDING_STYLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the character at a particular column
+     * @param column Column of the character
+     * @param styleTable Table the styles of this line are stored in
+     * @return Character at the column, or {@code null} if the column is past the end of the line
+     */
+    TextCharacter getCharacter(int column, StyleTable styleTable) {
+        if(column < 0 || column >= characters.length) {
+            return null;
+        }
+        // Find the last run starting at or before the column
+        int low = 0;
+        int high = styleRuns.length / 2 - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(styleRuns[middle * 2] <= column) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return decode(characters[column], styleRuns[low * 2 + 1], styleTable);
+    }
+
+    /**
+     * Turns this line back into a list of {@code TextCharacter}s that can be modified
+     * @param styleTable Table the styles of this line are stored in
+     * @return Modifiable list with the characters of this line
+     */
+    List<TextCharacter> expand(StyleTable styleTable) {
+        List<TextCharacter> line = new ArrayList<TextCharacter>(Math.max(200, characters.length));
+        for(int run = 0; run < styleRuns.length; run += 2) {
+            int end = run + 2 < styleRuns.length ? styleRuns[run + 2] : characters.length;
+            for(int column = styleRuns[run]; column < end; column++) {
+                line.add(decode(characters[column], styleRuns[run + 1], styleTable));
+            }
+        }
+        return line;
+    }
+
+    private static TextCharacter decode(char character, int style, StyleTable styleTable) {
+        if(style == PADDING_STYLE) {
+            return TextBuffer.DOUBLE_WIDTH_CHAR_PADDING;
+        }
+        return styleTable.get(style).withCharacter(character);
+    }
+
+    void writeTo(DataOutput output) throws IOException {
+        output.writeInt(characters.length);
+        for(char character: characters) {
+            output.writeChar(character);
+        }
+        output.writeInt(styleRuns.length);
+        for(int value: styleRuns) {
+            output.writeInt(value);
+        }
+    }
+
+    /**
+     * Returns how many bytes {@link #writeTo(ByteBuffer)} will write
+     * @return Size of this line when written to a buffer
+     */
+    int getSerializedSize() {
+        return 8 + characters.length * 2 + styleRuns.length * 4;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(characters.length);
+        for(char character: characters) {
+            buffer.putChar(character);
+        }
+        buffer.putInt(styleRuns.length);
+        for(int value: styleRuns) {
+            buffer.putInt(value);
+        }
+    }
+
+    static CompactLine readFrom(ByteBuffer buffer) {
+        char[] characters = new char[buffer.getInt()];
+        for(int i = 0; i < characters.length; i++) {
+            characters[i] = buffer.getChar();
+        }
+        int[] styleRuns = new int[buffer.getInt()];
+        for(int i = 0; i < styleRuns.length; i++) {
+            styleRuns[i] = buffer.getInt();
+        }
+        return new CompactLine(characters, styleRuns);
+    }
+
+    static CompactLine readFrom(DataInput input) throws IOException {
+        char[] characters = new char[input.readInt()];
+        for(int i = 0; i < characters.length; i++) {
+            characters[i] = input.readChar();
+        }
+        int[] styleRuns = new int[input.readInt()];
+        for(int i = 0; i < styleRuns.length; i++) {
+            styleRuns[i] = input.readInt();
+        }
+        return new CompactLine(characters, styleRuns);
+    }
+
+    /**
+     * Keeps one copy of each combination of colors and modifiers used by the compact lines of a {@link TextBuffer}, so
+     * that the lines only need to store an index. Each style is reference counted and its index is reused once no line
+     * refers to it anymore, so the table doesn't keep growing as lines with different styles scroll through the
+     * backlog.
+     */
+    static final class StyleTable {
+        private final List<TextCharacter> styles;
+        private final Map<TextCharacter, Integer> styleIndexes;
+        private int[] referenceCounts;
+        private int[] freeIndexes;
+        private int freeIndexCount;
+
+        StyleTable() {
+            this.styles = new ArrayList<TextCharacter>();
+            this.styleIndexes = new HashMap<TextCharacter, Integer>();
+            this.referenceCounts = new int[16];
+            this.freeIndexes = new int[16];
+            this.freeIndexCount = 0;
+        }
+
+        /**
+         * Looks up the style of a character, adding it to the table if it isn't there, and takes a reference to it
+         * @param textCharacter Character to look up the style of
+         * @return Index of the style
+         */
+        int intern(TextCharacter textCharacter) {
+            TextCharacter style = textCharacter.withCharacter(' ');
+            Integer index = styleIndexes.get(style);
+            if(index == null) {
+                if(freeIndexCount > 0) {
+                    index = freeIndexes[--freeIndexCount];
+                    styles.set(index, style);
+                }
+                else {
+                    index = styles.size();
+                    styles.add(style);
+                    if(index == referenceCounts.length) {
+                        int[] newReferenceCounts = new int[referenceCounts.length * 2];
+                        System.arraycopy(referenceCounts, 0, newReferenceCounts, 0, referenceCounts.length);
+                        referenceCounts = newReferenceCounts;
+                    }
+                }
+                styleIndexes.put(style, index);
+            }
+            referenceCounts[index]++;
+            return index;
+        }
+
+        void retain(int index) {
+            if(referenceCounts[index] == 0) {
+                throw new IllegalStateException("Style " + index + " is not in use");
+            }
+            referenceCounts[index]++;
+        }
+
+        void release(int index) {
+            if(referenceCounts[index] == 0) {
+                throw new IllegalStateException("Style " + index + " is not in use");
+            }
+            if(--referenceCounts[index] == 0) {
+                // The style itself stays in place until the index is reused, for any reader still holding on to a line
+                styleIndexes.remove(styles.get(index));
+                if(freeIndexCount == freeIndexes.length) {
+                    int[] newFreeIndexes = new int[freeIndexes.length * 2];
+                    System.arraycopy(freeIndexes, 0, newFreeIndexes, 0, freeIndexes.length);
+                    freeIndexes = newFreeIndexes;
+                }
+                freeIndexes[freeIndexCount++] = index;
+            }
+        }
+
+        TextCharacter get(int index) {
+            return styles.get(index);
+        }
+
+        /**
+         * Returns the number of styles that are referred to by at least one line
+         * @return Number of styles in use
+         */
+        int size() {
+            return styleIndexes.size();
+        }
+    }
+}
@@ -23,16 +23,20 @@ import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.screen.TabBehaviour;
 import com.googlecode.lanterna.terminal.AbstractTerminal;
+import com.googlecode.lanterna.terminal.CellSpanWritable;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
-public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualTerminal {
+public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualTerminal, CellSpanWritable {
     private final TextBuffer regularTextBuffer;
     private final TextBuffer privateModeTextBuffer;
-    private final TreeSet<TerminalPosition> dirtyTerminalCells;
+    private final DirtyCells dirtyTerminalCells;
     private final List<VirtualTerminalListener> listeners;
 
     private TextBuffer currentTextBuffer;
@@ -68,7 +72,7 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
     public DefaultVirtualTerminal(TerminalSize initialTerminalSize) {
         this.regularTextBuffer = new TextBuffer();
         this.privateModeTextBuffer = new TextBuffer();
-        this.dirtyTerminalCells = new TreeSet<TerminalPosition>();
+        this.dirtyTerminalCells = new DirtyCells();
         this.listeners = new ArrayList<VirtualTerminalListener>();
 
         // Terminal state
@@ -223,6 +227,7 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
         for(VirtualTerminalListener listener: listeners) {
             listener.onClose();
         }
+        regularTextBuffer.close();
     }
 
     @Override
@@ -266,6 +271,66 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
         this.backlogSize = backlogSize;
     }
 
+    /**
+     * Sets whether lines in the backlog should be compressed. Lines that have scrolled out of view are always stored in
+     * a compact form, which takes about as much memory as the text itself. With compression enabled, these lines are
+     * also deflated in blocks, which typically saves a lot more memory for large backlogs but makes scrolling through
+     * the backlog a little slower. This is off by default.
+     * @param backlogCompressed {@code true} if lines in the backlog should be compressed
+     */
+    public synchronized void setBacklogCompressed(boolean backlogCompressed) {
+        regularTextBuffer.setCompressionEnabled(backlogCompressed);
+    }
+
+    /**
+     * Starts moving lines that fall off the end of the backlog to memory-mapped files in the specified directory, instead
+     * of discarding them. This lets the history grow to millions of lines while the amount of heap used stays the same;
+     * the lines are read straight from the files when they are needed, for example when scrolling back through the
+     * history. The files are deleted when the terminal is closed. Only lines that have scrolled out of view are moved
+     * to the files; if the terminal is made taller, the lines coming back into view are moved back into memory.
+     * @param directory Directory to create the files in, or {@code null} for the default temporary-file directory
+     * @throws IOException If the files could not be created
+     */
+    public synchronized void enableBacklogSpillover(File directory) throws IOException {
+        regularTextBuffer.startSpilling(directory);
+    }
+
+    /**
+     * Stops moving lines that fall off the end of the backlog to files. The lines that have already been moved are
+     * discarded and the files are deleted.
+     */
+    public synchronized void disableBacklogSpillover() {
+        int discardedLines = regularTextBuffer.stopSpilling();
+        if(discardedLines > 0) {
+            if(currentTextBuffer == regularTextBuffer) {
+                cursorPosition = cursorPosition.withRelativeRow(-discardedLines);
+                correctCursor();
+            }
+            else {
+                savedCursorPosition = savedCursorPosition.withRelativeRow(-discardedLines);
+            }
+            setWholeBufferDirty();
+        }
+    }
+
+    /**
+     * Returns whether lines that fall off the end of the backlog are moved to files
+     * @return {@code true} if lines that fall off the end of the backlog are moved to files
+     * @see #enableBacklogSpillover(File)
+     */
+    public synchronized boolean isBacklogSpilloverEnabled() {
+        return regularTextBuffer.isSpilling();
+    }
+
+    /**
+     * Returns whether lines in the backlog are compressed
+     * @return {@code true} if lines in the backlog are compressed
+     * @see #setBacklogCompressed(boolean)
+     */
+    public synchronized boolean isBacklogCompressed() {
+        return regularTextBuffer.isCompressionEnabled();
+    }
+
     @Override
     public synchronized boolean isCursorVisible() {
         return cursorVisible;
@@ -277,15 +342,26 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
     }
 
     public synchronized TreeSet<TerminalPosition> getDirtyCells() {
-        return new TreeSet<TerminalPosition>(dirtyTerminalCells);
+        return dirtyTerminalCells.toPositions();
     }
 
     public synchronized TreeSet<TerminalPosition> getAndResetDirtyCells() {
-        TreeSet<TerminalPosition> copy = new TreeSet<TerminalPosition>(dirtyTerminalCells);
+        TreeSet<TerminalPosition> copy = dirtyTerminalCells.toPositions();
         dirtyTerminalCells.clear();
         return copy;
     }
 
+    /**
+     * Adds all cells that have been modified since the last time the dirty cells were reset to {@code target}, then
+     * resets them. This does the same thing as {@link #getAndResetDirtyCells()} but without creating a position object
+     * for every cell, which makes it a better fit for code that repaints the terminal often.
+     * @param target Set to add the dirty cells to
+     */
+    public synchronized void getAndResetDirtyCells(DirtyCells target) {
+        target.addAll(dirtyTerminalCells);
+        dirtyTerminalCells.clear();
+    }
+
     public synchronized boolean isWholeBufferDirtyThenReset() {
         boolean copy = wholeBufferDirty;
         wholeBufferDirty = false;
@@ -328,25 +404,30 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
                 return TextCharacter.DEFAULT_CHARACTER;
             }
         };
-        ListIterator<List<TextCharacter>> iterator = currentTextBuffer.getLinesFrom(startRow);
         for(int row = startRow; row <= endRow; row++) {
-            BufferLine bufferLine = emptyLine;
-            if(iterator.hasNext()) {
-                final List<TextCharacter> list = iterator.next();
-                bufferLine = new BufferLine() {
-                    @Override
-                    public TextCharacter getCharacterAt(int column) {
-                        if(column >= list.size()) {
-                            return TextCharacter.DEFAULT_CHARACTER;
-                        }
-                        return list.get(column);
-                    }
-                };
+            BufferLine bufferLine = currentTextBuffer.getBufferLine(row);
+            if(bufferLine == null) {
+                bufferLine = emptyLine;
             }
             bufferWalker.onLine(row, bufferLine);
         }
     }
 
+    @Override
+    public TerminalPosition findText(String text, TerminalPosition from, boolean forward) {
+        return TextBufferSearch.find(getTextBufferSnapshot(), TextBufferSearch.literal(text), from, forward);
+    }
+
+    @Override
+    public TerminalPosition findPattern(Pattern pattern, TerminalPosition from, boolean forward) {
+        return TextBufferSearch.find(getTextBufferSnapshot(), TextBufferSearch.pattern(pattern), from, forward);
+    }
+
+    private synchronized TextBuffer.Snapshot getTextBufferSnapshot() {
+        // Only the snapshot is taken while holding the lock, so the terminal isn't blocked while searching
+        return currentTextBuffer.getSnapshot();
+    }
+
     synchronized void putCharacter(TextCharacter terminalCharacter) {
         if(terminalCharacter.getCharacter() == '\t') {
             int nrOfSpaces = TabBehaviour.ALIGN_TO_COLUMN_4.getTabReplacement(cursorPosition.getColumn()).length();
@@ -368,18 +449,7 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
 
             // Update the buffer
             int i = currentTextBuffer.setCharacter(cursorPosition.getRow(), cursorPosition.getColumn(), terminalCharacter);
-            if(!wholeBufferDirty) {
-                dirtyTerminalCells.add(new TerminalPosition(cursorPosition.getColumn(), cursorPosition.getRow()));
-                if(i == 1) {
-                    dirtyTerminalCells.add(new TerminalPosition(cursorPosition.getColumn() + 1, cursorPosition.getRow()));
-                }
-                else if(i == 2) {
-                    dirtyTerminalCells.add(new TerminalPosition(cursorPosition.getColumn() - 1, cursorPosition.getRow()));
-                }
-                if(dirtyTerminalCells.size() > (terminalSize.getColumns() * terminalSize.getRows() * 0.9)) {
-                    setWholeBufferDirty();
-                }
-            }
+            markCellDirty(cursorPosition.getColumn(), cursorPosition.getRow(), i);
 
             //Advance cursor
             cursorPosition = cursorPosition.withRelativeColumn(doubleWidth ? 2 : 1);
@@ -389,6 +459,52 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
         }
     }
 
+    @Override
+    public synchronized void writeCellSpan(int column, int row, TextCharacter[] characters, int offset, int length) {
+        if(row < 0 || row >= terminalSize.getRows() || column < 0) {
+            return;
+        }
+        int bufferRow = row + Math.max(0, currentTextBuffer.getLineCount() - terminalSize.getRows());
+        for(int index = offset; index < offset + length && column < terminalSize.getColumns(); index++) {
+            TextCharacter character = characters[index];
+            if(!TerminalTextUtils.isPrintableCharacter(character.getCharacter())) {
+                // Keep the following characters in their cells
+                character = character.withCharacter(' ');
+            }
+            boolean doubleWidth = TerminalTextUtils.isCharDoubleWidth(character.getCharacter());
+            if(doubleWidth && column == terminalSize.getColumns() - 1) {
+                // Doesn't fit on the row, clear the last cell like putCharacter does
+                character = TextCharacter.DEFAULT_CHARACTER;
+                doubleWidth = false;
+            }
+            markCellDirty(column, bufferRow, currentTextBuffer.setCharacter(bufferRow, column, character));
+            column += doubleWidth ? 2 : 1;
+        }
+    }
+
+    /**
+     * Records that a cell has been modified
+     * @param column Column of the cell
+     * @param row Buffer row of the cell
+     * @param setCharacterResult What {@link TextBuffer#setCharacter(int, int, TextCharacter)} returned when the cell was
+     *                           modified, which tells if a neighbouring cell was changed too
+     */
+    private void markCellDirty(int column, int row, int setCharacterResult) {
+        if(wholeBufferDirty) {
+            return;
+        }
+        dirtyTerminalCells.set(column, row);
+        if(setCharacterResult == 1) {
+            dirtyTerminalCells.set(column + 1, row);
+        }
+        else if(setCharacterResult == 2) {
+            dirtyTerminalCells.set(column - 1, row);
+        }
+        if(dirtyTerminalCells.getCount() > (terminalSize.getColumns() * terminalSize.getRows() * 0.9)) {
+            setWholeBufferDirty();
+        }
+    }
+
     /**
      * Moves the text cursor to the first column of the next line and trims the backlog of necessary
      */
@@ -399,6 +515,8 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
         }
         trimBufferBacklog();
         correctCursor();
+        // Lines that have scrolled out of view are kept in a more compact form
+        currentTextBuffer.compactLinesBefore(currentTextBuffer.getLineCount() - terminalSize.getRows());
     }
 
     /**
@@ -411,28 +529,32 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
     }
 
     private void trimBufferBacklog() {
+        // Spilled lines can't be modified, so if the terminal has grown taller, bring back the ones that are now visible
+        int missingRows = terminalSize.getRows() -
+                (regularTextBuffer.getLineCount() - regularTextBuffer.getSpilledLineCount());
+        if(missingRows > 0) {
+            regularTextBuffer.unspillBottomLines(missingRows);
+        }
+
         // Now see if we need to discard lines from the backlog
         int bufferBacklogSize = backlogSize;
         if(currentTextBuffer == privateModeTextBuffer) {
             bufferBacklogSize = 0;
         }
-        int trimBacklogRows = currentTextBuffer.getLineCount() - (bufferBacklogSize + terminalSize.getRows());
-        if(trimBacklogRows > 0) {
+        int trimBacklogRows = currentTextBuffer.getLineCount() - currentTextBuffer.getSpilledLineCount() -
+                (bufferBacklogSize + terminalSize.getRows());
+        if(trimBacklogRows > 0 && currentTextBuffer.isSpilling()) {
+            // The lines keep their line numbers, so there's nothing else to adjust
+            currentTextBuffer.spillTopLines(trimBacklogRows);
+        }
+        else if(trimBacklogRows > 0) {
             currentTextBuffer.removeTopLines(trimBacklogRows);
             // Adjust cursor position
             cursorPosition = cursorPosition.withRelativeRow(-trimBacklogRows);
             correctCursor();
             if(!wholeBufferDirty) {
                 // Adjust all "dirty" positions
-                TreeSet<TerminalPosition> newDirtySet = new TreeSet<TerminalPosition>();
-                for(TerminalPosition dirtyPosition: dirtyTerminalCells) {
-                    TerminalPosition adjustedPosition = dirtyPosition.withRelativeRow(-trimBacklogRows);
-                    if(adjustedPosition.getRow() >= 0) {
-                        newDirtySet.add(adjustedPosition);
-                    }
-                }
-                dirtyTerminalCells.clear();
-                dirtyTerminalCells.addAll(newDirtySet);
+                dirtyTerminalCells.shiftRowsUp(trimBacklogRows);
             }
         }
     }
@@ -0,0 +1,289 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.virtual;
+
+import com.googlecode.lanterna.TerminalPosition;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Set of cell positions, stored as one bitset of {@code long} words per row. This is used to track which cells of a
+ * {@link DefaultVirtualTerminal} have changed since they were last drawn; unlike a set of {@link TerminalPosition}
+ * objects, marking a cell doesn't allocate anything once the rows involved have been seen, and clearing the set keeps the
+ * row bitsets around to be reused. The rows covered can be shifted up when lines are removed from the top of the
+ * terminal buffer, without touching the bitsets themselves.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class DirtyCells {
+    private static final long[] NO_WORDS = new long[0];
+
+    private long[][] rows;
+    private int firstRow;
+    private int rowCount;
+    private int cellCount;
+
+    /**
+     * Creates a new, empty, set of cells
+     */
+    public DirtyCells() {
+        this.rows = new long[16][];
+        this.firstRow = 0;
+        this.rowCount = 0;
+        this.cellCount = 0;
+        for(int i = 0; i < rows.length; i++) {
+            rows[i] = NO_WORDS;
+        }
+    }
+
+    /**
+     * Returns the number of cells currently in the set
+     * @return Number of cells in the set
+     */
+    public int getCount() {
+        return cellCount;
+    }
+
+    /**
+     * Returns {@code true} if there are no cells in the set
+     * @return {@code true} if there are no cells in the set
+     */
+    public boolean isEmpty() {
+        return cellCount == 0;
+    }
+
+    /**
+     * Adds a cell to the set
+     * @param column Column of the cell
+     * @param row Row of the cell
+     */
+    public void set(int column, int row) {
+        if(column < 0 || row < 0) {
+            return;
+        }
+        long[] words = getRowForWriting(row, column >>> 6);
+        long mask = 1L << column;
+        if((words[column >>> 6] & mask) == 0) {
+            words[column >>> 6] |= mask;
+            cellCount++;
+        }
+    }
+
+    /**
+     * Adds a range of cells on one row to the set
+     * @param row Row of the cells
+     * @param fromColumn First column to add
+     * @param toColumn Column after the last one to add
+     */
+    public void setRange(int row, int fromColumn, int toColumn) {
+        fromColumn = Math.max(0, fromColumn);
+        if(row < 0 || toColumn <= fromColumn) {
+            return;
+        }
+        long[] words = getRowForWriting(row, (toColumn - 1) >>> 6);
+        int firstWord = fromColumn >>> 6;
+        int lastWord = (toColumn - 1) >>> 6;
+        for(int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if(word == firstWord) {
+                mask &= -1L << fromColumn;
+            }
+            if(word == lastWord) {
+                mask &= -1L >>> -toColumn;
+            }
+            cellCount += Long.bitCount(mask & ~words[word]);
+            words[word] |= mask;
+        }
+    }
+
+    /**
+     * Checks if a cell is in the set
+     * @param column Column of the cell
+     * @param row Row of the cell
+     * @return {@code true} if the cell is in the set
+     */
+    public boolean isSet(int column, int row) {
+        if(column < 0 || row < firstRow || row >= firstRow + rowCount) {
+            return false;
+        }
+        long[] words = rows[row - firstRow];
+        return (column >>> 6) < words.length && (words[column >>> 6] & (1L << column)) != 0;
+    }
+
+    /**
+     * Returns the column of the first cell in the set on a particular row, starting at a particular column
+     * @param row Row to look at
+     * @param fromColumn Column to start looking at
+     * @return Column of the first cell at or after {@code fromColumn} on the row, or -1 if there is none
+     */
+    public int nextSetColumn(int row, int fromColumn) {
+        fromColumn = Math.max(0, fromColumn);
+        if(row < firstRow || row >= firstRow + rowCount) {
+            return -1;
+        }
+        long[] words = rows[row - firstRow];
+        int word = fromColumn >>> 6;
+        if(word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << fromColumn);
+        while(true) {
+            if(bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if(++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+    /**
+     * Returns the lowest row that may have cells in the set
+     * @return Lowest row that may have cells in the set
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Returns the row after the highest row that may have cells in the set
+     * @return Row after the highest row that may have cells in the set
+     */
+    public int getEndRow() {
+        return firstRow + rowCount;
+    }
+
+    /**
+     * Removes all cells from the set
+     */
+    public void clear() {
+        for(int i = 0; i < rowCount; i++) {
+            Arrays.fill(rows[i], 0L);
+        }
+        firstRow = 0;
+        rowCount = 0;
+        cellCount = 0;
+    }
+
+    /**
+     * Moves all cells in the set up by a number of rows, as happens when lines are removed from the top of the buffer.
+     * Cells that end up on a negative row are dropped from the set.
+     * @param rowsRemoved How many rows to move the cells up by
+     */
+    public void shiftRowsUp(int rowsRemoved) {
+        if(rowCount == 0) {
+            return;
+        }
+        firstRow -= rowsRemoved;
+        if(firstRow >= 0) {
+            return;
+        }
+        int dropped = Math.min(-firstRow, rowCount);
+        long[][] droppedRows = new long[dropped][];
+        for(int i = 0; i < dropped; i++) {
+            for(long word: rows[i]) {
+                cellCount -= Long.bitCount(word);
+            }
+            Arrays.fill(rows[i], 0L);
+            droppedRows[i] = rows[i];
+        }
+        // Rotate the emptied bitsets to the end, so they can be reused
+        System.arraycopy(rows, dropped, rows, 0, rowCount - dropped);
+        System.arraycopy(droppedRows, 0, rows, rowCount - dropped, dropped);
+        rowCount -= dropped;
+        firstRow = rowCount == 0 ? 0 : firstRow + dropped;
+    }
+
+    /**
+     * Adds all cells from another set to this one
+     * @param other Set of cells to add
+     */
+    public void addAll(DirtyCells other) {
+        for(int i = 0; i < other.rowCount; i++) {
+            long[] otherWords = other.rows[i];
+            int lastWord = otherWords.length - 1;
+            while(lastWord >= 0 && otherWords[lastWord] == 0) {
+                lastWord--;
+            }
+            if(lastWord < 0) {
+                continue;
+            }
+            long[] words = getRowForWriting(other.firstRow + i, lastWord);
+            for(int word = 0; word <= lastWord; word++) {
+                cellCount += Long.bitCount(otherWords[word] & ~words[word]);
+                words[word] |= otherWords[word];
+            }
+        }
+    }
+
+    /**
+     * Returns the cells in the set as a sorted set of positions
+     * @return Sorted set with the position of every cell in this set
+     */
+    public TreeSet<TerminalPosition> toPositions() {
+        TreeSet<TerminalPosition> positions = new TreeSet<TerminalPosition>();
+        for(int row = getFirstRow(); row < getEndRow(); row++) {
+            for(int column = nextSetColumn(row, 0); column != -1; column = nextSetColumn(row, column + 1)) {
+                positions.add(new TerminalPosition(column, row));
+            }
+        }
+        return positions;
+    }
+
+    private long[] getRowForWriting(int row, int lastWord) {
+        if(rowCount == 0) {
+            firstRow = row;
+        }
+        else if(row < firstRow) {
+            int extraRows = firstRow - row;
+            ensureCapacity(rowCount + extraRows);
+            // The spare bitsets past the end are all empty, move them to the front
+            long[][] spare = new long[extraRows][];
+            System.arraycopy(rows, rowCount, spare, 0, extraRows);
+            System.arraycopy(rows, 0, rows, extraRows, rowCount);
+            System.arraycopy(spare, 0, rows, 0, extraRows);
+            rowCount += extraRows;
+            firstRow = row;
+        }
+        int index = row - firstRow;
+        if(index >= rowCount) {
+            ensureCapacity(index + 1);
+            rowCount = index + 1;
+        }
+        long[] words = rows[index];
+        if(words.length <= lastWord) {
+            words = Arrays.copyOf(words, Math.max(lastWord + 1, words.length * 2));
+            rows[index] = words;
+        }
+        return words;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= rows.length) {
+            return;
+        }
+        int oldLength = rows.length;
+        rows = Arrays.copyOf(rows, Math.max(capacity, oldLength * 2));
+        for(int i = oldLength; i < rows.length; i++) {
+            rows[i] = NO_WORDS;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.virtual;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores lines that have been dropped from the in-memory backlog of a {@link TextBuffer} in a pair of memory-mapped
+ * files, so that the history can grow far beyond what would fit on the heap. One file holds the lines themselves, in the
+ * format written by {@link CompactLine#writeTo(ByteBuffer)}, and the other one holds the offset of each line in the
+ * first file. Both are mapped in segments of {@value #SEGMENT_SIZE} bytes, added as the files grow; lines are appended
+ * or taken back off the end, and read back directly from the mapping when needed. The files are deleted when
+ * {@link #close()} is called.
+ * <p>
+ * All methods are synchronized, so that lines can be read from other threads while new lines are being added.
+ */
+class LineSpillFile {
+    private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final int segmentSize;
+    private final int offsetsPerSegment;
+    private final File dataFile;
+    private final File indexFile;
+    private final RandomAccessFile dataRandomAccessFile;
+    private final RandomAccessFile indexRandomAccessFile;
+    private final List<MappedByteBuffer> dataSegments;
+    private final List<MappedByteBuffer> indexSegments;
+    private int lineCount;
+    private long dataSize;
+
+    /**
+     * Creates a new spill file, backed by two temporary files in the specified directory
+     * @param directory Directory to create the files in, or {@code null} for the default temporary-file directory
+     * @throws IOException If there was an error creating the files
+     */
+    LineSpillFile(File directory) throws IOException {
+        this(directory, SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a new spill file, mapped in segments of a specific size
+     * @param directory Directory to create the files in, or {@code null} for the default temporary-file directory
+     * @param segmentSize Size of each mapped segment in bytes, must be a multiple of 8
+     * @throws IOException If there was an error creating the files
+     */
+    LineSpillFile(File directory, int segmentSize) throws IOException {
+        if(segmentSize <= 0 || segmentSize % 8 != 0) {
+            throw new IllegalArgumentException("Illegal spill file segment size " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.offsetsPerSegment = segmentSize / 8;
+        this.dataFile = File.createTempFile("lanterna-backlog", ".data", directory);
+        this.indexFile = File.createTempFile("lanterna-backlog", ".index", directory);
+        this.dataFile.deleteOnExit();
+        this.indexFile.deleteOnExit();
+        this.dataRandomAccessFile = new RandomAccessFile(dataFile, "rw");
+        this.indexRandomAccessFile = new RandomAccessFile(indexFile, "rw");
+        this.dataSegments = new ArrayList<MappedByteBuffer>();
+        this.indexSegments = new ArrayList<MappedByteBuffer>();
+        this.lineCount = 0;
+        this.dataSize = 0;
+    }
+
+    synchronized int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Adds a line to the end of the file
+     * @param line Line to add
+     * @throws IOException If there was an error growing the files
+     */
+    synchronized void append(CompactLine line) throws IOException {
+        int size = line.getSerializedSize();
+        if(size > segmentSize) {
+            throw new IllegalArgumentException("Line too long to spill to disk: " + line.getLength() + " characters");
+        }
+        // Lines never cross segment boundaries
+        int segment = (int)(dataSize / segmentSize);
+        int position = (int)(dataSize % segmentSize);
+        if(position + size > segmentSize) {
+            segment++;
+            position = 0;
+        }
+        ByteBuffer data = getSegment(dataRandomAccessFile, dataSegments, segment).duplicate();
+        data.position(position);
+        line.writeTo(data);
+
+        ByteBuffer index = getSegment(indexRandomAccessFile, indexSegments, lineCount / offsetsPerSegment);
+        index.putLong((lineCount % offsetsPerSegment) * 8, (long)segment * segmentSize + position);
+
+        dataSize = (long)segment * segmentSize + position + size;
+        lineCount++;
+    }
+
+    /**
+     * Reads a line back from the file
+     * @param lineNumber Number of the line, where 0 is the first line added
+     * @return The line
+     */
+    synchronized CompactLine getLine(int lineNumber) {
+        if(lineNumber < 0 || lineNumber >= lineCount) {
+            throw new IllegalArgumentException("Line " + lineNumber + " is not in the spill file, it has " +
+                    lineCount + " lines");
+        }
+        long offset = getOffset(lineNumber);
+        ByteBuffer data = dataSegments.get((int)(offset / segmentSize)).duplicate();
+        data.position((int)(offset % segmentSize));
+        return CompactLine.readFrom(data);
+    }
+
+    /**
+     * Removes lines from the end of the file, the space they used is reused by the lines added after this
+     * @param numberOfLinesToRemove How many lines to remove
+     */
+    synchronized void removeLastLines(int numberOfLinesToRemove) {
+        if(numberOfLinesToRemove < 0 || numberOfLinesToRemove > lineCount) {
+            throw new IllegalArgumentException("Cannot remove " + numberOfLinesToRemove + " lines from a spill file " +
+                    "with " + lineCount + " lines");
+        }
+        lineCount -= numberOfLinesToRemove;
+        dataSize = lineCount > 0 ? getOffset(lineCount) : 0;
+    }
+
+    /**
+     * Removes all lines, the space already mapped is kept and reused
+     */
+    synchronized void clear() {
+        lineCount = 0;
+        dataSize = 0;
+    }
+
+    /**
+     * Unmaps and deletes the files. The spill file cannot be used after this.
+     */
+    synchronized void close() {
+        dataSegments.clear();
+        indexSegments.clear();
+        lineCount = 0;
+        try {
+            dataRandomAccessFile.close();
+        }
+        catch(IOException ignored) {
+        }
+        try {
+            indexRandomAccessFile.close();
+        }
+        catch(IOException ignored) {
+        }
+        // On some platforms this won't work until the mappings have been garbage collected, but then deleteOnExit will
+        // take care of it
+        //noinspection ResultOfMethodCallIgnored
+        dataFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        indexFile.delete();
+    }
+
+    private long getOffset(int lineNumber) {
+        return indexSegments.get(lineNumber / offsetsPerSegment).getLong((lineNumber % offsetsPerSegment) * 8);
+    }
+
+    private MappedByteBuffer getSegment(RandomAccessFile file, List<MappedByteBuffer> segments, int segment) throws IOException {
+        while(segments.size() <= segment) {
+            long start = (long)segments.size() * segmentSize;
+            segments.add(file.getChannel().map(FileChannel.MapMode.READ_WRITE, start, segmentSize));
+        }
+        return segments.get(segment);
+    }
+}
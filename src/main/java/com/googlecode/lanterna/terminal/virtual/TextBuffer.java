@@ -20,46 +20,460 @@ package com.googlecode.lanterna.terminal.virtual;
 
 import com.googlecode.lanterna.TextCharacter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * This class is used to store lines of text inside of a terminal emulator. As used by {@link DefaultVirtualTerminal}, it keeps
  * two {@link TextBuffer}s, one for private mode and one for normal mode and it can switch between them as needed.
+ * <p>
+ * The lines are kept in a circular array, so that looking up a line by its number and dropping lines from the top (as
+ * the backlog fills up) are both constant-time operations, no matter how large the backlog is. Lines that have
+ * scrolled out of view are converted to {@link CompactLine}s, and if compression is enabled, groups of those are
+ * further deflated into {@link LineBlock}s. Such lines are turned back into regular lines if they are written to. The
+ * styles of the compact lines are kept in a shared, reference counted table, which lets go of a style once the last
+ * line using it has been removed.
+ * <p>
+ * If a {@link LineSpillFile} is attached, lines dropped from the top with {@link #spillTopLines(int)} are moved there
+ * instead of being discarded. They keep their line numbers, so the spilled lines are always the first lines of the
+ * buffer. Spilled lines can be read but not modified, until they are moved back with {@link #unspillBottomLines(int)}.
  */
 class TextBuffer {
-    private static final TextCharacter DOUBLE_WIDTH_CHAR_PADDING = new TextCharacter(' ');
+    static final TextCharacter DOUBLE_WIDTH_CHAR_PADDING = new TextCharacter(' ');
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int LINES_PER_BLOCK = 256;
 
-    private final LinkedList<List<TextCharacter>> lines;
+    // Each element is either a List<TextCharacter>, a CompactLine or the LineBlock the line was compressed into
+    private Object[] lines;
+    private int firstLine;
+    private int lineCount;
+    // Number of lines that have been removed from the top since the buffer was cleared, used to turn line numbers into
+    // positions within a LineBlock
+    private long removedLineCount;
+    // Lines above these have been compacted and compressed, respectively
+    private int compactedLineCount;
+    private int compressedLineCount;
+    private boolean compressionEnabled;
+    // Styles of the compact lines; every compact line, block and the spill file holds references to the styles it uses
+    private CompactLine.StyleTable styleTable;
+
+    private LineBlock lastInflatedBlock;
+    private CompactLine[] lastInflatedLines;
+
+    // Compact copies of the regular lines made for snapshots, at the same index as the line in the lines array; an
+    // entry is cleared whenever its line is replaced or written to, so that unchanged lines are only compacted once
+    private CompactLine[] snapshotLineCache;
+    // Snapshots only use the text of the lines, so the styles of the cached copies are given back straight away
+    private final CompactLine.StyleTable snapshotStyleTable;
+
+    private LineSpillFile spillFile;
+    // Styles used by the spilled lines, each holding one reference in the style table
+    private final BitSet spilledStyles;
+    private int lastReadSpilledLineNumber;
+    private CompactLine lastReadSpilledLine;
 
     TextBuffer() {
-        this.lines = new LinkedList<List<TextCharacter>>();
+        this.lines = new Object[INITIAL_CAPACITY];
+        this.firstLine = 0;
+        this.lineCount = 0;
+        this.removedLineCount = 0;
+        this.compactedLineCount = 0;
+        this.compressedLineCount = 0;
+        this.compressionEnabled = false;
+        this.styleTable = new CompactLine.StyleTable();
+        this.lastInflatedBlock = null;
+        this.lastInflatedLines = null;
+        this.snapshotLineCache = new CompactLine[INITIAL_CAPACITY];
+        this.snapshotStyleTable = new CompactLine.StyleTable();
+        this.spillFile = null;
+        this.spilledStyles = new BitSet();
+        this.lastReadSpilledLineNumber = -1;
+        this.lastReadSpilledLine = null;
         newLine();
     }
 
     synchronized void newLine() {
-        lines.add(new ArrayList<TextCharacter>(200));
+        if(lineCount == lines.length) {
+            growLines();
+        }
+        int index = (firstLine + lineCount) % lines.length;
+        lines[index] = new ArrayList<TextCharacter>(200);
+        snapshotLineCache[index] = null;
+        lineCount++;
+    }
+
+    private void growLines() {
+        Object[] newLines = new Object[lines.length * 2];
+        int linesBeforeWrap = Math.min(lineCount, lines.length - firstLine);
+        System.arraycopy(lines, firstLine, newLines, 0, linesBeforeWrap);
+        System.arraycopy(lines, 0, newLines, linesBeforeWrap, lineCount - linesBeforeWrap);
+        lines = newLines;
+        firstLine = 0;
+        // The lines have moved, start over rather than moving the cached copies along with them
+        snapshotLineCache = new CompactLine[lines.length];
     }
 
     synchronized void removeTopLines(int numberOfLinesToRemove) {
+        numberOfLinesToRemove = Math.min(numberOfLinesToRemove, lineCount);
         for(int i = 0; i < numberOfLinesToRemove; i++) {
-            lines.removeFirst();
+            Object line = lines[firstLine];
+            if(line instanceof CompactLine) {
+                ((CompactLine)line).releaseStyles(styleTable);
+            }
+            else if(line instanceof LineBlock) {
+                // A block holds on to the styles of all its lines until the last of them is removed
+                LineBlock block = (LineBlock)line;
+                if(removedLineCount + i == block.firstLine + block.lineCount - 1) {
+                    block.releaseStyles(styleTable);
+                }
+            }
+            lines[firstLine] = null;
+            snapshotLineCache[firstLine] = null;
+            firstLine = (firstLine + 1) % lines.length;
         }
+        lineCount -= numberOfLinesToRemove;
+        removedLineCount += numberOfLinesToRemove;
+        compactedLineCount = Math.max(0, compactedLineCount - numberOfLinesToRemove);
+        compressedLineCount = Math.max(0, compressedLineCount - numberOfLinesToRemove);
     }
 
     synchronized void clear() {
-        lines.clear();
+        if(lines.length > INITIAL_CAPACITY) {
+            lines = new Object[INITIAL_CAPACITY];
+            snapshotLineCache = new CompactLine[INITIAL_CAPACITY];
+        }
+        else {
+            Arrays.fill(lines, null);
+            Arrays.fill(snapshotLineCache, null);
+        }
+        firstLine = 0;
+        lineCount = 0;
+        removedLineCount = 0;
+        compactedLineCount = 0;
+        compressedLineCount = 0;
+        lastInflatedBlock = null;
+        lastInflatedLines = null;
+        styleTable = new CompactLine.StyleTable();
+        if(spillFile != null) {
+            spillFile.clear();
+        }
+        spilledStyles.clear();
+        lastReadSpilledLineNumber = -1;
+        lastReadSpilledLine = null;
         newLine();
     }
 
-    ListIterator<List<TextCharacter>> getLinesFrom(int rowNumber) {
-        return lines.listIterator(rowNumber);
+    /**
+     * Starts moving lines dropped through {@link #spillTopLines(int)} to memory-mapped files in the specified
+     * directory. Does nothing if lines are already being spilled.
+     * @param directory Directory to create the files in, or {@code null} for the default temporary-file directory
+     * @throws IOException If the files couldn't be created
+     */
+    synchronized void startSpilling(File directory) throws IOException {
+        if(spillFile == null) {
+            spillFile = new LineSpillFile(directory);
+        }
+    }
+
+    /**
+     * Stops spilling lines, the lines that have been spilled so far are discarded and the files are deleted
+     * @return Number of lines that were discarded from the top of the buffer
+     */
+    synchronized int stopSpilling() {
+        if(spillFile == null) {
+            return 0;
+        }
+        int spilledLineCount = spillFile.getLineCount();
+        spillFile.close();
+        spillFile = null;
+        for(int style = spilledStyles.nextSetBit(0); style >= 0; style = spilledStyles.nextSetBit(style + 1)) {
+            styleTable.release(style);
+        }
+        spilledStyles.clear();
+        lastReadSpilledLineNumber = -1;
+        lastReadSpilledLine = null;
+        return spilledLineCount;
+    }
+
+    synchronized boolean isSpilling() {
+        return spillFile != null;
+    }
+
+    synchronized int getSpilledLineCount() {
+        return spillFile != null ? spillFile.getLineCount() : 0;
+    }
+
+    /**
+     * Moves lines from the top of the in-memory part of the buffer to the spill file. The line numbers stay the same.
+     * @param numberOfLinesToSpill How many lines to move
+     */
+    synchronized void spillTopLines(int numberOfLinesToSpill) {
+        if(spillFile == null) {
+            throw new IllegalStateException("Cannot spill lines from a TextBuffer without a spill file");
+        }
+        numberOfLinesToSpill = Math.min(numberOfLinesToSpill, lineCount);
+        try {
+            for(int i = 0; i < numberOfLinesToSpill; i++) {
+                Object line = getStoredLine(spillFile.getLineCount());
+                CompactLine compactLine;
+                if(line instanceof List) {
+                    @SuppressWarnings("unchecked")
+                    List<TextCharacter> list = (List<TextCharacter>)line;
+                    compactLine = CompactLine.compact(list, styleTable);
+                }
+                else {
+                    compactLine = (CompactLine)line;
+                }
+                spillFile.append(compactLine);
+                retainSpilledStyles(compactLine);
+                if(line instanceof List) {
+                    compactLine.releaseStyles(styleTable);
+                }
+                removeTopLines(1);
+            }
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Unable to write to backlog spill file", e);
+        }
+    }
+
+    /**
+     * Moves lines from the end of the spill file back to the top of the in-memory part of the buffer, so that they can
+     * be modified again. This is used when the terminal grows taller and spilled lines would come back into view. The
+     * line numbers stay the same.
+     * @param numberOfLinesToUnspill How many lines to move
+     */
+    synchronized void unspillBottomLines(int numberOfLinesToUnspill) {
+        numberOfLinesToUnspill = Math.min(numberOfLinesToUnspill, getSpilledLineCount());
+        for(int i = 0; i < numberOfLinesToUnspill; i++) {
+            CompactLine line = spillFile.getLine(spillFile.getLineCount() - 1);
+            spillFile.removeLastLines(1);
+            // The styles are still held by the spill file, so they have the same indexes as when the line was spilled
+            line.retainStyles(styleTable);
+            if(lineCount == lines.length) {
+                growLines();
+            }
+            firstLine = (firstLine + lines.length - 1) % lines.length;
+            lines[firstLine] = line;
+            lineCount++;
+            removedLineCount--;
+            compactedLineCount++;
+            compressedLineCount++;
+        }
+        lastReadSpilledLineNumber = -1;
+        lastReadSpilledLine = null;
+    }
+
+    private void retainSpilledStyles(CompactLine line) {
+        int[] styles = new int[line.getRunCount()];
+        int styleCount = line.copyStyles(styles, 0);
+        for(int i = 0; i < styleCount; i++) {
+            if(!spilledStyles.get(styles[i])) {
+                styleTable.retain(styles[i]);
+                spilledStyles.set(styles[i]);
+            }
+        }
+    }
+
+    /**
+     * Deletes the spill file, if there is one
+     */
+    synchronized void close() {
+        stopSpilling();
+    }
+
+    /**
+     * Enables or disables deflating the compacted lines of this buffer, in blocks of {@value #LINES_PER_BLOCK} lines.
+     * Lines that have already been compressed stay that way.
+     * @param compressionEnabled {@code true} if compacted lines should be compressed as well
+     */
+    synchronized void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    synchronized boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * Converts all lines above a certain line number to their compact form, this is called with the first line that is
+     * visible on the terminal as lines scroll out of view.
+     * @param lineNumber Lines above this line number are compacted
+     */
+    synchronized void compactLinesBefore(int lineNumber) {
+        lineNumber = Math.min(lineNumber - getSpilledLineCount(), lineCount);
+        for(; compactedLineCount < lineNumber; compactedLineCount++) {
+            int index = (firstLine + compactedLineCount) % lines.length;
+            if(lines[index] instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<TextCharacter> line = (List<TextCharacter>)lines[index];
+                lines[index] = CompactLine.compact(line, styleTable);
+            }
+        }
+        if(compressionEnabled) {
+            compressLines();
+        }
+    }
+
+    private void compressLines() {
+        while(compactedLineCount - compressedLineCount >= LINES_PER_BLOCK) {
+            Object first = lines[(firstLine + compressedLineCount) % lines.length];
+            if(first instanceof LineBlock) {
+                LineBlock block = (LineBlock)first;
+                compressedLineCount = (int)(block.firstLine + block.lineCount - removedLineCount);
+                continue;
+            }
+            int compactLines = 0;
+            while(compactLines < LINES_PER_BLOCK &&
+                    lines[(firstLine + compressedLineCount + compactLines) % lines.length] instanceof CompactLine) {
+                compactLines++;
+            }
+            if(compactLines < LINES_PER_BLOCK) {
+                // Leave these uncompressed, the next line is part of a block already
+                compressedLineCount += compactLines;
+                continue;
+            }
+            CompactLine[] blockLines = new CompactLine[LINES_PER_BLOCK];
+            for(int i = 0; i < LINES_PER_BLOCK; i++) {
+                blockLines[i] = (CompactLine)lines[(firstLine + compressedLineCount + i) % lines.length];
+            }
+            LineBlock block = new LineBlock(removedLineCount + compressedLineCount, blockLines);
+            for(int i = 0; i < LINES_PER_BLOCK; i++) {
+                lines[(firstLine + compressedLineCount + i) % lines.length] = block;
+            }
+            compressedLineCount += LINES_PER_BLOCK;
+        }
+    }
+
+    /**
+     * Returns how many different styles the compact lines of this buffer are using
+     * @return Number of styles in use
+     */
+    synchronized int getStyleCount() {
+        return styleTable.size();
     }
 
     synchronized int getLineCount() {
-        return lines.size();
+        return getSpilledLineCount() + lineCount;
+    }
+
+    /**
+     * Returns a view of the line at a particular line number, or {@code null} if there is no such line. Compacted lines
+     * are decoded one character at a time as they are read.
+     * @param lineNumber Line number, where 0 is the oldest line in the buffer
+     * @return View of the line
+     */
+    synchronized VirtualTerminal.BufferLine getBufferLine(int lineNumber) {
+        if(lineNumber < 0 || lineNumber >= getLineCount()) {
+            return null;
+        }
+        Object line = getStoredLine(lineNumber);
+        if(line instanceof CompactLine) {
+            final CompactLine compactLine = (CompactLine)line;
+            final CompactLine.StyleTable styleTable = this.styleTable;
+            return new VirtualTerminal.BufferLine() {
+                @Override
+                public TextCharacter getCharacterAt(int column) {
+                    TextCharacter textCharacter;
+                    synchronized(TextBuffer.this) {
+                        textCharacter = compactLine.getCharacter(column, styleTable);
+                    }
+                    return textCharacter != null ? textCharacter : TextCharacter.DEFAULT_CHARACTER;
+                }
+            };
+        }
+        @SuppressWarnings("unchecked")
+        final List<TextCharacter> list = (List<TextCharacter>)line;
+        return new VirtualTerminal.BufferLine() {
+            @Override
+            public TextCharacter getCharacterAt(int column) {
+                if(column >= list.size()) {
+                    return TextCharacter.DEFAULT_CHARACTER;
+                }
+                return list.get(column);
+            }
+        };
+    }
+
+    /**
+     * Returns the line at a line number as either a {@code List<TextCharacter>} or a {@link CompactLine}, inflating it
+     * from its block or reading it from the spill file if necessary
+     */
+    private Object getStoredLine(int lineNumber) {
+        int spilledLineCount = getSpilledLineCount();
+        if(lineNumber < spilledLineCount) {
+            if(lineNumber != lastReadSpilledLineNumber) {
+                lastReadSpilledLine = spillFile.getLine(lineNumber);
+                lastReadSpilledLineNumber = lineNumber;
+            }
+            return lastReadSpilledLine;
+        }
+        int memoryLineNumber = lineNumber - spilledLineCount;
+        Object line = lines[(firstLine + memoryLineNumber) % lines.length];
+        if(line instanceof LineBlock) {
+            LineBlock block = (LineBlock)line;
+            return inflate(block)[(int)(removedLineCount + memoryLineNumber - block.firstLine)];
+        }
+        return line;
+    }
+
+    private CompactLine[] inflate(LineBlock block) {
+        if(block != lastInflatedBlock) {
+            lastInflatedLines = block.inflate();
+            lastInflatedBlock = block;
+        }
+        return lastInflatedLines;
+    }
+
+    /**
+     * Returns the line at a line number in a form that can be modified, turning it back into a regular line first if
+     * it has been compacted or compressed
+     */
+    private List<TextCharacter> getModifiableLine(int lineNumber) {
+        int index = (firstLine + lineNumber) % lines.length;
+        // The line is about to change
+        snapshotLineCache[index] = null;
+        Object line = lines[index];
+        if(line instanceof LineBlock) {
+            // Put the whole block back as compact lines
+            LineBlock block = (LineBlock)line;
+            CompactLine[] blockLines = inflate(block);
+            int blockStart = (int)(block.firstLine - removedLineCount);
+            for(int i = blockStart; i < blockStart + blockLines.length; i++) {
+                if(i >= 0 && i < lineCount && lines[(firstLine + i) % lines.length] == block) {
+                    lines[(firstLine + i) % lines.length] = blockLines[i - blockStart];
+                }
+                else {
+                    // The block was holding on to the styles of its lines that have been removed or spilled since
+                    blockLines[i - blockStart].releaseStyles(styleTable);
+                }
+            }
+            compressedLineCount = Math.min(compressedLineCount, Math.max(0, blockStart));
+            line = lines[index];
+        }
+        if(line instanceof CompactLine) {
+            CompactLine compactLine = (CompactLine)line;
+            line = compactLine.expand(styleTable);
+            compactLine.releaseStyles(styleTable);
+            lines[index] = line;
+            compactedLineCount = Math.min(compactedLineCount, lineNumber);
+            compressedLineCount = Math.min(compressedLineCount, lineNumber);
+        }
+        @SuppressWarnings("unchecked")
+        List<TextCharacter> list = (List<TextCharacter>)line;
+        return list;
     }
 
     synchronized int setCharacter(int lineNumber, int columnIndex, TextCharacter textCharacter) {
@@ -70,10 +484,15 @@ class TextBuffer {
         if(textCharacter == null) {
             textCharacter = TextCharacter.DEFAULT_CHARACTER;
         }
-        while(lineNumber >= lines.size()) {
+        int memoryLineNumber = lineNumber - getSpilledLineCount();
+        if(memoryLineNumber < 0) {
+            // Spilled lines are read-only
+            return 0;
+        }
+        while(memoryLineNumber >= lineCount) {
             newLine();
         }
-        List<TextCharacter> line = lines.get(lineNumber);
+        List<TextCharacter> line = getModifiableLine(memoryLineNumber);
         while(line.size() <= columnIndex) {
             line.add(TextCharacter.DEFAULT_CHARACTER);
         }
@@ -104,10 +523,23 @@ class TextBuffer {
             throw new IllegalArgumentException("Illegal argument to TextBuffer.getCharacter(..), lineNumber = " +
                     lineNumber + ", columnIndex = " + columnIndex);
         }
-        if(lineNumber >= lines.size()) {
+        if(lineNumber >= getLineCount()) {
             return TextCharacter.DEFAULT_CHARACTER;
         }
-        List<TextCharacter> line = lines.get(lineNumber);
+        Object storedLine = getStoredLine(lineNumber);
+        if(storedLine instanceof CompactLine) {
+            CompactLine compactLine = (CompactLine)storedLine;
+            TextCharacter textCharacter = compactLine.getCharacter(columnIndex, styleTable);
+            if(textCharacter == null) {
+                return TextCharacter.DEFAULT_CHARACTER;
+            }
+            if(textCharacter == DOUBLE_WIDTH_CHAR_PADDING) {
+                return compactLine.getCharacter(columnIndex - 1, styleTable);
+            }
+            return textCharacter;
+        }
+        @SuppressWarnings("unchecked")
+        List<TextCharacter> line = (List<TextCharacter>)storedLine;
         if(line.size() <= columnIndex) {
             return TextCharacter.DEFAULT_CHARACTER;
         }
@@ -117,4 +549,157 @@ class TextBuffer {
         }
         return textCharacter;
     }
+
+    /**
+     * Takes a snapshot of the lines in the buffer, which can be read without holding the lock of the buffer. Lines that
+     * haven't been compacted yet are compacted into the snapshot, the others are shared with the buffer since they
+     * don't change. The compacted copies are kept until their line is written to, so taking another snapshot only
+     * needs to compact the lines that have changed since the last one.
+     * @return Snapshot of the lines in the buffer
+     */
+    synchronized Snapshot getSnapshot() {
+        Object[] snapshotLines = new Object[lineCount];
+        for(int i = 0; i < lineCount; i++) {
+            int index = (firstLine + i) % lines.length;
+            Object line = lines[index];
+            if(line instanceof List) {
+                if(snapshotLineCache[index] == null) {
+                    @SuppressWarnings("unchecked")
+                    List<TextCharacter> list = (List<TextCharacter>)line;
+                    CompactLine compactLine = CompactLine.compact(list, snapshotStyleTable);
+                    compactLine.releaseStyles(snapshotStyleTable);
+                    snapshotLineCache[index] = compactLine;
+                }
+                line = snapshotLineCache[index];
+            }
+            snapshotLines[i] = line;
+        }
+        return new Snapshot(spillFile, getSpilledLineCount(), snapshotLines, removedLineCount);
+    }
+
+    /**
+     * The lines of a {@link TextBuffer} at one point in time
+     */
+    static class Snapshot {
+        private final LineSpillFile spillFile;
+        private final int spilledLineCount;
+        private final Object[] lines;
+        private final long removedLineCount;
+
+        private Snapshot(LineSpillFile spillFile, int spilledLineCount, Object[] lines, long removedLineCount) {
+            this.spillFile = spillFile;
+            this.spilledLineCount = spilledLineCount;
+            this.lines = lines;
+            this.removedLineCount = removedLineCount;
+        }
+
+        int getLineCount() {
+            return spilledLineCount + lines.length;
+        }
+
+        /**
+         * Creates a reader for the lines in this snapshot. Readers keep the last block of compressed lines they have
+         * inflated, so they must not be shared between threads.
+         * @return New reader for this snapshot
+         */
+        Reader newReader() {
+            return new Reader();
+        }
+
+        class Reader {
+            private LineBlock lastInflatedBlock;
+            private CompactLine[] lastInflatedLines;
+
+            /**
+             * Returns a line from the snapshot
+             * @param lineNumber Line number, where 0 is the oldest line in the buffer
+             * @return The line, or {@code null} if it could not be read (for example, it has been spilled to a file that
+             * has since been closed)
+             */
+            CompactLine getLine(int lineNumber) {
+                if(lineNumber < spilledLineCount) {
+                    try {
+                        return spillFile.getLine(lineNumber);
+                    }
+                    catch(IllegalArgumentException e) {
+                        return null;
+                    }
+                }
+                int memoryLineNumber = lineNumber - spilledLineCount;
+                Object line = lines[memoryLineNumber];
+                if(line instanceof LineBlock) {
+                    LineBlock block = (LineBlock)line;
+                    if(block != lastInflatedBlock) {
+                        lastInflatedLines = block.inflate();
+                        lastInflatedBlock = block;
+                    }
+                    return lastInflatedLines[(int)(removedLineCount + memoryLineNumber - block.firstLine)];
+                }
+                return (CompactLine)line;
+            }
+        }
+    }
+
+    /**
+     * A group of consecutive {@link CompactLine}s, serialized and deflated into a single byte array
+     */
+    private static class LineBlock {
+        // Line number of the first line in the block, counting lines removed from the buffer
+        private final long firstLine;
+        private final int lineCount;
+        private final byte[] data;
+        // The style references of the lines, which the block takes over
+        private final int[] styles;
+
+        LineBlock(long firstLine, CompactLine[] lines) {
+            this.firstLine = firstLine;
+            this.lineCount = lines.length;
+            int runCount = 0;
+            for(CompactLine line: lines) {
+                runCount += line.getRunCount();
+            }
+            int[] styles = new int[runCount];
+            int styleCount = 0;
+            for(CompactLine line: lines) {
+                styleCount = line.copyStyles(styles, styleCount);
+            }
+            this.styles = Arrays.copyOf(styles, styleCount);
+            try {
+                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                        new DeflaterOutputStream(byteArrayOutputStream), 8192));
+                for(CompactLine line: lines) {
+                    line.writeTo(output);
+                }
+                output.close();
+                this.data = byteArrayOutputStream.toByteArray();
+            }
+            catch(IOException e) {
+                // Can't happen when writing to memory
+                throw new IllegalStateException("Unable to compress lines", e);
+            }
+        }
+
+        void releaseStyles(CompactLine.StyleTable styleTable) {
+            for(int style: styles) {
+                styleTable.release(style);
+            }
+        }
+
+        CompactLine[] inflate() {
+            try {
+                DataInputStream input = new DataInputStream(new BufferedInputStream(
+                        new InflaterInputStream(new ByteArrayInputStream(data)), 8192));
+                CompactLine[] lines = new CompactLine[lineCount];
+                for(int i = 0; i < lineCount; i++) {
+                    lines[i] = CompactLine.readFrom(input);
+                }
+                input.close();
+                return lines;
+            }
+            catch(IOException e) {
+                throw new IllegalStateException("Unable to decompress lines", e);
+            }
+        }
+    }
 }
@@ -0,0 +1,338 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.virtual;
+
+import com.googlecode.lanterna.TerminalPosition;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches the lines of a {@link TextBuffer} for text, as used by {@link DefaultVirtualTerminal}. The search runs on a
+ * {@link TextBuffer.Snapshot}, so the terminal can keep being written to while it's going on. Matches are found within
+ * one line at a time, using the characters of each line as they're already stored in the {@link CompactLine}s (the
+ * padding after double-width characters is left out). Large buffers are split into chunks that are searched in
+ * parallel, using one thread per processor.
+ */
+class TextBufferSearch {
+    private static final int CHUNK_SIZE = 4096;
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService searchExecutor;
+
+    /**
+     * Finds what to look for on a single line
+     */
+    interface LineMatcher {
+        /**
+         * Finds the first match starting at or after an index
+         * @param text Text of the line
+         * @param length Length of the text, which may be shorter than the array
+         * @param fromIndex Index to start looking from
+         * @return Index of the first match, or -1 if there is none
+         */
+        int findFirst(char[] text, int length, int fromIndex);
+
+        /**
+         * Finds the last match starting before an index
+         * @param text Text of the line
+         * @param length Length of the text, which may be shorter than the array
+         * @param beforeIndex Matches must start before this index
+         * @return Index of the last match, or -1 if there is none
+         */
+        int findLast(char[] text, int length, int beforeIndex);
+    }
+
+    static LineMatcher literal(final String searchText) {
+        if(searchText == null || searchText.isEmpty()) {
+            throw new IllegalArgumentException("Cannot search for null or empty text");
+        }
+        final char[] needle = searchText.toCharArray();
+        return new LineMatcher() {
+            @Override
+            public int findFirst(char[] text, int length, int fromIndex) {
+                for(int i = Math.max(0, fromIndex); i <= length - needle.length; i++) {
+                    if(matchesAt(text, i)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public int findLast(char[] text, int length, int beforeIndex) {
+                for(int i = Math.min(beforeIndex - 1, length - needle.length); i >= 0; i--) {
+                    if(matchesAt(text, i)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
+            private boolean matchesAt(char[] text, int index) {
+                for(int i = 0; i < needle.length; i++) {
+                    if(text[index + i] != needle[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    static LineMatcher pattern(final Pattern pattern) {
+        if(pattern == null) {
+            throw new IllegalArgumentException("Cannot search for null pattern");
+        }
+        return new LineMatcher() {
+            @Override
+            public int findFirst(char[] text, int length, int fromIndex) {
+                if(fromIndex > length) {
+                    return -1;
+                }
+                Matcher matcher = pattern.matcher(CharBuffer.wrap(text, 0, length));
+                return matcher.find(Math.max(0, fromIndex)) ? matcher.start() : -1;
+            }
+
+            @Override
+            public int findLast(char[] text, int length, int beforeIndex) {
+                Matcher matcher = pattern.matcher(CharBuffer.wrap(text, 0, length));
+                int last = -1;
+                int from = 0;
+                while(from <= length && matcher.find(from) && matcher.start() < beforeIndex) {
+                    last = matcher.start();
+                    // Look for overlapping matches as well, same as the literal search does
+                    from = matcher.start() + 1;
+                }
+                return last;
+            }
+        };
+    }
+
+    /**
+     * Searches a snapshot for the next match, going forward or backward from a position
+     * @param snapshot Lines to search
+     * @param matcher What to look for
+     * @param from Position to search from, where forward searches find matches starting at this position or later and
+     * backward searches find matches starting before it. If {@code null}, forward searches start from the top and
+     * backward searches from the end of the buffer.
+     * @param forward {@code true} to search forward, {@code false} to search backward
+     * @return Position (counting rows from the first line of the backlog) of the first character of the match, or
+     * {@code null} if there was no match
+     */
+    static TerminalPosition find(
+            TextBuffer.Snapshot snapshot,
+            LineMatcher matcher,
+            TerminalPosition from,
+            boolean forward) {
+
+        return find(snapshot, matcher, from, forward, PROCESSORS > 1);
+    }
+
+    /**
+     * Searches a snapshot for the next match, see {@link #find(TextBuffer.Snapshot, LineMatcher, TerminalPosition,
+     * boolean)}
+     * @param parallel If {@code false}, the search is always done on the calling thread, otherwise large snapshots are
+     * split into chunks that are searched on the search threads
+     */
+    static TerminalPosition find(
+            final TextBuffer.Snapshot snapshot,
+            final LineMatcher matcher,
+            TerminalPosition from,
+            final boolean forward,
+            boolean parallel) {
+
+        int lineCount = snapshot.getLineCount();
+        if(from == null) {
+            from = forward ? TerminalPosition.TOP_LEFT_CORNER : new TerminalPosition(0, lineCount);
+        }
+        final TerminalPosition start = from;
+        // Range of rows to search, inclusive
+        int firstRow = forward ? Math.max(0, start.getRow()) : 0;
+        int lastRow = forward ? lineCount - 1 : Math.min(lineCount - 1, start.getRow());
+        if(firstRow > lastRow) {
+            return null;
+        }
+        int rows = lastRow - firstRow + 1;
+        if(rows <= CHUNK_SIZE * 2 || !parallel) {
+            return searchChunk(snapshot, matcher, start, forward, firstRow, lastRow, 0, null);
+        }
+
+        // Split into chunks in the order they should be searched and search them all at once, the result is the match
+        // from the first chunk (in search order) that has one
+        List<Future<TerminalPosition>> chunks = new ArrayList<Future<TerminalPosition>>();
+        final AtomicInteger firstChunkWithMatch = new AtomicInteger(Integer.MAX_VALUE);
+        ExecutorService executor = getSearchExecutor();
+        for(int chunk = 0; chunk * CHUNK_SIZE < rows; chunk++) {
+            final int chunkIndex = chunk;
+            final int chunkFirstRow;
+            final int chunkLastRow;
+            if(forward) {
+                chunkFirstRow = firstRow + chunk * CHUNK_SIZE;
+                chunkLastRow = Math.min(lastRow, chunkFirstRow + CHUNK_SIZE - 1);
+            }
+            else {
+                chunkLastRow = lastRow - chunk * CHUNK_SIZE;
+                chunkFirstRow = Math.max(firstRow, chunkLastRow - CHUNK_SIZE + 1);
+            }
+            chunks.add(executor.submit(new Callable<TerminalPosition>() {
+                @Override
+                public TerminalPosition call() {
+                    return searchChunk(snapshot, matcher, start, forward, chunkFirstRow, chunkLastRow,
+                            chunkIndex, firstChunkWithMatch);
+                }
+            }));
+        }
+        try {
+            for(Future<TerminalPosition> chunk: chunks) {
+                TerminalPosition match = getResult(chunk);
+                if(match != null) {
+                    return match;
+                }
+            }
+            return null;
+        }
+        finally {
+            for(Future<TerminalPosition> chunk: chunks) {
+                chunk.cancel(false);
+            }
+        }
+    }
+
+    private static TerminalPosition getResult(Future<TerminalPosition> chunk) {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return chunk.get();
+                }
+                catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new IllegalStateException("Error while searching the text buffer", e.getCause());
+        }
+        finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static TerminalPosition searchChunk(
+            TextBuffer.Snapshot snapshot,
+            LineMatcher matcher,
+            TerminalPosition start,
+            boolean forward,
+            int firstRow,
+            int lastRow,
+            int chunkIndex,
+            AtomicInteger firstChunkWithMatch) {
+
+        TextBuffer.Snapshot.Reader reader = snapshot.newReader();
+        char[] textBuffer = new char[256];
+        int step = forward ? 1 : -1;
+        for(int row = forward ? firstRow : lastRow; row >= firstRow && row <= lastRow; row += step) {
+            if(firstChunkWithMatch != null && firstChunkWithMatch.get() < chunkIndex) {
+                // An earlier chunk has a match already, so whatever this one finds won't be used
+                return null;
+            }
+            CompactLine line = reader.getLine(row);
+            if(line == null) {
+                continue;
+            }
+            char[] characters = line.getCharacters();
+            int[] columns = line.getCharacterColumns();
+            char[] text = characters;
+            int length = characters.length;
+            if(columns != null) {
+                length = columns.length;
+                if(textBuffer.length < length) {
+                    textBuffer = new char[length];
+                }
+                for(int i = 0; i < length; i++) {
+                    textBuffer[i] = characters[columns[i]];
+                }
+                text = textBuffer;
+            }
+
+            int index;
+            if(row == start.getRow()) {
+                int startIndex = toIndex(columns, start.getColumn());
+                index = forward ? matcher.findFirst(text, length, startIndex) : matcher.findLast(text, length, startIndex);
+            }
+            else {
+                index = forward ? matcher.findFirst(text, length, 0) : matcher.findLast(text, length, length);
+            }
+            if(index >= 0) {
+                if(firstChunkWithMatch != null) {
+                    int current;
+                    do {
+                        current = firstChunkWithMatch.get();
+                    }
+                    while(chunkIndex < current && !firstChunkWithMatch.compareAndSet(current, chunkIndex));
+                }
+                return new TerminalPosition(columns != null ? columns[index] : index, row);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Turns a column into an index into the text of the line, where the padding columns have been left out
+     */
+    private static int toIndex(int[] columns, int column) {
+        if(columns == null) {
+            return column;
+        }
+        int index = 0;
+        while(index < columns.length && columns[index] < column) {
+            index++;
+        }
+        return index;
+    }
+
+    private static synchronized ExecutorService getSearchExecutor() {
+        if(searchExecutor == null) {
+            searchExecutor = Executors.newFixedThreadPool(PROCESSORS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "VirtualTerminalSearch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return searchExecutor;
+    }
+}
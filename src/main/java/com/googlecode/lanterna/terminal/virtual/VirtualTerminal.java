@@ -24,6 +24,8 @@ import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.terminal.IOSafeTerminal;
 
+import java.util.regex.Pattern;
+
 /**
  * A virtual terminal is a kind of terminal emulator implemented inside of Lanterna that exposes the Terminal interface
  * and maintains its state completely internally. The {@link VirtualTerminal} interface extends this interface and
@@ -140,6 +142,35 @@ public interface VirtualTerminal extends IOSafeTerminal {
      */
     void forEachLine(int startRow, int endRow, BufferWalker bufferWalker);
 
+    /**
+     * Searches the text buffer, including the backlog, for a piece of text. Matches are only found within a line, not
+     * across line breaks. Double-width characters count as one character when matching, even though they take up two
+     * columns. The search works on a copy of the buffer as it was when the method was called, so the terminal can keep
+     * being updated while it's running.
+     * <p>
+     * To find all occurrences one after another, start from the position of the previous match moved one column to the
+     * right when searching forward, or from the position of the previous match itself when searching backward.
+     * @param text Text to search for, matched exactly
+     * @param from Position in the buffer to search from, counting rows from the first line of the backlog. Searching
+     *             forward finds matches starting at this position or after it, searching backward finds matches
+     *             starting before it. If {@code null}, the search starts from the beginning of the buffer when going
+     *             forward and from the end when going backward.
+     * @param forward {@code true} to search toward the end of the buffer, {@code false} to search toward the beginning
+     * @return Position in the buffer of the first character of the match (with rows counted from the first line of the
+     * backlog, same as {@link #getBufferCharacter(int, int)}), or {@code null} if there was no match
+     */
+    TerminalPosition findText(String text, TerminalPosition from, boolean forward);
+
+    /**
+     * Searches the text buffer, including the backlog, for text matching a regular expression. This works the same way
+     * as {@link #findText(String, TerminalPosition, boolean)}, except for what is being looked for.
+     * @param pattern Regular expression to search for
+     * @param from Position in the buffer to search from, see {@link #findText(String, TerminalPosition, boolean)}
+     * @param forward {@code true} to search toward the end of the buffer, {@code false} to search toward the beginning
+     * @return Position in the buffer of the first character of the match, or {@code null} if there was no match
+     */
+    TerminalPosition findPattern(Pattern pattern, TerminalPosition from, boolean forward);
+
     /**
      * Interface used by {@link BufferWalker} to repressent a line in the text buffer when iterating over a range of
      * lines
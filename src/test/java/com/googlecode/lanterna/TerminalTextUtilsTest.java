@@ -19,10 +19,14 @@
 package com.googlecode.lanterna;
 
 import static org.junit.Assert.*;
+
+import com.googlecode.lanterna.screen.TabBehaviour;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 public class TerminalTextUtilsTest {
     @Test
@@ -260,6 +264,104 @@ public class TerminalTextUtilsTest {
                 TerminalTextUtils.getWordWrappedText(3, "aあbc"));
     }
 
+    @Test
+    public void doubleWidthTableMatchesUnicodeBlocks() {
+        for(int c = 0; c <= Character.MAX_VALUE; c++) {
+            assertEquals("Character " + Integer.toHexString(c),
+                    TerminalTextUtils.isCharCJKByUnicodeBlock((char)c),
+                    TerminalTextUtils.isCharCJK((char)c));
+        }
+        assertFalse(TerminalTextUtils.isCharCJK('\u0000'));
+        assertFalse(TerminalTextUtils.isCharCJK('\uffff'));
+        assertFalse(TerminalTextUtils.isCharCJK('\u10ff'));
+        assertTrue(TerminalTextUtils.isCharCJK('\u1100'));    // First Hangul Jamo
+    }
+
+    @Test
+    public void getColumnIndexCountsTabsAndDoubleWidthCharacters() {
+        assertEquals(3, TerminalTextUtils.getColumnIndex("abc", 3));
+        assertEquals(6, TerminalTextUtils.getColumnIndex("a\tb", 3, TabBehaviour.CONVERT_TO_FOUR_SPACES, 0));
+        assertEquals(4, TerminalTextUtils.getColumnIndex("a\tb", 2, TabBehaviour.ALIGN_TO_COLUMN_4, 1));
+        assertEquals(7, TerminalTextUtils.getColumnIndex("a日\tb", 4, TabBehaviour.CONVERT_TO_THREE_SPACES, 0));
+        assertEquals(3, TerminalTextUtils.getColumnIndex("a\tb", 3, TabBehaviour.IGNORE, 0));
+    }
+
+    @Test
+    public void fitStringOnSingleWidthText() {
+        assertEquals("Hello", TerminalTextUtils.fitString("Hello World", 5));
+        assertEquals("Wor", TerminalTextUtils.fitString("Hello World", 6, 3));
+        assertEquals("World", TerminalTextUtils.fitString("Hello World", 6, 100));
+        assertEquals("World", TerminalTextUtils.fitString("Hello World", 6, Integer.MAX_VALUE));
+        assertEquals("", TerminalTextUtils.fitString("Hello World", 11, 5));
+        assertEquals("", TerminalTextUtils.fitString("Hello World", 20, 5));
+        assertEquals("", TerminalTextUtils.fitString("Hello World", 0, 0));
+        assertEquals("", TerminalTextUtils.fitString("", 0, 5));
+        assertEquals("a\tb", TerminalTextUtils.fitString("a\tb", 0, 3));
+        assertEquals("ÀÁÂ", TerminalTextUtils.fitString(LATIN1.substring(LATIN1.indexOf('À')), 3));
+    }
+
+    @Test
+    public void fitStringMatchesColumnByColumnFitting() {
+        Random random = new Random(5678);
+        String characters = "ab \tÀ日本ｱ";
+        for(int i = 0; i < 5000; i++) {
+            StringBuilder string = new StringBuilder();
+            int length = random.nextInt(12);
+            boolean singleWidthOnly = random.nextBoolean();
+            for(int j = 0; j < length; j++) {
+                string.append(characters.charAt(random.nextInt(singleWidthOnly ? 5 : characters.length())));
+            }
+            int fromColumn = random.nextInt(15);
+            int availableColumnSpace = random.nextInt(15);
+            assertEquals(string + " from " + fromColumn + " in " + availableColumnSpace,
+                    fitStringColumnByColumn(string.toString(), fromColumn, availableColumnSpace),
+                    TerminalTextUtils.fitString(string.toString(), fromColumn, availableColumnSpace));
+        }
+    }
+
+    @Test
+    public void wordWrappingReturnsLinesThatAlreadyFitUnchanged() {
+        List<String> wrapped = TerminalTextUtils.getWordWrappedText(5, "abc", "", "abcde", "日本");
+        assertEquals(Arrays.asList("abc", "", "abcde", "日本"), wrapped);
+        // The result is a new list that can be modified
+        wrapped.add("x");
+
+        // Fits by string length but not by column width
+        assertEquals(Arrays.asList("日本", "語"), TerminalTextUtils.getWordWrappedText(5, "日本語"));
+        // One line not fitting means all the lines go through wrapping
+        assertEquals(Arrays.asList("abc", "abc", "abcd"), TerminalTextUtils.getWordWrappedText(5, "abc", "abc abcd"));
+        assertEquals(Arrays.asList("abc", "abc"), TerminalTextUtils.getWordWrappedText(0, "abc", "abc"));
+    }
+
+    // How fitString worked before it had a separate path for text without double-width characters
+    private static String fitStringColumnByColumn(String string, int fromColumn, int availableColumnSpace) {
+        if(availableColumnSpace <= 0) {
+            return "";
+        }
+        StringBuilder bob = new StringBuilder();
+        int column = 0;
+        int index = 0;
+        while(index < string.length() && column < fromColumn) {
+            char c = string.charAt(index++);
+            column += TerminalTextUtils.isCharCJK(c) ? 2 : 1;
+        }
+        if(column > fromColumn) {
+            bob.append(" ");
+            availableColumnSpace--;
+        }
+        while(availableColumnSpace > 0 && index < string.length()) {
+            char c = string.charAt(index++);
+            availableColumnSpace -= TerminalTextUtils.isCharCJK(c) ? 2 : 1;
+            if(availableColumnSpace < 0) {
+                bob.append(' ');
+            }
+            else {
+                bob.append(c);
+            }
+        }
+        return bob.toString();
+    }
+
     // Add a test for traditional Chinese characters here? If someone can contribute a list! The list of simplified
     // Chinese characters was difficult enough...
     private static final String LATIN1 =
@@ -0,0 +1,125 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AbstractComponentTest {
+    private static final TerminalSize SCREEN_SIZE = new TerminalSize(30, 8);
+
+    @Test
+    public void renderCachedPanelIsRedrawnWhenFocusMoves() throws IOException {
+        TestGUI cached = new TestGUI(true);
+        TestGUI uncached = new TestGUI(false);
+        cached.update();
+        uncached.update();
+        assertSameScreen(uncached, cached);
+
+        cached.second.takeFocus();
+        uncached.second.takeFocus();
+        cached.update();
+        uncached.update();
+        assertSameScreen(uncached, cached);
+
+        cached.first.takeFocus();
+        uncached.first.takeFocus();
+        cached.update();
+        uncached.update();
+        assertSameScreen(uncached, cached);
+    }
+
+    @Test
+    public void interactablesAreInvalidatedWhenTheyGainOrLoseFocus() throws IOException {
+        TestGUI gui = new TestGUI(true);
+        gui.update();
+        assertFalse(gui.first.isInvalid());
+        assertFalse(gui.second.isInvalid());
+
+        // Even without the pane invalidating everything, the components themselves need to be redrawn
+        gui.first.onLeaveFocus(Interactable.FocusChangeDirection.DOWN, gui.second);
+        gui.second.onEnterFocus(Interactable.FocusChangeDirection.DOWN, gui.first);
+        assertTrue(gui.first.isInvalid());
+        assertTrue(gui.second.isInvalid());
+    }
+
+    @Test
+    public void renderCachedPanelIsRedrawnWhenAChildChanges() throws IOException {
+        TestGUI cached = new TestGUI(true);
+        TestGUI uncached = new TestGUI(false);
+        cached.update();
+        uncached.update();
+
+        cached.label.setText("Changed");
+        uncached.label.setText("Changed");
+        cached.update();
+        uncached.update();
+        assertSameScreen(uncached, cached);
+    }
+
+    private void assertSameScreen(TestGUI expected, TestGUI actual) {
+        for(int row = 0; row < SCREEN_SIZE.getRows(); row++) {
+            for(int column = 0; column < SCREEN_SIZE.getColumns(); column++) {
+                TextCharacter expectedCharacter = expected.screen.getFrontCharacter(column, row);
+                assertEquals("Column " + column + ", row " + row,
+                        expectedCharacter, actual.screen.getFrontCharacter(column, row));
+            }
+        }
+    }
+
+    private static class TestGUI {
+        private final TerminalScreen screen;
+        private final MultiWindowTextGUI textGUI;
+        private final Button first;
+        private final Button second;
+        private final Label label;
+
+        TestGUI(boolean renderCaching) throws IOException {
+            screen = new TerminalScreen(new DefaultVirtualTerminal(SCREEN_SIZE));
+            screen.startScreen();
+            textGUI = new MultiWindowTextGUI(new SameTextGUIThread.Factory(), screen);
+            first = new Button("First");
+            second = new Button("Second");
+            label = new Label("Label");
+            Panel panel = new Panel();
+            panel.addComponent(first);
+            panel.addComponent(second);
+            panel.addComponent(label);
+            panel.setRenderCaching(renderCaching);
+            BasicWindow window = new BasicWindow();
+            window.setHints(Arrays.asList(Window.Hint.NO_DECORATIONS, Window.Hint.NO_POST_RENDERING));
+            window.setPosition(TerminalPosition.TOP_LEFT_CORNER);
+            window.setComponent(panel);
+            textGUI.addWindow(window);
+        }
+
+        void update() throws IOException {
+            textGUI.updateScreen();
+        }
+    }
+}
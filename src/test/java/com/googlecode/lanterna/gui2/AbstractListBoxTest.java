@@ -0,0 +1,247 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalSize;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AbstractListBoxTest {
+
+    @Test
+    public void selectionFollowsTheSelectedItemWhenItemsAreInserted() {
+        RangeListModel<String> model = new RangeListModel<String>("a", "b", "c", "d", "e");
+        CheckBoxList<String> listBox = newListBox(model);
+        listBox.setSelectedIndex(2);
+
+        model.insert(3, "after1", "after2");
+        assertSelected(listBox, 2, "c");
+        model.insert(2, "at");
+        assertSelected(listBox, 3, "c");
+        model.insert(0, "before1", "before2");
+        assertSelected(listBox, 5, "c");
+        assertEquals(Arrays.asList("before1", "before2", "a", "b", "at", "c", "after1", "after2", "d", "e"),
+                listBox.getItems());
+    }
+
+    @Test
+    public void firstInsertedItemIsSelectedInAnEmptyList() {
+        RangeListModel<String> model = new RangeListModel<String>();
+        CheckBoxList<String> listBox = newListBox(model);
+        assertSelected(listBox, -1, null);
+        model.insert(0, "a", "b");
+        assertSelected(listBox, 0, "a");
+    }
+
+    @Test
+    public void selectionFollowsTheSelectedItemWhenItemsAreRemoved() {
+        RangeListModel<String> model = new RangeListModel<String>("a", "b", "c", "d", "e", "f", "g", "h");
+        CheckBoxList<String> listBox = newListBox(model);
+        listBox.setSelectedIndex(4);
+
+        model.remove(6, 2);
+        assertSelected(listBox, 4, "e");
+        model.remove(0, 2);
+        assertSelected(listBox, 2, "e");
+        assertEquals(Arrays.asList("c", "d", "e", "f"), listBox.getItems());
+    }
+
+    @Test
+    public void removingTheSelectedItemSelectsTheItemTakingItsPlace() {
+        RangeListModel<String> model = new RangeListModel<String>("a", "b", "c", "d", "e", "f", "g", "h");
+        CheckBoxList<String> listBox = newListBox(model);
+
+        // Selection in the middle of the range
+        listBox.setSelectedIndex(3);
+        model.remove(2, 3);
+        assertSelected(listBox, 2, "f");
+
+        // Selection at the start of the range
+        model.remove(2, 2);
+        assertSelected(listBox, 2, "h");
+
+        // Nothing after the range, so the last remaining item is selected
+        listBox.setSelectedIndex(2);
+        model.remove(1, 2);
+        assertSelected(listBox, 0, "a");
+
+        model.remove(0, 1);
+        assertSelected(listBox, -1, null);
+    }
+
+    @Test
+    public void checkedStateMovesWithTheItems() {
+        RangeListModel<String> model = new RangeListModel<String>("a", "b", "c", "d", "e");
+        CheckBoxList<String> listBox = newListBox(model);
+        listBox.setChecked("b", true);
+        listBox.setChecked("d", true);
+
+        model.insert(2, "new1", "new2");
+        assertEquals(Arrays.asList("b", "d"), listBox.getCheckedItems());
+        assertEquals(Boolean.FALSE, listBox.isChecked("new1"));
+        assertEquals(Boolean.FALSE, listBox.isChecked("new2"));
+        model.insert(0, "first");
+        assertEquals(Boolean.TRUE, listBox.isChecked(2));
+        assertEquals(Boolean.TRUE, listBox.isChecked(6));
+
+        // Removes "a", "b" and "new1"
+        model.remove(1, 3);
+        assertEquals(Collections.singletonList("d"), listBox.getCheckedItems());
+        assertEquals(Arrays.asList(false, false, false, true, false), getCheckedStates(listBox));
+    }
+
+    @Test
+    public void radioStateMovesWithTheItems() {
+        RangeListModel<String> model = new RangeListModel<String>("a", "b", "c", "d", "e");
+        RadioBoxList<String> listBox = new RadioBoxList<String>();
+        listBox.setListModel(model);
+        listBox.setCheckedItem("c");
+
+        model.insert(3, "after");
+        assertEquals(2, listBox.getCheckedItemIndex());
+        model.insert(2, "at");
+        assertEquals(3, listBox.getCheckedItemIndex());
+        model.insert(0, "before1", "before2");
+        assertEquals(5, listBox.getCheckedItemIndex());
+        assertEquals("c", listBox.getCheckedItem());
+        model.remove(6, 2);
+        assertEquals("c", listBox.getCheckedItem());
+        model.remove(0, 3);
+        assertEquals(2, listBox.getCheckedItemIndex());
+        assertEquals("c", listBox.getCheckedItem());
+
+        // Like removeItem(..) always did, the check stays where the removed item was
+        assertEquals(Arrays.asList("b", "at", "c", "e"), listBox.getItems());
+        model.remove(2, 1);
+        assertEquals(2, listBox.getCheckedItemIndex());
+        assertEquals("e", listBox.getCheckedItem());
+        model.remove(1, 2);
+        assertEquals(0, listBox.getCheckedItemIndex());
+        assertEquals("b", listBox.getCheckedItem());
+    }
+
+    @Test
+    public void preferredWidthOfSmallListsMeasuresEveryItem() {
+        List<String> items = new ArrayList<String>();
+        for(int i = 0; i < 100; i++) {
+            items.add(i == 99 ? "the widest item" : "item");
+        }
+        CountingRenderer renderer = new CountingRenderer();
+        CheckBoxList<String> listBox = newListBox(new RangeListModel<String>(items));
+        listBox.setListItemRenderer(renderer);
+        assertEquals(new TerminalSize(16, 100), listBox.getPreferredSize());
+        assertEquals(100, renderer.labelCount);
+    }
+
+    @Test
+    public void preferredWidthOfLargeListsMeasuresASample() {
+        List<String> items = new ArrayList<String>();
+        for(int i = 0; i < 100000; i++) {
+            items.add("item");
+        }
+        // Only every 100th item is measured
+        items.set(5000, "a sampled item that is wide");
+        items.set(5001, "an item that is in between the samples and even wider");
+        CountingRenderer renderer = new CountingRenderer();
+        CheckBoxList<String> listBox = newListBox(new RangeListModel<String>(items));
+        listBox.setListItemRenderer(renderer);
+        assertEquals(new TerminalSize(28, 100000), listBox.getPreferredSize());
+        assertEquals(1000, renderer.labelCount);
+
+        // A width hint means nothing has to be measured
+        renderer.labelCount = 0;
+        listBox.setPreferredItemWidth(10);
+        assertEquals(new TerminalSize(11, 100000), listBox.getPreferredSize());
+        assertEquals(0, renderer.labelCount);
+    }
+
+    private static CheckBoxList<String> newListBox(ListModel<String> model) {
+        CheckBoxList<String> listBox = new CheckBoxList<String>();
+        listBox.setListModel(model);
+        return listBox;
+    }
+
+    private static void assertSelected(AbstractListBox<String, ?> listBox, int index, String item) {
+        assertEquals(index, listBox.getSelectedIndex());
+        assertEquals(item, listBox.getSelectedItem());
+    }
+
+    private static List<Boolean> getCheckedStates(CheckBoxList<String> listBox) {
+        List<Boolean> states = new ArrayList<Boolean>();
+        for(int i = 0; i < listBox.getItemCount(); i++) {
+            states.add(listBox.isChecked(i));
+        }
+        return states;
+    }
+
+    /**
+     * List model that can insert and remove several items with a single notification
+     */
+    private static class RangeListModel<V> extends AbstractListModel<V> {
+        private final List<V> items;
+
+        RangeListModel(V... items) {
+            this(Arrays.asList(items));
+        }
+
+        RangeListModel(List<V> items) {
+            this.items = new ArrayList<V>(items);
+        }
+
+        @Override
+        public synchronized int size() {
+            return items.size();
+        }
+
+        @Override
+        public synchronized V get(int index) {
+            return items.get(index);
+        }
+
+        void insert(int index, V... newItems) {
+            synchronized(this) {
+                items.addAll(index, Arrays.asList(newItems));
+            }
+            fireItemsInserted(index, newItems.length);
+        }
+
+        void remove(int index, int count) {
+            synchronized(this) {
+                items.subList(index, index + count).clear();
+            }
+            fireItemsRemoved(index, count);
+        }
+    }
+
+    private static class CountingRenderer extends AbstractListBox.ListItemRenderer<String, CheckBoxList<String>> {
+        private int labelCount;
+
+        @Override
+        public String getLabel(CheckBoxList<String> listBox, int index, String item) {
+            labelCount++;
+            return super.getLabel(listBox, index, item);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AbstractTextGUIThreadTest {
+
+    private AbstractTextGUIThread guiThread;
+    private List<String> log;
+
+    @Before
+    public void setUp() throws IOException {
+        // The GUI thread of a SameTextGUIThread is the thread that created it, here the test thread
+        MultiWindowTextGUI textGUI = new MultiWindowTextGUI(
+                new SameTextGUIThread.Factory(),
+                new TerminalScreen(new DefaultVirtualTerminal()));
+        guiThread = (AbstractTextGUIThread)textGUI.getGUIThread();
+        log = new ArrayList<String>();
+    }
+
+    @Test
+    public void keyedTasksReplacePendingTasksInPlace() throws IOException {
+        guiThread.invokeLater("a", logTask("a1"));
+        guiThread.invokeLater(logTask("plain"));
+        guiThread.invokeLater("b", logTask("b1"));
+        guiThread.invokeLater("a", logTask("a2"));
+        guiThread.invokeLater("a", logTask("a3"));
+        assertEquals(3, guiThread.getPendingTaskCount());
+        assertEquals(2, guiThread.getCoalescedTaskCount());
+
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("a3", "plain", "b1"), log);
+        assertEquals(0, guiThread.getPendingTaskCount());
+
+        // Once a task has run, the next one with the same key is queued again
+        guiThread.invokeLater("a", logTask("a4"));
+        assertEquals(1, guiThread.getPendingTaskCount());
+        assertEquals(2, guiThread.getCoalescedTaskCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullKeyIsRejected() {
+        guiThread.invokeLater(null, logTask("a"));
+    }
+
+    @Test
+    public void queueIsUnboundedByDefault() {
+        assertEquals(0, guiThread.getTaskQueueLimit());
+        assertSame(AbstractTextGUIThread.OverflowPolicy.DISCARD_OLDEST, guiThread.getOverflowPolicy());
+        for(int i = 0; i < 1000; i++) {
+            guiThread.invokeLater(logTask("task"));
+        }
+        assertEquals(1000, guiThread.getPendingTaskCount());
+        assertEquals(0, guiThread.getDroppedTaskCount());
+    }
+
+    @Test
+    public void failPolicyRejectsNewTasks() throws IOException {
+        guiThread.setTaskQueueLimit(2);
+        guiThread.setOverflowPolicy(AbstractTextGUIThread.OverflowPolicy.FAIL);
+        guiThread.invokeLater(logTask("a"));
+        guiThread.invokeLater("b", logTask("b1"));
+        try {
+            guiThread.invokeLater(logTask("c"));
+            fail("Expected the full queue to reject the task");
+        }
+        catch(IllegalStateException expected) {
+        }
+        // Replacing a pending task doesn't need any more room
+        guiThread.invokeLater("b", logTask("b2"));
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("a", "b2"), log);
+    }
+
+    @Test
+    public void discardNewestPolicyDropsNewTasks() throws IOException {
+        guiThread.setTaskQueueLimit(2);
+        guiThread.setOverflowPolicy(AbstractTextGUIThread.OverflowPolicy.DISCARD_NEWEST);
+        guiThread.invokeLater(logTask("a"));
+        guiThread.invokeLater(logTask("b"));
+        guiThread.invokeLater(logTask("c"));
+        guiThread.invokeLater("d", logTask("d"));
+        assertEquals(2, guiThread.getPendingTaskCount());
+        assertEquals(2, guiThread.getDroppedTaskCount());
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("a", "b"), log);
+    }
+
+    @Test
+    public void discardOldestPolicyDropsOldTasks() throws IOException {
+        guiThread.setTaskQueueLimit(2);
+        guiThread.invokeLater("a", logTask("a1"));
+        guiThread.invokeLater(logTask("b"));
+        guiThread.invokeLater(logTask("c"));
+        // The keyed task was dropped, so this is queued as a new task rather than replacing it
+        guiThread.invokeLater("a", logTask("a2"));
+        assertEquals(2, guiThread.getPendingTaskCount());
+        assertEquals(2, guiThread.getDroppedTaskCount());
+        assertEquals(0, guiThread.getCoalescedTaskCount());
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("c", "a2"), log);
+    }
+
+    @Test(timeout = 10000)
+    public void discardOldestPolicyNeverDropsInvokeAndWaitTasks() throws Exception {
+        guiThread.setTaskQueueLimit(2);
+        Thread waitingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    guiThread.invokeAndWait(logTask("waited"));
+                }
+                catch(InterruptedException ignore) {
+                }
+            }
+        });
+        waitingThread.start();
+        waitForPendingTaskCount(1);
+
+        guiThread.invokeLater(logTask("a"));
+        guiThread.invokeLater(logTask("b"));
+        guiThread.invokeLater(logTask("c"));
+        assertEquals(2, guiThread.getPendingTaskCount());
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("waited", "c"), log);
+        waitingThread.join();
+
+        // With only tasks that can't be dropped in the queue, the new task is dropped instead
+        guiThread.setTaskQueueLimit(1);
+        waitingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    guiThread.invokeAndWait(logTask("waited again"));
+                }
+                catch(InterruptedException ignore) {
+                }
+            }
+        });
+        waitingThread.start();
+        waitForPendingTaskCount(1);
+        guiThread.invokeLater(logTask("d"));
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("waited", "c", "waited again"), log);
+        waitingThread.join();
+    }
+
+    @Test(timeout = 10000)
+    public void blockPolicyWaitsForRoom() throws Exception {
+        guiThread.setTaskQueueLimit(1);
+        guiThread.setOverflowPolicy(AbstractTextGUIThread.OverflowPolicy.BLOCK);
+        guiThread.invokeLater(logTask("a"));
+        Thread blockedThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                guiThread.invokeLater(logTask("b"));
+            }
+        });
+        blockedThread.start();
+        while(blockedThread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, guiThread.getPendingTaskCount());
+
+        guiThread.processEventsAndUpdate();
+        blockedThread.join();
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("a", "b"), log);
+        assertEquals(0, guiThread.getDroppedTaskCount());
+
+        // The GUI thread itself can't wait for itself to make room
+        guiThread.invokeLater(logTask("c"));
+        guiThread.invokeLater(logTask("d"));
+        assertEquals(2, guiThread.getPendingTaskCount());
+    }
+
+    @Test
+    public void exemptTasksAreNeverDropped() throws IOException {
+        for(AbstractTextGUIThread.OverflowPolicy policy: Arrays.asList(
+                AbstractTextGUIThread.OverflowPolicy.DISCARD_OLDEST,
+                AbstractTextGUIThread.OverflowPolicy.DISCARD_NEWEST,
+                AbstractTextGUIThread.OverflowPolicy.FAIL)) {
+            log.clear();
+            guiThread.setTaskQueueLimit(2);
+            guiThread.setOverflowPolicy(policy);
+            guiThread.invokeLaterExempt(logTask("exempt1"));
+            guiThread.invokeLater(logTask("a"));
+            // Added even though the queue is full
+            guiThread.invokeLaterExempt(logTask("exempt2"));
+            assertEquals(3, guiThread.getPendingTaskCount());
+            try {
+                guiThread.invokeLater(logTask("b"));
+            }
+            catch(IllegalStateException expected) {
+                assertSame(AbstractTextGUIThread.OverflowPolicy.FAIL, policy);
+            }
+            guiThread.processEventsAndUpdate();
+            assertTrue(policy + ": " + log, log.containsAll(Arrays.asList("exempt1", "exempt2")));
+            assertTrue(log.indexOf("exempt1") < log.indexOf("exempt2"));
+        }
+    }
+
+    @Test
+    public void componentUpdatesFromOtherThreadsAreNeverDropped() throws Exception {
+        final Label label = new Label("before");
+        BasicWindow window = new BasicWindow();
+        window.setComponent(label);
+        ((WindowBasedTextGUI)guiThread.textGUI).addWindow(window);
+        guiThread.setTaskQueueLimit(1);
+        guiThread.invokeLater(logTask("a"));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Label.setTexts(Collections.singletonMap(label, "after"));
+                // Flood the queue with tasks that may be dropped
+                for(int i = 0; i < 10; i++) {
+                    guiThread.invokeLater(logTask("flood"));
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        guiThread.processEventsAndUpdate();
+        assertEquals("after", label.getText());
+    }
+
+    @Test
+    public void tasksScheduledWhileDrainingRunInTheNextRound() throws IOException {
+        guiThread.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                log.add("first");
+                guiThread.invokeLater(logTask("second"));
+            }
+        });
+        guiThread.invokeLater(logTask("other"));
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("first", "other"), log);
+        assertEquals(2, guiThread.getLastDrainTaskCount());
+        assertEquals(1, guiThread.getPendingTaskCount());
+        assertTrue(guiThread.getMaxDrainDurationNanos() >= guiThread.getLastDrainDurationNanos());
+
+        guiThread.processEventsAndUpdate();
+        assertEquals(Arrays.asList("first", "other", "second"), log);
+        assertEquals(1, guiThread.getLastDrainTaskCount());
+        assertEquals(0, guiThread.getPendingTaskCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimitIsRejected() {
+        guiThread.setTaskQueueLimit(-1);
+    }
+
+    private Runnable logTask(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                log.add(name);
+            }
+        };
+    }
+
+    private void waitForPendingTaskCount(int count) throws InterruptedException {
+        while(guiThread.getPendingTaskCount() != count) {
+            Thread.sleep(1);
+        }
+    }
+}
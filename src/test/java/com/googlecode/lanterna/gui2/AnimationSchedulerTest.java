@@ -0,0 +1,176 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AnimationSchedulerTest {
+
+    private MultiWindowTextGUI textGUI;
+    private AbstractTextGUIThread guiThread;
+    private AnimationScheduler scheduler;
+
+    @Before
+    public void setUp() throws IOException {
+        // The GUI thread of a SameTextGUIThread is the thread that created it, here the test thread, so frames only
+        // run when the test calls processEventsAndUpdate()
+        textGUI = new MultiWindowTextGUI(
+                new SameTextGUIThread.Factory(),
+                new TerminalScreen(new DefaultVirtualTerminal()));
+        guiThread = (AbstractTextGUIThread)textGUI.getGUIThread();
+        scheduler = AnimationScheduler.getInstance(textGUI);
+        scheduler.setFramePeriod(5);
+    }
+
+    @Test(timeout = 10000)
+    public void invalidationsBetweenFramesAreAppliedInOneFrame() throws Exception {
+        final CountingLabel first = new CountingLabel();
+        final CountingLabel second = new CountingLabel();
+        for(int i = 0; i < 100; i++) {
+            scheduler.invalidateOnNextFrame(first);
+            scheduler.invalidateOnNextFrame(second);
+        }
+        waitForPendingTaskCount(1);
+        // Ticks keep coming while the GUI thread is busy, but there is never more than one frame waiting
+        Thread.sleep(50);
+        assertEquals(1, guiThread.getPendingTaskCount());
+        assertEquals(0, first.invalidations.get());
+
+        guiThread.processEventsAndUpdate();
+        assertEquals(1, first.invalidations.get());
+        assertEquals(1, second.invalidations.get());
+    }
+
+    @Test(timeout = 10000)
+    public void animationsAreAdvancedOnlyWhileTheyAreDrawn() throws Exception {
+        CountingAnimation animation = new CountingAnimation(5);
+        scheduler.animationDrawn(animation);
+        waitForPendingTaskCount(1);
+        guiThread.processEventsAndUpdate();
+        assertEquals(1, animation.frames);
+
+        // Not drawn since the last frame, so it isn't advanced again
+        Thread.sleep(50);
+        assertEquals(0, guiThread.getPendingTaskCount());
+
+        scheduler.animationDrawn(animation);
+        waitForPendingTaskCount(1);
+        guiThread.processEventsAndUpdate();
+        assertEquals(2, animation.frames);
+    }
+
+    @Test(timeout = 10000)
+    public void clockStopsWhenThereIsNothingToDo() throws Exception {
+        assertFalse(scheduler.isClockRunning());
+        scheduler.invalidateOnNextFrame(new CountingLabel());
+        assertTrue(scheduler.isClockRunning());
+        waitForPendingTaskCount(1);
+        guiThread.processEventsAndUpdate();
+        while(scheduler.isClockRunning()) {
+            Thread.sleep(1);
+        }
+
+        // Drawn animations keep it going until they stop being drawn
+        CountingAnimation animation = new CountingAnimation(5);
+        scheduler.animationDrawn(animation);
+        assertTrue(scheduler.isClockRunning());
+        waitForPendingTaskCount(1);
+        guiThread.processEventsAndUpdate();
+        while(scheduler.isClockRunning()) {
+            Thread.sleep(1);
+        }
+        scheduler.removeAnimation(animation);
+    }
+
+    @Test(timeout = 10000)
+    public void lostFramesAreScheduledAgain() throws Exception {
+        CountingLabel label = new CountingLabel();
+        scheduler.invalidateOnNextFrame(label);
+        waitForPendingTaskCount(1);
+        // Throw the frame away without running it
+        guiThread.customTasks.clear();
+        scheduler.invalidateOnNextFrame(label);
+        waitForPendingTaskCount(1);
+        guiThread.processEventsAndUpdate();
+        assertEquals(1, label.invalidations.get());
+    }
+
+    @Test(timeout = 10000)
+    public void clockStopsWhenTheGUIThreadIsNotRunning() throws Exception {
+        MultiWindowTextGUI stoppedGUI = new MultiWindowTextGUI(
+                new SeparateTextGUIThread.Factory(),
+                new TerminalScreen(new DefaultVirtualTerminal()));
+        AnimationScheduler stoppedScheduler = AnimationScheduler.getInstance(stoppedGUI);
+        stoppedScheduler.setFramePeriod(5);
+        // The thread was never started
+        stoppedScheduler.invalidateOnNextFrame(new CountingLabel());
+        while(stoppedScheduler.isClockRunning()) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void waitForPendingTaskCount(int count) throws InterruptedException {
+        while(guiThread.getPendingTaskCount() != count) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static class CountingLabel extends Label {
+        private final AtomicInteger invalidations = new AtomicInteger();
+
+        CountingLabel() {
+            super("");
+        }
+
+        @Override
+        public void invalidate() {
+            super.invalidate();
+            if(invalidations != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private static class CountingAnimation implements AnimationScheduler.Animation {
+        private final long framePeriod;
+        private int frames;
+
+        CountingAnimation(long framePeriod) {
+            this.framePeriod = framePeriod;
+        }
+
+        @Override
+        public long getFramePeriod() {
+            return framePeriod;
+        }
+
+        @Override
+        public void onNextFrame() {
+            frames++;
+        }
+    }
+}
@@ -23,7 +23,10 @@ import com.googlecode.lanterna.gui2.dialogs.MessageDialog;
 import com.googlecode.lanterna.gui2.dialogs.MessageDialogButton;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
 
@@ -49,6 +52,13 @@ public class ComboBoxTest extends TestBase {
         for(String id: TimeZone.getAvailableIDs()) {
             comboBoxTimeZones.addItem(id);
         }
+        // Type to narrow down, then press Enter to see the matching hosts
+        Random random = new Random(0);
+        List<String> hostNames = new ArrayList<String>();
+        for(int i = 0; i < 100000; i++) {
+            hostNames.add("host-" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36) + ".example.com");
+        }
+        final ComboBox<String> comboBoxHosts = new ComboBox<String>("", hostNames).setReadOnly(false);
         comboBoxCJK.addItem("维基百科人人可編輯的自由百科全書");
         comboBoxCJK.addItem("ウィキペディアは誰でも編集できるフリー百科事典です");
         comboBoxCJK.addItem("위키백과는 전 세계 여러 언어로 만들어 나가는 자유 백과사전으로, 누구나 참여하실 수 있습니다.");
@@ -106,7 +116,9 @@ public class ComboBoxTest extends TestBase {
                     .withBorder(Borders.singleLineBevel("Modify Content")));
 
         mainPanel.addComponent(new EmptySpace(TerminalSize.ONE));
-        mainPanel.addComponent(comboBoxTimeZones.withBorder(Borders.singleLine("Large ComboBox")));
+        mainPanel.addComponent(Panels.horizontal(
+                comboBoxTimeZones.withBorder(Borders.singleLine("Large ComboBox")),
+                comboBoxHosts.withBorder(Borders.singleLine("100k items, editable"))));
         mainPanel.addComponent(new EmptySpace(TerminalSize.ONE));
         mainPanel.addComponent(new Separator(Direction.HORIZONTAL).setLayoutData(LinearLayout.createLayoutData(LinearLayout.Alignment.Fill)));
         mainPanel.addComponent(new Button("OK", new Runnable() {
@@ -0,0 +1,238 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalTextUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DefaultTextDocumentTest {
+
+    @Test
+    public void newDocumentHasOneEmptyLine() {
+        DefaultTextDocument document = new DefaultTextDocument();
+        assertEquals(1, document.getLineCount());
+        assertEquals("", document.getLine(0));
+        assertEquals("", document.getText());
+        assertEquals(0, document.getLongestLineWidth());
+
+        document.setLines(Collections.<String>emptyList());
+        assertEquals(1, document.getLineCount());
+        assertEquals("", document.getLine(0));
+    }
+
+    @Test
+    public void editingOperationsUpdateLinesAndText() {
+        DefaultTextDocument document = new DefaultTextDocument(Arrays.asList("Hello", "World"));
+        document.insertCharacter(0, 5, '!');
+        document.deleteCharacter(1, 0);
+        assertEquals("Hello!\norld", document.getText());
+
+        document.splitLine(0, 2);
+        assertEquals(Arrays.asList("He", "llo!", "orld"), getLines(document));
+        document.splitLine(2, 4);
+        assertEquals(Arrays.asList("He", "llo!", "orld", ""), getLines(document));
+        document.joinLines(0);
+        document.joinLines(1);
+        assertEquals(Arrays.asList("Hello!", "orld"), getLines(document));
+        assertEquals(4, document.getLineLength(1));
+
+        document.addLine("Again");
+        document.addLines(Arrays.asList("1", "2"));
+        assertEquals("Hello!\norld\nAgain\n1\n2", document.getText());
+    }
+
+    @Test
+    public void longestLineWidthFollowsEdits() {
+        DefaultTextDocument document = new DefaultTextDocument(Arrays.asList("abc", "abcdef"));
+        assertEquals(6, document.getLongestLineWidth());
+        document.deleteCharacter(1, 0);
+        document.deleteCharacter(1, 0);
+        document.deleteCharacter(1, 0);
+        document.deleteCharacter(1, 0);
+        assertEquals(3, document.getLongestLineWidth());
+
+        // CJK characters and tabs are wider than one column
+        document.insertCharacter(1, 0, '日');
+        document.insertCharacter(1, 0, '日');
+        assertEquals(6, document.getLongestLineWidth());
+        document.insertCharacter(0, 0, '\t');
+        assertEquals(7, document.getLongestLineWidth());
+
+        document.joinLines(0);
+        assertEquals(13, document.getLongestLineWidth());
+        document.splitLine(0, 4);
+        assertEquals(7, document.getLongestLineWidth());
+    }
+
+    @Test
+    public void outOfBoundsOperationsDontModifyDocument() {
+        DefaultTextDocument document = new DefaultTextDocument(Arrays.asList("abc", "abcdef"));
+        try {
+            document.insertCharacter(0, 4, 'x');
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch(IndexOutOfBoundsException ignored) {
+        }
+        try {
+            document.deleteCharacter(0, 3);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch(IndexOutOfBoundsException ignored) {
+        }
+        try {
+            document.splitLine(1, 7);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch(IndexOutOfBoundsException ignored) {
+        }
+        try {
+            document.joinLines(1);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch(IndexOutOfBoundsException ignored) {
+        }
+        try {
+            document.getLine(2);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch(IndexOutOfBoundsException ignored) {
+        }
+        assertEquals(Arrays.asList("abc", "abcdef"), getLines(document));
+        assertEquals(6, document.getLongestLineWidth());
+
+        document.deleteCharacter(1, 5);
+        document.deleteCharacter(1, 4);
+        document.deleteCharacter(1, 3);
+        assertEquals(3, document.getLongestLineWidth());
+    }
+
+    @Test
+    public void randomEditsMatchReferenceModelAndListenerEvents() {
+        Random random = new Random(1234);
+        String characters = "abcXYZ \t日本";
+        DefaultTextDocument document = new DefaultTextDocument();
+        List<String> expected = new ArrayList<String>(Collections.singletonList(""));
+        final List<String> mirror = new ArrayList<String>(Collections.singletonList(""));
+        document.addListener(new TextDocument.Listener() {
+            @Override
+            public void onLinesInserted(TextDocument document, int index, int count) {
+                for(int i = 0; i < count; i++) {
+                    mirror.add(index + i, document.getLine(index + i));
+                }
+            }
+
+            @Override
+            public void onLinesRemoved(TextDocument document, int index, int count) {
+                for(int i = 0; i < count; i++) {
+                    mirror.remove(index);
+                }
+            }
+
+            @Override
+            public void onLinesChanged(TextDocument document, int index, int count) {
+                for(int i = 0; i < count; i++) {
+                    mirror.set(index + i, document.getLine(index + i));
+                }
+            }
+        });
+
+        for(int i = 0; i < 20000; i++) {
+            int index = random.nextInt(expected.size());
+            String line = expected.get(index);
+            switch(random.nextInt(7)) {
+                case 0:
+                case 1:
+                case 2: {
+                    int column = random.nextInt(line.length() + 1);
+                    char c = characters.charAt(random.nextInt(characters.length()));
+                    document.insertCharacter(index, column, c);
+                    expected.set(index, line.substring(0, column) + c + line.substring(column));
+                    break;
+                }
+                case 3:
+                    if(line.length() > 0) {
+                        int column = random.nextInt(line.length());
+                        document.deleteCharacter(index, column);
+                        expected.set(index, line.substring(0, column) + line.substring(column + 1));
+                    }
+                    break;
+                case 4: {
+                    int column = random.nextInt(line.length() + 1);
+                    document.splitLine(index, column);
+                    expected.set(index, line.substring(0, column));
+                    expected.add(index + 1, line.substring(column));
+                    break;
+                }
+                case 5:
+                    if(index + 1 < expected.size()) {
+                        document.joinLines(index);
+                        expected.set(index, line + expected.remove(index + 1));
+                    }
+                    break;
+                case 6:
+                    if(random.nextInt(20) == 0) {
+                        document.addLine("added");
+                        expected.add("added");
+                    }
+                    break;
+            }
+            if(i % 100 == 0) {
+                assertDocumentEquals(expected, document);
+            }
+        }
+        assertDocumentEquals(expected, document);
+        assertEquals(expected, mirror);
+
+        document.setLines(Arrays.asList("x", "yy"));
+        assertEquals(Arrays.asList("x", "yy"), mirror);
+        assertEquals(2, document.getLongestLineWidth());
+    }
+
+    private static List<String> getLines(TextDocument document) {
+        List<String> lines = new ArrayList<String>();
+        for(int i = 0; i < document.getLineCount(); i++) {
+            lines.add(document.getLine(i));
+        }
+        return lines;
+    }
+
+    private static void assertDocumentEquals(List<String> expected, TextDocument document) {
+        assertEquals(expected, getLines(document));
+        int longestLineWidth = 0;
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < expected.size(); i++) {
+            longestLineWidth = Math.max(longestLineWidth, TerminalTextUtils.getColumnWidth(expected.get(i)));
+            assertEquals(expected.get(i).length(), document.getLineLength(i));
+            if(i > 0) {
+                text.append('\n');
+            }
+            text.append(expected.get(i));
+        }
+        assertEquals(longestLineWidth, document.getLongestLineWidth());
+        assertEquals(text.toString(), document.getText());
+    }
+}
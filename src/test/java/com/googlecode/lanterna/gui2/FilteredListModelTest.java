@@ -0,0 +1,211 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FilteredListModelTest {
+
+    @Test
+    public void emptyFilterPassesThrough() {
+        DefaultListModel<String> source = new DefaultListModel<String>(Arrays.asList("one", "two", "three"));
+        FilteredListModel<String> filtered = createFilteredModel(source);
+        assertEquals("", filtered.getFilter());
+        assertEquals(3, filtered.size());
+        assertEquals("two", filtered.get(1));
+        assertEquals(2, filtered.getSourceIndex(2));
+        assertEquals(2, filtered.getFilteredIndex(2));
+
+        filtered.setFilter(null);
+        assertEquals("", filtered.getFilter());
+        assertEquals(3, filtered.size());
+    }
+
+    @Test
+    public void filterSelectsMatchingItems() {
+        DefaultListModel<String> source = new DefaultListModel<String>(Arrays.asList("one", "two", "three", "TWELVE"));
+        FilteredListModel<String> filtered = createFilteredModel(source);
+        filtered.setFilter("tw");
+        assertEquals("tw", filtered.getFilter());
+        assertEquals(Arrays.asList("two", "TWELVE"), toList(filtered));
+        assertEquals(3, filtered.getSourceIndex(1));
+        assertEquals(1, filtered.getFilteredIndex(3));
+        assertEquals(-1, filtered.getFilteredIndex(0));
+
+        filtered.setFilter("nothing");
+        assertEquals(0, filtered.size());
+        filtered.setFilter("");
+        assertEquals(Arrays.asList("one", "two", "three", "TWELVE"), toList(filtered));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void sourceIndexOutsideTheMatchesIsRejected() {
+        DefaultListModel<String> source = new DefaultListModel<String>(Arrays.asList("one", "two", "three"));
+        FilteredListModel<String> filtered = createFilteredModel(source);
+        filtered.setFilter("t");
+        filtered.getSourceIndex(2);
+    }
+
+    @Test
+    public void filterChangesAreReportedToListeners() {
+        DefaultListModel<String> source = new DefaultListModel<String>(Arrays.asList("one", "two", "three", "four"));
+        FilteredListModel<String> filtered = createFilteredModel(source);
+        SizeTrackingListener listener = new SizeTrackingListener(filtered);
+
+        filtered.setFilter("o");
+        listener.assertInSync();
+        filtered.setFilter("t");
+        listener.assertInSync();
+        filtered.setFilter("th");
+        listener.assertInSync();
+        filtered.setFilter("");
+        listener.assertInSync();
+
+        // Setting the same filter again doesn't notify anyone
+        int events = listener.events;
+        filtered.setFilter("");
+        assertEquals(events, listener.events);
+    }
+
+    @Test
+    public void sourceChangesUpdateTheMatches() {
+        DefaultListModel<String> source = new DefaultListModel<String>(Arrays.asList("apple", "banana", "cherry"));
+        FilteredListModel<String> filtered = createFilteredModel(source);
+        SizeTrackingListener listener = new SizeTrackingListener(filtered);
+
+        filtered.setFilter("an");
+        assertEquals(Arrays.asList("banana"), toList(filtered));
+        source.add("mango");
+        assertEquals(Arrays.asList("banana", "mango"), toList(filtered));
+        source.set(0, "orange");
+        assertEquals(Arrays.asList("orange", "banana", "mango"), toList(filtered));
+        source.remove(1);
+        assertEquals(Arrays.asList("orange", "mango"), toList(filtered));
+        listener.assertInSync();
+
+        // With no filter, source changes are passed on as they are
+        filtered.setFilter("");
+        source.add(0, "kiwi");
+        assertEquals(Arrays.asList("kiwi", "orange", "cherry", "mango"), toList(filtered));
+        listener.assertInSync();
+    }
+
+    @Test
+    public void detachedModelStopsListening() {
+        DefaultListModel<String> source = new DefaultListModel<String>(Arrays.asList("one", "two"));
+        FilteredListModel<String> filtered = createFilteredModel(source);
+        SizeTrackingListener listener = new SizeTrackingListener(filtered);
+        filtered.detach();
+        source.add("three");
+        assertEquals(0, listener.events);
+    }
+
+    @Test
+    public void randomChangesMatchBruteForceFilter() {
+        Random random = new Random(4321);
+        String[] words = { "red", "green", "blue", "Reed", "bLUEberry", "greed", "" };
+        String[] filters = { "", "re", "e", "blue", "eed", "x" };
+        DefaultListModel<String> source = new DefaultListModel<String>();
+        FilteredListModel<String> filtered = createFilteredModel(source);
+        SizeTrackingListener listener = new SizeTrackingListener(filtered);
+        for(int round = 0; round < 1000; round++) {
+            int operation = random.nextInt(4);
+            if(operation == 0 || source.size() == 0) {
+                source.add(random.nextInt(source.size() + 1), words[random.nextInt(words.length)]);
+            }
+            else if(operation == 1) {
+                source.remove(random.nextInt(source.size()));
+            }
+            else if(operation == 2) {
+                source.set(random.nextInt(source.size()), words[random.nextInt(words.length)]);
+            }
+            else {
+                filtered.setFilter(filters[random.nextInt(filters.length)]);
+            }
+            List<String> expected = new ArrayList<String>();
+            for(int i = 0; i < source.size(); i++) {
+                if(source.get(i).toLowerCase().contains(filtered.getFilter().toLowerCase())) {
+                    expected.add(source.get(i));
+                }
+            }
+            assertEquals(expected, toList(filtered));
+            listener.assertInSync();
+        }
+    }
+
+    private static FilteredListModel<String> createFilteredModel(ListModel<String> source) {
+        // The index has to be attached to the source before the filtered model is
+        return new FilteredListModel<String>(new ItemSearchIndex<String>(source));
+    }
+
+    private static List<String> toList(ListModel<String> model) {
+        List<String> items = new ArrayList<String>();
+        for(int i = 0; i < model.size(); i++) {
+            items.add(model.get(i));
+        }
+        return items;
+    }
+
+    /**
+     * Follows the size of a model using only the events it sends, the way a list box would
+     */
+    private static class SizeTrackingListener implements ListModel.Listener<String> {
+        private final ListModel<String> model;
+        private int size;
+        private int events;
+
+        SizeTrackingListener(ListModel<String> model) {
+            this.model = model;
+            this.size = model.size();
+            this.events = 0;
+            model.addListener(this);
+        }
+
+        @Override
+        public void onItemsInserted(ListModel<String> model, int index, int count) {
+            assertTrue(index >= 0 && index <= size);
+            size += count;
+            events++;
+        }
+
+        @Override
+        public void onItemsRemoved(ListModel<String> model, int index, int count) {
+            assertTrue(index >= 0 && index + count <= size);
+            size -= count;
+            events++;
+        }
+
+        @Override
+        public void onItemsChanged(ListModel<String> model, int index, int count) {
+            assertTrue(index >= 0 && index + count <= size);
+            events++;
+        }
+
+        void assertInSync() {
+            assertEquals(model.size(), size);
+        }
+    }
+}
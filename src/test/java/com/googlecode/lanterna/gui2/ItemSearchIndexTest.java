@@ -0,0 +1,194 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ItemSearchIndexTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullModelIsRejected() {
+        new ItemSearchIndex<String>(null);
+    }
+
+    @Test
+    public void prefixMatchesIgnoreCase() {
+        ItemSearchIndex<String> index = createIndex("Banana", "apple", "Apricot", "cherry", "APPLE pie");
+        assertArrayEquals(new int[] { 1, 2, 4 }, index.findPrefixMatches("a"));
+        assertArrayEquals(new int[] { 1, 4 }, index.findPrefixMatches("APP"));
+        assertArrayEquals(new int[] { 4 }, index.findPrefixMatches("apple "));
+        assertArrayEquals(new int[0], index.findPrefixMatches("x"));
+        assertArrayEquals(new int[0], index.findPrefixMatches("cherry pie"));
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, index.findPrefixMatches(""));
+    }
+
+    @Test
+    public void substringMatchesWithAndWithoutTrigrams() {
+        ItemSearchIndex<String> index = createIndex("Banana", "apple", "Apricot", "cherry", "APPLE pie", "pineapple");
+        // Shorter than a trigram, every label is checked
+        assertArrayEquals(new int[] { 1, 2, 4, 5 }, index.findMatches("p"));
+        assertArrayEquals(new int[] { 0 }, index.findMatches("an"));
+        // Long enough to go through the trigram index
+        assertArrayEquals(new int[] { 1, 4, 5 }, index.findMatches("APPLE"));
+        assertArrayEquals(new int[] { 0 }, index.findMatches("nana"));
+        assertArrayEquals(new int[] { 4 }, index.findMatches("e p"));
+        assertArrayEquals(new int[0], index.findMatches("applf"));
+        assertArrayEquals(new int[0], index.findMatches("pear"));
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5 }, index.findMatches(""));
+    }
+
+    @Test
+    public void nullItemsHaveEmptyLabels() {
+        ItemSearchIndex<String> index = createIndex("abc", null, "abd");
+        assertArrayEquals(new int[] { 0, 2 }, index.findPrefixMatches("ab"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, index.findMatches(""));
+        assertArrayEquals(new int[] { 0 }, index.findMatches("abc"));
+    }
+
+    @Test
+    public void emptyModel() {
+        ItemSearchIndex<String> index = createIndex();
+        assertArrayEquals(new int[0], index.findPrefixMatches(""));
+        assertArrayEquals(new int[0], index.findMatches("abc"));
+        assertEquals(-1, index.findNextPrefixMatch("a", 0));
+    }
+
+    @Test
+    public void nextPrefixMatchWrapsAround() {
+        ItemSearchIndex<String> index = createIndex("b1", "a1", "b2", "c", "b3");
+        assertEquals(0, index.findNextPrefixMatch("b", 0));
+        assertEquals(2, index.findNextPrefixMatch("b", 1));
+        assertEquals(4, index.findNextPrefixMatch("b", 3));
+        assertEquals(0, index.findNextPrefixMatch("b", 5));
+        assertEquals(1, index.findNextPrefixMatch("A", 2));
+        assertEquals(-1, index.findNextPrefixMatch("d", 0));
+        assertEquals(-1, index.findNextPrefixMatch("", 0));
+    }
+
+    @Test
+    public void indexFollowsModelChanges() {
+        DefaultListModel<String> model = new DefaultListModel<String>(Arrays.asList("alpha", "beta", "gamma"));
+        ItemSearchIndex<String> index = new ItemSearchIndex<String>(model);
+        // Build both the sorted order and the trigram index before changing the model
+        assertArrayEquals(new int[] { 0 }, index.findPrefixMatches("a"));
+        assertArrayEquals(new int[] { 1 }, index.findMatches("bet"));
+
+        model.add(0, "betamax");
+        assertArrayEquals(new int[] { 0, 2 }, index.findMatches("bet"));
+        assertArrayEquals(new int[] { 0, 2 }, index.findPrefixMatches("b"));
+        assertArrayEquals(new int[] { 1 }, index.findPrefixMatches("al"));
+
+        model.set(2, "delta");
+        assertArrayEquals(new int[] { 0 }, index.findMatches("bet"));
+        assertArrayEquals(new int[] { 2 }, index.findMatches("elt"));
+        assertArrayEquals(new int[] { 2 }, index.findPrefixMatches("d"));
+
+        model.remove(1);
+        assertArrayEquals(new int[] { 1 }, index.findMatches("elt"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, index.findMatches("a"));
+        assertArrayEquals(new int[] { 2 }, index.findPrefixMatches("g"));
+
+        model.clear();
+        assertArrayEquals(new int[0], index.findMatches("a"));
+        assertArrayEquals(new int[0], index.findPrefixMatches(""));
+    }
+
+    @Test
+    public void largeChangesRebuildTheIndex() {
+        DefaultListModel<String> model = new DefaultListModel<String>();
+        ItemSearchIndex<String> index = new ItemSearchIndex<String>(model);
+        assertArrayEquals(new int[0], index.findMatches("item"));
+
+        List<String> items = new ArrayList<String>();
+        for(int i = 0; i < 200; i++) {
+            items.add("item " + i);
+        }
+        model.addAll(items);
+        assertEquals(200, index.findMatches("item").length);
+        assertArrayEquals(new int[] { 199 }, index.findMatches("m 199"));
+        assertArrayEquals(new int[] { 1, 10, 11 }, Arrays.copyOf(index.findPrefixMatches("item 1"), 3));
+    }
+
+    @Test
+    public void detachedIndexStopsListening() {
+        DefaultListModel<String> model = new DefaultListModel<String>(Arrays.asList("one", "two"));
+        ItemSearchIndex<String> index = new ItemSearchIndex<String>(model);
+        index.findMatches("one");
+        index.detach();
+        // The model keeps working without the index
+        model.add("three");
+        model.remove(0);
+        assertEquals(2, model.size());
+    }
+
+    @Test
+    public void randomChangesMatchBruteForceSearch() {
+        Random random = new Random(1234);
+        String[] words = { "ab", "abc", "bca", "cab", "Abba", "CAB", "b", "", "cc", "abcabc" };
+        DefaultListModel<String> model = new DefaultListModel<String>();
+        ItemSearchIndex<String> index = new ItemSearchIndex<String>(model);
+        for(int round = 0; round < 2000; round++) {
+            int operation = random.nextInt(4);
+            if(operation == 0 || model.size() == 0) {
+                model.add(random.nextInt(model.size() + 1), words[random.nextInt(words.length)] + random.nextInt(3));
+            }
+            else if(operation == 1) {
+                model.remove(random.nextInt(model.size()));
+            }
+            else if(operation == 2) {
+                model.set(random.nextInt(model.size()), words[random.nextInt(words.length)]);
+            }
+            String text = words[random.nextInt(words.length)];
+            if(random.nextBoolean()) {
+                assertArrayEquals("Prefix " + text, findBruteForce(model, text, true), index.findPrefixMatches(text));
+            }
+            else {
+                assertArrayEquals("Substring " + text, findBruteForce(model, text, false), index.findMatches(text));
+            }
+        }
+    }
+
+    private static ItemSearchIndex<String> createIndex(String... items) {
+        return new ItemSearchIndex<String>(new DefaultListModel<String>(Arrays.asList(items)));
+    }
+
+    private static int[] findBruteForce(ListModel<String> model, String text, boolean prefix) {
+        String lowerCaseText = text.toLowerCase(Locale.ROOT);
+        List<Integer> matches = new ArrayList<Integer>();
+        for(int i = 0; i < model.size(); i++) {
+            String label = model.get(i).toLowerCase(Locale.ROOT);
+            if(prefix ? label.startsWith(lowerCaseText) : label.contains(lowerCaseText)) {
+                matches.add(i);
+            }
+        }
+        int[] result = new int[matches.size()];
+        for(int i = 0; i < result.length; i++) {
+            result[i] = matches.get(i);
+        }
+        return result;
+    }
+}
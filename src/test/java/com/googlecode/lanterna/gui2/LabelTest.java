@@ -0,0 +1,155 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LabelTest {
+
+    @Test
+    public void wrappedLinesAreCachedUntilTheTextOrWidthChanges() {
+        Label label = new Label("the quick brown fox");
+        String[] wrappedLines = label.getWrappedLines(10);
+        assertEquals(Arrays.asList("the quick", "brown fox"), Arrays.asList(wrappedLines));
+        assertSame(wrappedLines, label.getWrappedLines(10));
+
+        String[] widerLines = label.getWrappedLines(15);
+        assertEquals(Arrays.asList("the quick brown", "fox"), Arrays.asList(widerLines));
+        assertSame(widerLines, label.getWrappedLines(15));
+
+        label.setText("jumps over the lazy dog");
+        assertEquals(Arrays.asList("jumps over the", "lazy dog"), Arrays.asList(label.getWrappedLines(15)));
+    }
+
+    @Test
+    public void preferredSizeFollowsTheTextAndLabelWidth() {
+        Label label = new Label("the quick brown fox");
+        assertEquals(new TerminalSize(19, 1), label.getPreferredSize());
+
+        label.setLabelWidth(10);
+        assertEquals(new TerminalSize(10, 2), label.getPreferredSize());
+        assertEquals(Arrays.asList("the quick", "brown fox"), Arrays.asList(label.getWrappedLines(10)));
+
+        label.setText("the quick brown fox jumps");
+        assertEquals(new TerminalSize(10, 3), label.getPreferredSize());
+
+        label.setLabelWidth(null);
+        assertEquals(new TerminalSize(25, 1), label.getPreferredSize());
+
+        label.setText("one\ntwo\nthree");
+        assertEquals(new TerminalSize(5, 3), label.getPreferredSize());
+    }
+
+    @Test
+    public void settingTheSameTextDoesNothing() {
+        CountingLabel label = new CountingLabel("one\ntwo");
+        TerminalSize preferredSize = label.getPreferredSize();
+        label.invalidations = 0;
+
+        label.setText("one\ntwo");
+        label.setText("one\r\ntwo");
+        assertEquals(0, label.invalidations);
+        assertSame(preferredSize, label.getPreferredSize());
+
+        label.setText("one\nthree");
+        assertEquals(1, label.invalidations);
+        assertEquals(new TerminalSize(5, 2), label.getPreferredSize());
+
+        label.setLabelWidth(0);
+        label.setLabelWidth(0);
+        assertEquals(1, label.invalidations);
+    }
+
+    @Test
+    public void setTextsInvalidatesEachChangedLabelOnce() throws Exception {
+        MultiWindowTextGUI textGUI = new MultiWindowTextGUI(
+                new SameTextGUIThread.Factory(),
+                new TerminalScreen(new DefaultVirtualTerminal()));
+        final CountingLabel first = new CountingLabel("first");
+        final CountingLabel second = new CountingLabel("second");
+        final CountingLabel unchanged = new CountingLabel("unchanged");
+        CountingLabel detached = new CountingLabel("detached");
+        BasicWindow window = new BasicWindow();
+        window.setComponent(Panels.vertical(first, second, unchanged));
+        textGUI.addWindow(window);
+        textGUI.getGUIThread().processEventsAndUpdate();
+        for(CountingLabel label: Arrays.asList(first, second, unchanged, detached)) {
+            label.invalidations = 0;
+        }
+
+        // Labels of a GUI are updated on its GUI thread, the one that isn't part of a GUI right away. The new texts are
+        // as wide as the old ones, so the window isn't resized (which would invalidate all of its content)
+        final Map<Label, String> texts = new LinkedHashMap<Label, String>();
+        texts.put(first, "FIRST");
+        texts.put(second, "SECOND");
+        texts.put(unchanged, "unchanged");
+        texts.put(detached, "DETACHED");
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Label.setTexts(texts);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals("first", first.getText());
+        assertEquals("DETACHED", detached.getText());
+        assertEquals(1, detached.invalidations);
+        assertEquals(1, ((AbstractTextGUIThread)textGUI.getGUIThread()).getPendingTaskCount());
+
+        textGUI.getGUIThread().processEventsAndUpdate();
+        assertEquals("FIRST", first.getText());
+        assertEquals("SECOND", second.getText());
+        assertEquals(1, first.invalidations);
+        assertEquals(1, second.invalidations);
+        assertEquals(0, unchanged.invalidations);
+
+        // On the GUI thread itself, the labels are updated directly
+        texts.put(first, "First");
+        Label.setTexts(texts);
+        assertEquals("First", first.getText());
+        assertEquals(2, first.invalidations);
+        assertEquals(1, second.invalidations);
+        assertEquals(1, detached.invalidations);
+    }
+
+    private static class CountingLabel extends Label {
+        private int invalidations;
+
+        CountingLabel(String text) {
+            super(text);
+        }
+
+        @Override
+        public void invalidate() {
+            invalidations++;
+            super.invalidate();
+        }
+    }
+}
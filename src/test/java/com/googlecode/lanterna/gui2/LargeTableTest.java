@@ -0,0 +1,74 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.gui2.table.AbstractTableDataProvider;
+import com.googlecode.lanterna.gui2.table.Table;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test for the Table component when backed by a very large data provider, where the rows are generated on demand
+ */
+public class LargeTableTest extends TestBase {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new LargeTableTest().run(args);
+    }
+
+    @Override
+    public void init(WindowBasedTextGUI textGUI) {
+        final BasicWindow window = new BasicWindow("Large table test");
+        window.setHints(Arrays.asList(Window.Hint.FIT_TERMINAL_WINDOW));
+
+        final Table<String> table = new Table<String>("Placeholder");
+        table.setTableDataProvider(new AbstractTableDataProvider<String>() {
+            @Override
+            public int getRowCount() {
+                return 1000000;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return 3;
+            }
+
+            @Override
+            public String getColumnLabel(int index) {
+                return "Column " + (index + 1);
+            }
+
+            @Override
+            public String getCell(int columnIndex, int rowIndex) {
+                return "Row" + (rowIndex + 1) + "/" + (columnIndex + 1);
+            }
+        });
+        table.setVisibleRows(20);
+
+        window.setComponent(Panels.vertical(
+                table.withBorder(Borders.singleLineBevel("1M rows")),
+                new Button("Close", new Runnable() {
+                    @Override
+                    public void run() {
+                        window.close();
+                    }
+                })));
+        textGUI.addWindow(window);
+    }
+}
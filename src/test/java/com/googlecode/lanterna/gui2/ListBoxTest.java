@@ -57,6 +57,21 @@ public class ListBoxTest extends TestBase {
         horizontalPanel.addComponent(radioBoxList.withBorder(Borders.singleLine("RadioBoxList")));
         horizontalPanel.addComponent(actionListBox.withBorder(Borders.singleLine("ActionListBox")));
 
+        // A list box backed by a model that generates its items on demand
+        RadioBoxList<String> largeListBox = new RadioBoxList<String>(size);
+        largeListBox.setListModel(new AbstractListModel<String>() {
+            @Override
+            public int size() {
+                return 200000;
+            }
+
+            @Override
+            public String get(int index) {
+                return "Lazy " + (index + 1);
+            }
+        });
+        horizontalPanel.addComponent(largeListBox.withBorder(Borders.singleLine("Lazy model")));
+
         window.setComponent(
                 Panels.vertical(
                         horizontalPanel,
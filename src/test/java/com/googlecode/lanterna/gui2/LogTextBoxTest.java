@@ -0,0 +1,78 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalSize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test for using a read-only TextBox as a log pane that is continuously appended to from another thread
+ */
+public class LogTextBoxTest extends TestBase {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new LogTextBoxTest().run(args);
+    }
+
+    @Override
+    public void init(WindowBasedTextGUI textGUI) {
+        final BasicWindow window = new BasicWindow("Log TextBox test");
+        window.setHints(Arrays.asList(Window.Hint.FIT_TERMINAL_WINDOW));
+
+        final TextBox logTextBox = new TextBox(new TerminalSize(60, 15), TextBox.Style.MULTI_LINE);
+        logTextBox.setReadOnly(true);
+        logTextBox.setFollowTail(true);
+        logTextBox.setMaxLineCount(1000);
+
+        final Thread tailer = new Thread("LogTextBoxTest") {
+            @Override
+            public void run() {
+                long lineNumber = 0;
+                try {
+                    while(!isInterrupted()) {
+                        List<String> lines = new ArrayList<String>();
+                        for(int i = 0; i < 50; i++) {
+                            lines.add("Log line " + (++lineNumber) + " at " + System.currentTimeMillis());
+                        }
+                        logTextBox.appendLines(lines);
+                        Thread.sleep(20);
+                    }
+                }
+                catch(InterruptedException ignored) {
+                }
+            }
+        };
+        tailer.setDaemon(true);
+        tailer.start();
+
+        window.setComponent(Panels.vertical(
+                logTextBox.withBorder(Borders.singleLine("Last 1000 lines")),
+                new Button("Close", new Runnable() {
+                    @Override
+                    public void run() {
+                        tailer.interrupt();
+                        window.close();
+                    }
+                })));
+        textGUI.addWindow(window);
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class MultiWindowTextGUITest {
+
+    private static final TerminalSize SCREEN_SIZE = new TerminalSize(30, 12);
+
+    private TerminalScreen screen;
+    private MultiWindowTextGUI textGUI;
+    private char[][] background;
+
+    @Before
+    public void setUp() throws IOException {
+        screen = new TerminalScreen(new DefaultVirtualTerminal(SCREEN_SIZE));
+        screen.startScreen();
+        textGUI = new MultiWindowTextGUI(new SameTextGUIThread.Factory(), screen);
+        textGUI.updateScreen();
+        background = getScreenContent();
+    }
+
+    @Test
+    public void coveredWindowIsRedrawnWhenUncoveredByMovingTheWindowOnTop() throws IOException {
+        BasicWindow bottom = createWindow('a', 4, 2, new TerminalPosition(1, 1));
+        BasicWindow top = createWindow('b', 6, 4, new TerminalPosition(0, 0));
+        textGUI.addWindow(bottom);
+        textGUI.addWindow(top);
+        textGUI.updateScreen();
+        assertFalse(textGUI.isPendingUpdate());
+
+        // Changing the covered window doesn't need a redraw as long as it's covered...
+        setFill(bottom, 'c', 4, 2);
+        assertFalse(textGUI.isPendingUpdate());
+
+        // ...but it does once the window on top has moved away
+        top.setPosition(new TerminalPosition(10, 5));
+        assertTrue(textGUI.isPendingUpdate());
+        textGUI.updateScreen();
+        assertEquals('c', screen.getFrontCharacter(1, 1).getCharacter());
+        assertScreenMatchesWindows(Arrays.<Window>asList(bottom, top));
+    }
+
+    @Test
+    public void randomWindowStacksDrawLikeTheirNaiveComposition() throws IOException {
+        drawRandomWindowStacks(new Random(9876));
+    }
+
+    @Test
+    public void randomWindowStacksDrawTheSameOnAnExecutor() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            textGUI.setWindowRenderingExecutor(executor);
+            drawRandomWindowStacks(new Random(9876));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void guiIsLockedForTheWholeFrameWhenDrawingOnAnExecutor() throws Exception {
+        final Thread guiThread = Thread.currentThread();
+        final CountDownLatch workerDrawingWindow = new CountDownLatch(1);
+        final CountDownLatch guiThreadDrewWindow = new CountDownLatch(1);
+        final AtomicBoolean lockedWhileDrawing = new AtomicBoolean(true);
+        textGUI.setWindowRenderingExecutor(NEW_THREAD_EXECUTOR);
+        for(int i = 0; i < 2; i++) {
+            textGUI.addWindow(new DrawHookWindow() {
+                @Override
+                void beforeDrawing() {
+                    if(Thread.currentThread() == guiThread) {
+                        // Make sure the other window is left for the executor
+                        awaitUninterruptibly(workerDrawingWindow);
+                        guiThreadDrewWindow.countDown();
+                        return;
+                    }
+                    workerDrawingWindow.countDown();
+                    // Give the GUI thread time to run out of windows to draw and start waiting for this one
+                    awaitUninterruptibly(guiThreadDrewWindow);
+                    sleepUninterruptibly(100);
+                    Thread probe = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            synchronized(textGUI) {
+                                textGUI.getWindows();
+                            }
+                        }
+                    });
+                    probe.start();
+                    joinUninterruptibly(probe, 200);
+                    if(!probe.isAlive()) {
+                        lockedWhileDrawing.set(false);
+                    }
+                }
+            });
+        }
+        textGUI.updateScreen();
+        assertTrue(lockedWhileDrawing.get());
+    }
+
+    @Test(timeout = 10000)
+    public void errorsOnExecutorThreadsArePassedOnToTheGUIThread() throws IOException {
+        final Thread guiThread = Thread.currentThread();
+        final CountDownLatch workerDrawingWindow = new CountDownLatch(1);
+        textGUI.setWindowRenderingExecutor(NEW_THREAD_EXECUTOR);
+        for(int i = 0; i < 2; i++) {
+            textGUI.addWindow(new DrawHookWindow() {
+                @Override
+                void beforeDrawing() {
+                    if(Thread.currentThread() == guiThread) {
+                        // Make sure the other window is left for the executor
+                        awaitUninterruptibly(workerDrawingWindow);
+                        return;
+                    }
+                    workerDrawingWindow.countDown();
+                    throw new StackOverflowError("Drawing failed");
+                }
+            });
+        }
+        try {
+            textGUI.updateScreen();
+            fail("Expected the error from the executor thread to be thrown");
+        }
+        catch(StackOverflowError e) {
+            assertEquals("Drawing failed", e.getMessage());
+        }
+    }
+
+    private void drawRandomWindowStacks(Random random) throws IOException {
+        List<BasicWindow> windows = new ArrayList<BasicWindow>();
+        for(int i = 0; i < 6; i++) {
+            BasicWindow window = createWindow(
+                    (char)('a' + i),
+                    1 + random.nextInt(14),
+                    1 + random.nextInt(7),
+                    randomPosition(random));
+            windows.add(window);
+            textGUI.addWindow(window);
+        }
+        for(int round = 0; round < 500; round++) {
+            BasicWindow window = windows.get(random.nextInt(windows.size()));
+            switch(random.nextInt(5)) {
+                case 0:
+                    window.setPosition(randomPosition(random));
+                    break;
+                case 1:
+                    setFill(window, (char)('a' + random.nextInt(26)), 1 + random.nextInt(14), 1 + random.nextInt(7));
+                    break;
+                case 2:
+                    window.setVisible(!window.isVisible());
+                    break;
+                case 3:
+                    textGUI.moveToTop(window);
+                    break;
+                default:
+                    // Leave everything as it is, to check that nothing is pending
+                    break;
+            }
+            if(textGUI.isPendingUpdate()) {
+                textGUI.updateScreen();
+            }
+            assertScreenMatchesWindows(new ArrayList<Window>(textGUI.getWindows()));
+        }
+    }
+
+    /**
+     * Window that calls {@link #beforeDrawing()} on whichever thread is drawing it
+     */
+    private abstract static class DrawHookWindow extends BasicWindow {
+        DrawHookWindow() {
+            setHints(Arrays.asList(Window.Hint.NO_POST_RENDERING));
+            setComponent(new Label("Window"));
+        }
+
+        abstract void beforeDrawing();
+
+        @Override
+        public void draw(TextGUIGraphics graphics) {
+            beforeDrawing();
+            super.draw(graphics);
+        }
+    }
+
+    private static final Executor NEW_THREAD_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            Thread thread = new Thread(command);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    };
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch(InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch(InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread, long millis) {
+        try {
+            thread.join(millis);
+        }
+        catch(InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns a position where the largest window in the random test still fits on the screen, since windows going
+     * past the bottom or right edge make the GUI add scrollbars. Windows may still go past the top and left edges.
+     */
+    private TerminalPosition randomPosition(Random random) {
+        return new TerminalPosition(
+                random.nextInt(SCREEN_SIZE.getColumns() - 14 + 5) - 4,
+                random.nextInt(SCREEN_SIZE.getRows() - 7 + 3) - 2);
+    }
+
+    private BasicWindow createWindow(char fill, int columns, int rows, TerminalPosition position) {
+        BasicWindow window = new BasicWindow();
+        window.setHints(Arrays.asList(
+                Window.Hint.NO_DECORATIONS,
+                Window.Hint.NO_POST_RENDERING,
+                Window.Hint.FIXED_POSITION));
+        window.setComponent(new Label(""));
+        setFill(window, fill, columns, rows);
+        window.setPosition(position);
+        return window;
+    }
+
+    /**
+     * Makes the window's label, which is all the window is made of, a block of one character
+     */
+    private void setFill(BasicWindow window, char fill, int columns, int rows) {
+        StringBuilder text = new StringBuilder();
+        for(int row = 0; row < rows; row++) {
+            if(row > 0) {
+                text.append('\n');
+            }
+            for(int column = 0; column < columns; column++) {
+                text.append(fill);
+            }
+        }
+        ((Label)window.getComponent()).setText(text.toString());
+    }
+
+    private void assertScreenMatchesWindows(List<Window> windowStack) {
+        char[][] expected = new char[SCREEN_SIZE.getRows()][];
+        for(int row = 0; row < expected.length; row++) {
+            expected[row] = background[row].clone();
+        }
+        for(Window window: windowStack) {
+            if(!window.isVisible()) {
+                continue;
+            }
+            Label label = (Label)window.getComponent();
+            String[] lines = label.getText().split("\n");
+            TerminalPosition position = window.getPosition();
+            for(int row = 0; row < lines.length; row++) {
+                for(int column = 0; column < lines[row].length(); column++) {
+                    int screenRow = position.getRow() + row;
+                    int screenColumn = position.getColumn() + column;
+                    if(screenRow >= 0 && screenRow < SCREEN_SIZE.getRows() &&
+                            screenColumn >= 0 && screenColumn < SCREEN_SIZE.getColumns()) {
+                        expected[screenRow][screenColumn] = lines[row].charAt(column);
+                    }
+                }
+            }
+        }
+        char[][] actual = getScreenContent();
+        for(int row = 0; row < expected.length; row++) {
+            assertEquals("Row " + row, new String(expected[row]), new String(actual[row]));
+        }
+    }
+
+    private char[][] getScreenContent() {
+        char[][] content = new char[SCREEN_SIZE.getRows()][SCREEN_SIZE.getColumns()];
+        for(int row = 0; row < content.length; row++) {
+            for(int column = 0; column < content[row].length; column++) {
+                content[row][column] = screen.getFrontCharacter(column, row).getCharacter();
+            }
+        }
+        return content;
+    }
+}
@@ -49,6 +49,7 @@ public class PanelTest extends TestBase {
         leftPanel.addComponent(panel.withBorder(Borders.doubleLine("Title")));
 
         Panel rightPanel = new Panel();
+        rightPanel.setRenderCaching(true);
         mainPanel.addComponent(rightPanel.withBorder(Borders.singleLine("Right")));
 
         panel = new Panel();
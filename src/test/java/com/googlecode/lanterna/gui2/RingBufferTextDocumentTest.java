@@ -0,0 +1,154 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RingBufferTextDocumentTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void documentMustHoldAtLeastOneLine() {
+        new RingBufferTextDocument(0);
+    }
+
+    @Test
+    public void initialContentKeepsLastLines() {
+        RingBufferTextDocument document = new RingBufferTextDocument(3, Arrays.asList("1", "2", "3", "4", "5"));
+        assertEquals(Arrays.asList("3", "4", "5"), getLines(document));
+        assertEquals(3, document.getMaxLineCount());
+
+        document.setLines(Collections.<String>emptyList());
+        assertEquals(Collections.singletonList(""), getLines(document));
+    }
+
+    @Test
+    public void addingLinesToFullDocumentDropsOldestLines() {
+        RingBufferTextDocument document = new RingBufferTextDocument(3, Arrays.asList("1", "2"));
+        final List<String> events = new ArrayList<String>();
+        document.addListener(new TextDocument.Listener() {
+            @Override
+            public void onLinesInserted(TextDocument document, int index, int count) {
+                events.add("+" + index + ":" + count);
+            }
+
+            @Override
+            public void onLinesRemoved(TextDocument document, int index, int count) {
+                events.add("-" + index + ":" + count);
+            }
+
+            @Override
+            public void onLinesChanged(TextDocument document, int index, int count) {
+                events.add("*" + index + ":" + count);
+            }
+        });
+        document.addLine("3");
+        assertEquals(Arrays.asList("1", "2", "3"), getLines(document));
+        document.addLines(Arrays.asList("4", "5"));
+        assertEquals(Arrays.asList("3", "4", "5"), getLines(document));
+        assertEquals("3\n4\n5", document.getText());
+        document.addLines(Arrays.asList("a", "b", "c", "d", "e"));
+        assertEquals(Arrays.asList("c", "d", "e"), getLines(document));
+        assertEquals(Arrays.asList("+2:1", "-0:2", "+1:2", "-0:3", "+0:3"), events);
+    }
+
+    @Test
+    public void longestLineWidthOnlyCountsKeptLines() {
+        RingBufferTextDocument document = new RingBufferTextDocument(2, Arrays.asList("a very long line", "b"));
+        assertEquals(16, document.getLongestLineWidth());
+        document.addLine("cc");
+        assertEquals(2, document.getLongestLineWidth());
+        document.addLine("日本");
+        assertEquals(4, document.getLongestLineWidth());
+    }
+
+    @Test
+    public void editingWorksAcrossRingBufferWrapAround() {
+        RingBufferTextDocument document = new RingBufferTextDocument(6, Arrays.asList("x", "y"));
+        document.addLines(Arrays.asList("Hello", "World", "1", "2", "3", "4"));
+        document.joinLines(2);
+        assertEquals(Arrays.asList("Hello", "World", "12", "3", "4"), getLines(document));
+        document.insertCharacter(0, 5, '!');
+        document.deleteCharacter(4, 0);
+        document.splitLine(0, 2);
+        assertEquals(Arrays.asList("He", "llo!", "World", "12", "3", ""), getLines(document));
+        document.joinLines(0);
+        assertEquals(Arrays.asList("Hello!", "World", "12", "3", ""), getLines(document));
+        assertEquals("Hello!\nWorld\n12\n3\n", document.getText());
+        assertEquals(6, document.getLongestLineWidth());
+    }
+
+    @Test
+    public void splittingLineInFullDocumentDropsFirstLine() {
+        RingBufferTextDocument document = new RingBufferTextDocument(3, Arrays.asList("1", "2", "abc"));
+        document.splitLine(2, 1);
+        assertEquals(Arrays.asList("2", "a", "bc"), getLines(document));
+        document.splitLine(0, 0);
+        assertEquals(Arrays.asList("2", "a", "bc"), getLines(document));
+
+        RingBufferTextDocument singleLine = new RingBufferTextDocument(1, Collections.singletonList("abc"));
+        singleLine.splitLine(0, 1);
+        assertEquals(Collections.singletonList("bc"), getLines(singleLine));
+    }
+
+    @Test
+    public void enterOnLastLineOfFullTextBoxKeepsCaretInDocument() {
+        TextBox textBox = new TextBox("", TextBox.Style.MULTI_LINE);
+        textBox.setMaxLineCount(3);
+        textBox.setText("1\n2\n3");
+        textBox.setCaretPosition(2, 1);
+
+        textBox.handleKeyStroke(new KeyStroke(KeyType.Enter));
+        assertEquals(3, textBox.getLineCount());
+        assertEquals(new TerminalPosition(0, 2), textBox.getCaretPosition());
+        assertEquals("2\n3\n", textBox.getText());
+
+        textBox.handleKeyStroke(new KeyStroke('x', false, false));
+        textBox.handleKeyStroke(new KeyStroke(KeyType.Enter));
+        textBox.handleKeyStroke(new KeyStroke('y', false, false));
+        assertEquals("3\nx\ny", textBox.getText());
+        assertEquals(new TerminalPosition(1, 2), textBox.getCaretPosition());
+
+        // With room left in the document, the caret moves down as usual
+        textBox.setCaretPosition(0, 1);
+        textBox.handleKeyStroke(new KeyStroke(KeyType.Delete));
+        assertEquals("3x\ny", textBox.getText());
+        textBox.setCaretPosition(0, 0);
+        textBox.handleKeyStroke(new KeyStroke(KeyType.Enter));
+        assertEquals(new TerminalPosition(0, 1), textBox.getCaretPosition());
+        assertEquals("\n3x\ny", textBox.getText());
+    }
+
+    private static List<String> getLines(TextDocument document) {
+        List<String> lines = new ArrayList<String>();
+        for(int i = 0; i < document.getLineCount(); i++) {
+            lines.add(document.getLine(i));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.gui2.dialogs.ActionListDialogBuilder;
+import com.googlecode.lanterna.gui2.table.Table;
+import com.googlecode.lanterna.gui2.table.TableModel;
+import com.googlecode.lanterna.gui2.table.TableModelView;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test for sorting and filtering a large table through a TableModelView, which is done in the background
+ */
+public class SortedTableTest extends TestBase {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new SortedTableTest().run(args);
+    }
+
+    @Override
+    public void init(final WindowBasedTextGUI textGUI) {
+        final BasicWindow window = new BasicWindow("Sorted table test");
+        window.setHints(Arrays.asList(Window.Hint.FIT_TERMINAL_WINDOW));
+
+        final TableModel<Integer> model = new TableModel<Integer>("Id", "Random", "Modulo 7");
+        Random random = new Random(1234);
+        for(int i = 0; i < 300000; i++) {
+            model.addRow(i, random.nextInt(1000000), i % 7);
+        }
+        final TableModelView<Integer> view = new TableModelView<Integer>(model);
+        final Table<Integer> table = new Table<Integer>("Placeholder");
+        table.setTableDataProvider(view);
+        table.setVisibleRows(20);
+
+        Panel buttonPanel = new Panel(new LinearLayout(Direction.HORIZONTAL));
+        buttonPanel.addComponent(new Button("Sort...", new Runnable() {
+            @Override
+            public void run() {
+                ActionListDialogBuilder builder = new ActionListDialogBuilder().setTitle("Sort by");
+                for(int i = 0; i < model.getColumnCount(); i++) {
+                    final int columnIndex = i;
+                    builder.addAction(model.getColumnLabel(i) + " ascending", new Runnable() {
+                        @Override
+                        public void run() {
+                            view.sortByColumn(columnIndex, true);
+                        }
+                    });
+                    builder.addAction(model.getColumnLabel(i) + " descending", new Runnable() {
+                        @Override
+                        public void run() {
+                            view.sortByColumn(columnIndex, false);
+                        }
+                    });
+                }
+                builder.addAction("Model order", new Runnable() {
+                    @Override
+                    public void run() {
+                        view.setRowComparator(null);
+                    }
+                });
+                builder.build().showDialog(textGUI);
+            }
+        }));
+        buttonPanel.addComponent(new Button("Toggle filter", new Runnable() {
+            @Override
+            public void run() {
+                if(view.getRowFilter() == null) {
+                    view.setRowFilter(new TableModelView.RowFilter<Integer>() {
+                        @Override
+                        public boolean accept(List<Integer> row) {
+                            return row.get(2) == 0;
+                        }
+                    });
+                }
+                else {
+                    view.setRowFilter(null);
+                }
+            }
+        }));
+        buttonPanel.addComponent(new Button("Close", new Runnable() {
+            @Override
+            public void run() {
+                view.close();
+                window.close();
+            }
+        }));
+
+        window.setComponent(Panels.vertical(
+                table.withBorder(Borders.singleLineBevel("300k rows")),
+                buttonPanel));
+        textGUI.addWindow(window);
+    }
+}
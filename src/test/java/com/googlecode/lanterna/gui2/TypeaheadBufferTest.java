@@ -0,0 +1,91 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2;
+
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TypeaheadBufferTest {
+
+    @Test
+    public void onlyPlainCharactersAreTypeaheadKeys() {
+        assertTrue(TypeaheadBuffer.isTypeaheadKey(new KeyStroke('a', false, false)));
+        assertTrue(TypeaheadBuffer.isTypeaheadKey(new KeyStroke('A', false, false, true)));
+        assertTrue(TypeaheadBuffer.isTypeaheadKey(new KeyStroke(' ', false, false)));
+        assertFalse(TypeaheadBuffer.isTypeaheadKey(new KeyStroke('a', true, false)));
+        assertFalse(TypeaheadBuffer.isTypeaheadKey(new KeyStroke('a', false, true)));
+        assertFalse(TypeaheadBuffer.isTypeaheadKey(new KeyStroke('\t', false, false)));
+        assertFalse(TypeaheadBuffer.isTypeaheadKey(new KeyStroke(KeyType.Enter)));
+        assertFalse(TypeaheadBuffer.isTypeaheadKey(new KeyStroke(KeyType.ArrowDown)));
+    }
+
+    @Test
+    public void quicklyTypedCharactersAreCombined() {
+        ItemSearchIndex<String> index = createIndex("banana", "berry", "blueberry", "bluebell");
+        TypeaheadBuffer buffer = new TypeaheadBuffer();
+        assertEquals(0, buffer.findNext(index, 'b', -1, 10000));
+        assertEquals(2, buffer.findNext(index, 'l', 0, 10100));
+        assertEquals(2, buffer.findNext(index, 'U', 2, 10200));
+        assertEquals(2, buffer.findNext(index, 'e', 2, 10300));
+        assertEquals(2, buffer.findNext(index, 'b', 2, 10400));
+        assertEquals(2, buffer.findNext(index, 'e', 2, 10500));
+        assertEquals(3, buffer.findNext(index, 'l', 2, 10600));
+        assertEquals(-1, buffer.findNext(index, 'x', 3, 10700));
+    }
+
+    @Test
+    public void pauseStartsNewSearch() {
+        ItemSearchIndex<String> index = createIndex("apple", "banana", "cherry");
+        TypeaheadBuffer buffer = new TypeaheadBuffer();
+        assertEquals(1, buffer.findNext(index, 'b', 0, 10000));
+        // Within the delay this would be searching for "bc"
+        assertEquals(-1, buffer.findNext(index, 'c', 1, 10500));
+        assertEquals(2, buffer.findNext(index, 'c', 1, 20000));
+        assertEquals(0, buffer.findNext(index, 'a', 2, 30000));
+    }
+
+    @Test
+    public void repeatingCharacterCyclesThroughMatches() {
+        ItemSearchIndex<String> index = createIndex("cat", "dog", "cow", "crab");
+        TypeaheadBuffer buffer = new TypeaheadBuffer();
+        assertEquals(0, buffer.findNext(index, 'c', -1, 10000));
+        assertEquals(2, buffer.findNext(index, 'c', 0, 10100));
+        assertEquals(3, buffer.findNext(index, 'c', 2, 10200));
+        assertEquals(0, buffer.findNext(index, 'c', 3, 10300));
+    }
+
+    @Test
+    public void singleCharacterMovesPastTheSelectedItem() {
+        ItemSearchIndex<String> index = createIndex("cat", "cow");
+        TypeaheadBuffer buffer = new TypeaheadBuffer();
+        assertEquals(1, buffer.findNext(index, 'c', 0, 10000));
+        assertEquals(0, buffer.findNext(index, 'c', 1, 20000));
+        // A longer text stays on the selected item while it still matches
+        assertEquals(0, buffer.findNext(index, 'a', 0, 20100));
+    }
+
+    private static ItemSearchIndex<String> createIndex(String... items) {
+        return new ItemSearchIndex<String>(new DefaultListModel<String>(Arrays.asList(items)));
+    }
+}
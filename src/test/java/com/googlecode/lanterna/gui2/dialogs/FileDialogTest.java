@@ -0,0 +1,238 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.dialogs;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.gui2.AbstractListBox;
+import com.googlecode.lanterna.gui2.AbstractTextGUIThread;
+import com.googlecode.lanterna.gui2.MultiWindowTextGUI;
+import com.googlecode.lanterna.gui2.SameTextGUIThread;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileDialogTest {
+
+    private File directory;
+    private MultiWindowTextGUI textGUI;
+    private AbstractTextGUIThread guiThread;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("lanterna-test", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        // The GUI thread of a SameTextGUIThread is the thread that created it, here the test thread
+        textGUI = new MultiWindowTextGUI(
+                new SameTextGUIThread.Factory(),
+                new TerminalScreen(new DefaultVirtualTerminal()));
+        guiThread = (AbstractTextGUIThread)textGUI.getGUIThread();
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    @Test(timeout = 10000)
+    public void entriesAreHandedToTheGUIThreadInBatchesOnceTheDialogIsShown() throws Exception {
+        List<String> expectedFiles = new ArrayList<String>();
+        for(int i = 0; i < 600; i++) {
+            String name = String.format("file%03d", i);
+            createFile(directory, name);
+            expectedFiles.add(name);
+        }
+        assertTrue(new File(directory, "dir0").mkdir());
+        assertTrue(new File(directory, "dir1").mkdir());
+
+        FileDialog dialog = newFileDialog(directory);
+        waitForPendingBatches(dialog, 3);
+        // Nothing was applied by the loader thread
+        assertEquals(Collections.singletonList("<loading...>"), getNames(dialog.fileListBox));
+        assertEquals(1, dialog.directoryListBox.getItemCount());
+
+        textGUI.addWindow(dialog);
+        assertEquals(0, getPendingBatchCount(dialog));
+        assertEquals(3, guiThread.getPendingTaskCount());
+        guiThread.processEventsAndUpdate();
+        assertEquals(expectedFiles, getNames(dialog.fileListBox));
+        assertEquals(Arrays.asList("..", "dir0", "dir1"), getNames(dialog.directoryListBox));
+    }
+
+    @Test(timeout = 10000)
+    public void entriesOfStaleLoadsAreNotShown() throws Exception {
+        File subdirectory = new File(directory, "sub");
+        assertTrue(subdirectory.mkdir());
+        createFile(directory, "a.txt");
+        createFile(subdirectory, "s.txt");
+
+        FileDialog dialog = newFileDialog(subdirectory);
+        textGUI.addWindow(dialog);
+        processUntilFileIsShown(dialog, "s.txt");
+        int staleGeneration = dialog.loadGeneration;
+
+        // Open the parent directory through ".."
+        dialog.directoryListBox.getItems().get(0).run();
+        processUntilFileIsShown(dialog, "a.txt");
+        assertEquals(Collections.singletonList("a.txt"), getNames(dialog.fileListBox));
+
+        // A load that is overtaken stops reading without posting anything
+        dialog.loadDirectory(staleGeneration, subdirectory, FileDialog.getCacheKey(false, subdirectory), null);
+        assertEquals(0, guiThread.getPendingTaskCount());
+
+        // And a batch that was already on its way is ignored by the GUI thread
+        dialog.postEntries(
+                staleGeneration,
+                subdirectory,
+                Collections.<File>emptyList(),
+                Collections.singletonList(new File(subdirectory, "s.txt")),
+                true,
+                true);
+        assertEquals(1, guiThread.getPendingTaskCount());
+        guiThread.processEventsAndUpdate();
+        assertEquals(Collections.singletonList("a.txt"), getNames(dialog.fileListBox));
+        assertEquals(Arrays.asList("..", "sub"), getNames(dialog.directoryListBox));
+    }
+
+    @Test(timeout = 10000)
+    public void cachedListingIsShownAndOnlyReloadedWhenTheDirectoryChanged() throws Exception {
+        createFile(directory, "a.txt");
+        String cacheKey = FileDialog.getCacheKey(false, directory);
+        newFileDialog(directory);
+        FileDialog.DirectoryListing listing = waitForCachedListing(cacheKey);
+
+        // The cached listing is shown right away
+        FileDialog dialog = newFileDialog(directory);
+        assertEquals(Collections.singletonList("a.txt"), getNames(dialog.fileListBox));
+        // And not read again as long as the directory wasn't modified
+        dialog.loadDirectory(dialog.loadGeneration, directory, cacheKey, listing);
+        assertEquals(0, getPendingBatchCount(dialog));
+        assertSame(listing, getCachedListing(cacheKey));
+
+        createFile(directory, "b.txt");
+        assertTrue(directory.setLastModified(directory.lastModified() + 10000));
+        dialog = newFileDialog(directory);
+        assertEquals(Collections.singletonList("a.txt"), getNames(dialog.fileListBox));
+        textGUI.addWindow(dialog);
+        processUntilFileIsShown(dialog, "b.txt");
+        assertEquals(Arrays.asList("a.txt", "b.txt"), getNames(dialog.fileListBox));
+        assertNotSame(listing, getCachedListing(cacheKey));
+    }
+
+    @Test(timeout = 10000)
+    public void leastRecentlyUsedListingsAreEvicted() throws Exception {
+        FileDialog dialog = newFileDialog(directory);
+        // Let the dialog's own load finish first, so it doesn't take up a slot in between
+        waitForCachedListing(FileDialog.getCacheKey(false, directory));
+        List<File> directories = new ArrayList<File>();
+        for(int i = 0; i < 17; i++) {
+            File subdirectory = new File(directory, "dir" + i);
+            assertTrue(subdirectory.mkdir());
+            directories.add(subdirectory);
+        }
+        for(int i = 0; i < 16; i++) {
+            load(dialog, directories.get(i));
+        }
+        // Using the first listing makes the second one the least recently used
+        assertNotNull(getCachedListing(FileDialog.getCacheKey(false, directories.get(0))));
+        load(dialog, directories.get(16));
+
+        assertNull(getCachedListing(FileDialog.getCacheKey(false, directories.get(1))));
+        for(File subdirectory: directories) {
+            if(!subdirectory.equals(directories.get(1))) {
+                assertNotNull(subdirectory.getName(), getCachedListing(FileDialog.getCacheKey(false, subdirectory)));
+            }
+        }
+    }
+
+    private FileDialog newFileDialog(File directory) {
+        return new FileDialog("Test", null, "Open", new TerminalSize(60, 10), false, directory);
+    }
+
+    private void load(FileDialog dialog, File directory) {
+        dialog.loadDirectory(dialog.loadGeneration, directory, FileDialog.getCacheKey(false, directory), null);
+    }
+
+    private void processUntilFileIsShown(FileDialog dialog, String name) throws Exception {
+        while(!getNames(dialog.fileListBox).contains(name)) {
+            guiThread.processEventsAndUpdate();
+            Thread.sleep(1);
+        }
+    }
+
+    private void waitForPendingBatches(FileDialog dialog, int count) throws InterruptedException {
+        while(getPendingBatchCount(dialog) < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static int getPendingBatchCount(FileDialog dialog) {
+        synchronized(dialog.pendingBatches) {
+            return dialog.pendingBatches.size();
+        }
+    }
+
+    private static FileDialog.DirectoryListing waitForCachedListing(String cacheKey) throws InterruptedException {
+        FileDialog.DirectoryListing listing;
+        while((listing = getCachedListing(cacheKey)) == null) {
+            Thread.sleep(1);
+        }
+        return listing;
+    }
+
+    private static FileDialog.DirectoryListing getCachedListing(String cacheKey) {
+        synchronized(FileDialog.LISTING_CACHE) {
+            return FileDialog.LISTING_CACHE.get(cacheKey);
+        }
+    }
+
+    private static List<String> getNames(AbstractListBox<Runnable, ?> listBox) {
+        List<String> names = new ArrayList<String>();
+        for(Runnable item: listBox.getItems()) {
+            names.add(item.toString());
+        }
+        return names;
+    }
+
+    private static void createFile(File directory, String name) throws IOException {
+        assertTrue(new File(directory, name).createNewFile());
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if(files != null) {
+            for(File child: files) {
+                delete(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
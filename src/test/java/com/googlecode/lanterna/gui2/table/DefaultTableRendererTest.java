@@ -0,0 +1,112 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.table;
+
+import com.googlecode.lanterna.TerminalSize;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class DefaultTableRendererTest {
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void getTableModelReturnsModelOfTableModelView() {
+        Table<String> table = new Table<String>("A", "B");
+        TableModel<String> model = table.getTableModel();
+        assertNotNull(model);
+
+        TableModelView<String> view = new TableModelView<String>(model, DIRECT_EXECUTOR);
+        table.setTableDataProvider(view);
+        assertSame(model, table.getTableModel());
+        assertSame(view, table.getTableDataProvider());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getTableModelThrowsForCustomDataProvider() {
+        Table<String> table = new Table<String>("A");
+        table.setTableDataProvider(new GeneratedDataProvider(10, -1));
+        table.getTableModel();
+    }
+
+    @Test
+    public void columnWidthsDontChangeWhenScrollingToWiderRows() {
+        Table<String> table = new Table<String>("A");
+        table.setTableDataProvider(new GeneratedDataProvider(5000, 3000));
+        table.setVisibleRows(10);
+        TableRenderer<String> renderer = table.getRenderer();
+
+        TerminalSize sizeAtTop = renderer.getPreferredSize(table);
+        table.setSelectedRow(3000);
+        table.invalidate();
+        TerminalSize sizeAtWideRow = renderer.getPreferredSize(table);
+        assertEquals(sizeAtTop.getColumns(), sizeAtWideRow.getColumns());
+
+        table.setSelectedRow(0);
+        table.invalidate();
+        assertEquals(sizeAtTop, renderer.getPreferredSize(table));
+    }
+
+    @Test
+    public void columnWidthsIncludeWiderRowsInSample() {
+        Table<String> table = new Table<String>("A");
+        table.setTableDataProvider(new GeneratedDataProvider(5000, 500));
+        table.setVisibleRows(10);
+        TerminalSize size = table.getRenderer().getPreferredSize(table);
+        // Widest cell is 20 columns, plus one column for the scrollbar
+        assertEquals(21, size.getColumns());
+    }
+
+    private static class GeneratedDataProvider extends AbstractTableDataProvider<String> {
+        private final int rowCount;
+        private final int wideRow;
+
+        GeneratedDataProvider(int rowCount, int wideRow) {
+            this.rowCount = rowCount;
+            this.wideRow = wideRow;
+        }
+
+        @Override
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 1;
+        }
+
+        @Override
+        public String getColumnLabel(int index) {
+            return "A";
+        }
+
+        @Override
+        public String getCell(int columnIndex, int rowIndex) {
+            return rowIndex == wideRow ? "XXXXXXXXXXXXXXXXXXXX" : "x";
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.table;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TableModelSizeTrackerTest {
+    private final Table<String> table = new Table<String>("Unused");
+
+    @Test
+    public void initialMeasurementCoversAllCells() {
+        TableModel<String> model = new TableModel<String>("A", "B");
+        model.addRow("a", "bb");
+        model.addRow("aaaa", "b\nb\nb");
+        TableModelSizeTracker<String> tracker = new TableModelSizeTracker<String>(model);
+        tracker.update(table);
+
+        assertEquals(4, tracker.getColumnSize(0));
+        assertEquals(2, tracker.getColumnSize(1));
+        assertEquals(2, tracker.getRowCount());
+        assertEquals(4, tracker.getTotalRowsSize());
+    }
+
+    @Test
+    public void columnShrinksWhenWidestCellIsChangedOrRemoved() {
+        TableModel<String> model = new TableModel<String>("A");
+        model.addRow("aaaaa");
+        model.addRow("aaa");
+        model.addRow("aaa");
+        TableModelSizeTracker<String> tracker = new TableModelSizeTracker<String>(model);
+        tracker.update(table);
+        assertEquals(5, tracker.getColumnSize(0));
+
+        model.setCell(0, 0, "a");
+        tracker.update(table);
+        assertEquals(3, tracker.getColumnSize(0));
+
+        // Two cells have the widest size, removing one of them shouldn't change anything
+        model.removeRow(1);
+        tracker.update(table);
+        assertEquals(3, tracker.getColumnSize(0));
+
+        model.removeRow(1);
+        tracker.update(table);
+        assertEquals(1, tracker.getColumnSize(0));
+
+        model.removeRow(0);
+        tracker.update(table);
+        assertEquals(0, tracker.getColumnSize(0));
+        assertEquals(0, tracker.getRowCount());
+        assertEquals(0, tracker.getTotalRowsSize());
+    }
+
+    @Test
+    public void rowHeightFollowsTallestCell() {
+        TableModel<String> model = new TableModel<String>("A", "B");
+        model.addRow("a\na\na", "b\nb");
+        TableModelSizeTracker<String> tracker = new TableModelSizeTracker<String>(model);
+        tracker.update(table);
+        assertEquals(3, tracker.getTotalRowsSize());
+
+        // The cell that decided the height shrinks, now the other cell decides it
+        model.setCell(0, 0, "a");
+        tracker.update(table);
+        assertEquals(2, tracker.getTotalRowsSize());
+
+        model.setCell(1, 0, "b\nb\nb\nb");
+        tracker.update(table);
+        assertEquals(4, tracker.getTotalRowsSize());
+    }
+
+    @Test
+    public void addingColumnMeasuresEverythingAgain() {
+        TableModel<String> model = new TableModel<String>("A");
+        model.addRow("a");
+        model.addRow("a");
+        TableModelSizeTracker<String> tracker = new TableModelSizeTracker<String>(model);
+        tracker.update(table);
+
+        model.addColumn("B", new String[] { "bbb", "b\nb" });
+        tracker.update(table);
+        assertEquals(1, tracker.getColumnSize(0));
+        assertEquals(3, tracker.getColumnSize(1));
+        assertEquals(3, tracker.getTotalRowsSize());
+
+        model.removeColumn(0);
+        tracker.update(table);
+        assertEquals(3, tracker.getColumnSize(0));
+        assertEquals(0, tracker.getColumnSize(1));
+    }
+
+    @Test
+    public void detachedTrackerIgnoresChanges() {
+        TableModel<String> model = new TableModel<String>("A");
+        model.addRow("a");
+        TableModelSizeTracker<String> tracker = new TableModelSizeTracker<String>(model);
+        tracker.update(table);
+        tracker.detach();
+
+        model.addRow("aaaaaaa");
+        tracker.update(table);
+        assertEquals(1, tracker.getColumnSize(0));
+        assertEquals(1, tracker.getRowCount());
+    }
+
+    @Test
+    public void manyPendingChangesFallBackToFullMeasure() {
+        TableModel<String> model = new TableModel<String>("A");
+        TableModelSizeTracker<String> tracker = new TableModelSizeTracker<String>(model);
+        tracker.update(table);
+        for(int i = 0; i < 2500; i++) {
+            model.addRow(i == 1234 ? "wide cell" : "x");
+        }
+        tracker.update(table);
+        assertEquals(9, tracker.getColumnSize(0));
+        assertEquals(2500, tracker.getRowCount());
+        assertEquals(2500, tracker.getTotalRowsSize());
+    }
+
+    @Test
+    public void incrementalUpdatesMatchFullMeasurement() {
+        Random random = new Random(4711);
+        String[] values = new String[] { "", "a", "bb", "ccc\nc", "dddd\nd\nd", "e\ne\ne\ne\ne", null };
+        TableModel<String> model = new TableModel<String>("A", "B", "C");
+        TableModelSizeTracker<String> tracker = new TableModelSizeTracker<String>(model);
+        tracker.update(table);
+
+        for(int round = 0; round < 200; round++) {
+            int operations = random.nextInt(20);
+            for(int i = 0; i < operations; i++) {
+                int operation = random.nextInt(3);
+                if(operation == 0 || model.getRowCount() == 0) {
+                    model.insertRow(random.nextInt(model.getRowCount() + 1), Arrays.asList(
+                            values[random.nextInt(values.length)],
+                            values[random.nextInt(values.length)],
+                            values[random.nextInt(values.length)]));
+                }
+                else if(operation == 1) {
+                    model.removeRow(random.nextInt(model.getRowCount()));
+                }
+                else {
+                    model.setCell(random.nextInt(3), random.nextInt(model.getRowCount()), values[random.nextInt(values.length)]);
+                }
+            }
+            tracker.update(table);
+
+            TableModelSizeTracker<String> expected = new TableModelSizeTracker<String>(model);
+            expected.update(table);
+            expected.detach();
+            for(int columnIndex = 0; columnIndex < 3; columnIndex++) {
+                assertEquals(expected.getColumnSize(columnIndex), tracker.getColumnSize(columnIndex));
+            }
+            assertEquals(expected.getRowCount(), tracker.getRowCount());
+            assertEquals(expected.getTotalRowsSize(), tracker.getTotalRowsSize());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.gui2.table;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class TableModelViewTest {
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private TableModel<String> createModel() {
+        TableModel<String> model = new TableModel<String>("Name", "Number");
+        model.addRow("c", "3");
+        model.addRow("a", "1");
+        model.addRow("d", "4");
+        model.addRow("b", "2");
+        return model;
+    }
+
+    private List<String> getColumn(TableDataProvider<String> dataProvider, int columnIndex) {
+        String[] values = new String[dataProvider.getRowCount()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = dataProvider.getCell(columnIndex, i);
+        }
+        return Arrays.asList(values);
+    }
+
+    @Test
+    public void sortingAndFilteringReordersRows() {
+        TableModel<String> model = createModel();
+        TableModelView<String> view = new TableModelView<String>(model, DIRECT_EXECUTOR);
+        assertEquals(Arrays.asList("c", "a", "d", "b"), getColumn(view, 0));
+
+        view.sortByColumn(0, true);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), getColumn(view, 0));
+        assertEquals(1, view.getModelRowIndex(0));
+
+        view.sortByColumn(1, false);
+        assertEquals(Arrays.asList("4", "3", "2", "1"), getColumn(view, 1));
+
+        view.setRowFilter(new TableModelView.RowFilter<String>() {
+            @Override
+            public boolean accept(List<String> row) {
+                return !row.get(0).equals("c");
+            }
+        });
+        assertEquals(Arrays.asList("d", "b", "a"), getColumn(view, 0));
+        assertEquals(3, view.getRows(0, 10).size());
+
+        view.setRowComparator(null);
+        view.setRowFilter(null);
+        assertEquals(Arrays.asList("c", "a", "d", "b"), getColumn(view, 0));
+    }
+
+    @Test
+    public void modelChangesAreReflectedInView() {
+        TableModel<String> model = createModel();
+        TableModelView<String> view = new TableModelView<String>(model, DIRECT_EXECUTOR);
+        view.sortByColumn(0, true);
+
+        model.addRow("0", "0");
+        assertEquals(Arrays.asList("0", "a", "b", "c", "d"), getColumn(view, 0));
+        model.setCell(0, 1, "e");
+        assertEquals(Arrays.asList("0", "b", "c", "d", "e"), getColumn(view, 0));
+        model.removeRow(0);
+        assertEquals(Arrays.asList("0", "b", "d", "e"), getColumn(view, 0));
+
+        view.close();
+        model.addRow("f", "6");
+        assertEquals(4, view.getRowCount());
+    }
+
+    @Test
+    public void rowKeysFollowRowsThroughSorting() {
+        TableModel<String> model = createModel();
+        TableModelView<String> view = new TableModelView<String>(model, DIRECT_EXECUTOR);
+        Object key = view.getRowKey(2);
+        assertEquals("d", view.getCell(0, 2));
+        int version = view.getVersion();
+
+        view.sortByColumn(0, false);
+        assertTrue(view.getVersion() != version);
+        assertEquals(0, view.getRowIndex(key));
+        assertNull(view.getRowKey(10));
+
+        model.removeRow(2);
+        assertEquals(-1, view.getRowIndex(key));
+    }
+
+    @Test
+    public void tableSelectionFollowsRowWhenRedrawn() {
+        TableModel<String> model = createModel();
+        TableModelView<String> view = new TableModelView<String>(model, DIRECT_EXECUTOR);
+        Table<String> table = new Table<String>("Name", "Number");
+        table.setTableDataProvider(view);
+        table.setSelectedRow(2);
+        assertEquals("d", view.getCell(0, table.getSelectedRow()));
+
+        view.sortByColumn(0, true);
+        // Reading the selection doesn't change it
+        assertEquals(2, table.getSelectedRow());
+        assertEquals(2, table.getSelectedRow());
+
+        table.getPreferredSize();
+        assertEquals(3, table.getSelectedRow());
+        assertEquals("d", view.getCell(0, table.getSelectedRow()));
+
+        // If the selected row is filtered out, the selection stays at the same index
+        view.setRowFilter(new TableModelView.RowFilter<String>() {
+            @Override
+            public boolean accept(List<String> row) {
+                return !row.get(0).equals("d");
+            }
+        });
+        table.getPreferredSize();
+        assertEquals(2, table.getSelectedRow());
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.swing;
+
+import com.googlecode.lanterna.*;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the different ways of drawing characters in {@link GraphicalTerminalImplementation} give exactly the
+ * same pixels as drawing every cell on its own.
+ */
+public class GraphicalTerminalImplementationTest {
+    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 !\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~" +
+            Symbols.SINGLE_LINE_HORIZONTAL + Symbols.SINGLE_LINE_VERTICAL + Symbols.BLOCK_SOLID + Symbols.ARROW_RIGHT;
+
+    @Test
+    public void textRunsAreDrawnLikeSingleCells() {
+        for(boolean antiAliased: new boolean[] { true, false }) {
+            AWTTerminalFontConfiguration fontConfiguration = new AWTTerminalFontConfiguration(
+                    antiAliased,
+                    AWTTerminalFontConfiguration.BoldMode.EVERYTHING_BUT_SYMBOLS,
+                    new Font(Font.MONOSPACED, Font.PLAIN, 14));
+            TerminalEmulatorDeviceConfiguration cellByCell = TerminalEmulatorDeviceConfiguration.getDefault()
+                    .withGlyphCacheSize(0)
+                    .withTextRunBatching(false);
+            assertSamePixels(fontConfiguration, cellByCell, cellByCell.withTextRunBatching(true));
+        }
+    }
+
+    @Test
+    public void cachedGlyphsAreDrawnLikeSingleCells() {
+        AWTTerminalFontConfiguration fontConfiguration = AWTTerminalFontConfiguration.newInstance(
+                new Font(Font.MONOSPACED, Font.PLAIN, 14));
+        TerminalEmulatorDeviceConfiguration cellByCell = TerminalEmulatorDeviceConfiguration.getDefault()
+                .withGlyphCacheSize(0)
+                .withTextRunBatching(false);
+        // A tiny cache makes sure glyphs are evicted and re-drawn
+        assertSamePixels(fontConfiguration, cellByCell, cellByCell.withGlyphCacheSize(16));
+    }
+
+    @Test
+    public void blinkTicksRepaintLikeAFullRedraw() {
+        AWTTerminalFontConfiguration fontConfiguration = AWTTerminalFontConfiguration.newInstance(
+                new Font(Font.MONOSPACED, Font.PLAIN, 14));
+        for(TerminalEmulatorDeviceConfiguration.CursorStyle cursorStyle: TerminalEmulatorDeviceConfiguration.CursorStyle.values()) {
+            TerminalEmulatorDeviceConfiguration deviceConfiguration = TerminalEmulatorDeviceConfiguration.getDefault()
+                    .withCursorBlinking(true)
+                    .withCursorStyle(cursorStyle);
+            // Only the blinking cells and the cursor are redrawn on each tick
+            TestTerminal partial = new TestTerminal(fontConfiguration, deviceConfiguration, 80, 24);
+            fillWithRandomText(partial, new Random(4321));
+            partial.setCursorPosition(17, 5);
+            partial.draw();
+            for(int tick = 1; tick <= 4; tick++) {
+                partial.blink();
+                BufferedImage actualImage = partial.paint();
+
+                // Everything is drawn from scratch, in the same blink state
+                TestTerminal full = new TestTerminal(fontConfiguration, deviceConfiguration, 80, 24);
+                fillWithRandomText(full, new Random(4321));
+                full.setCursorPosition(17, 5);
+                for(int i = 0; i < tick; i++) {
+                    full.blink();
+                }
+                assertSamePixels("Cursor style " + cursorStyle + ", tick " + tick, full.draw(), actualImage);
+            }
+        }
+    }
+
+    private void assertSamePixels(
+            AWTTerminalFontConfiguration fontConfiguration,
+            TerminalEmulatorDeviceConfiguration expectedConfiguration,
+            TerminalEmulatorDeviceConfiguration actualConfiguration) {
+
+        TestTerminal expected = new TestTerminal(fontConfiguration, expectedConfiguration, 80, 24);
+        TestTerminal actual = new TestTerminal(fontConfiguration, actualConfiguration, 80, 24);
+        for(int frame = 0; frame < 5; frame++) {
+            long seed = 1234 + frame;
+            fillWithRandomText(expected, new Random(seed));
+            fillWithRandomText(actual, new Random(seed));
+            assertSamePixels("Frame " + frame, expected.draw(), actual.draw());
+        }
+    }
+
+    private void assertSamePixels(String message, BufferedImage expectedImage, BufferedImage actualImage) {
+        for(int y = 0; y < expectedImage.getHeight(); y++) {
+            for(int x = 0; x < expectedImage.getWidth(); x++) {
+                if(expectedImage.getRGB(x, y) != actualImage.getRGB(x, y)) {
+                    fail(message + " differs at pixel " + x + "x" + y);
+                }
+            }
+        }
+    }
+
+    private void fillWithRandomText(TestTerminal terminal, Random random) {
+        TextColor[] colors = new TextColor[] { TextColor.ANSI.DEFAULT, TextColor.ANSI.WHITE, TextColor.ANSI.BLUE, TextColor.ANSI.RED };
+        SGR[] modifiers = new SGR[] { SGR.BOLD, SGR.ITALIC, SGR.UNDERLINE, SGR.CROSSED_OUT, SGR.REVERSE, SGR.BLINK };
+        for(int row = 0; row < 24; row++) {
+            terminal.setCursorPosition(0, row);
+            for(int column = 0; column < 79; column++) {
+                // Change the style now and then, so there are runs of different lengths
+                if(random.nextInt(8) == 0) {
+                    terminal.resetColorAndSGR();
+                    terminal.setForegroundColor(colors[random.nextInt(colors.length)]);
+                    terminal.setBackgroundColor(colors[random.nextInt(colors.length)]);
+                    if(random.nextBoolean()) {
+                        terminal.enableSGR(modifiers[random.nextInt(modifiers.length)]);
+                    }
+                }
+                terminal.putCharacter(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+            }
+        }
+    }
+
+    private static class TestTerminal extends GraphicalTerminalImplementation {
+        private final AWTTerminalFontConfiguration fontConfiguration;
+        private final int width;
+        private final int height;
+
+        TestTerminal(
+                AWTTerminalFontConfiguration fontConfiguration,
+                TerminalEmulatorDeviceConfiguration deviceConfiguration,
+                int columns,
+                int rows) {
+
+            super(new TerminalSize(columns, rows),
+                    deviceConfiguration,
+                    TerminalEmulatorColorConfiguration.getDefault(),
+                    new TerminalScrollController.Null());
+            this.fontConfiguration = fontConfiguration;
+            this.width = columns * fontConfiguration.getFontWidth();
+            this.height = rows * fontConfiguration.getFontHeight();
+        }
+
+        BufferedImage draw() {
+            flush();
+            return paint();
+        }
+
+        BufferedImage paint() {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            paintComponent(image.createGraphics());
+            return image;
+        }
+
+        @Override
+        int getFontHeight() {
+            return fontConfiguration.getFontHeight();
+        }
+
+        @Override
+        int getFontWidth() {
+            return fontConfiguration.getFontWidth();
+        }
+
+        @Override
+        int getHeight() {
+            return height;
+        }
+
+        @Override
+        int getWidth() {
+            return width;
+        }
+
+        @Override
+        Font getFontForCharacter(TextCharacter character) {
+            return fontConfiguration.getFontForCharacter(character);
+        }
+
+        @Override
+        boolean isTextAntiAliased() {
+            return fontConfiguration.isAntiAliased();
+        }
+
+        @Override
+        void repaint() {
+        }
+
+        @Override
+        void repaint(int x, int y, int width, int height) {
+        }
+    }
+}
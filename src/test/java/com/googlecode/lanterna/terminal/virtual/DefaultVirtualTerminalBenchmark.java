@@ -0,0 +1,98 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.virtual;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+
+/**
+ * Measures how fast text can be written to, and read back from, a {@link DefaultVirtualTerminal} with a large backlog.
+ * Optional arguments are the number of lines to write, the backlog size and whether to compress the backlog.
+ */
+public class DefaultVirtualTerminalBenchmark {
+    public static void main(String[] args) {
+        int linesToWrite = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int backlogSize = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        boolean backlogCompressed = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        DefaultVirtualTerminal virtualTerminal = new DefaultVirtualTerminal(new TerminalSize(120, 40));
+        virtualTerminal.setBacklogSize(backlogSize);
+        virtualTerminal.setBacklogCompressed(backlogCompressed);
+        char[] line = new char[100];
+
+        long startTime = System.nanoTime();
+        for(int i = 0; i < linesToWrite; i++) {
+            String number = Integer.toString(i);
+            for(int column = 0; column < line.length; column++) {
+                line[column] = column < number.length() ? number.charAt(column) : (char)('a' + (column + i) % 26);
+            }
+            for(char c: line) {
+                virtualTerminal.putCharacter(c);
+            }
+            virtualTerminal.putCharacter('\n');
+            // Keep the buffer from being marked as dirty forever
+            virtualTerminal.getAndResetDirtyCells();
+        }
+        long writeTime = System.nanoTime() - startTime;
+        System.out.println("Wrote " + linesToWrite + " lines in " + (writeTime / 1000000) + " ms (" +
+                (long)(linesToWrite / (writeTime / 1e9)) + " lines/s), buffer now holds " +
+                virtualTerminal.getBufferLineCount() + " lines");
+
+        int lineCount = virtualTerminal.getBufferLineCount();
+        long checksum = 0;
+        startTime = System.nanoTime();
+        // Single characters from all over the backlog, the worst case when the backlog is compressed since nearly every
+        // read lands in a different block
+        for(int i = 0; i < 1000000; i++) {
+            TextCharacter character = virtualTerminal.getBufferCharacter(i % line.length, (int)((i * 7919L) % lineCount));
+            checksum += character.getCharacter();
+        }
+        long randomReadTime = System.nanoTime() - startTime;
+        System.out.println("Read 1000000 random characters from the backlog in " + (randomReadTime / 1000000) + " ms " +
+                "(checksum " + checksum + ")");
+
+        checksum = 0;
+        startTime = System.nanoTime();
+        // Read a screenful at a time from random places in the backlog, like someone scrolling around would
+        int rows = virtualTerminal.getTerminalSize().getRows();
+        for(int page = 0; page < 250; page++) {
+            int firstRow = (int)((page * 7919L) % Math.max(1, lineCount - rows));
+            for(int row = firstRow; row < firstRow + rows; row++) {
+                for(int column = 0; column < line.length; column++) {
+                    checksum += virtualTerminal.getBufferCharacter(column, row).getCharacter();
+                }
+            }
+        }
+        long readTime = System.nanoTime() - startTime;
+        System.out.println("Read 250 random pages (" + (250 * rows * line.length) + " characters) from the backlog in " +
+                (readTime / 1000000) + " ms (checksum " + checksum + ")");
+
+        final long[] walked = new long[1];
+        startTime = System.nanoTime();
+        virtualTerminal.forEachLine(0, lineCount - 1, new VirtualTerminal.BufferWalker() {
+            @Override
+            public void onLine(int rowNumber, VirtualTerminal.BufferLine bufferLine) {
+                walked[0] += bufferLine.getCharacterAt(0).getCharacter();
+            }
+        });
+        long walkTime = System.nanoTime() - startTime;
+        System.out.println("Walked all " + lineCount + " lines in " + (walkTime / 1000000) + " ms " +
+                "(checksum " + walked[0] + ")");
+    }
+}
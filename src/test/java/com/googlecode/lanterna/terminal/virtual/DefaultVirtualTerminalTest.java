@@ -23,10 +23,16 @@ import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.terminal.Terminal;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import static org.junit.Assert.*;
 
@@ -545,6 +551,418 @@ public class DefaultVirtualTerminalTest {
         assertEquals(DEFAULT_CHARACTER.withCharacter('C'), virtualTerminal.getCharacter(0, 3));
     }
 
+    @Test
+    public void writingCellSpanDoesntMoveCursorOrWrap() {
+        virtualTerminal.setTerminalSize(new TerminalSize(10, 5));
+        virtualTerminal.setCursorPosition(3, 1);
+        TextCharacter[] characters = new TextCharacter[] {
+                fromChar('x'), fromChar('A'), fromChar('林'), fromChar('B'), fromChar('C'), fromChar('D'), fromChar('x')
+        };
+        virtualTerminal.writeCellSpan(5, 2, characters, 1, 5);
+        assertEquals(new TerminalPosition(3, 1), virtualTerminal.getCursorPosition());
+        assertLineEquals("     A林BC", 2);
+        assertLineEquals("", 3);
+
+        virtualTerminal.writeCellSpan(9, 4, characters, 2, 1);
+        assertLineEquals("", 4);
+        assertEquals(new TreeSet<TerminalPosition>(Arrays.asList(
+                new TerminalPosition(5, 2),
+                new TerminalPosition(6, 2),
+                new TerminalPosition(8, 2),
+                new TerminalPosition(9, 2),
+                new TerminalPosition(9, 4))), virtualTerminal.getAndResetDirtyCells());
+    }
+
+    @Test
+    public void compactLineRoundTripKeepsStylesAndDoubleWidthPadding() {
+        TextCharacter red = new TextCharacter('a', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT);
+        TextCharacter wide = new TextCharacter('\u672c', TextColor.ANSI.BLUE, TextColor.ANSI.WHITE, SGR.BOLD);
+        List<TextCharacter> line = new ArrayList<TextCharacter>(Arrays.asList(
+                red, red.withCharacter('b'), wide, TextBuffer.DOUBLE_WIDTH_CHAR_PADDING, DEFAULT_CHARACTER,
+                wide.withCharacter('\u65e5'), TextBuffer.DOUBLE_WIDTH_CHAR_PADDING, red.withCharacter('c')));
+        CompactLine.StyleTable styleTable = new CompactLine.StyleTable();
+        CompactLine compactLine = CompactLine.compact(line, styleTable);
+        assertEquals(3, styleTable.size());
+        assertEquals(line.size(), compactLine.getLength());
+        assertTrue(compactLine.hasPadding());
+        assertArrayEquals(new int[] { 0, 1, 2, 4, 5, 7 }, compactLine.getCharacterColumns());
+
+        List<TextCharacter> expanded = compactLine.expand(styleTable);
+        assertEquals(line, expanded);
+        for(int column = 0; column < line.size(); column++) {
+            assertEquals(line.get(column), compactLine.getCharacter(column, styleTable));
+        }
+        // The padding has to come back as the very same object, that's how the buffer recognizes it
+        assertSame(TextBuffer.DOUBLE_WIDTH_CHAR_PADDING, expanded.get(3));
+        assertSame(TextBuffer.DOUBLE_WIDTH_CHAR_PADDING, expanded.get(6));
+        assertNull(compactLine.getCharacter(line.size(), styleTable));
+
+        compactLine.releaseStyles(styleTable);
+        assertEquals(0, styleTable.size());
+    }
+
+    @Test
+    public void compactedLinesReadBackAndExpandWhenWrittenTo() {
+        TextBuffer buffer = new TextBuffer();
+        TextCharacter[][] expected = writeStyledLines(buffer, 20, new Random(42));
+        buffer.compactLinesBefore(20);
+        assertBufferContent(expected, buffer);
+
+        // Writing to a compacted line turns it back into a regular line, keeping the rest of it
+        TextCharacter written = new TextCharacter('x', TextColor.ANSI.GREEN, TextColor.ANSI.DEFAULT);
+        overwriteSingleWidthCharacter(buffer, expected, 7, written);
+        assertBufferContent(expected, buffer);
+    }
+
+    @Test
+    public void compressedBlocksReadBackAndExpandWhenWrittenTo() {
+        TextBuffer buffer = new TextBuffer();
+        buffer.setCompressionEnabled(true);
+        TextCharacter[][] expected = writeStyledLines(buffer, 700, new Random(43));
+        buffer.compactLinesBefore(700);
+        assertBufferContent(expected, buffer);
+
+        // Writing to a line in a block puts the block back as compact lines
+        TextCharacter written = new TextCharacter('x', TextColor.ANSI.GREEN, TextColor.ANSI.DEFAULT);
+        overwriteSingleWidthCharacter(buffer, expected, 300, written);
+        assertBufferContent(expected, buffer);
+
+        // Recompressing and removing lines from the top, through the middle of a block
+        buffer.compactLinesBefore(700);
+        buffer.removeTopLines(100);
+        TextCharacter[][] remaining = Arrays.copyOfRange(expected, 100, expected.length);
+        assertBufferContent(remaining, buffer);
+        overwriteSingleWidthCharacter(buffer, remaining, 50, written);
+        assertBufferContent(remaining, buffer);
+    }
+
+    @Test
+    public void styleTableLetsGoOfStylesOfRemovedLines() {
+        for(boolean compressed: new boolean[] { false, true }) {
+            TextBuffer buffer = new TextBuffer();
+            buffer.setCompressionEnabled(compressed);
+            for(int row = 0; row < 600; row++) {
+                // Every line has a style of its own, except for the last one
+                TextColor color = row < 599 ? new TextColor.RGB(row % 256, row / 256, 1) : TextColor.ANSI.RED;
+                buffer.setCharacter(row, 0, new TextCharacter('a', color, TextColor.ANSI.DEFAULT));
+            }
+            buffer.compactLinesBefore(600);
+            assertEquals(600, buffer.getStyleCount());
+
+            // Writing to a compact line drops its reference
+            buffer.setCharacter(10, 0, DEFAULT_CHARACTER);
+            buffer.compactLinesBefore(11);
+            assertEquals(600, buffer.getStyleCount());
+
+            buffer.removeTopLines(599);
+            assertEquals("Compressed: " + compressed, 1, buffer.getStyleCount());
+            assertEquals(new TextCharacter('a', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT), buffer.getCharacter(0, 0));
+
+            // Styles that are no longer used are reused for new ones
+            for(int row = 1; row < 100; row++) {
+                buffer.setCharacter(row, 0, new TextCharacter('b', new TextColor.RGB(row, 2, 2), TextColor.ANSI.DEFAULT));
+            }
+            buffer.compactLinesBefore(100);
+            assertEquals(100, buffer.getStyleCount());
+            assertEquals(new TextCharacter('b', new TextColor.RGB(42, 2, 2), TextColor.ANSI.DEFAULT), buffer.getCharacter(42, 0));
+
+            buffer.clear();
+            assertEquals(0, buffer.getStyleCount());
+        }
+    }
+
+    @Test
+    public void spilledLinesKeepTheirStylesUntilSpillingStops() throws IOException {
+        TextBuffer buffer = new TextBuffer();
+        buffer.startSpilling(null);
+        try {
+            for(int row = 0; row < 10; row++) {
+                buffer.setCharacter(row, 0, new TextCharacter('a', new TextColor.RGB(row, 0, 0), TextColor.ANSI.DEFAULT));
+            }
+            buffer.compactLinesBefore(5);
+            buffer.spillTopLines(8);
+            // The two lines left in memory haven't been compacted, so they don't use the table
+            assertEquals(8, buffer.getStyleCount());
+            assertEquals(new TextCharacter('a', new TextColor.RGB(3, 0, 0), TextColor.ANSI.DEFAULT), buffer.getCharacter(3, 0));
+            assertEquals(new TextCharacter('a', new TextColor.RGB(7, 0, 0), TextColor.ANSI.DEFAULT), buffer.getCharacter(7, 0));
+        }
+        finally {
+            assertEquals(8, buffer.stopSpilling());
+        }
+        assertEquals(0, buffer.getStyleCount());
+        buffer.compactLinesBefore(2);
+        assertEquals(2, buffer.getStyleCount());
+    }
+
+    @Test
+    public void spilledLinesComeBackIntoMemoryWhenTheTerminalGrowsTaller() throws IOException {
+        DefaultVirtualTerminal terminal = new DefaultVirtualTerminal(new TerminalSize(10, 5));
+        terminal.setBacklogSize(0);
+        terminal.enableBacklogSpillover(null);
+        try {
+            for(int i = 0; i < 30; i++) {
+                terminal.putCharacter((char)('A' + i % 26));
+                terminal.putCharacter('\n');
+            }
+            assertEquals(31, terminal.getBufferLineCount());
+
+            // The lines that come into view must be writable again
+            terminal.setTerminalSize(new TerminalSize(10, 20));
+            assertEquals(31, terminal.getBufferLineCount());
+            assertEquals(fromChar('L'), terminal.getCharacter(0, 0));
+            terminal.setCursorPosition(TerminalPosition.TOP_LEFT_CORNER);
+            terminal.putCharacter('x');
+            assertEquals(fromChar('x'), terminal.getCharacter(0, 0));
+            assertEquals(fromChar('x'), terminal.getBufferCharacter(0, 11));
+            for(int i = 0; i < 30; i++) {
+                if(i != 11) {
+                    assertEquals(fromChar((char)('A' + i % 26)), terminal.getBufferCharacter(0, i));
+                }
+            }
+
+            // Shrinking again puts the lines back in the spill file
+            terminal.setTerminalSize(new TerminalSize(10, 5));
+            assertEquals(31, terminal.getBufferLineCount());
+            assertEquals(fromChar('x'), terminal.getBufferCharacter(0, 11));
+        }
+        finally {
+            terminal.close();
+        }
+    }
+
+    @Test
+    public void unspilledLinesOfACompressedBlockCanBeWrittenTo() throws IOException {
+        TextBuffer buffer = new TextBuffer();
+        buffer.setCompressionEnabled(true);
+        buffer.startSpilling(null);
+        try {
+            TextCharacter[][] expected = writeStyledLines(buffer, 600, new Random(44));
+            buffer.compactLinesBefore(600);
+            // Spill through the middle of the first block, then take some of it back
+            buffer.spillTopLines(100);
+            buffer.unspillBottomLines(40);
+            assertEquals(60, buffer.getSpilledLineCount());
+            assertBufferContent(expected, buffer);
+
+            TextCharacter written = new TextCharacter('x', TextColor.ANSI.GREEN, TextColor.ANSI.DEFAULT);
+            overwriteSingleWidthCharacter(buffer, expected, 70, written);
+            overwriteSingleWidthCharacter(buffer, expected, 200, written);
+            assertBufferContent(expected, buffer);
+        }
+        finally {
+            buffer.stopSpilling();
+        }
+        // Nothing is left holding on to styles once every line has been expanded or discarded
+        for(int row = 0; row < buffer.getLineCount(); row++) {
+            buffer.setCharacter(row, 0, DEFAULT_CHARACTER);
+        }
+        assertEquals(0, buffer.getStyleCount());
+    }
+
+    @Test
+    public void closeDeletesTheSpillFiles() throws IOException {
+        File directory = File.createTempFile("lanterna-test", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        try {
+            DefaultVirtualTerminal terminal = new DefaultVirtualTerminal(new TerminalSize(10, 5));
+            terminal.setBacklogSize(0);
+            terminal.enableBacklogSpillover(directory);
+            for(int i = 0; i < 20; i++) {
+                terminal.putCharacter('\n');
+            }
+            assertEquals(2, directory.listFiles().length);
+            terminal.close();
+            assertEquals(0, directory.listFiles().length);
+        }
+        finally {
+            //noinspection ResultOfMethodCallIgnored
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void findTextSearchesForwardAndBackward() {
+        putString("one two\n");
+        putString("two one two\n");
+        putString("three");
+
+        assertEquals(new TerminalPosition(4, 0), virtualTerminal.findText("two", null, true));
+        assertEquals(new TerminalPosition(0, 1), virtualTerminal.findText("two", new TerminalPosition(5, 0), true));
+        assertEquals(new TerminalPosition(8, 1), virtualTerminal.findText("two", new TerminalPosition(1, 1), true));
+        assertNull(virtualTerminal.findText("two", new TerminalPosition(9, 1), true));
+
+        assertEquals(new TerminalPosition(8, 1), virtualTerminal.findText("two", null, false));
+        assertEquals(new TerminalPosition(0, 1), virtualTerminal.findText("two", new TerminalPosition(8, 1), false));
+        assertEquals(new TerminalPosition(4, 0), virtualTerminal.findText("two", new TerminalPosition(0, 1), false));
+        assertNull(virtualTerminal.findText("two", new TerminalPosition(4, 0), false));
+
+        assertEquals(new TerminalPosition(2, 0), virtualTerminal.findPattern(Pattern.compile("e\\st"), null, true));
+        assertEquals(new TerminalPosition(6, 1), virtualTerminal.findPattern(Pattern.compile("e\\st"), new TerminalPosition(3, 0), true));
+        assertEquals(new TerminalPosition(0, 2), virtualTerminal.findPattern(Pattern.compile("^th"), null, false));
+        assertNull(virtualTerminal.findText("four", null, true));
+    }
+
+    @Test
+    public void findTextCountsDoubleWidthCharactersAsOneCharacter() {
+        // The first double-width character takes up columns 1 and 2, the second one 4 and 5
+        putString("a\u672cb\u65e5c");
+        assertEquals(new TerminalPosition(1, 0), virtualTerminal.findText("\u672cb", null, true));
+        assertEquals(new TerminalPosition(3, 0), virtualTerminal.findText("b\u65e5c", null, true));
+        assertEquals(new TerminalPosition(6, 0), virtualTerminal.findText("c", null, true));
+        assertEquals(new TerminalPosition(1, 0), virtualTerminal.findPattern(Pattern.compile("\u672c.\u65e5"), null, true));
+        // Starting on the padding column of a double-width character skips that character
+        assertEquals(new TerminalPosition(4, 0), virtualTerminal.findText("\u65e5", new TerminalPosition(2, 0), true));
+        assertNull(virtualTerminal.findText("\u672c", new TerminalPosition(2, 0), true));
+        assertEquals(new TerminalPosition(1, 0), virtualTerminal.findText("\u672c", new TerminalPosition(2, 0), false));
+    }
+
+    @Test
+    public void snapshotsSeeTheBufferAsItWasWhenTheyWereTaken() {
+        TextBuffer buffer = new TextBuffer();
+        buffer.setCharacter(0, 0, fromChar('a'));
+        buffer.setCharacter(1, 0, fromChar('b'));
+        TextBuffer.Snapshot first = buffer.getSnapshot();
+        buffer.setCharacter(1, 1, fromChar('c'));
+        TextBuffer.Snapshot second = buffer.getSnapshot();
+
+        assertNull(TextBufferSearch.find(first, TextBufferSearch.literal("bc"), null, true));
+        assertEquals(new TerminalPosition(0, 1), TextBufferSearch.find(second, TextBufferSearch.literal("bc"), null, true));
+        // Lines that haven't been written to in between are compacted only once
+        assertSame(first.newReader().getLine(0), second.newReader().getLine(0));
+        assertNotSame(first.newReader().getLine(1), second.newReader().getLine(1));
+    }
+
+    @Test
+    public void chunkedSearchFindsTheSameMatchesAsBruteForce() {
+        Random random = new Random(45);
+        TextBuffer buffer = new TextBuffer();
+        buffer.setCompressionEnabled(true);
+        // Enough lines for the search to be split into several chunks
+        int lineCount = 20000;
+        String[] texts = new String[lineCount];
+        int[][] columns = new int[lineCount][];
+        String alphabet = "ab\u672c";
+        for(int row = 0; row < lineCount; row++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for(int i = 0; i < length; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            if(random.nextInt(2500) == 0) {
+                // A few rare matches, so that most chunks don't have one
+                text.insert(random.nextInt(text.length() + 1), "X\u65e5Z");
+            }
+            texts[row] = text.toString();
+            columns[row] = new int[texts[row].length()];
+            int column = 0;
+            for(int i = 0; i < texts[row].length(); i++) {
+                TextCharacter textCharacter = fromChar(texts[row].charAt(i));
+                buffer.setCharacter(row, column, textCharacter);
+                columns[row][i] = column;
+                column += textCharacter.isDoubleWidth() ? 2 : 1;
+            }
+        }
+        buffer.compactLinesBefore(lineCount - 100);
+        TextBuffer.Snapshot snapshot = buffer.getSnapshot();
+
+        String[] needles = { "X\u65e5Z", "ab\u672cab\u672c", "\u672c\u672c\u672c\u672c\u672c\u672c", "bbbbbbbbbbb" };
+        for(int i = 0; i < 200; i++) {
+            String needle = needles[random.nextInt(needles.length)];
+            boolean forward = random.nextBoolean();
+            TerminalPosition from = random.nextInt(10) == 0 ? null :
+                    new TerminalPosition(random.nextInt(25), random.nextInt(lineCount));
+            TerminalPosition expected = findBruteForce(texts, columns, needle, from, forward);
+            String message = "Searching " + (forward ? "forward" : "backward") + " for " + needle + " from " + from;
+            assertEquals(message, expected,
+                    TextBufferSearch.find(snapshot, TextBufferSearch.literal(needle), from, forward, true));
+            assertEquals(message, expected,
+                    TextBufferSearch.find(snapshot, TextBufferSearch.literal(needle), from, forward, false));
+            assertEquals(message, expected,
+                    TextBufferSearch.find(snapshot, TextBufferSearch.pattern(Pattern.compile(Pattern.quote(needle))),
+                            from, forward, true));
+        }
+    }
+
+    private TerminalPosition findBruteForce(String[] texts, int[][] columns, String needle, TerminalPosition from,
+                                            boolean forward) {
+        if(forward) {
+            int startRow = from != null ? from.getRow() : 0;
+            for(int row = startRow; row < texts.length; row++) {
+                for(int index = texts[row].indexOf(needle); index >= 0; index = texts[row].indexOf(needle, index + 1)) {
+                    if(from == null || row > from.getRow() || columns[row][index] >= from.getColumn()) {
+                        return new TerminalPosition(columns[row][index], row);
+                    }
+                }
+            }
+        }
+        else {
+            int startRow = from != null ? Math.min(from.getRow(), texts.length - 1) : texts.length - 1;
+            for(int row = startRow; row >= 0; row--) {
+                for(int index = texts[row].lastIndexOf(needle); index >= 0; index = texts[row].lastIndexOf(needle, index - 1)) {
+                    if(from == null || row < from.getRow() || columns[row][index] < from.getColumn()) {
+                        return new TerminalPosition(columns[row][index], row);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes lines of random characters in a few styles, including double-width characters, and returns what
+     * {@code getCharacter} should return for each column
+     */
+    private TextCharacter[][] writeStyledLines(TextBuffer buffer, int lineCount, Random random) {
+        TextCharacter[] styles = {
+                DEFAULT_CHARACTER,
+                new TextCharacter(' ', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT),
+                new TextCharacter(' ', TextColor.ANSI.YELLOW, TextColor.ANSI.BLUE, SGR.BOLD),
+                new TextCharacter(' ', new TextColor.RGB(10, 20, 30), TextColor.ANSI.DEFAULT, SGR.UNDERLINE)
+        };
+        String characters = "abc XYZ\u672c\u65e5";
+        TextCharacter[][] expected = new TextCharacter[lineCount][];
+        for(int row = 0; row < lineCount; row++) {
+            expected[row] = new TextCharacter[random.nextInt(30)];
+            int column = 0;
+            while(column < expected[row].length) {
+                TextCharacter textCharacter = styles[random.nextInt(styles.length)]
+                        .withCharacter(characters.charAt(random.nextInt(characters.length())));
+                if(textCharacter.isDoubleWidth() && column + 1 == expected[row].length) {
+                    textCharacter = textCharacter.withCharacter('d');
+                }
+                buffer.setCharacter(row, column, textCharacter);
+                expected[row][column++] = textCharacter;
+                if(textCharacter.isDoubleWidth()) {
+                    // The padding column reads as the double-width character itself
+                    expected[row][column++] = textCharacter;
+                }
+            }
+        }
+        return expected;
+    }
+
+    private void overwriteSingleWidthCharacter(TextBuffer buffer, TextCharacter[][] expected, int row, TextCharacter written) {
+        for(int column = 0; column < expected[row].length; column++) {
+            if(!expected[row][column].isDoubleWidth()) {
+                buffer.setCharacter(row, column, written);
+                expected[row][column] = written;
+                return;
+            }
+        }
+        fail("Row " + row + " has no single-width character to overwrite");
+    }
+
+    private void assertBufferContent(TextCharacter[][] expected, TextBuffer buffer) {
+        assertEquals(expected.length, buffer.getLineCount());
+        for(int row = 0; row < expected.length; row++) {
+            for(int column = 0; column < expected[row].length; column++) {
+                assertEquals("Row " + row + ", column " + column, expected[row][column], buffer.getCharacter(row, column));
+            }
+            assertEquals(DEFAULT_CHARACTER, buffer.getCharacter(row, expected[row].length));
+        }
+    }
+
     private void putString(String string) {
         for(char c: string.toCharArray()) {
             virtualTerminal.putCharacter(c);
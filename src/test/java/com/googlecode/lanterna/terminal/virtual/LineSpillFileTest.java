@@ -0,0 +1,184 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2018 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.virtual;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LineSpillFileTest {
+    // Small enough for a few lines to fill a segment
+    private static final int SEGMENT_SIZE = 1024;
+
+    private File directory;
+    private CompactLine.StyleTable styleTable;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("lanterna-test", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        styleTable = new CompactLine.StyleTable();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    @Test
+    public void linesReadBackTheSameAcrossSegmentBoundaries() throws IOException {
+        LineSpillFile spillFile = new LineSpillFile(directory, SEGMENT_SIZE);
+        try {
+            Random random = new Random(7);
+            List<List<TextCharacter>> expected = new ArrayList<List<TextCharacter>>();
+            // Long enough for lines to regularly not fit in what's left of a segment, and for the index to span segments
+            for(int i = 0; i < 1000; i++) {
+                List<TextCharacter> line = randomLine(random, random.nextInt(100));
+                spillFile.append(CompactLine.compact(line, styleTable));
+                expected.add(line);
+            }
+            assertEquals(1000, spillFile.getLineCount());
+            for(int i = 0; i < expected.size(); i++) {
+                assertEquals("Line " + i, expected.get(i), spillFile.getLine(i).expand(styleTable));
+            }
+            // A line in a single style that fills a whole segment goes into a segment of its own
+            List<TextCharacter> line = new ArrayList<TextCharacter>();
+            for(int i = 0; i < (SEGMENT_SIZE - 16) / 2; i++) {
+                line.add(TextCharacter.DEFAULT_CHARACTER.withCharacter('x'));
+            }
+            CompactLine fullSegmentLine = CompactLine.compact(line, styleTable);
+            assertEquals(SEGMENT_SIZE, fullSegmentLine.getSerializedSize());
+            spillFile.append(fullSegmentLine);
+            spillFile.append(CompactLine.compact(expected.get(0), styleTable));
+            assertEquals(line, spillFile.getLine(1000).expand(styleTable));
+            assertEquals(expected.get(0), spillFile.getLine(1001).expand(styleTable));
+        }
+        finally {
+            spillFile.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void linesLongerThanASegmentAreRejected() throws IOException {
+        LineSpillFile spillFile = new LineSpillFile(directory, SEGMENT_SIZE);
+        try {
+            spillFile.append(CompactLine.compact(randomLine(new Random(8), SEGMENT_SIZE), styleTable));
+        }
+        finally {
+            spillFile.close();
+        }
+    }
+
+    @Test
+    public void clearedFileIsReusedFromTheStart() throws IOException {
+        LineSpillFile spillFile = new LineSpillFile(directory, SEGMENT_SIZE);
+        try {
+            Random random = new Random(9);
+            for(int i = 0; i < 100; i++) {
+                spillFile.append(CompactLine.compact(randomLine(random, 50), styleTable));
+            }
+            spillFile.clear();
+            assertEquals(0, spillFile.getLineCount());
+            try {
+                spillFile.getLine(0);
+                fail("Lines should be gone after clear()");
+            }
+            catch(IllegalArgumentException expected) {
+            }
+
+            List<TextCharacter> line = randomLine(random, 20);
+            spillFile.append(CompactLine.compact(line, styleTable));
+            assertEquals(1, spillFile.getLineCount());
+            assertEquals(line, spillFile.getLine(0).expand(styleTable));
+        }
+        finally {
+            spillFile.close();
+        }
+    }
+
+    @Test
+    public void removedLinesAreOverwrittenByTheNextOnes() throws IOException {
+        LineSpillFile spillFile = new LineSpillFile(directory, SEGMENT_SIZE);
+        try {
+            Random random = new Random(10);
+            List<List<TextCharacter>> expected = new ArrayList<List<TextCharacter>>();
+            for(int i = 0; i < 200; i++) {
+                List<TextCharacter> line = randomLine(random, random.nextInt(60));
+                spillFile.append(CompactLine.compact(line, styleTable));
+                expected.add(line);
+            }
+            spillFile.removeLastLines(50);
+            expected.subList(150, 200).clear();
+            for(int i = 0; i < 80; i++) {
+                List<TextCharacter> line = randomLine(random, random.nextInt(60));
+                spillFile.append(CompactLine.compact(line, styleTable));
+                expected.add(line);
+            }
+            assertEquals(230, spillFile.getLineCount());
+            for(int i = 0; i < expected.size(); i++) {
+                assertEquals("Line " + i, expected.get(i), spillFile.getLine(i).expand(styleTable));
+            }
+        }
+        finally {
+            spillFile.close();
+        }
+    }
+
+    @Test
+    public void closeDeletesTheFiles() throws IOException {
+        LineSpillFile spillFile = new LineSpillFile(directory, SEGMENT_SIZE);
+        spillFile.append(CompactLine.compact(randomLine(new Random(11), 10), styleTable));
+        assertEquals(2, directory.listFiles().length);
+        spillFile.close();
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    private List<TextCharacter> randomLine(Random random, int length) {
+        TextCharacter[] styles = {
+                TextCharacter.DEFAULT_CHARACTER,
+                new TextCharacter(' ', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT),
+                new TextCharacter(' ', TextColor.ANSI.CYAN, TextColor.ANSI.BLACK, SGR.REVERSE)
+        };
+        List<TextCharacter> line = new ArrayList<TextCharacter>();
+        for(int i = 0; i < length; i++) {
+            line.add(styles[random.nextInt(styles.length)].withCharacter((char)('a' + random.nextInt(26))));
+        }
+        return line;
+    }
+}